@@ -0,0 +1,213 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.xml.namespace.QName;
+
+import org.w3c.dom.Element;
+
+import com.github.sardine.report.SardineReport;
+
+/**
+ * Asynchronous variant of {@link Sardine}. Requests are sent without blocking the calling thread and the returned
+ * futures complete with the same results as the corresponding {@link Sardine} methods. Failures complete the
+ * future exceptionally with the {@link IOException} the blocking method would throw. Cancelling a future aborts
+ * the request if it is still in flight.
+ *
+ * @see com.github.sardine.impl.AsyncSardineImpl
+ */
+public interface AsyncSardine
+{
+	/**
+	 * Add credentials to any scope.
+	 *
+	 * @param username Use in authentication header credentials
+	 * @param password Use in authentication header credentials
+	 */
+	void setCredentials(String username, String password);
+
+	/**
+	 * Send credentials with the first request to the host instead of waiting for a challenge.
+	 *
+	 * @param hostname Host name of the server
+	 */
+	void enablePreemptiveAuthentication(String hostname);
+
+	/**
+	 * @see Sardine#list(String)
+	 */
+	CompletableFuture<List<DavResource>> list(String url);
+
+	/**
+	 * @see Sardine#list(String, int)
+	 */
+	CompletableFuture<List<DavResource>> list(String url, int depth);
+
+	/**
+	 * @see Sardine#list(String, int, Set)
+	 */
+	CompletableFuture<List<DavResource>> list(String url, int depth, Set<QName> props);
+
+	/**
+	 * @see Sardine#list(String, int, boolean)
+	 */
+	CompletableFuture<List<DavResource>> list(String url, int depth, boolean allProp);
+
+	/**
+	 * @see Sardine#versionsList(String, int, Set)
+	 */
+	CompletableFuture<List<DavResource>> versionsList(String url, int depth, Set<QName> props);
+
+	/**
+	 * @see Sardine#propfind(String, int, Set)
+	 */
+	CompletableFuture<List<DavResource>> propfind(String url, int depth, Set<QName> props);
+
+	/**
+	 * @see Sardine#report(String, int, SardineReport)
+	 */
+	<T> CompletableFuture<T> report(String url, int depth, SardineReport<T> report);
+
+	/**
+	 * @see Sardine#search(String, String, String)
+	 */
+	CompletableFuture<List<DavResource>> search(String url, String language, String query);
+
+	/**
+	 * @see Sardine#patch(String, Map, List)
+	 */
+	CompletableFuture<List<DavResource>> patch(String url, Map<QName, String> addProps, List<QName> removeProps);
+
+	/**
+	 * @see Sardine#patch(String, List, List, Map)
+	 */
+	CompletableFuture<List<DavResource>> patch(String url, List<Element> addProps, List<QName> removeProps, Map<String, String> headers);
+
+	/**
+	 * The response body is received completely before the future completes.
+	 *
+	 * @see Sardine#get(String)
+	 */
+	CompletableFuture<InputStream> get(String url);
+
+	/**
+	 * The response body is received completely before the future completes.
+	 *
+	 * @see Sardine#get(String, Map)
+	 */
+	CompletableFuture<InputStream> get(String url, Map<String, String> headers);
+
+	/**
+	 * @see Sardine#put(String, byte[])
+	 */
+	CompletableFuture<Void> put(String url, byte[] data);
+
+	/**
+	 * @see Sardine#put(String, byte[], String)
+	 */
+	CompletableFuture<Void> put(String url, byte[] data, String contentType);
+
+	/**
+	 * @see Sardine#put(String, File, String)
+	 */
+	CompletableFuture<Void> put(String url, File localFile, String contentType);
+
+	/**
+	 * @see Sardine#delete(String)
+	 */
+	CompletableFuture<Void> delete(String url);
+
+	/**
+	 * @see Sardine#delete(String, Map)
+	 */
+	CompletableFuture<Void> delete(String url, Map<String, String> headers);
+
+	/**
+	 * @see Sardine#createDirectory(String)
+	 */
+	CompletableFuture<Void> createDirectory(String url);
+
+	/**
+	 * @see Sardine#move(String, String, boolean, Map)
+	 */
+	CompletableFuture<Void> move(String sourceUrl, String destinationUrl, boolean overwrite, Map<String, String> headers);
+
+	/**
+	 * @see Sardine#copy(String, String, boolean, Map)
+	 */
+	CompletableFuture<Void> copy(String sourceUrl, String destinationUrl, boolean overwrite, Map<String, String> headers);
+
+	/**
+	 * @see Sardine#exists(String)
+	 */
+	CompletableFuture<Boolean> exists(String url);
+
+	/**
+	 * @see Sardine#lock(String)
+	 */
+	CompletableFuture<String> lock(String url);
+
+	/**
+	 * @see Sardine#refreshLock(String, String, String)
+	 */
+	CompletableFuture<String> refreshLock(String url, String token, String file);
+
+	/**
+	 * @see Sardine#unlock(String, String)
+	 */
+	CompletableFuture<Void> unlock(String url, String token);
+
+	/**
+	 * @see Sardine#getAcl(String)
+	 */
+	CompletableFuture<DavAcl> getAcl(String url);
+
+	/**
+	 * @see Sardine#setAcl(String, List)
+	 */
+	CompletableFuture<Void> setAcl(String url, List<DavAce> aces);
+
+	/**
+	 * @see Sardine#getQuota(String)
+	 */
+	CompletableFuture<DavQuota> getQuota(String url);
+
+	/**
+	 * @see Sardine#getPrincipals(String)
+	 */
+	CompletableFuture<List<DavPrincipal>> getPrincipals(String url);
+
+	/**
+	 * @see Sardine#getPrincipalCollectionSet(String)
+	 */
+	CompletableFuture<List<String>> getPrincipalCollectionSet(String url);
+
+	/**
+	 * Stops the I/O threads and closes all connections. Requests in flight fail.
+	 *
+	 * @throws IOException When closing the client fails
+	 */
+	void shutdown() throws IOException;
+}
@@ -25,15 +25,11 @@ import org.apache.http.ParseException;
 import org.apache.http.message.BasicLineParser;
 import org.w3c.dom.Element;
 
-import com.github.sardine.model.Creationdate;
-import com.github.sardine.model.Displayname;
-import com.github.sardine.model.Getcontentlanguage;
 import com.github.sardine.model.Getcontentlength;
 import com.github.sardine.model.Getcontenttype;
-import com.github.sardine.model.Getetag;
-import com.github.sardine.model.Getlastmodified;
 import com.github.sardine.model.Lockdiscovery;
 import com.github.sardine.model.Locktoken;
+import com.github.sardine.model.Prop;
 import com.github.sardine.model.Propstat;
 import com.github.sardine.model.Report;
 import com.github.sardine.model.Resourcetype;
@@ -83,26 +79,50 @@ public class DavResource
 	private final int status;
 	private final DavProperties props;
 
-	private class DavProperties
+	/**
+	 * Property values collected in a single pass over the propstats of a response. Dates, resource types,
+	 * supported reports and custom properties are decoded on first access.
+	 */
+	private static class DavProperties
 	{
-		final Date creation;
-		final Date modified;
+		final String creationValue;
+		final String modifiedValue;
 		final String contentType;
 		final String etag;
 		final String displayName;
 		final String lockToken;
-		final List<QName> resourceTypes;
 		final String contentLanguage;
 		final Long contentLength;
-		final List<QName> supportedReports;
-		final Map<QName, String> customProps;
+
+		/**
+		 * Values from the response decoded on first access
+		 */
+		private final List<Resourcetype> resourceTypeValues;
+		private final List<SupportedReportSet> supportedReportValues;
+		private final List<List<Element>> customPropValues;
+
+		private volatile Date creation;
+		private volatile Date modified;
+		private volatile List<QName> resourceTypes;
+		private volatile List<QName> supportedReports;
+		private volatile Map<QName, String> customProps;
 
 		DavProperties(Date creation, Date modified, String contentType,
 					  Long contentLength, String etag, String displayName, String lockToken, List<QName> resourceTypes,
 					  String contentLanguage, List<QName> supportedReports, Map<QName, String> customProps)
 		{
+			this((String) null, (String) null, contentType, contentLength, etag, displayName, lockToken, resourceTypes,
+					contentLanguage, supportedReports, customProps);
 			this.creation = creation;
 			this.modified = modified;
+		}
+
+		DavProperties(String creation, String modified, String contentType,
+					  Long contentLength, String etag, String displayName, String lockToken, List<QName> resourceTypes,
+					  String contentLanguage, List<QName> supportedReports, Map<QName, String> customProps)
+		{
+			this.creationValue = creation;
+			this.modifiedValue = modified;
 			this.contentType = contentType;
 			this.contentLength = contentLength;
 			this.etag = etag;
@@ -112,438 +132,376 @@ public class DavResource
 			this.contentLanguage = contentLanguage;
 			this.supportedReports = supportedReports;
 			this.customProps = customProps;
+			this.resourceTypeValues = Collections.emptyList();
+			this.supportedReportValues = Collections.emptyList();
+			this.customPropValues = Collections.emptyList();
 		}
 
-		DavProperties(Response response) {
-			this.creation = SardineUtil.parseDate(getCreationDate(response));
-			this.modified = SardineUtil.parseDate(getModifiedDate(response));
-			this.contentType = getContentType(response);
-			this.contentLength = getContentLength(response);
-			this.etag = getEtag(response);
-			this.displayName = getDisplayName(response);
-			this.lockToken = getLockToken(response);
-			this.resourceTypes = getResourceTypes(response);
-			this.contentLanguage = getContentLanguage(response);
-			this.supportedReports = getSupportedReports(response);
-			this.customProps = getCustomProps(response);
-		}
-	}
-
-	/**
-	 * Represents a webdav response block.
-	 *
-	 * @param href URI to the resource as returned from the server
-	 * @throws java.net.URISyntaxException If parsing the href from the response element fails
-	 */
-	protected DavResource(String href, Date creation, Date modified, String contentType,
-						  Long contentLength, String etag, String displayName, String lockToken, List<QName> resourceTypes,
-						  String contentLanguage, List<QName> supportedReports, Map<QName, String> customProps)
-			throws URISyntaxException
-	{
-		this.href = new URI(href);
-		this.status = DEFAULT_STATUS_CODE;
-		this.props = new DavProperties(creation, modified, contentType, contentLength, etag, displayName, lockToken,
-				resourceTypes, contentLanguage, supportedReports, customProps);
-	}
-
-	/**
-	 * Converts the given {@link Response} to a {@link com.github.sardine.DavResource}.
-	 *
-	 * @param response The response complex type of the multistatus
-	 * @throws java.net.URISyntaxException If parsing the href from the response element fails
-	 */
-	public DavResource(Response response) throws URISyntaxException
-	{
-		this.href = new URI(response.getHref().get(0));
-		this.status = getStatusCode(response);
-		this.props = new DavProperties(response);
-	}
-
-	/**
-	 * Retrieves the status code portion of the Response's <CODE>status</CODE> element.
-	 * If it is not present, returns {@link #DEFAULT_STATUS_CODE} (a.k.a. <CODE>200</CODE>).
-	 *
-	 * @param response The response complex type of the multistatus
-	 * @return DEFAULT_STATUS_CODE if not found in response; -1 if status line was malformed
-	 */
-	private int getStatusCode(Response response)
-	{
-		List<Propstat> list = response.getPropstat();
-		for(Propstat propstat : list) {
-			if(propstat.getStatus() != null) {
-				try {
-					return BasicLineParser.parseStatusLine(propstat.getStatus(), null).getStatusCode();
+		/**
+		 * For every property the value from the first propstat containing it is used.
+		 */
+		DavProperties(Response response)
+		{
+			String creation = null;
+			String modified = null;
+			String contentType = null;
+			String etag = null;
+			String displayName = null;
+			String lockToken = null;
+			String contentLanguage = null;
+			Long contentLength = null;
+			List<Resourcetype> resourceTypeValues = null;
+			List<SupportedReportSet> supportedReportValues = null;
+			List<List<Element>> customPropValues = null;
+			List<Propstat> list = response.getPropstat();
+			for (Propstat propstat : list)
+			{
+				Prop prop = propstat.getProp();
+				if (prop == null)
+				{
+					continue;
 				}
-				catch(ParseException e) {
-					log.warning(String.format("Failed to parse status line: %s", propstat.getStatus()));
-					return -1;
+				Resourcetype resourcetype = prop.getResourcetype();
+				boolean collection = (resourcetype != null) && (resourcetype.getCollection() != null);
+				if (creation == null && prop.getCreationdate() != null)
+				{
+					creation = getValue(prop.getCreationdate().getContent());
+				}
+				if (modified == null && prop.getGetlastmodified() != null)
+				{
+					modified = getValue(prop.getGetlastmodified().getContent());
+				}
+				if (contentType == null)
+				{
+					if (collection)
+					{
+						// Need to correct the contentType to identify as a directory.
+						contentType = HTTPD_UNIX_DIRECTORY_CONTENT_TYPE;
+					}
+					else if (prop.getGetcontenttype() != null)
+					{
+						contentType = getValue(prop.getGetcontenttype().getContent());
+					}
+				}
+				if (contentLanguage == null)
+				{
+					if (collection)
+					{
+						contentLanguage = HTTPD_UNIX_DIRECTORY_CONTENT_TYPE;
+					}
+					else if (prop.getGetcontentlanguage() != null)
+					{
+						contentLanguage = getValue(prop.getGetcontentlanguage().getContent());
+					}
+				}
+				if (contentLength == null && prop.getGetcontentlength() != null)
+				{
+					contentLength = getContentLength(getValue(prop.getGetcontentlength().getContent()));
+				}
+				if (etag == null && prop.getGetetag() != null)
+				{
+					etag = getValue(prop.getGetetag().getContent());
+				}
+				if (displayName == null && prop.getDisplayname() != null)
+				{
+					displayName = getValue(prop.getDisplayname().getContent());
+				}
+				if (lockToken == null && prop.getLockdiscovery() != null)
+				{
+					lockToken = getLockToken(prop.getLockdiscovery());
+				}
+				if (resourcetype != null)
+				{
+					if (resourceTypeValues == null)
+					{
+						resourceTypeValues = new ArrayList<Resourcetype>(1);
+					}
+					resourceTypeValues.add(resourcetype);
+				}
+				if (prop.getSupportedReportSet() != null)
+				{
+					if (supportedReportValues == null)
+					{
+						supportedReportValues = new ArrayList<SupportedReportSet>(1);
+					}
+					supportedReportValues.add(prop.getSupportedReportSet());
+				}
+				if (!prop.getAny().isEmpty())
+				{
+					if (customPropValues == null)
+					{
+						customPropValues = new ArrayList<List<Element>>(list.size());
+					}
+					customPropValues.add(prop.getAny());
 				}
 			}
+			this.creationValue = creation;
+			this.modifiedValue = modified;
+			if (contentType == null && !list.isEmpty())
+			{
+				contentType = DEFAULT_CONTENT_TYPE;
+			}
+			this.contentType = contentType;
+			this.contentLength = contentLength == null ? DEFAULT_CONTENT_LENGTH : contentLength;
+			this.etag = etag;
+			this.displayName = displayName;
+			this.lockToken = lockToken;
+			this.contentLanguage = contentLanguage;
+			this.resourceTypeValues = resourceTypeValues == null ? Collections.<Resourcetype>emptyList() : resourceTypeValues;
+			this.supportedReportValues = supportedReportValues == null ? Collections.<SupportedReportSet>emptyList() : supportedReportValues;
+			this.customPropValues = customPropValues == null ? Collections.<List<Element>>emptyList() : customPropValues;
+			if (list.isEmpty())
+			{
+				this.resourceTypes = Collections.emptyList();
+				this.supportedReports = Collections.emptyList();
+				this.customProps = Collections.emptyMap();
+			}
 		}
-		String status = response.getStatus();
-		if (status == null || status.isEmpty())
-		{
-			return DEFAULT_STATUS_CODE;
-		}
-		try
-		{
-			return BasicLineParser.parseStatusLine(response.getStatus(), null).getStatusCode();
-		}
-		catch (ParseException e)
+
+		Date getCreation()
 		{
-			log.warning(String.format("Failed to parse status line: %s", status));
-			return -1;
+			Date result = creation;
+			if (result == null && creationValue != null)
+			{
+				result = SardineUtil.parseDate(creationValue);
+				creation = result;
+			}
+			return result;
 		}
-	}
 
-	/**
-	 * Retrieves modifieddate from props. If it is not available return null.
-	 *
-	 * @param response The response complex type of the multistatus
-	 * @return Null if not found in props
-	 */
-	private String getModifiedDate(Response response)
-	{
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
+		Date getModified()
 		{
-			return null;
+			Date result = modified;
+			if (result == null && modifiedValue != null)
+			{
+				result = SardineUtil.parseDate(modifiedValue);
+				modified = result;
+			}
+			return result;
 		}
-		for (Propstat propstat : list)
+
+		List<QName> getResourceTypes()
 		{
-			if (propstat.getProp() != null) {
-				Getlastmodified glm = propstat.getProp().getGetlastmodified();
-				if ((glm != null) && (glm.getContent().size() == 1))
+			List<QName> result = resourceTypes;
+			if (result == null)
+			{
+				result = new ArrayList<QName>();
+				for (Resourcetype rt : resourceTypeValues)
 				{
-					return glm.getContent().get(0);
+					if (rt.getCollection() != null)
+					{
+						result.add(SardineUtil.createQNameWithDefaultNamespace("collection"));
+					}
+					if (rt.getPrincipal() != null)
+					{
+						result.add(SardineUtil.createQNameWithDefaultNamespace("principal"));
+					}
+					for (Element element : rt.getAny())
+					{
+						result.add(SardineUtil.toQName(element));
+					}
 				}
+				resourceTypes = result;
 			}
+			return result;
 		}
-		return null;
-	}
 
-	/**
-	 * Retrieves locktocken from props. If it is not available return null.
-	 *
-	 * @param response The response complex type of the multistatus
-	 * @return Null if not found in props
-	 */
-	private String getLockToken(Response response)
-	{
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
-		{
-			return null;
-		}
-		for (Propstat propstat : list)
+		List<QName> getSupportedReports()
 		{
-			if (propstat.getProp() != null) {
-				Lockdiscovery ld = propstat.getProp().getLockdiscovery();
-				if (ld != null)
+			List<QName> result = supportedReports;
+			if (result == null)
+			{
+				result = new ArrayList<QName>();
+				for (SupportedReportSet srs : supportedReportValues)
 				{
-					if (ld.getActivelock().size() == 1)
+					for (SupportedReport sr : srs.getSupportedReport())
 					{
-						final Activelock al = ld.getActivelock().get(0);
-						if (al != null)
+						Report report = sr.getReport();
+						if (report != null && report.getAny() != null)
 						{
-							final Locktoken lt = al.getLocktoken();
-							if (lt != null)
-							{
-								if (lt.getHref().size() == 1)
-								{
-									return lt.getHref().get(0);
-								}
-							}
+							result.add(SardineUtil.toQName(report.getAny()));
 						}
 					}
 				}
+				supportedReports = result;
 			}
+			return result;
 		}
-		return null;
-	}
 
-	/**
-	 * Retrieves creationdate from props. If it is not available return null.
-	 *
-	 * @param response The response complex type of the multistatus
-	 * @return Null if not found in props
-	 */
-	private String getCreationDate(Response response)
-	{
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
-		{
-			return null;
-		}
-		for (Propstat propstat : list)
+		/**
+		 * Creates a simple complex Map from the given custom properties of a response.
+		 * This implementation does take namespaces into account.
+		 */
+		Map<QName, String> getCustomProps()
 		{
-			if (propstat.getProp() != null) {
-				Creationdate gcd = propstat.getProp().getCreationdate();
-				if ((gcd != null) && (gcd.getContent().size() == 1))
+			Map<QName, String> result = customProps;
+			if (result == null)
+			{
+				result = new HashMap<QName, String>();
+				for (List<Element> props : customPropValues)
 				{
-					return gcd.getContent().get(0);
+					for (Element element : props)
+					{
+						result.put(SardineUtil.toQName(element), element.getTextContent());
+					}
 				}
+				customProps = result;
 			}
+			return result;
 		}
-		return null;
-	}
 
-	/**
-	 * Retrieves the content-type from prop or set it to {@link #DEFAULT_CONTENT_TYPE}. If isDirectory always set the content-type to
-	 * {@link #HTTPD_UNIX_DIRECTORY_CONTENT_TYPE}.
-	 *
-	 * @param response The response complex type of the multistatus
-	 * @return the content type.
-	 */
-	private String getContentType(Response response)
-	{
-		// Make sure that directories have the correct content type.
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
+		/**
+		 * @return The text of an element with mixed content or null if it is not a single text
+		 */
+		private static String getValue(List<String> content)
 		{
-			return null;
+			return content.size() == 1 ? content.get(0) : null;
 		}
-		for (Propstat propstat : list)
+
+		/**
+		 * @return Null if not a number
+		 */
+		private static Long getContentLength(String value)
 		{
-			if (propstat.getProp() != null) {
-				Resourcetype resourcetype = propstat.getProp().getResourcetype();
-				if ((resourcetype != null) && (resourcetype.getCollection() != null))
-				{
-					// Need to correct the contentType to identify as a directory.
-					return HTTPD_UNIX_DIRECTORY_CONTENT_TYPE;
-				}
-				else
-				{
-					Getcontenttype gtt = propstat.getProp().getGetcontenttype();
-					if ((gtt != null) && (gtt.getContent().size() == 1))
-					{
-						return gtt.getContent().get(0);
-					}
-				}
+			if (value == null)
+			{
+				return null;
+			}
+			try
+			{
+				return Long.parseLong(value);
+			}
+			catch (NumberFormatException e)
+			{
+				log.warning(String.format("Failed to parse content length %s", value));
+				return null;
 			}
 		}
-		return DEFAULT_CONTENT_TYPE;
-	}
 
-	/**
-	 * Retrieves content-length from props. If it is not available return {@link #DEFAULT_CONTENT_LENGTH}.
-	 *
-	 * @param response The response complex type of the multistatus
-	 * @return contentlength
-	 */
-	private long getContentLength(Response response)
-	{
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
-		{
-			return DEFAULT_CONTENT_LENGTH;
-		}
-		for (Propstat propstat : list)
+		/**
+		 * @return The lock token if there is exactly one active lock; null otherwise
+		 */
+		private static String getLockToken(Lockdiscovery ld)
 		{
-			if (propstat.getProp() != null) {
-				Getcontentlength gcl = propstat.getProp().getGetcontentlength();
-				if ((gcl != null) && (gcl.getContent().size() == 1))
+			if (ld.getActivelock().size() == 1)
+			{
+				final Activelock al = ld.getActivelock().get(0);
+				if (al != null)
 				{
-					try
-					{
-						return Long.parseLong(gcl.getContent().get(0));
-					}
-					catch (NumberFormatException e)
+					final Locktoken lt = al.getLocktoken();
+					if (lt != null)
 					{
-						log.warning(String.format("Failed to parse content length %s", gcl.getContent().get(0)));
+						if (lt.getHref().size() == 1)
+						{
+							return lt.getHref().get(0);
+						}
 					}
 				}
 			}
+			return null;
 		}
-		return DEFAULT_CONTENT_LENGTH;
 	}
 
 	/**
-	 * Retrieves content-length from props. If it is not available return {@link #DEFAULT_CONTENT_LENGTH}.
+	 * Represents a webdav response block.
 	 *
-	 * @param response The response complex type of the multistatus
-	 * @return contentlength
+	 * @param href URI to the resource as returned from the server
+	 * @throws java.net.URISyntaxException If parsing the href from the response element fails
 	 */
-	private String getEtag(Response response)
+	protected DavResource(String href, Date creation, Date modified, String contentType,
+						  Long contentLength, String etag, String displayName, String lockToken, List<QName> resourceTypes,
+						  String contentLanguage, List<QName> supportedReports, Map<QName, String> customProps)
+			throws URISyntaxException
 	{
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
-		{
-			return null;
-		}
-		for (Propstat propstat : list)
-		{
-			if (propstat.getProp() != null) {
-				Getetag e = propstat.getProp().getGetetag();
-				if ((e != null) && (e.getContent().size() == 1))
-				{
-					return e.getContent().get(0);
-				}
-			}
-		}
-		return null;
+		this.href = new URI(href);
+		this.status = DEFAULT_STATUS_CODE;
+		this.props = new DavProperties(creation, modified, contentType, contentLength, etag, displayName, lockToken,
+				resourceTypes, contentLanguage, supportedReports, customProps);
 	}
 
 	/**
-	 * Retrieves the content-language from prop.
+	 * Represents a webdav response block with property values as read from the multistatus response
+	 * without an intermediate JAXB model.
 	 *
-	 * @param response The response complex type of the multistatus
-	 * @return the content language; {@code null} if it is not avaialble
+	 * @param href     URI to the resource as returned from the server
+	 * @param status   Status code of the response
+	 * @param creation Unparsed creation date
+	 * @param modified Unparsed last modified date
+	 * @throws java.net.URISyntaxException If parsing the href from the response element fails
+	 * @see com.github.sardine.util.MultistatusReader
 	 */
-	private String getContentLanguage(Response response)
+	public DavResource(String href, int status, String creation, String modified, String contentType,
+					   Long contentLength, String etag, String displayName, String lockToken, List<QName> resourceTypes,
+					   String contentLanguage, List<QName> supportedReports, Map<QName, String> customProps)
+			throws URISyntaxException
 	{
-		// Make sure that directories have the correct content type.
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
-		{
-			return null;
-		}
-		for (Propstat propstat : list)
-		{
-			if (propstat.getProp() != null) {
-				Resourcetype resourcetype = propstat.getProp().getResourcetype();
-				if ((resourcetype != null) && (resourcetype.getCollection() != null))
-				{
-					// Need to correct the contentType to identify as a directory.
-					return HTTPD_UNIX_DIRECTORY_CONTENT_TYPE;
-				}
-				else
-				{
-					Getcontentlanguage gtl = propstat.getProp().getGetcontentlanguage();
-					if ((gtl != null) && (gtl.getContent().size() == 1))
-					{
-						return gtl.getContent().get(0);
-					}
-				}
-			}
-		}
-		return null;
+		this.href = new URI(href);
+		this.status = status;
+		this.props = new DavProperties(creation, modified, contentType, contentLength, etag, displayName, lockToken,
+				resourceTypes, contentLanguage, supportedReports, customProps);
 	}
 
 	/**
-	 * Retrieves displayName from props.
-	 *
-	 * @param response The response complex type of the multistatus
-	 * @return the display name; {@code null} if it is not available
+	 * Represents an entry of a {@link DavResourceTable}.
 	 */
-	private String getDisplayName(Response response)
+	DavResource(URI href, int status, Date creation, Date modified, String contentType,
+				Long contentLength, String etag, String displayName, String lockToken, List<QName> resourceTypes,
+				String contentLanguage, List<QName> supportedReports, Map<QName, String> customProps)
 	{
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
-		{
-			return null;
-		}
-		for (Propstat propstat : list)
-		{
-			if (propstat.getProp() != null) {
-				Displayname dn = propstat.getProp().getDisplayname();
-				if ((dn != null) && (dn.getContent().size() == 1))
-				{
-					return dn.getContent().get(0);
-				}
-			}
-		}
-		return null;
+		this.href = href;
+		this.status = status;
+		this.props = new DavProperties(creation, modified, contentType, contentLength, etag, displayName, lockToken,
+				resourceTypes, contentLanguage, supportedReports, customProps);
 	}
 
 	/**
-	 * Retrieves resourceType from props.
+	 * Converts the given {@link Response} to a {@link com.github.sardine.DavResource}.
 	 *
 	 * @param response The response complex type of the multistatus
-	 * @return the list of resource types; {@code Collections.emptyList()} if it is not provided
+	 * @throws java.net.URISyntaxException If parsing the href from the response element fails
 	 */
-	private List<QName> getResourceTypes(Response response)
+	public DavResource(Response response) throws URISyntaxException
 	{
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
-		{
-			return Collections.emptyList();
-		}
-		List<QName> resourceTypes = new ArrayList<QName>();
-		for (Propstat propstat : list)
-		{
-			if (propstat.getProp() != null) {
-				Resourcetype rt = propstat.getProp().getResourcetype();
-				if (rt != null)
-				{
-					if (rt.getCollection() != null)
-					{
-						resourceTypes.add(SardineUtil.createQNameWithDefaultNamespace("collection"));
-					}
-					if (rt.getPrincipal() != null)
-					{
-						resourceTypes.add(SardineUtil.createQNameWithDefaultNamespace("principal"));
-					}
-					for (Element element : rt.getAny())
-					{
-						resourceTypes.add(SardineUtil.toQName(element));
-					}
-				}
-			}
-		}
-		return resourceTypes;
+		this.href = new URI(response.getHref().get(0));
+		this.status = getStatusCode(response);
+		this.props = new DavProperties(response);
 	}
 
 	/**
-	 * Retrieves resourceType from props.
+	 * Retrieves the status code portion of the Response's <CODE>status</CODE> element.
+	 * If it is not present, returns {@link #DEFAULT_STATUS_CODE} (a.k.a. <CODE>200</CODE>).
 	 *
 	 * @param response The response complex type of the multistatus
-	 * @return the list of resource types; {@code Collections.emptyList()} if it is not provided
+	 * @return DEFAULT_STATUS_CODE if not found in response; -1 if status line was malformed
 	 */
-	private List<QName> getSupportedReports(Response response)
+	private int getStatusCode(Response response)
 	{
 		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
-		{
-			return Collections.emptyList();
-		}
-		List<QName> supportedReports = new ArrayList<QName>();
-		for (Propstat propstat : list)
-		{
-			if (propstat.getProp() != null) {
-				SupportedReportSet srs = propstat.getProp().getSupportedReportSet();
-				if (srs != null)
-				{
-					for (SupportedReport sr : srs.getSupportedReport())
-					{
-						Report report = sr.getReport();
-						if (report != null && report.getAny() != null)
-						{
-							supportedReports.add(SardineUtil.toQName(report.getAny()));
-						}
-					}
+		for(Propstat propstat : list) {
+			if(propstat.getStatus() != null) {
+				try {
+					return BasicLineParser.parseStatusLine(propstat.getStatus(), null).getStatusCode();
+				}
+				catch(ParseException e) {
+					log.warning(String.format("Failed to parse status line: %s", propstat.getStatus()));
+					return -1;
 				}
 			}
 		}
-		return supportedReports;
-	}
-
-	/**
-	 * Creates a simple complex Map from the given custom properties of a response.
-	 * This implementation does take namespaces into account.
-	 *
-	 * @param response The response complex type of the multistatus
-	 * @return Custom properties
-	 */
-	private Map<QName, String> getCustomProps(Response response)
-	{
-		List<Propstat> list = response.getPropstat();
-		if (list.isEmpty())
+		String status = response.getStatus();
+		if (status == null || status.isEmpty())
+		{
+			return DEFAULT_STATUS_CODE;
+		}
+		try
 		{
-			return Collections.emptyMap();
+			return BasicLineParser.parseStatusLine(response.getStatus(), null).getStatusCode();
 		}
-		Map<QName, String> customPropsMap = new HashMap<QName, String>();
-		for (Propstat propstat : list)
+		catch (ParseException e)
 		{
-			if (propstat.getProp() != null) {
-				List<Element> props = propstat.getProp().getAny();
-				for (Element element : props)
-				{
-					customPropsMap.put(SardineUtil.toQName(element), element.getTextContent());
-				}
-			}
+			log.warning(String.format("Failed to parse status line: %s", status));
+			return -1;
 		}
-		return customPropsMap;
 	}
 
 	/**
@@ -559,7 +517,7 @@ public class DavResource
 	 */
 	public Date getCreation()
 	{
-		return this.props.creation;
+		return this.props.getCreation();
 	}
 
 	/**
@@ -567,7 +525,7 @@ public class DavResource
 	 */
 	public Date getModified()
 	{
-		return this.props.modified;
+		return this.props.getModified();
 	}
 
 	/**
@@ -623,7 +581,7 @@ public class DavResource
 	 */
 	public List<QName> getResourceTypes()
 	{
-		return this.props.resourceTypes;
+		return this.props.getResourceTypes();
 	}
 
 	/**
@@ -631,7 +589,7 @@ public class DavResource
 	 */
 	public List<QName> getSupportedReports()
 	{
-		return this.props.supportedReports;
+		return this.props.getSupportedReports();
 	}
 
 	/**
@@ -663,7 +621,7 @@ public class DavResource
 	 */
 	public Map<QName, String> getCustomPropsNS()
 	{
-		return this.props.customProps;
+		return this.props.getCustomProps();
 	}
 
 	/**
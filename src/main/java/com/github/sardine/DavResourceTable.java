@@ -0,0 +1,458 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al. Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.github.sardine;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Resources of a large listing stored in columns instead of one {@link DavResource} per entry. Hrefs, etags,
+ * display names and custom property values are kept as UTF-8 in a shared byte array. Lengths and timestamps
+ * are kept in primitive arrays. Content types, languages, property names and resource type lists are shared
+ * between entries.
+ * <p>
+ * Columns can be read by index without creating objects per entry. {@link #get(int)} creates a
+ * {@link DavResource} view of an entry on demand. Adding entries is not thread safe.
+ *
+ * @see Sardine#listTable(String, int, java.util.Set)
+ */
+public class DavResourceTable extends AbstractList<DavResource>
+{
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Marks a missing timestamp
+	 */
+	private static final long NO_DATE = Long.MIN_VALUE;
+
+	private int size;
+
+	private int[] hrefs = new int[INITIAL_CAPACITY];
+	private int[] status = new int[INITIAL_CAPACITY];
+	private long[] creation = new long[INITIAL_CAPACITY];
+	private long[] modified = new long[INITIAL_CAPACITY];
+	private long[] contentLengths = new long[INITIAL_CAPACITY];
+	private int[] etags = new int[INITIAL_CAPACITY];
+	private int[] displayNames = new int[INITIAL_CAPACITY];
+	private String[] contentTypes = new String[INITIAL_CAPACITY];
+	private String[] contentLanguages = new String[INITIAL_CAPACITY];
+	private String[] lockTokens = new String[INITIAL_CAPACITY];
+	private List<?>[] resourceTypes = new List<?>[INITIAL_CAPACITY];
+	private List<?>[] supportedReports = new List<?>[INITIAL_CAPACITY];
+
+	/**
+	 * Start of the custom properties of each entry in {@link #customNames} and {@link #customValues}
+	 */
+	private int[] customStart = new int[INITIAL_CAPACITY + 1];
+	private QName[] customNames = new QName[INITIAL_CAPACITY];
+	private int[] customValues = new int[INITIAL_CAPACITY];
+
+	private final Arena arena = new Arena();
+
+	/**
+	 * Distinct values shared between entries
+	 */
+	private final Map<Object, Object> shared = new HashMap<Object, Object>();
+
+	/**
+	 * @param resources Resources to copy
+	 * @return Trimmed table with the properties of the resources
+	 */
+	public static DavResourceTable of(Collection<DavResource> resources)
+	{
+		DavResourceTable table = new DavResourceTable();
+		for (DavResource resource : resources)
+		{
+			table.add(resource);
+		}
+		table.trimToSize();
+		return table;
+	}
+
+	/**
+	 * Appends the properties of the resource.
+	 *
+	 * @param resource Resource to copy
+	 * @return Always true
+	 */
+	@Override
+	public boolean add(DavResource resource)
+	{
+		if (size == hrefs.length)
+		{
+			this.grow();
+		}
+		int i = size;
+		hrefs[i] = arena.add(resource.getHref().toString());
+		status[i] = resource.getStatusCode();
+		creation[i] = toTime(resource.getCreation());
+		modified[i] = toTime(resource.getModified());
+		contentLengths[i] = resource.getContentLength() == null ? DavResource.DEFAULT_CONTENT_LENGTH : resource.getContentLength();
+		etags[i] = arena.add(resource.getEtag());
+		displayNames[i] = arena.add(resource.getDisplayName());
+		contentTypes[i] = this.share(resource.getContentType());
+		contentLanguages[i] = this.share(resource.getContentLanguage());
+		lockTokens[i] = resource.getLockToken();
+		resourceTypes[i] = this.shareNames(resource.getResourceTypes());
+		supportedReports[i] = this.shareNames(resource.getSupportedReports());
+		int start = customStart[i];
+		Map<QName, String> props = resource.getCustomPropsNS();
+		if (start + props.size() > customNames.length)
+		{
+			int capacity = Math.max(customNames.length * 2, start + props.size());
+			customNames = Arrays.copyOf(customNames, capacity);
+			customValues = Arrays.copyOf(customValues, capacity);
+		}
+		int end = start;
+		for (Map.Entry<QName, String> entry : props.entrySet())
+		{
+			customNames[end] = this.share(entry.getKey());
+			customValues[end] = arena.add(entry.getValue());
+			end++;
+		}
+		customStart[i + 1] = end;
+		size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @param index Entry
+	 * @return New resource with the properties of the entry
+	 */
+	@Override
+	public DavResource get(int index)
+	{
+		this.check(index);
+		try
+		{
+			return new DavResource(new URI(this.getHref(index)), status[index], this.getCreation(index),
+					this.getModified(index), contentTypes[index], contentLengths[index], arena.get(etags[index]),
+					arena.get(displayNames[index]), lockTokens[index], this.getResourceTypes(index),
+					contentLanguages[index], this.getSupportedReports(index), this.getCustomPropsNS(index));
+		}
+		catch (URISyntaxException e)
+		{
+			// Validated when added
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return Href as returned from the server
+	 * @see DavResource#getHref()
+	 */
+	public String getHref(int index)
+	{
+		this.check(index);
+		return arena.get(hrefs[index]);
+	}
+
+	/**
+	 * @see DavResource#getStatusCode()
+	 */
+	public int getStatusCode(int index)
+	{
+		this.check(index);
+		return status[index];
+	}
+
+	/**
+	 * @see DavResource#getCreation()
+	 */
+	public Date getCreation(int index)
+	{
+		this.check(index);
+		return creation[index] == NO_DATE ? null : new Date(creation[index]);
+	}
+
+	/**
+	 * @see DavResource#getModified()
+	 */
+	public Date getModified(int index)
+	{
+		this.check(index);
+		return modified[index] == NO_DATE ? null : new Date(modified[index]);
+	}
+
+	/**
+	 * @return Size or {@link DavResource#DEFAULT_CONTENT_LENGTH}
+	 * @see DavResource#getContentLength()
+	 */
+	public long getContentLength(int index)
+	{
+		this.check(index);
+		return contentLengths[index];
+	}
+
+	/**
+	 * @see DavResource#getContentType()
+	 */
+	public String getContentType(int index)
+	{
+		this.check(index);
+		return contentTypes[index];
+	}
+
+	/**
+	 * @see DavResource#isDirectory()
+	 */
+	public boolean isDirectory(int index)
+	{
+		return DavResource.HTTPD_UNIX_DIRECTORY_CONTENT_TYPE.equals(this.getContentType(index));
+	}
+
+	/**
+	 * @see DavResource#getEtag()
+	 */
+	public String getEtag(int index)
+	{
+		this.check(index);
+		return arena.get(etags[index]);
+	}
+
+	/**
+	 * @see DavResource#getDisplayName()
+	 */
+	public String getDisplayName(int index)
+	{
+		this.check(index);
+		return arena.get(displayNames[index]);
+	}
+
+	/**
+	 * @see DavResource#getContentLanguage()
+	 */
+	public String getContentLanguage(int index)
+	{
+		this.check(index);
+		return contentLanguages[index];
+	}
+
+	/**
+	 * @see DavResource#getLockToken()
+	 */
+	public String getLockToken(int index)
+	{
+		this.check(index);
+		return lockTokens[index];
+	}
+
+	/**
+	 * @return Unmodifiable list shared with other entries
+	 * @see DavResource#getResourceTypes()
+	 */
+	@SuppressWarnings("unchecked")
+	public List<QName> getResourceTypes(int index)
+	{
+		this.check(index);
+		return (List<QName>) resourceTypes[index];
+	}
+
+	/**
+	 * @return Unmodifiable list shared with other entries
+	 * @see DavResource#getSupportedReports()
+	 */
+	@SuppressWarnings("unchecked")
+	public List<QName> getSupportedReports(int index)
+	{
+		this.check(index);
+		return (List<QName>) supportedReports[index];
+	}
+
+	/**
+	 * @return New map with the custom properties of the entry
+	 * @see DavResource#getCustomPropsNS()
+	 */
+	public Map<QName, String> getCustomPropsNS(int index)
+	{
+		this.check(index);
+		int start = customStart[index];
+		int end = customStart[index + 1];
+		if (start == end)
+		{
+			return new HashMap<QName, String>();
+		}
+		Map<QName, String> props = new HashMap<QName, String>((end - start) * 4 / 3 + 1);
+		for (int i = start; i < end; i++)
+		{
+			props.put(customNames[i], arena.get(customValues[i]));
+		}
+		return props;
+	}
+
+	/**
+	 * Release unused capacity once all entries are added.
+	 */
+	public void trimToSize()
+	{
+		hrefs = Arrays.copyOf(hrefs, size);
+		status = Arrays.copyOf(status, size);
+		creation = Arrays.copyOf(creation, size);
+		modified = Arrays.copyOf(modified, size);
+		contentLengths = Arrays.copyOf(contentLengths, size);
+		etags = Arrays.copyOf(etags, size);
+		displayNames = Arrays.copyOf(displayNames, size);
+		contentTypes = Arrays.copyOf(contentTypes, size);
+		contentLanguages = Arrays.copyOf(contentLanguages, size);
+		lockTokens = Arrays.copyOf(lockTokens, size);
+		resourceTypes = Arrays.copyOf(resourceTypes, size);
+		supportedReports = Arrays.copyOf(supportedReports, size);
+		customStart = Arrays.copyOf(customStart, size + 1);
+		customNames = Arrays.copyOf(customNames, customStart[size]);
+		customValues = Arrays.copyOf(customValues, customStart[size]);
+		arena.trimToSize();
+	}
+
+	private void grow()
+	{
+		int capacity = Math.max(INITIAL_CAPACITY, hrefs.length * 2);
+		hrefs = Arrays.copyOf(hrefs, capacity);
+		status = Arrays.copyOf(status, capacity);
+		creation = Arrays.copyOf(creation, capacity);
+		modified = Arrays.copyOf(modified, capacity);
+		contentLengths = Arrays.copyOf(contentLengths, capacity);
+		etags = Arrays.copyOf(etags, capacity);
+		displayNames = Arrays.copyOf(displayNames, capacity);
+		contentTypes = Arrays.copyOf(contentTypes, capacity);
+		contentLanguages = Arrays.copyOf(contentLanguages, capacity);
+		lockTokens = Arrays.copyOf(lockTokens, capacity);
+		resourceTypes = Arrays.copyOf(resourceTypes, capacity);
+		supportedReports = Arrays.copyOf(supportedReports, capacity);
+		customStart = Arrays.copyOf(customStart, capacity + 1);
+	}
+
+	private void check(int index)
+	{
+		if (index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private static long toTime(Date date)
+	{
+		return date == null ? NO_DATE : date.getTime();
+	}
+
+	/**
+	 * @return Equal instance added before or the value itself
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T share(T value)
+	{
+		if (value == null)
+		{
+			return null;
+		}
+		Object existing = shared.get(value);
+		if (existing == null)
+		{
+			shared.put(value, value);
+			return value;
+		}
+		return (T) existing;
+	}
+
+	/**
+	 * @return Unmodifiable list with shared names equal to the given list
+	 */
+	private List<QName> shareNames(List<QName> names)
+	{
+		if (names == null || names.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+		Object existing = shared.get(names);
+		if (existing == null)
+		{
+			QName[] copy = new QName[names.size()];
+			for (int i = 0; i < copy.length; i++)
+			{
+				copy[i] = this.share(names.get(i));
+			}
+			List<QName> list = Collections.unmodifiableList(Arrays.asList(copy));
+			shared.put(list, list);
+			return list;
+		}
+		@SuppressWarnings("unchecked")
+		List<QName> list = (List<QName>) existing;
+		return list;
+	}
+
+	/**
+	 * Strings stored as UTF-8 one after another.
+	 */
+	private static class Arena
+	{
+		private byte[] bytes = new byte[1024];
+
+		/**
+		 * Start of each string in {@link #bytes} followed by the end of the last string
+		 */
+		private int[] offsets = new int[INITIAL_CAPACITY + 1];
+
+		private int count;
+
+		/**
+		 * @return Identifier of the string or -1 for null
+		 */
+		int add(String value)
+		{
+			if (value == null)
+			{
+				return -1;
+			}
+			byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+			int start = offsets[count];
+			if (start + encoded.length > bytes.length)
+			{
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + encoded.length));
+			}
+			System.arraycopy(encoded, 0, bytes, start, encoded.length);
+			if (count + 1 == offsets.length)
+			{
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[count + 1] = start + encoded.length;
+			return count++;
+		}
+
+		String get(int id)
+		{
+			if (id < 0)
+			{
+				return null;
+			}
+			return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+		}
+
+		void trimToSize()
+		{
+			bytes = Arrays.copyOf(bytes, offsets[count]);
+			offsets = Arrays.copyOf(offsets, count + 1);
+		}
+	}
+}
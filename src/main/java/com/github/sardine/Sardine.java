@@ -4,15 +4,20 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 import javax.xml.namespace.QName;
 
 import org.w3c.dom.Element;
 
 import com.github.sardine.report.SardineReport;
+import com.github.sardine.util.BlockingPublisher;
 
 /**
  * The main interface for Sardine operations.
@@ -154,6 +159,203 @@ public interface Sardine
 	 */
 	List<DavResource> search(String url, String language, String query) throws IOException;
 
+	/**
+	 * Gets a directory listing using WebDAV <code>PROPFIND</code>. Resources are read from the response
+	 * while iterating the stream. The stream must be closed to release the connection unless all elements
+	 * have been consumed.
+	 * <p>
+	 * The default implementation reads the complete response before returning.
+	 *
+	 * @param url   Path to the resource including protocol and hostname
+	 * @param depth The depth to look at (use 0 for single resource, 1 for directory listing,
+	 *              -1 for infinite recursion)
+	 * @return Stream of resources for this URI including the parent resource itself
+	 * @throws IOException I/O error or HTTP response validation failure. Failures reading the response
+	 *                     while iterating are thrown as {@link java.io.UncheckedIOException}.
+	 * @see #list(String, int)
+	 */
+	default Stream<DavResource> listStream(String url, int depth) throws IOException
+	{
+		return this.list(url, depth).stream();
+	}
+
+	/**
+	 * Gets a directory listing using WebDAV <code>PROPFIND</code>. Resources are read from the response
+	 * while iterating the stream. The stream must be closed to release the connection unless all elements
+	 * have been consumed.
+	 * <p>
+	 * The default implementation reads the complete response before returning.
+	 *
+	 * @param url   Path to the resource including protocol and hostname
+	 * @param depth The depth to look at (use 0 for single resource, 1 for directory listing,
+	 *              -1 for infinite recursion)
+	 * @param props Additional properties which should be requested.
+	 * @return Stream of resources for this URI including the parent resource itself
+	 * @throws IOException I/O error or HTTP response validation failure. Failures reading the response
+	 *                     while iterating are thrown as {@link java.io.UncheckedIOException}.
+	 * @see #list(String, int, Set)
+	 */
+	default Stream<DavResource> listStream(String url, int depth, Set<QName> props) throws IOException
+	{
+		return this.list(url, depth, props).stream();
+	}
+
+	/**
+	 * Fetches a resource using WebDAV <code>PROPFIND</code>. Only the specified properties
+	 * are retrieved. Resources are read from the response while iterating the stream. The stream
+	 * must be closed to release the connection unless all elements have been consumed.
+	 * <p>
+	 * The default implementation reads the complete response before returning.
+	 *
+	 * @param url   Path to the resource including protocol and hostname
+	 * @param depth The depth to look at (use 0 for single resource, 1 for directory listing,
+	 *              -1 for infinite recursion)
+	 * @param props Set of properties to be requested
+	 * @return Stream of resources for this URI including the parent resource itself
+	 * @throws IOException I/O error or HTTP response validation failure. Failures reading the response
+	 *                     while iterating are thrown as {@link java.io.UncheckedIOException}.
+	 * @see #propfind(String, int, Set)
+	 */
+	default Stream<DavResource> propfindStream(String url, int depth, Set<QName> props) throws IOException
+	{
+		return this.propfind(url, depth, props).stream();
+	}
+
+	/**
+	 * Gets versions listing of resource. Resources are read from the response while iterating the stream.
+	 * The stream must be closed to release the connection unless all elements have been consumed.
+	 * <p>
+	 * The default implementation reads the complete response before returning.
+	 *
+	 * @param url   Path to the resource including protocol and hostname
+	 * @param depth The depth to look at (use 0 for single resource, 1 for directory listing,
+	 *              -1 for infinite recursion)
+	 * @param props Set of properties to be requested
+	 * @return Stream of versions
+	 * @throws IOException I/O error or HTTP response validation failure. Failures reading the response
+	 *                     while iterating are thrown as {@link java.io.UncheckedIOException}.
+	 * @see #versionsList(String, int, Set)
+	 */
+	default Stream<DavResource> versionsListStream(String url, int depth, Set<QName> props) throws IOException
+	{
+		return this.versionsList(url, depth, props).stream();
+	}
+
+	/**
+	 * Gets a directory listing using WebDAV <code>PROPFIND</code> into a compact table. Use for listings with
+	 * a large number of resources to keep in memory. The default implementation converts the result of
+	 * {@link #list(String, int, Set)}.
+	 *
+	 * @param url   Path to the resource including protocol and hostname
+	 * @param depth The depth to look at (use 0 for single resource, 1 for directory listing,
+	 *              -1 for infinite recursion)
+	 * @param props Additional properties which should be requested.
+	 * @return Table of resources for this URI including the parent resource itself
+	 * @throws IOException I/O error or HTTP response validation failure
+	 * @see #list(String, int, Set)
+	 */
+	default DavResourceTable listTable(String url, int depth, Set<QName> props) throws IOException
+	{
+		return DavResourceTable.of(this.list(url, depth, props));
+	}
+
+	/**
+	 * Fetches resources using WebDAV <code>PROPFIND</code> into a compact table. Only the specified properties
+	 * are retrieved. The default implementation converts the result of {@link #propfind(String, int, Set)}.
+	 *
+	 * @param url   Path to the resource including protocol and hostname
+	 * @param depth The depth to look at (use 0 for single resource, 1 for directory listing,
+	 *              -1 for infinite recursion)
+	 * @param props Set of properties to be requested
+	 * @return Table of resources for this URI including the parent resource itself
+	 * @throws IOException I/O error or HTTP response validation failure
+	 * @see #propfind(String, int, Set)
+	 */
+	default DavResourceTable propfindTable(String url, int depth, Set<QName> props) throws IOException
+	{
+		return DavResourceTable.of(this.propfind(url, depth, props));
+	}
+
+	/**
+	 * Perform a search of the Webdav repository. Resources are read from the response while iterating
+	 * the stream. The stream must be closed to release the connection unless all elements have been consumed.
+	 * <p>
+	 * The default implementation reads the complete response before returning.
+	 *
+	 * @param url      The base resource to search from.
+	 * @param language The language the query is formed in.
+	 * @param query    The query string to be processed by the webdav server.
+	 * @return Stream of matching resources.
+	 * @throws IOException I/O error or HTTP response validation failure. Failures reading the response
+	 *                     while iterating are thrown as {@link java.io.UncheckedIOException}.
+	 * @see #search(String, String, String)
+	 */
+	default Stream<DavResource> searchStream(String url, String language, String query) throws IOException
+	{
+		return this.search(url, language, query).stream();
+	}
+
+	/**
+	 * Gets a directory listing using WebDAV <code>PROPFIND</code> for every subscription. Resources are read from
+	 * the response as requested by the subscriber. Cancelling the subscription releases the connection.
+	 * <p>
+	 * The default implementation reads on the shared {@link BlockingPublisher#defaultExecutor() executor}.
+	 *
+	 * @param url   Path to the resource including protocol and hostname
+	 * @param depth The depth to look at (use 0 for single resource, 1 for directory listing,
+	 *              -1 for infinite recursion)
+	 * @param props Additional properties which should be requested.
+	 * @return Publisher of resources for this URI including the parent resource itself. I/O errors and HTTP
+	 *         response validation failures are signalled to the subscriber.
+	 * @see #listStream(String, int, Set)
+	 */
+	default Flow.Publisher<DavResource> listPublisher(String url, int depth, Set<QName> props)
+	{
+		return new BlockingPublisher<DavResource>(() -> BlockingPublisher.source(this.listStream(url, depth, props)),
+				BlockingPublisher.defaultExecutor());
+	}
+
+	/**
+	 * Fetches a resource using WebDAV <code>PROPFIND</code> for every subscription. Only the specified properties
+	 * are retrieved. Resources are read from the response as requested by the subscriber. Cancelling the
+	 * subscription releases the connection.
+	 * <p>
+	 * The default implementation reads on the shared {@link BlockingPublisher#defaultExecutor() executor}.
+	 *
+	 * @param url   Path to the resource including protocol and hostname
+	 * @param depth The depth to look at (use 0 for single resource, 1 for directory listing,
+	 *              -1 for infinite recursion)
+	 * @param props Set of properties to be requested
+	 * @return Publisher of resources for this URI including the parent resource itself. I/O errors and HTTP
+	 *         response validation failures are signalled to the subscriber.
+	 * @see #propfindStream(String, int, Set)
+	 */
+	default Flow.Publisher<DavResource> propfindPublisher(String url, int depth, Set<QName> props)
+	{
+		return new BlockingPublisher<DavResource>(() -> BlockingPublisher.source(this.propfindStream(url, depth, props)),
+				BlockingPublisher.defaultExecutor());
+	}
+
+	/**
+	 * Gets versions listing of resource using a <code>REPORT</code> for every subscription. Resources are read
+	 * from the response as requested by the subscriber. Cancelling the subscription releases the connection.
+	 * <p>
+	 * The default implementation reads on the shared {@link BlockingPublisher#defaultExecutor() executor}.
+	 *
+	 * @param url   Path to the resource including protocol and hostname
+	 * @param depth The depth to look at (use 0 for single resource, 1 for directory listing,
+	 *              -1 for infinite recursion)
+	 * @param props Set of properties to be requested
+	 * @return Publisher of versions. I/O errors and HTTP response validation failures are signalled to the
+	 *         subscriber.
+	 * @see #versionsListStream(String, int, Set)
+	 */
+	default Flow.Publisher<DavResource> versionsListPublisher(String url, int depth, Set<QName> props)
+	{
+		return new BlockingPublisher<DavResource>(() -> BlockingPublisher.source(this.versionsListStream(url, depth, props)),
+				BlockingPublisher.defaultExecutor());
+	}
+
 	/**
 	 * @see #patch(String, java.util.Map, java.util.List)
 	 */
@@ -234,6 +436,39 @@ public interface Sardine
 	 */
 	InputStream get(String url, Map<String, String> headers) throws IOException;
 
+	/**
+	 * Uses HTTP <code>GET</code> to download data from a server for every subscription. The content is read from
+	 * the connection as requested by the subscriber. Cancelling the subscription releases the connection.
+	 *
+	 * @param url Path to the resource including protocol and hostname
+	 * @return Publisher of new buffers with the content. I/O errors and HTTP response validation failures are
+	 *         signalled to the subscriber.
+	 * @see #get(String)
+	 */
+	default Flow.Publisher<ByteBuffer> getPublisher(String url)
+	{
+		return this.getPublisher(url, Collections.<String, String>emptyMap());
+	}
+
+	/**
+	 * Uses HTTP <code>GET</code> to download data from a server for every subscription. The content is read from
+	 * the connection as requested by the subscriber. Cancelling the subscription releases the connection.
+	 * <p>
+	 * The default implementation reads on the shared {@link BlockingPublisher#defaultExecutor() executor}.
+	 *
+	 * @param url     Path to the resource including protocol and hostname
+	 * @param headers Additional HTTP headers to add to the request
+	 * @return Publisher of new buffers with the content. I/O errors and HTTP response validation failures are
+	 *         signalled to the subscriber.
+	 * @see #get(String, Map)
+	 */
+	default Flow.Publisher<ByteBuffer> getPublisher(String url, Map<String, String> headers)
+	{
+		return new BlockingPublisher<ByteBuffer>(
+				() -> BlockingPublisher.source(this.get(url, headers), BlockingPublisher.DEFAULT_BUFFER_SIZE),
+				BlockingPublisher.defaultExecutor());
+	}
+
 	/**
 	 * Uses HTTP <code>PUT</code> to send data to a server. Repeatable on authentication failure.
 	 *
@@ -2,6 +2,7 @@ package com.github.sardine;
 
 import java.net.ProxySelector;
 
+import com.github.sardine.impl.SardineBuilder;
 import com.github.sardine.impl.SardineImpl;
 
 /**
@@ -43,4 +44,14 @@ public final class SardineFactory
 	{
 		return new SardineImpl(username, password, proxy);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Configure connection pool limits, socket options and timeouts.
+	 *
+	 * @return New builder
+	 */
+	public static SardineBuilder builder()
+	{
+		return new SardineBuilder();
+	}
+}
@@ -4,6 +4,7 @@ import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectComponent;
 
 import com.github.sardine.Sardine;
+import com.github.sardine.impl.RequestExecutor;
 
 
 /**
@@ -67,4 +68,13 @@ public abstract class Command extends ProjectComponent
 	protected final Sardine getSardine() {
 		return sardineTask.getSardine();
 	}
+
+	/**
+	 * Returns the executor for commands sending many requests.
+	 *
+	 * @return the executor for this command
+	 */
+	protected final RequestExecutor getExecutor() {
+		return sardineTask.getExecutor();
+	}
 }
@@ -15,6 +15,7 @@ import com.github.sardine.ant.command.Exists;
 import com.github.sardine.ant.command.Move;
 import com.github.sardine.ant.command.Put;
 import com.github.sardine.ant.command.RecursiveGet;
+import com.github.sardine.impl.RequestExecutor;
 
 /**
  * Controller for the Sardine ant Task
@@ -47,9 +48,15 @@ public class SardineTask extends Task
 	/** Attribute preemptiveAuthenticationHost. */
 	private String preemptiveAuthenticationHost;
 
+	/** Attribute concurrency. */
+	private int concurrency = 1;
+
 	/** Reference to sardine impl. */
 	private Sardine sardine = null;
 
+	/** Runs the requests of commands sending many requests. */
+	private RequestExecutor executor = null;
+
 	/** Add a copy command. */
 	public void addCopy(Copy copy) {
 		addCommand(copy);
@@ -97,12 +104,18 @@ public class SardineTask extends Task
 	@Override
 	public void execute() throws BuildException {
 		try {
-			if (domain == null && workstation == null) {
+			if (concurrency > 1) {
+				sardine = SardineFactory.builder().credentials(username, password).concurrency(concurrency).build();
+				if (domain != null || workstation != null) {
+					sardine.setCredentials(username, password, domain, workstation);
+				}
+			} else if (domain == null && workstation == null) {
 				sardine = SardineFactory.begin(username, password);
 			} else {
 				sardine = SardineFactory.begin();
 				sardine.setCredentials(username, password, domain, workstation);
 			}
+			executor = RequestExecutor.create(concurrency);
 
 			if (ignoreCookies) {
 				sardine.ignoreCookies();
@@ -117,6 +130,10 @@ public class SardineTask extends Task
 			}
 		} catch (Exception e) {
 			throw new BuildException("failed: " + e.getLocalizedMessage(), e);
+		} finally {
+			if (executor != null) {
+				executor.close();
+			}
 		}
 	}
 
@@ -194,6 +211,28 @@ public class SardineTask extends Task
 		this.preemptiveAuthenticationHost = host;
 	}
 
+	/**
+	 * Setter for attribute concurrency. Commands sending many requests, such as put with file sets and recursive
+	 * get, send up to this number of requests concurrently on virtual threads when available.
+	 *
+	 * @param concurrency maximum number of requests in flight, 1 by default
+	 */
+	public void setConcurrency(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("concurrency must be positive");
+		}
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Returns the executor for the requests of commands.
+	 *
+	 * @return the executor, running requests on the calling thread unless concurrency is set
+	 */
+	public RequestExecutor getExecutor() {
+		return executor;
+	}
+
 	/**
 	 * Returns the sardine impl.
 	 *
@@ -9,6 +9,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.types.FileSet;
@@ -70,6 +71,8 @@ public class Put extends Command {
 			URL baseUrl = new URL(urlString);
 			// to prevent unnecessary dir checks
 			Set<URL> alreadyCreated = new HashSet<URL>();
+			// directories are created up front, files are put by the executor
+			List<Callable<Void>> puts = new ArrayList<Callable<Void>>();
 			File currentParentDir = null;
 			for (Iterator<FileSet> setIterator = srcFileSets.iterator(); setIterator.hasNext();) {
 				FileSet fileSet = setIterator.next();
@@ -83,13 +86,20 @@ public class Put extends Command {
 						checkOrCreateDir(baseUrl, parentDir, alreadyCreated);
 						currentParentDir = parentDir;
 					}
-					File srcFile = new File(dir, fileName);
-					URL destUrl = new URL(baseUrl, fileName);
-					boolean expectContinue = setIterator.hasNext() || idx + 1 < files.length;
-					process(srcFile, destUrl, expectContinue);
+					final File srcFile = new File(dir, fileName);
+					final URL destUrl = new URL(baseUrl, fileName);
+					final boolean expectContinue = setIterator.hasNext() || idx + 1 < files.length;
+					puts.add(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							process(srcFile, destUrl, expectContinue);
+							return null;
+						}
+					});
 					fileCounter++;
 				}
 			}
+			getExecutor().invokeAll(puts);
 		}
 		log("putting of " + fileCounter + " file(s) completed");
 	}
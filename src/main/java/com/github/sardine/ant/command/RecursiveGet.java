@@ -6,7 +6,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.github.sardine.DavResource;
 import com.github.sardine.ant.Command;
@@ -78,10 +80,11 @@ public class RecursiveGet extends Command {
 
 		List<DavResource> resource = getSardine().list(remoteDirectoryUrl.toString(), -1);
 
+		List<Callable<Void>> downloads = new ArrayList<Callable<Void>>();
 		for (DavResource davResource : resource) {
 			if (!davResource.isDirectory()) {
-				String filePathRelativeToRemoteDirectory = davResource.getPath().replace(remoteDirectoryPath, "");
-				Path localFilePath = Paths.get(localDirectory, filePathRelativeToRemoteDirectory);
+				final String filePathRelativeToRemoteDirectory = davResource.getPath().replace(remoteDirectoryPath, "");
+				final Path localFilePath = Paths.get(localDirectory, filePathRelativeToRemoteDirectory);
 
 				if (skipExistingFiles && Files.exists(localFilePath)) {
 					log("skipping download of already existing file " + localFilePath);
@@ -90,24 +93,35 @@ public class RecursiveGet extends Command {
 
 				Files.createDirectories(localFilePath.getParent());
 
-				log("downloading " + filePathRelativeToRemoteDirectory + " to " + localFilePath);
-
-				InputStream ioStream = getSardine().get(serverUrl + davResource.getHref().toString());
-				try {
-					if (overwriteFiles) {
-						Files.copy(ioStream, localFilePath, StandardCopyOption.REPLACE_EXISTING);
-					} else {
-						Files.copy(ioStream, localFilePath);
+				final String url = serverUrl + davResource.getHref().toString();
+				downloads.add(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						log("downloading " + filePathRelativeToRemoteDirectory + " to " + localFilePath);
+						download(url, localFilePath);
+						return null;
 					}
-
-				} finally {
-					ioStream.close();
-				}
+				});
 			}
 		}
+		getExecutor().invokeAll(downloads);
 		log("downloaded files to " + localDirectory);
 	}
 
+	private void download(String url, Path localFilePath) throws Exception {
+		InputStream ioStream = getSardine().get(url);
+		try {
+			if (overwriteFiles) {
+				Files.copy(ioStream, localFilePath, StandardCopyOption.REPLACE_EXISTING);
+			} else {
+				Files.copy(ioStream, localFilePath);
+			}
+
+		} finally {
+			ioStream.close();
+		}
+	}
+
 	public void setServerUrl(String serverUrl) {
 		this.serverUrl = serverUrl;
 	}
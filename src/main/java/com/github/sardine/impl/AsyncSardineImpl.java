@@ -0,0 +1,616 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import javax.xml.namespace.QName;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.VersionInfo;
+import org.w3c.dom.Element;
+
+import com.github.sardine.AsyncSardine;
+import com.github.sardine.DavAce;
+import com.github.sardine.DavAcl;
+import com.github.sardine.DavPrincipal;
+import com.github.sardine.DavQuota;
+import com.github.sardine.DavResource;
+import com.github.sardine.Version;
+import com.github.sardine.impl.entity.AclEntity;
+import com.github.sardine.impl.entity.LockinfoEntity;
+import com.github.sardine.impl.entity.PropPatchEntity;
+import com.github.sardine.impl.entity.PropfindEntity;
+import com.github.sardine.impl.entity.ReportEntity;
+import com.github.sardine.impl.entity.SearchEntity;
+import com.github.sardine.impl.entity.XmlEntity;
+import com.github.sardine.impl.handler.ExistsResponseHandler;
+import com.github.sardine.impl.handler.LockResponseHandler;
+import com.github.sardine.impl.handler.MultiStatusResponseHandler;
+import com.github.sardine.impl.handler.StreamingMultiStatusResponseHandler;
+import com.github.sardine.impl.handler.ValidatingResponseHandler;
+import com.github.sardine.impl.handler.VoidResponseHandler;
+import com.github.sardine.impl.methods.HttpAcl;
+import com.github.sardine.impl.methods.HttpCopy;
+import com.github.sardine.impl.methods.HttpLock;
+import com.github.sardine.impl.methods.HttpMkCol;
+import com.github.sardine.impl.methods.HttpMove;
+import com.github.sardine.impl.methods.HttpPropFind;
+import com.github.sardine.impl.methods.HttpPropPatch;
+import com.github.sardine.impl.methods.HttpReport;
+import com.github.sardine.impl.methods.HttpSearch;
+import com.github.sardine.impl.methods.HttpUnlock;
+import com.github.sardine.impl.parser.JaxbMultistatusParser;
+import com.github.sardine.impl.parser.MultistatusParser;
+import com.github.sardine.model.Multistatus;
+import com.github.sardine.report.SardineReport;
+import com.github.sardine.report.VersionTreeReport;
+
+/**
+ * Implementation of {@link AsyncSardine} on the non-blocking Apache HttpAsyncClient. A few I/O threads drive all
+ * requests in flight. Response bodies are received into memory and handed to the same response handlers as
+ * used by {@link SardineImpl} on an {@link Executor} so that parsing does not hold up the I/O threads.
+ * <p>
+ * Requires <code>org.apache.httpcomponents:httpasyncclient</code> on the class path.
+ */
+public class AsyncSardineImpl implements AsyncSardine
+{
+	/**
+	 * Connections per host and in total of the default configuration. HttpAsyncClient itself allows only 2 per
+	 * host and 20 in total, which queues all but two requests to a single server.
+	 */
+	public static final int DEFAULT_CONCURRENCY = 64;
+
+	/**
+	 * HTTP client implementation
+	 */
+	protected final CloseableHttpAsyncClient client;
+
+	/**
+	 * Shared by all requests. Every request gets its own authentication state.
+	 */
+	protected final HttpClientContext context = HttpClientContext.create();
+
+	/**
+	 * Runs the response handlers
+	 */
+	private final Executor executor;
+
+	/**
+	 * Reads multistatus response bodies
+	 */
+	private volatile MultistatusParser parser = new JaxbMultistatusParser();
+
+	/**
+	 * Access resources with no authentication
+	 */
+	public AsyncSardineImpl()
+	{
+		this((String) null, null);
+	}
+
+	/**
+	 * @param username Use in authentication header credentials
+	 * @param password Use in authentication header credentials
+	 */
+	public AsyncSardineImpl(String username, String password)
+	{
+		this(configure(SardineImpl.createDefaultCredentialsProvider(username, password, null, null)),
+				ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param builder  Custom client configuration such as connection limits
+	 * @param executor Runs response handlers. Use a direct executor to parse responses on the I/O threads.
+	 */
+	public AsyncSardineImpl(HttpAsyncClientBuilder builder, Executor executor)
+	{
+		this.executor = executor;
+		this.context.setAuthCache(new BasicAuthCache());
+		this.client = builder.build();
+		this.client.start();
+	}
+
+	/**
+	 * @param credentials Authentication credentials or null
+	 * @return Client configuration with the defaults of {@link SardineImpl} and {@link #DEFAULT_CONCURRENCY}
+	 * connections
+	 */
+	public static HttpAsyncClientBuilder configure(CredentialsProvider credentials)
+	{
+		return configure(credentials, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * @param credentials Authentication credentials or null
+	 * @param concurrency Maximum number of connections per host and in total. Further requests wait for a free
+	 *                    connection.
+	 * @return Client configuration with the defaults of {@link SardineImpl}
+	 */
+	public static HttpAsyncClientBuilder configure(CredentialsProvider credentials, int concurrency)
+	{
+		if (concurrency < 1)
+		{
+			throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+		}
+		String version = Version.getSpecification();
+		if (version == null)
+		{
+			version = VersionInfo.UNAVAILABLE;
+		}
+		return HttpAsyncClients.custom()
+				.setUserAgent("Sardine/" + version)
+				.setDefaultCredentialsProvider(credentials)
+				.setRedirectStrategy(new SardineRedirectStrategy())
+				.setMaxConnPerRoute(concurrency)
+				.setMaxConnTotal(concurrency)
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setExpectContinueEnabled(false).build());
+	}
+
+	@Override
+	public void setCredentials(String username, String password)
+	{
+		this.context.setCredentialsProvider(SardineImpl.createDefaultCredentialsProvider(username, password, "", ""));
+	}
+
+	@Override
+	public void enablePreemptiveAuthentication(String hostname)
+	{
+		AuthCache cache = this.context.getAuthCache();
+		BasicScheme basicAuth = new BasicScheme();
+		cache.put(new HttpHost(hostname, 80, "http"), basicAuth);
+		cache.put(new HttpHost(hostname, 443, "https"), basicAuth);
+	}
+
+	/**
+	 * @param parser Reads the multistatus responses of all subsequent requests
+	 */
+	public void setMultistatusParser(MultistatusParser parser)
+	{
+		if (parser == null)
+		{
+			throw new IllegalArgumentException("Parser must not be null");
+		}
+		this.parser = parser;
+	}
+
+	@Override
+	public CompletableFuture<List<DavResource>> list(String url)
+	{
+		return this.list(url, 1);
+	}
+
+	@Override
+	public CompletableFuture<List<DavResource>> list(String url, int depth)
+	{
+		return this.list(url, depth, true);
+	}
+
+	@Override
+	public CompletableFuture<List<DavResource>> list(String url, int depth, Set<QName> props)
+	{
+		return this.propfind(url, depth, PropfindEntity.list(props));
+	}
+
+	@Override
+	public CompletableFuture<List<DavResource>> list(String url, int depth, boolean allProp)
+	{
+		if (allProp)
+		{
+			return this.propfind(url, depth, PropfindEntity.allprop());
+		}
+		return this.list(url, depth, Collections.<QName>emptySet());
+	}
+
+	@Override
+	public CompletableFuture<List<DavResource>> versionsList(String url, int depth, Set<QName> props)
+	{
+		return this.report(url, depth, new VersionTreeReport(props));
+	}
+
+	@Override
+	public CompletableFuture<List<DavResource>> propfind(String url, int depth, Set<QName> props)
+	{
+		return this.propfind(url, depth, new PropfindEntity(props));
+	}
+
+	/**
+	 * @param body Request body, typically a {@link PropfindEntity}
+	 */
+	protected CompletableFuture<List<DavResource>> propfind(String url, int depth, HttpEntity body)
+	{
+		HttpPropFind entity = new HttpPropFind(url);
+		entity.setDepth(depth < 0 ? "infinity" : Integer.toString(depth));
+		entity.setEntity(body);
+		return this.execute(entity, new StreamingMultiStatusResponseHandler(this.parser));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> report(String url, int depth, final SardineReport<T> report)
+	{
+		HttpReport entity = new HttpReport(url);
+		entity.setDepth(depth < 0 ? "infinity" : Integer.toString(depth));
+		entity.setEntity(new ReportEntity(report));
+		return this.execute(entity, new MultiStatusResponseHandler(this.parser), new Function<Multistatus, T>()
+		{
+			@Override
+			public T apply(Multistatus multistatus)
+			{
+				return report.fromMultistatus(multistatus);
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<List<DavResource>> search(String url, String language, String query)
+	{
+		HttpSearch search = new HttpSearch(url);
+		search.setEntity(new SearchEntity(language, query));
+		return this.execute(search, new StreamingMultiStatusResponseHandler(this.parser));
+	}
+
+	@Override
+	public CompletableFuture<List<DavResource>> patch(String url, Map<QName, String> addProps, List<QName> removeProps)
+	{
+		return this.patch(url, new PropPatchEntity(addProps, removeProps), Collections.<String, String>emptyMap());
+	}
+
+	@Override
+	public CompletableFuture<List<DavResource>> patch(String url, List<Element> addProps, List<QName> removeProps, Map<String, String> headers)
+	{
+		return this.patch(url, new PropPatchEntity(addProps, removeProps), headers);
+	}
+
+	private CompletableFuture<List<DavResource>> patch(String url, HttpEntity body, Map<String, String> headers)
+	{
+		HttpPropPatch patch = new HttpPropPatch(url);
+		addHeaders(patch, headers);
+		patch.setEntity(body);
+		return this.execute(patch, new StreamingMultiStatusResponseHandler(this.parser));
+	}
+
+	@Override
+	public CompletableFuture<InputStream> get(String url)
+	{
+		return this.get(url, Collections.<String, String>emptyMap());
+	}
+
+	@Override
+	public CompletableFuture<InputStream> get(String url, Map<String, String> headers)
+	{
+		HttpGet get = new HttpGet(url);
+		addHeaders(get, headers);
+		return this.execute(get, new ValidatingResponseHandler<InputStream>()
+		{
+			@Override
+			public InputStream handleResponse(HttpResponse response) throws IOException
+			{
+				this.validateResponse(response);
+				HttpEntity entity = response.getEntity();
+				if (entity == null)
+				{
+					return new ByteArrayInputStream(new byte[0]);
+				}
+				// Buffered in memory by the response consumer
+				return entity.getContent();
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> put(String url, byte[] data)
+	{
+		return this.put(url, data, null);
+	}
+
+	@Override
+	public CompletableFuture<Void> put(String url, byte[] data, String contentType)
+	{
+		return this.put(url, new ByteArrayEntity(data), contentType);
+	}
+
+	@Override
+	public CompletableFuture<Void> put(String url, File localFile, String contentType)
+	{
+		return this.put(url, new FileEntity(localFile), contentType);
+	}
+
+	/**
+	 * Upload the entity using <code>PUT</code>
+	 *
+	 * @param entity      Repeatable entity to read from
+	 * @param contentType Content Type header
+	 */
+	protected CompletableFuture<Void> put(String url, HttpEntity entity, String contentType)
+	{
+		HttpPut put = new HttpPut(url);
+		put.setEntity(entity);
+		if (contentType != null)
+		{
+			put.addHeader(new BasicHeader(HttpHeaders.CONTENT_TYPE, contentType));
+		}
+		else if (entity.getContentType() == null)
+		{
+			put.addHeader(HttpHeaders.CONTENT_TYPE, HTTP.DEF_CONTENT_CHARSET.name());
+		}
+		return this.execute(put, new VoidResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<Void> delete(String url)
+	{
+		return this.delete(url, Collections.<String, String>emptyMap());
+	}
+
+	@Override
+	public CompletableFuture<Void> delete(String url, Map<String, String> headers)
+	{
+		HttpDelete delete = new HttpDelete(url);
+		addHeaders(delete, headers);
+		return this.execute(delete, new VoidResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<Void> createDirectory(String url)
+	{
+		return this.execute(new HttpMkCol(url), new VoidResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<Void> move(String sourceUrl, String destinationUrl, boolean overwrite, Map<String, String> headers)
+	{
+		HttpMove move = new HttpMove(sourceUrl, destinationUrl, overwrite);
+		addHeaders(move, headers);
+		return this.execute(move, new VoidResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<Void> copy(String sourceUrl, String destinationUrl, boolean overwrite, Map<String, String> headers)
+	{
+		HttpCopy copy = new HttpCopy(sourceUrl, destinationUrl, overwrite);
+		addHeaders(copy, headers);
+		return this.execute(copy, new VoidResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<Boolean> exists(String url)
+	{
+		return this.execute(new HttpHead(url), new ExistsResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<String> lock(String url)
+	{
+		HttpLock entity = new HttpLock(url);
+		entity.setEntity(LockinfoEntity.exclusiveWrite());
+		return this.execute(entity, new LockResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<String> refreshLock(String url, String token, String file)
+	{
+		HttpLock entity = new HttpLock(url);
+		entity.setHeader("If", "<" + file + "> (<" + token + ">)");
+		return this.execute(entity, new LockResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<Void> unlock(String url, String token)
+	{
+		return this.execute(new HttpUnlock(url, token), new VoidResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<DavAcl> getAcl(String url)
+	{
+		return this.execute(propfind(url, "0", SardineImpl.ACL_BODY), new MultiStatusResponseHandler(this.parser),
+				new Function<Multistatus, DavAcl>()
+				{
+					@Override
+					public DavAcl apply(Multistatus multistatus)
+					{
+						return SardineImpl.toAcl(multistatus);
+					}
+				});
+	}
+
+	@Override
+	public CompletableFuture<Void> setAcl(String url, List<DavAce> aces)
+	{
+		HttpAcl entity = new HttpAcl(url);
+		entity.setEntity(new AclEntity(aces));
+		return this.execute(entity, new VoidResponseHandler());
+	}
+
+	@Override
+	public CompletableFuture<DavQuota> getQuota(String url)
+	{
+		return this.execute(propfind(url, "0", SardineImpl.QUOTA_BODY), new MultiStatusResponseHandler(this.parser),
+				new Function<Multistatus, DavQuota>()
+				{
+					@Override
+					public DavQuota apply(Multistatus multistatus)
+					{
+						return SardineImpl.toQuota(multistatus);
+					}
+				});
+	}
+
+	@Override
+	public CompletableFuture<List<DavPrincipal>> getPrincipals(String url)
+	{
+		return this.execute(propfind(url, "1", SardineImpl.PRINCIPALS_BODY), new MultiStatusResponseHandler(this.parser),
+				new Function<Multistatus, List<DavPrincipal>>()
+				{
+					@Override
+					public List<DavPrincipal> apply(Multistatus multistatus)
+					{
+						return SardineImpl.toPrincipals(multistatus);
+					}
+				});
+	}
+
+	@Override
+	public CompletableFuture<List<String>> getPrincipalCollectionSet(String url)
+	{
+		return this.execute(propfind(url, "0", SardineImpl.PRINCIPAL_COLLECTION_SET_BODY), new MultiStatusResponseHandler(this.parser),
+				new Function<Multistatus, List<String>>()
+				{
+					@Override
+					public List<String> apply(Multistatus multistatus)
+					{
+						return SardineImpl.toPrincipalCollectionSet(multistatus);
+					}
+				});
+	}
+
+	@Override
+	public void shutdown() throws IOException
+	{
+		this.client.close();
+	}
+
+	private static HttpPropFind propfind(String url, String depth, byte[] body)
+	{
+		HttpPropFind entity = new HttpPropFind(url);
+		entity.setDepth(depth);
+		entity.setEntity(XmlEntity.prepared(body));
+		return entity;
+	}
+
+	private static void addHeaders(HttpRequestBase request, Map<String, String> headers)
+	{
+		for (Map.Entry<String, String> h : headers.entrySet())
+		{
+			request.addHeader(new BasicHeader(h.getKey(), h.getValue()));
+		}
+	}
+
+	private <T, R> CompletableFuture<R> execute(HttpRequestBase request, ResponseHandler<T> handler, final Function<T, R> conversion)
+	{
+		return this.execute(request, new ResponseHandler<R>()
+		{
+			@Override
+			public R handleResponse(HttpResponse response) throws IOException
+			{
+				return conversion.apply(handler.handleResponse(response));
+			}
+		});
+	}
+
+	/**
+	 * Sends the request without blocking. The handler is run on the executor once the response has been received.
+	 * Cancelling the returned future aborts the request.
+	 *
+	 * @param request Request to execute
+	 * @param handler Determines the return type
+	 * @return Completes with the result of the handler or exceptionally with its failure
+	 */
+	protected <T> CompletableFuture<T> execute(HttpRequestBase request, final ResponseHandler<T> handler)
+	{
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+		HttpContext requestLocalContext = new BasicHttpContext(this.context);
+		final Future<HttpResponse> future = this.client.execute(request, requestLocalContext, new FutureCallback<HttpResponse>()
+		{
+			@Override
+			public void completed(final HttpResponse response)
+			{
+				try
+				{
+					executor.execute(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							try
+							{
+								result.complete(handler.handleResponse(response));
+							}
+							catch (Throwable e)
+							{
+								result.completeExceptionally(e);
+							}
+						}
+					});
+				}
+				catch (RejectedExecutionException e)
+				{
+					result.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public void failed(Exception e)
+			{
+				result.completeExceptionally(e);
+			}
+
+			@Override
+			public void cancelled()
+			{
+				result.cancel(false);
+			}
+		});
+		result.whenComplete((value, failure) ->
+		{
+			if (result.isCancelled())
+			{
+				future.cancel(true);
+			}
+		});
+		return result;
+	}
+}
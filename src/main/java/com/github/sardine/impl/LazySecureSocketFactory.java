@@ -0,0 +1,122 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.function.Supplier;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import com.github.sardine.impl.metrics.RequestTiming;
+
+/**
+ * Creates the SSL socket factory on the first secure connection. Initializing the default
+ * SSL context loads the trust store which dominates startup for plain HTTP clients.
+ */
+class LazySecureSocketFactory implements LayeredConnectionSocketFactory
+{
+	private final Supplier<ConnectionSocketFactory> supplier;
+
+	private volatile ConnectionSocketFactory delegate;
+
+	LazySecureSocketFactory(Supplier<ConnectionSocketFactory> supplier)
+	{
+		this.supplier = supplier;
+	}
+
+	private ConnectionSocketFactory getDelegate()
+	{
+		ConnectionSocketFactory result = this.delegate;
+		if (result == null)
+		{
+			synchronized (this)
+			{
+				result = this.delegate;
+				if (result == null)
+				{
+					result = this.supplier.get();
+					this.delegate = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Socket createSocket(HttpContext context) throws IOException
+	{
+		ConnectionSocketFactory factory = this.getDelegate();
+		if (factory.getClass() == SSLConnectionSocketFactory.class && RequestTiming.get(context) != null)
+		{
+			// Same unconnected plain socket noting when the handshake starts
+			return new TimedSocket();
+		}
+		return factory.createSocket(context);
+	}
+
+	@Override
+	public Socket connectSocket(int connectTimeout, Socket sock, HttpHost host, InetSocketAddress remoteAddress,
+			InetSocketAddress localAddress, HttpContext context) throws IOException
+	{
+		Socket socket = this.getDelegate().connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+		RequestTiming timing = RequestTiming.get(context);
+		if (timing != null && sock instanceof TimedSocket)
+		{
+			timing.handshake(System.nanoTime() - ((TimedSocket) sock).connected);
+		}
+		return socket;
+	}
+
+	@Override
+	public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException
+	{
+		ConnectionSocketFactory factory = this.getDelegate();
+		if (!(factory instanceof LayeredConnectionSocketFactory))
+		{
+			throw new IOException("Socket factory does not support layering: " + factory);
+		}
+		RequestTiming timing = RequestTiming.get(context);
+		if (timing == null)
+		{
+			return ((LayeredConnectionSocketFactory) factory).createLayeredSocket(socket, target, port, context);
+		}
+		// Secure connection tunneled through a proxy
+		long start = System.nanoTime();
+		Socket layered = ((LayeredConnectionSocketFactory) factory).createLayeredSocket(socket, target, port, context);
+		timing.handshake(System.nanoTime() - start);
+		return layered;
+	}
+
+	private static class TimedSocket extends Socket
+	{
+		private volatile long connected;
+
+		@Override
+		public void connect(SocketAddress endpoint, int timeout) throws IOException
+		{
+			super.connect(endpoint, timeout);
+			this.connected = System.nanoTime();
+		}
+	}
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.sardine.impl.trace.Tracing;
+
+/**
+ * Runs the requests of operations sending many requests, such as recursive downloads and uploads of file sets,
+ * with a bounded number of requests in flight. Uses a virtual thread per request when running on Java 21 or later
+ * and a fixed pool of platform threads otherwise.
+ * <p>
+ * At most {@link #getConcurrency()} tasks run at a time and submitting blocks until a task has completed. Size the
+ * connection pool to the same concurrency with {@link SardineBuilder#concurrency(int)} so that tasks do not wait
+ * for connections to be leased.
+ */
+public class RequestExecutor implements Closeable
+{
+	/**
+	 * <code>Executors.newVirtualThreadPerTaskExecutor()</code> or null before Java 21
+	 */
+	private static final Method VIRTUAL_THREAD_PER_TASK_EXECUTOR = lookupVirtualThreadPerTaskExecutor();
+
+	private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+	/**
+	 * Null to run tasks on the calling thread
+	 */
+	private final ExecutorService executor;
+
+	private final Semaphore permits;
+
+	private final int concurrency;
+
+	private final boolean virtual;
+
+	private RequestExecutor(ExecutorService executor, int concurrency, boolean virtual)
+	{
+		this.executor = executor;
+		this.permits = new Semaphore(concurrency);
+		this.concurrency = concurrency;
+		this.virtual = virtual;
+	}
+
+	/**
+	 * @param concurrency Maximum number of requests in flight. Tasks run on the calling thread one after the other
+	 *                    when 1.
+	 * @return Executor using virtual threads when available and platform threads otherwise
+	 */
+	public static RequestExecutor create(int concurrency)
+	{
+		if (concurrency > 1)
+		{
+			ExecutorService executor = newVirtualThreadPerTaskExecutor();
+			if (executor != null)
+			{
+				return new RequestExecutor(executor, concurrency, true);
+			}
+		}
+		return platform(concurrency);
+	}
+
+	/**
+	 * @param concurrency Maximum number of requests in flight. Tasks run on the calling thread one after the other
+	 *                    when 1.
+	 * @return Executor with a fixed pool of daemon platform threads
+	 */
+	public static RequestExecutor platform(int concurrency)
+	{
+		if (concurrency < 1)
+		{
+			throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+		}
+		if (concurrency == 1)
+		{
+			return new RequestExecutor(null, 1, false);
+		}
+		final String prefix = "sardine-request-" + POOL_NUMBER.incrementAndGet() + "-";
+		final AtomicInteger threadNumber = new AtomicInteger();
+		return new RequestExecutor(Executors.newFixedThreadPool(concurrency, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, prefix + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}), concurrency, false);
+	}
+
+	/**
+	 * @return True when running on a Java version with virtual threads
+	 */
+	public static boolean isVirtualThreadsAvailable()
+	{
+		return VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+	}
+
+	/**
+	 * @return Maximum number of requests in flight
+	 */
+	public int getConcurrency()
+	{
+		return this.concurrency;
+	}
+
+	/**
+	 * @return True when tasks run on virtual threads
+	 */
+	public boolean isVirtual()
+	{
+		return this.virtual;
+	}
+
+	/**
+	 * Waits until fewer than {@link #getConcurrency()} tasks are running. Requests sent by the task are traced
+	 * as part of the operation of the calling thread.
+	 *
+	 * @param task Typically sending a single request
+	 * @return Result of the task
+	 */
+	public <T> Future<T> submit(final Callable<T> task) throws IOException
+	{
+		if (this.executor == null)
+		{
+			CompletableFuture<T> result = new CompletableFuture<T>();
+			try
+			{
+				result.complete(task.call());
+			}
+			catch (Exception e)
+			{
+				result.completeExceptionally(e);
+			}
+			return result;
+		}
+		try
+		{
+			this.permits.acquire();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a running request to complete");
+		}
+		final Callable<T> traced = Tracing.propagate(task);
+		try
+		{
+			return this.executor.submit(new Callable<T>()
+			{
+				@Override
+				public T call() throws Exception
+				{
+					try
+					{
+						return traced.call();
+					}
+					finally
+					{
+						permits.release();
+					}
+				}
+			});
+		}
+		catch (RuntimeException e)
+		{
+			this.permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Runs all tasks and waits for their completion. Once a task fails, no further tasks are started and running
+	 * tasks are cancelled. Tasks run on the calling thread stop at the first failure.
+	 *
+	 * @param tasks Typically sending a single request each
+	 * @return Results in the order of the tasks
+	 * @throws IOException Failure of the first failed task
+	 */
+	public <T> List<T> invokeAll(Collection<? extends Callable<T>> tasks) throws IOException
+	{
+		if (this.executor == null)
+		{
+			List<T> results = new ArrayList<T>(tasks.size());
+			for (Callable<T> task : tasks)
+			{
+				results.add(call(task));
+			}
+			return results;
+		}
+		final CompletableFuture<Void> failure = new CompletableFuture<Void>();
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		try
+		{
+			for (final Callable<T> task : tasks)
+			{
+				if (failure.isDone())
+				{
+					break;
+				}
+				futures.add(this.submit(new Callable<T>()
+				{
+					@Override
+					public T call() throws Exception
+					{
+						try
+						{
+							return task.call();
+						}
+						catch (Exception | Error e)
+						{
+							failure.completeExceptionally(e);
+							throw e;
+						}
+					}
+				}));
+			}
+			if (failure.isDone())
+			{
+				get(failure);
+			}
+			List<T> results = new ArrayList<T>(futures.size());
+			for (Future<T> future : futures)
+			{
+				results.add(get(future));
+			}
+			return results;
+		}
+		finally
+		{
+			for (Future<T> future : futures)
+			{
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Shuts down the threads after the running tasks have completed.
+	 */
+	@Override
+	public void close()
+	{
+		if (this.executor != null)
+		{
+			this.executor.shutdown();
+		}
+	}
+
+	/**
+	 * @return Result of the task run on the calling thread
+	 */
+	private static <T> T call(Callable<T> task) throws IOException
+	{
+		try
+		{
+			return task.call();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			throw e;
+		}
+		catch (Exception e)
+		{
+			throw new IOException(e);
+		}
+	}
+
+	private static <T> T get(Future<T> future) throws IOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for requests to complete");
+		}
+		catch (CancellationException e)
+		{
+			throw new InterruptedIOException("Request cancelled");
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+			{
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private static Method lookupVirtualThreadPerTaskExecutor()
+	{
+		try
+		{
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		}
+		catch (NoSuchMethodException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * @return Null when virtual threads are not available or a preview feature not enabled
+	 */
+	private static ExecutorService newVirtualThreadPerTaskExecutor()
+	{
+		if (VIRTUAL_THREAD_PER_TASK_EXECUTOR == null)
+		{
+			return null;
+		}
+		try
+		{
+			return (ExecutorService) VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+		}
+		catch (IllegalAccessException e)
+		{
+			return null;
+		}
+		catch (InvocationTargetException e)
+		{
+			// Preview feature on Java 19 and 20
+			return null;
+		}
+	}
+}
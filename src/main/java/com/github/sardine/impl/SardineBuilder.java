@@ -0,0 +1,430 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import java.net.ProxySelector;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import com.github.sardine.impl.cache.ExistenceCache;
+import com.github.sardine.impl.cache.MetadataCache;
+import com.github.sardine.impl.metrics.HistogramMetrics;
+import com.github.sardine.impl.metrics.RequestTimingListener;
+import com.github.sardine.impl.metrics.SardineMetrics;
+import com.github.sardine.impl.parser.JaxbMultistatusParser;
+import com.github.sardine.impl.parser.MultistatusParser;
+import com.github.sardine.impl.pool.InstrumentedConnectionManager;
+import com.github.sardine.impl.trace.SardineTracer;
+
+/**
+ * Fluent configuration of the connection pool, sockets and timeouts of a {@link SardineImpl}. The HTTP client is
+ * built once by {@link #build()}. Settings not made keep the defaults of HttpClient, which allows only 2
+ * connections per route and 20 in total.
+ * <pre>
+ * Sardine sardine = new SardineBuilder()
+ *         .maxConnectionsPerRoute(50)
+ *         .maxConnectionsTotal(200)
+ *         .connectTimeout(5, TimeUnit.SECONDS)
+ *         .build();
+ * </pre>
+ */
+public class SardineBuilder
+{
+	/**
+	 * Marks settings not made
+	 */
+	private static final int UNSET = -1;
+
+	String username;
+
+	String password;
+
+	ProxySelector proxy;
+
+	MultistatusParser parser = new JaxbMultistatusParser();
+
+	boolean threadSafe;
+
+	SardineMetrics metrics;
+
+	RequestTimingListener timingListener;
+
+	SardineTracer tracer;
+
+	MetadataCache metadataCache;
+
+	ExistenceCache existenceCache;
+
+	String jmxName;
+
+	private int maxConnectionsPerRoute = UNSET;
+
+	private int maxConnectionsTotal = UNSET;
+
+	private int concurrency = UNSET;
+
+	private long connectionTimeToLive = UNSET;
+
+	private int validateAfterInactivity = UNSET;
+
+	private long maxIdleTime = UNSET;
+
+	private int receiveBufferSize = UNSET;
+
+	private int sendBufferSize = UNSET;
+
+	private boolean tcpNoDelay = true;
+
+	private int connectTimeout = UNSET;
+
+	private int socketTimeout = UNSET;
+
+	private int connectionRequestTimeout = UNSET;
+
+	/**
+	 * @param username Use in authentication header credentials
+	 * @param password Use in authentication header credentials
+	 */
+	public SardineBuilder credentials(String username, String password)
+	{
+		this.username = username;
+		this.password = password;
+		return this;
+	}
+
+	/**
+	 * @param proxy Proxy configuration. Defaults to the system proxy selector.
+	 */
+	public SardineBuilder proxy(ProxySelector proxy)
+	{
+		this.proxy = proxy;
+		return this;
+	}
+
+	/**
+	 * @param parser Reads multistatus responses
+	 * @see SardineImpl#setMultistatusParser(MultistatusParser)
+	 */
+	public SardineBuilder multistatusParser(MultistatusParser parser)
+	{
+		if (parser == null)
+		{
+			throw new IllegalArgumentException("Parser must not be null");
+		}
+		this.parser = parser;
+		return this;
+	}
+
+	/**
+	 * Share a single instance and its connection pool between all threads of the application. Authentication
+	 * state is kept per request and connection state per target host instead of in the shared context.
+	 *
+	 * @param threadSafe Disabled by default
+	 * @see SardineImpl
+	 */
+	public SardineBuilder threadSafe(boolean threadSafe)
+	{
+		this.threadSafe = threadSafe;
+		return this;
+	}
+
+	/**
+	 * @param max Maximum number of pooled connections to a single host
+	 */
+	public SardineBuilder maxConnectionsPerRoute(int max)
+	{
+		this.maxConnectionsPerRoute = positive(max);
+		return this;
+	}
+
+	/**
+	 * @param max Maximum number of pooled connections to all hosts
+	 */
+	public SardineBuilder maxConnectionsTotal(int max)
+	{
+		this.maxConnectionsTotal = positive(max);
+		return this;
+	}
+
+	/**
+	 * Share the instance between the given number of threads sending requests concurrently, such as the tasks of a
+	 * {@link RequestExecutor} with the same concurrency. Enables thread safe mode and raises the connection limits
+	 * to at least one connection per thread so that threads do not wait for pooled connections.
+	 *
+	 * @param concurrency Maximum number of requests in flight
+	 */
+	public SardineBuilder concurrency(int concurrency)
+	{
+		this.concurrency = positive(concurrency);
+		this.threadSafe = true;
+		return this;
+	}
+
+	/**
+	 * @param ttl Maximum lifetime of a connection regardless of keep alive headers
+	 */
+	public SardineBuilder connectionTimeToLive(long ttl, TimeUnit unit)
+	{
+		this.connectionTimeToLive = unit.toMillis(ttl);
+		return this;
+	}
+
+	/**
+	 * @param inactivity Check pooled connections for staleness before leasing them when idle for longer than this
+	 */
+	public SardineBuilder validateAfterInactivity(long inactivity, TimeUnit unit)
+	{
+		this.validateAfterInactivity = millis(inactivity, unit);
+		return this;
+	}
+
+	/**
+	 * Close expired connections and connections idle for longer than the given time from a background thread.
+	 *
+	 * @param maxIdleTime Maximum time a pooled connection may stay idle
+	 */
+	public SardineBuilder evictIdleConnections(long maxIdleTime, TimeUnit unit)
+	{
+		this.maxIdleTime = unit.toMillis(maxIdleTime);
+		return this;
+	}
+
+	/**
+	 * @param size <code>SO_RCVBUF</code> in bytes
+	 */
+	public SardineBuilder receiveBufferSize(int size)
+	{
+		this.receiveBufferSize = positive(size);
+		return this;
+	}
+
+	/**
+	 * @param size <code>SO_SNDBUF</code> in bytes
+	 */
+	public SardineBuilder sendBufferSize(int size)
+	{
+		this.sendBufferSize = positive(size);
+		return this;
+	}
+
+	/**
+	 * @param tcpNoDelay <code>TCP_NODELAY</code>. Enabled by default.
+	 */
+	public SardineBuilder tcpNoDelay(boolean tcpNoDelay)
+	{
+		this.tcpNoDelay = tcpNoDelay;
+		return this;
+	}
+
+	/**
+	 * @param timeout Maximum time to establish a connection
+	 */
+	public SardineBuilder connectTimeout(long timeout, TimeUnit unit)
+	{
+		this.connectTimeout = millis(timeout, unit);
+		return this;
+	}
+
+	/**
+	 * @param timeout Maximum time of inactivity between two data packets (<code>SO_TIMEOUT</code>)
+	 */
+	public SardineBuilder socketTimeout(long timeout, TimeUnit unit)
+	{
+		this.socketTimeout = millis(timeout, unit);
+		return this;
+	}
+
+	/**
+	 * @param timeout Maximum time to wait for a connection from the pool
+	 */
+	public SardineBuilder connectionRequestTimeout(long timeout, TimeUnit unit)
+	{
+		this.connectionRequestTimeout = millis(timeout, unit);
+		return this;
+	}
+
+	/**
+	 * @param metrics Notified of every request such as {@link HistogramMetrics}
+	 * @see SardineImpl#setMetrics(SardineMetrics)
+	 */
+	public SardineBuilder metrics(SardineMetrics metrics)
+	{
+		this.metrics = metrics;
+		return this;
+	}
+
+	/**
+	 * @param listener Notified of the phases of every request
+	 * @see SardineImpl#setRequestTimingListener(RequestTimingListener)
+	 */
+	public SardineBuilder requestTiming(RequestTimingListener listener)
+	{
+		this.timingListener = listener;
+		return this;
+	}
+
+	/**
+	 * @param tracer Notified of the spans of requests sent with the W3C trace context
+	 * @see SardineImpl#setTracer(SardineTracer)
+	 */
+	public SardineBuilder tracer(SardineTracer tracer)
+	{
+		this.tracer = tracer;
+		return this;
+	}
+
+	/**
+	 * @param cache Answers listings and existence checks while fresh
+	 * @see SardineImpl#setMetadataCache(MetadataCache)
+	 */
+	public SardineBuilder metadataCache(MetadataCache cache)
+	{
+		this.metadataCache = cache;
+		return this;
+	}
+
+	/**
+	 * @param cache Answers existence checks of absent resources without a request
+	 * @see SardineImpl#setExistenceCache(ExistenceCache)
+	 */
+	public SardineBuilder existenceCache(ExistenceCache cache)
+	{
+		this.existenceCache = cache;
+		return this;
+	}
+
+	/**
+	 * Registers the connection pool statistics as MXBean
+	 * <code>com.github.sardine:type=ConnectionPool,name=&lt;name&gt;</code> until {@link SardineImpl#shutdown()}.
+	 *
+	 * @param name Unique name of the instance
+	 * @see SardineImpl#getConnectionPoolMetrics()
+	 */
+	public SardineBuilder jmxName(String name)
+	{
+		this.jmxName = name;
+		return this;
+	}
+
+	/**
+	 * @return New client. The builder may be reused.
+	 */
+	public SardineImpl build()
+	{
+		return new SardineImpl(this);
+	}
+
+	/**
+	 * @param registry Socket factories by scheme
+	 * @return Pool with the limits and socket options of this builder
+	 */
+	PoolingHttpClientConnectionManager createConnectionManager(Registry<ConnectionSocketFactory> registry)
+	{
+		PoolingHttpClientConnectionManager cm = new InstrumentedConnectionManager(registry, this.connectionTimeToLive,
+				TimeUnit.MILLISECONDS);
+		if (this.maxConnectionsTotal != UNSET)
+		{
+			cm.setMaxTotal(this.maxConnectionsTotal);
+		}
+		if (this.maxConnectionsPerRoute != UNSET)
+		{
+			cm.setDefaultMaxPerRoute(this.maxConnectionsPerRoute);
+		}
+		if (this.concurrency != UNSET)
+		{
+			cm.setMaxTotal(Math.max(cm.getMaxTotal(), this.concurrency));
+			cm.setDefaultMaxPerRoute(Math.max(cm.getDefaultMaxPerRoute(), this.concurrency));
+		}
+		if (this.validateAfterInactivity != UNSET)
+		{
+			cm.setValidateAfterInactivity(this.validateAfterInactivity);
+		}
+		SocketConfig.Builder socket = SocketConfig.custom().setTcpNoDelay(this.tcpNoDelay);
+		if (this.receiveBufferSize != UNSET)
+		{
+			socket.setRcvBufSize(this.receiveBufferSize);
+		}
+		if (this.sendBufferSize != UNSET)
+		{
+			socket.setSndBufSize(this.sendBufferSize);
+		}
+		if (this.socketTimeout != UNSET)
+		{
+			socket.setSoTimeout(this.socketTimeout);
+		}
+		cm.setDefaultSocketConfig(socket.build());
+		return cm;
+	}
+
+	/**
+	 * @param defaults Request configuration of the client
+	 * @return Configuration with the timeouts of this builder
+	 */
+	RequestConfig createRequestConfig(RequestConfig defaults)
+	{
+		RequestConfig.Builder config = RequestConfig.copy(defaults);
+		if (this.connectTimeout != UNSET)
+		{
+			config.setConnectTimeout(this.connectTimeout);
+		}
+		if (this.socketTimeout != UNSET)
+		{
+			config.setSocketTimeout(this.socketTimeout);
+		}
+		if (this.connectionRequestTimeout != UNSET)
+		{
+			config.setConnectionRequestTimeout(this.connectionRequestTimeout);
+		}
+		return config.build();
+	}
+
+	/**
+	 * Enables the eviction of idle connections
+	 */
+	void configure(HttpClientBuilder client)
+	{
+		if (this.maxIdleTime != UNSET)
+		{
+			client.evictExpiredConnections().evictIdleConnections(this.maxIdleTime, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static int positive(int value)
+	{
+		if (value < 1)
+		{
+			throw new IllegalArgumentException("Value must be positive: " + value);
+		}
+		return value;
+	}
+
+	private static int millis(long duration, TimeUnit unit)
+	{
+		long millis = unit.toMillis(duration);
+		if (millis < 0 || millis > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Invalid duration: " + duration + " " + unit);
+		}
+		return (int) millis;
+	}
+}
@@ -17,16 +17,46 @@
 package com.github.sardine.impl;
 
 import com.github.sardine.*;
+import com.github.sardine.impl.cache.CacheLoader;
+import com.github.sardine.impl.cache.ExistenceCache;
+import com.github.sardine.impl.cache.MetadataCache;
+import com.github.sardine.impl.entity.AclEntity;
+import com.github.sardine.impl.entity.LockinfoEntity;
+import com.github.sardine.impl.entity.PropPatchEntity;
+import com.github.sardine.impl.entity.PropfindEntity;
+import com.github.sardine.impl.entity.ReportEntity;
+import com.github.sardine.impl.entity.SearchEntity;
+import com.github.sardine.impl.entity.XmlEntity;
 import com.github.sardine.impl.handler.ExistsResponseHandler;
 import com.github.sardine.impl.handler.LockResponseHandler;
 import com.github.sardine.impl.handler.MultiStatusResponseHandler;
+import com.github.sardine.impl.handler.StreamingMultiStatusResponseHandler;
 import com.github.sardine.impl.handler.VoidResponseHandler;
 import com.github.sardine.impl.io.ContentLengthInputStream;
 import com.github.sardine.impl.io.HttpMethodReleaseInputStream;
+import com.github.sardine.impl.io.MultistatusSpliterator;
+import com.github.sardine.impl.jfr.RequestEvent;
 import com.github.sardine.impl.methods.*;
+import com.github.sardine.impl.metrics.HistogramMetrics;
+import com.github.sardine.impl.metrics.MeteredRequest;
+import com.github.sardine.impl.metrics.RequestTiming;
+import com.github.sardine.impl.metrics.RequestTimingListener;
+import com.github.sardine.impl.metrics.SardineMetrics;
+import com.github.sardine.impl.parser.JaxbMultistatusParser;
+import com.github.sardine.impl.parser.MultistatusParser;
+import com.github.sardine.impl.parser.StaxMultistatusParser;
+import com.github.sardine.impl.pool.ConnectionPoolMetrics;
+import com.github.sardine.impl.pool.InstrumentedConnectionManager;
+import com.github.sardine.impl.transport.HttpComponentsTransport;
+import com.github.sardine.impl.trace.SardineSpan;
+import com.github.sardine.impl.trace.SardineTracer;
+import com.github.sardine.impl.trace.TracedOperation;
+import com.github.sardine.impl.trace.Tracing;
+import com.github.sardine.impl.transport.SardineTransport;
 import com.github.sardine.model.*;
 import com.github.sardine.report.SardineReport;
 import com.github.sardine.report.VersionTreeReport;
+import com.github.sardine.util.BlockingPublisher;
 import com.github.sardine.util.SardineUtil;
 import org.apache.http.*;
 import org.apache.http.auth.AuthScope;
@@ -43,6 +73,7 @@ import org.apache.http.client.methods.*;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.protocol.RequestAcceptEncoding;
 import org.apache.http.client.protocol.ResponseContentEncoding;
+import org.apache.http.client.utils.URIUtils;
 import org.apache.http.config.Lookup;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
@@ -60,35 +91,51 @@ import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.*;
 import org.apache.http.impl.conn.DefaultSchemePortResolver;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
 import org.apache.http.impl.cookie.IgnoreSpecProvider;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.apache.http.util.VersionInfo;
 import org.w3c.dom.Element;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.xml.namespace.QName;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.ProxySelector;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.github.sardine.util.SardineUtil.createQNameWithDefaultNamespace;
 
 /**
  * Implementation of the Sardine interface. This is where the meat of the Sardine library lives.
+ * <p>
+ * Instances built with {@link SardineBuilder#threadSafe(boolean)} can be shared by any number of threads and use a
+ * single connection pool. The authentication cache is shared and the connection state used to reuse connection
+ * based authentication such as NTLM is kept per target host instead of in the shared {@link #context}. Every
+ * request gets its own authentication state. Other instances keep the authentication state of the last request
+ * for the next request and should not be used by multiple threads concurrently.
  *
  * @author jonstevens
  */
@@ -99,14 +146,46 @@ public class SardineImpl implements Sardine
 	private static final String UTF_8 = "UTF-8";
 
 	/**
-	 * HTTP client implementation
+	 * Context attribute overriding content compression of the client configuration when set
 	 */
-	protected CloseableHttpClient client;
+	private static final String COMPRESSION = "sardine.compression";
+
+	static final byte[] ACL_BODY = XmlEntity.prepare(new PropfindEntity(java.util.Arrays.asList(
+			createQNameWithDefaultNamespace("owner"), createQNameWithDefaultNamespace("group"),
+			createQNameWithDefaultNamespace("acl"))));
+
+	static final byte[] QUOTA_BODY = XmlEntity.prepare(new PropfindEntity(java.util.Arrays.asList(
+			createQNameWithDefaultNamespace("quota-available-bytes"), createQNameWithDefaultNamespace("quota-used-bytes"))));
+
+	static final byte[] PRINCIPALS_BODY = XmlEntity.prepare(new PropfindEntity(java.util.Arrays.asList(
+			createQNameWithDefaultNamespace("displayname"), createQNameWithDefaultNamespace("resourcetype"),
+			createQNameWithDefaultNamespace("principal-URL"))));
+
+	static final byte[] PRINCIPAL_COLLECTION_SET_BODY = XmlEntity.prepare(new PropfindEntity(
+			Collections.singletonList(createQNameWithDefaultNamespace("principal-collection-set"))));
 
 	/**
-	 * HTTP client configuration
+	 * HTTP client implementation. Built once so that the connection pool is kept for the lifetime of this instance.
+	 * Null when constructed with a {@link SardineTransport}.
 	 */
-	private HttpClientBuilder builder;
+	protected final CloseableHttpClient client;
+
+	/**
+	 * Executes all requests
+	 */
+	private final SardineTransport transport;
+
+	/**
+	 * Statistics of the default connection pool or null for custom connection managers
+	 */
+	private ConnectionPoolMetrics poolMetrics;
+
+	/**
+	 * Registered MXBean of the pool statistics
+	 *
+	 * @see SardineBuilder#jmxName(String)
+	 */
+	private ObjectName poolObjectName;
 
 	/**
 	 * Local context with authentication cache. Make sure the same context is used to execute
@@ -114,13 +193,78 @@ public class SardineImpl implements Sardine
 	 */
 	protected HttpClientContext context = HttpClientContext.create();
 
+	/**
+	 * Reads multistatus response bodies
+	 */
+	private volatile MultistatusParser parser = new JaxbMultistatusParser();
+
+	/**
+	 * Notified of every request or null
+	 */
+	private volatile SardineMetrics metrics;
+
+	/**
+	 * Notified of the phases of every request or null
+	 */
+	private volatile RequestTimingListener timingListener;
+
+	/**
+	 * Notified of request spans or null
+	 */
+	private volatile SardineTracer tracer;
+
+	/**
+	 * Answers listings and existence checks without a request or null
+	 */
+	private volatile MetadataCache metadataCache;
+
+	/**
+	 * Answers existence checks of absent resources without a request or null
+	 */
+	private volatile ExistenceCache existenceCache;
+
+	/**
+	 * Phases of the last request completed by each thread
+	 */
+	private final ThreadLocal<RequestTiming> lastTiming = new ThreadLocal<RequestTiming>();
+
+	/**
+	 * Reads the responses of publishers
+	 */
+	private volatile Executor publisherExecutor = BlockingPublisher.defaultExecutor();
+
+	/**
+	 * Set on construction
+	 *
+	 * @see SardineBuilder#threadSafe(boolean)
+	 */
+	private boolean threadSafe;
+
+	/**
+	 * Connection state of the last request by target host in thread safe mode
+	 */
+	private final ConcurrentMap<HttpHost, Object> userTokens = new ConcurrentHashMap<HttpHost, Object>();
+
+	/**
+	 * Connection state of the last request otherwise. Kept out of {@link #context} since the context of a view
+	 * falls back to the context of its parent.
+	 */
+	private volatile Object userToken;
+
+	/**
+	 * Set for instances sharing the client of another instance
+	 *
+	 * @see #forUser(CredentialsProvider)
+	 */
+	private boolean view;
+
 	/**
 	 * Access resources with no authentication
 	 */
 	public SardineImpl()
 	{
-		this.builder = this.configure(null, null);
-		this.client = this.builder.build();
+		this.client = this.build(this.configure(null, null));
+		this.transport = new HttpComponentsTransport(this.client);
 	}
 
 	/**
@@ -129,8 +273,8 @@ public class SardineImpl implements Sardine
 	public SardineImpl(String bearerAuth)
 	{
 		Header bearerHeader = new BasicHeader("Authorization", "Bearer " + bearerAuth);
-		this.builder = this.configure(null, null).setDefaultHeaders(Collections.singletonList(bearerHeader));
-		this.client = this.builder.build();
+		this.client = this.build(this.configure(null, null).setDefaultHeaders(Collections.singletonList(bearerHeader)));
+		this.transport = new HttpComponentsTransport(this.client);
 	}
 
 	/**
@@ -141,8 +285,8 @@ public class SardineImpl implements Sardine
 	 */
 	public SardineImpl(String username, String password)
 	{
-		this.builder = this.configure(null, this.createDefaultCredentialsProvider(username, password, null, null));
-		this.client = this.builder.build();
+		this.client = this.build(this.configure(null, createDefaultCredentialsProvider(username, password, null, null)));
+		this.transport = new HttpComponentsTransport(this.client);
 	}
 
 	/**
@@ -152,8 +296,8 @@ public class SardineImpl implements Sardine
 	 */
 	public SardineImpl(String username, String password, ProxySelector selector)
 	{
-		this.builder = this.configure(selector, this.createDefaultCredentialsProvider(username, password, null, null));
-		this.client = this.builder.build();
+		this.client = this.build(this.configure(selector, createDefaultCredentialsProvider(username, password, null, null)));
+		this.transport = new HttpComponentsTransport(this.client);
 	}
 
 	/**
@@ -161,8 +305,8 @@ public class SardineImpl implements Sardine
 	 */
 	public SardineImpl(HttpClientBuilder builder)
 	{
-		this.builder = builder;
-		this.client = this.builder.build();
+		this.client = this.build(builder);
+		this.transport = new HttpComponentsTransport(this.client);
 	}
 
 	/**
@@ -172,9 +316,150 @@ public class SardineImpl implements Sardine
 	 */
 	public SardineImpl(HttpClientBuilder builder, String username, String password)
 	{
-		this.builder = builder;
 		this.setCredentials(username, password);
-		this.client = this.builder.build();
+		this.client = this.build(builder);
+		this.transport = new HttpComponentsTransport(this.client);
+	}
+
+	/**
+	 * @param config Connection pool, socket and timeout configuration
+	 * @see SardineBuilder#build()
+	 */
+	public SardineImpl(SardineBuilder config)
+	{
+		CredentialsProvider credentials = null;
+		if (config.username != null)
+		{
+			credentials = createDefaultCredentialsProvider(config.username, config.password, null, null);
+		}
+		HttpClientBuilder builder = this.configure(config.proxy, credentials,
+				config.createConnectionManager(this.createDefaultSchemeRegistry()),
+				config.createRequestConfig(this.createDefaultRequestConfig()));
+		config.configure(builder);
+		this.parser = config.parser;
+		this.metrics = config.metrics;
+		this.timingListener = config.timingListener;
+		this.tracer = config.tracer;
+		this.metadataCache = config.metadataCache;
+		this.existenceCache = config.existenceCache;
+		if (config.threadSafe)
+		{
+			this.threadSafe = true;
+			// Created before any request to share schemes cached by concurrent requests
+			this.context.setAuthCache(new BasicAuthCache());
+		}
+		this.client = this.build(builder);
+		this.transport = new HttpComponentsTransport(this.client);
+		if (config.jmxName != null && this.poolMetrics != null)
+		{
+			try
+			{
+				this.poolObjectName = this.poolMetrics.register(config.jmxName);
+			}
+			catch (JMException e)
+			{
+				log.warning(String.format("Failed to register connection pool statistics %s: %s", config.jmxName, e));
+			}
+		}
+	}
+
+	/**
+	 * @param transport Executes all requests, such as {@link com.github.sardine.impl.transport.JavaNetHttpTransport} for HTTP/2
+	 */
+	public SardineImpl(SardineTransport transport)
+	{
+		this.client = null;
+		this.transport = transport;
+	}
+
+	/**
+	 * @param transport Executes all requests, such as {@link com.github.sardine.impl.transport.JavaNetHttpTransport} for HTTP/2
+	 * @param username  Use in authentication header credentials
+	 * @param password  Use in authentication header credentials
+	 */
+	public SardineImpl(SardineTransport transport, String username, String password)
+	{
+		this(transport);
+		this.setCredentials(username, password);
+	}
+
+	/**
+	 * View sharing the client and connection pool of another instance.
+	 *
+	 * @param parent      Instance owning the client
+	 * @param credentials Credentials of the view
+	 */
+	private SardineImpl(SardineImpl parent, CredentialsProvider credentials)
+	{
+		this.client = parent.client;
+		this.transport = parent.transport;
+		this.poolMetrics = parent.poolMetrics;
+		// Falls back to the parent for settings such as compression and the cookie specifications
+		this.context = new HttpClientContext(new BasicHttpContext(parent.context));
+		this.context.setAuthCache(new BasicAuthCache());
+		this.context.setCookieStore(new BasicCookieStore());
+		this.parser = parent.parser;
+		this.publisherExecutor = parent.publisherExecutor;
+		this.metrics = parent.metrics;
+		this.timingListener = parent.timingListener;
+		this.tracer = parent.tracer;
+		this.threadSafe = parent.threadSafe;
+		this.view = true;
+		this.setCredentials(credentials);
+	}
+
+	/**
+	 * Adds the interceptors applying the runtime configuration of this instance to every request.
+	 *
+	 * @param builder Client configuration
+	 * @return Client used for the lifetime of this instance
+	 */
+	private CloseableHttpClient build(HttpClientBuilder builder)
+	{
+		builder.addInterceptorFirst(new HttpRequestInterceptor()
+		{
+			@Override
+			public void process(HttpRequest request, HttpContext context)
+			{
+				Boolean enabled = (Boolean) context.getAttribute(COMPRESSION);
+				if (enabled != null)
+				{
+					// Request local context. Read by the content encoding interceptors of the client.
+					HttpClientContext clientContext = HttpClientContext.adapt(context);
+					RequestConfig config = clientContext.getRequestConfig();
+					if (config.isContentCompressionEnabled() != enabled)
+					{
+						clientContext.setRequestConfig(RequestConfig.copy(config).setContentCompressionEnabled(enabled).build());
+					}
+				}
+			}
+		});
+		// Clients built with content compression disabled have no content encoding interceptors
+		final RequestAcceptEncoding acceptEncoding = new RequestAcceptEncoding();
+		builder.addInterceptorLast(new HttpRequestInterceptor()
+		{
+			@Override
+			public void process(HttpRequest request, HttpContext context) throws HttpException, IOException
+			{
+				if (Boolean.TRUE.equals(context.getAttribute(COMPRESSION)))
+				{
+					acceptEncoding.process(request, context);
+				}
+			}
+		});
+		final ResponseContentEncoding contentEncoding = new ResponseContentEncoding();
+		builder.addInterceptorLast(new HttpResponseInterceptor()
+		{
+			@Override
+			public void process(HttpResponse response, HttpContext context) throws HttpException, IOException
+			{
+				if (Boolean.TRUE.equals(context.getAttribute(COMPRESSION)))
+				{
+					contentEncoding.process(response, context);
+				}
+			}
+		});
+		return builder.build();
 	}
 
 	/**
@@ -198,16 +483,51 @@ public class SardineImpl implements Sardine
 	@Override
 	public void setCredentials(String username, String password, String domain, String workstation)
 	{
-		this.setCredentials(this.createDefaultCredentialsProvider(username, password, domain, workstation));
+		this.setCredentials(createDefaultCredentialsProvider(username, password, domain, workstation));
 	}
 
 	public void setCredentials(CredentialsProvider provider)
 	{
 		this.context.setCredentialsProvider(provider);
-		this.context.setAttribute(HttpClientContext.TARGET_AUTH_STATE, new AuthState());
+		if (this.threadSafe)
+		{
+			// Connections authenticated with the previous credentials
+			this.userTokens.clear();
+		}
+		else
+		{
+			this.userToken = null;
+			this.context.setAttribute(HttpClientContext.TARGET_AUTH_STATE, new AuthState());
+		}
+	}
+
+	/**
+	 * Run operations as another identity over the client and connection pool of this instance. The view has its own
+	 * credentials, authentication cache, cookies and connection state. Pooled connections authenticated with
+	 * connection based schemes such as NTLM and Kerberos are only reused by the identity they were authenticated
+	 * for. Compression and cookie settings of this instance apply unless changed on the view. Shutting down a view
+	 * has no effect.
+	 *
+	 * @param username Use in authentication header credentials
+	 * @param password Use in authentication header credentials
+	 * @return View sharing the client of this instance
+	 */
+	public SardineImpl forUser(String username, String password)
+	{
+		return this.forUser(createDefaultCredentialsProvider(username, password, null, null));
+	}
+
+	/**
+	 * @param provider Credentials of the identity
+	 * @return View sharing the client of this instance
+	 * @see #forUser(String, String)
+	 */
+	public SardineImpl forUser(CredentialsProvider provider)
+	{
+		return new SardineImpl(this, provider);
 	}
 
-	private CredentialsProvider createDefaultCredentialsProvider(String username, String password, String domain, String workstation)
+	static CredentialsProvider createDefaultCredentialsProvider(String username, String password, String domain, String workstation)
 	{
 		CredentialsProvider provider = new BasicCredentialsProvider();
 		if (username != null)
@@ -232,33 +552,31 @@ public class SardineImpl implements Sardine
 	}
 
 	/**
-	 * Adds handling of GZIP compression to the client.
+	 * Adds handling of GZIP compression to all subsequent requests. The connection pool is kept.
 	 */
 	@Override
 	public void enableCompression()
 	{
-		this.builder.addInterceptorLast(new RequestAcceptEncoding());
-		this.builder.addInterceptorLast(new ResponseContentEncoding());
-		this.client = this.builder.build();
+		this.context.setAttribute(COMPRESSION, Boolean.TRUE);
 	}
 
 	/**
-	 * Disable GZIP compression header.
+	 * Disable GZIP compression header for all subsequent requests. The connection pool is kept.
 	 */
 	@Override
 	public void disableCompression()
 	{
-		this.builder.disableContentCompression();
-		this.client = this.builder.build();
+		this.context.setAttribute(COMPRESSION, Boolean.FALSE);
 	}
 
 	/**
 	 * Ignores cookies by always returning the IgnoreSpecFactory regardless of the cookieSpec value being looked up.
+	 * Takes precedence over the cookie specifications of the client for all requests using the shared context.
 	 */
 	@Override
 	public void ignoreCookies()
 	{
-		this.builder.setDefaultCookieSpecRegistry(new Lookup<CookieSpecProvider>()
+		this.context.setCookieSpecRegistry(new Lookup<CookieSpecProvider>()
 		{
 			@Override
 			public CookieSpecProvider lookup(String name)
@@ -266,7 +584,56 @@ public class SardineImpl implements Sardine
 				return new IgnoreSpecProvider();
 			}
 		});
-		this.client = this.builder.build();
+	}
+
+	/**
+	 * Read the multistatus responses of listings with a {@link com.github.sardine.util.MultistatusReader}. Resources
+	 * are created while reading the response without building the complete JAXB model first.
+	 */
+	public void enableStreamingParser()
+	{
+		this.setMultistatusParser(new StaxMultistatusParser());
+	}
+
+	/**
+	 * Unmarshal multistatus responses of listings to the JAXB model. This is the default.
+	 */
+	public void disableStreamingParser()
+	{
+		this.setMultistatusParser(new JaxbMultistatusParser());
+	}
+
+	/**
+	 * @param parser Reads the multistatus responses of all subsequent requests
+	 * @see JaxbMultistatusParser
+	 * @see StaxMultistatusParser
+	 */
+	public void setMultistatusParser(MultistatusParser parser)
+	{
+		if (parser == null)
+		{
+			throw new IllegalArgumentException("Parser must not be null");
+		}
+		this.parser = parser;
+	}
+
+	public MultistatusParser getMultistatusParser()
+	{
+		return this.parser;
+	}
+
+	/**
+	 * @param executor Reads the responses of publishers created afterwards. Threads are blocked while waiting for
+	 *                 the server. Defaults to a shared pool of daemon threads.
+	 * @see BlockingPublisher#defaultExecutor()
+	 */
+	public void setPublisherExecutor(Executor executor)
+	{
+		if (executor == null)
+		{
+			throw new IllegalArgumentException("Executor must not be null");
+		}
+		this.publisherExecutor = executor;
 	}
 
 	@Override
@@ -326,7 +693,14 @@ public class SardineImpl implements Sardine
 	@Override
 	public void disablePreemptiveAuthentication()
 	{
-		this.context.removeAttribute(HttpClientContext.AUTH_CACHE);
+		if (this.threadSafe || this.view)
+		{
+			this.context.getAuthCache().clear();
+		}
+		else
+		{
+			this.context.removeAttribute(HttpClientContext.AUTH_CACHE);
+		}
 	}
 
 	@Override
@@ -352,9 +726,7 @@ public class SardineImpl implements Sardine
 	{
 		if (allProp)
 		{
-			Propfind body = new Propfind();
-			body.setAllprop(new Allprop());
-			return propfind(url, depth, body);
+			return propfind(url, depth, PropfindEntity.allprop());
 		}
 		else
 		{
@@ -380,94 +752,222 @@ public class SardineImpl implements Sardine
 	@Override
 	public List<DavResource> list(String url, int depth, java.util.Set<QName> props) throws IOException
 	{
-		Propfind body = new Propfind();
-		Prop prop = new Prop();
-		ObjectFactory objectFactory = new ObjectFactory();
-		prop.setGetcontentlength(objectFactory.createGetcontentlength());
-		prop.setGetlastmodified(objectFactory.createGetlastmodified());
-		prop.setCreationdate(objectFactory.createCreationdate());
-		prop.setDisplayname(objectFactory.createDisplayname());
-		prop.setGetcontenttype(objectFactory.createGetcontenttype());
-		prop.setResourcetype(objectFactory.createResourcetype());
-		prop.setGetetag(objectFactory.createGetetag());
-		prop.setLockdiscovery(objectFactory.createLockdiscovery());
-		addCustomProperties(prop, props);
-		body.setProp(prop);
-		return propfind(url, depth, body);
+		return propfind(url, depth, PropfindEntity.list(props));
 	}
 
 	@Override
-	public List<DavResource> propfind(String url, int depth, java.util.Set<QName> props) throws IOException
+	public Stream<DavResource> listStream(String url, int depth) throws IOException
+	{
+		return propfindStream(url, depth, PropfindEntity.allprop());
+	}
+
+	@Override
+	public Stream<DavResource> listStream(String url, int depth, java.util.Set<QName> props) throws IOException
 	{
-		Propfind body = new Propfind();
-		Prop prop = new Prop();
-		addCustomProperties(prop, props);
-		body.setProp(prop);
-		return propfind(url, depth, body);
+		return propfindStream(url, depth, PropfindEntity.list(props));
 	}
 
-	private void addCustomProperties(Prop prop, java.util.Set<QName> props)
+	@Override
+	public Stream<DavResource> propfindStream(String url, int depth, java.util.Set<QName> props) throws IOException
 	{
-		List<Element> any = prop.getAny();
-		for (QName entry : props)
+		return propfindStream(url, depth, new PropfindEntity(props));
+	}
+
+	@Override
+	public DavResourceTable listTable(String url, int depth, java.util.Set<QName> props) throws IOException
+	{
+		return this.toTable(propfindStream(url, depth, PropfindEntity.list(props)));
+	}
+
+	@Override
+	public DavResourceTable propfindTable(String url, int depth, java.util.Set<QName> props) throws IOException
+	{
+		return this.toTable(propfindStream(url, depth, new PropfindEntity(props)));
+	}
+
+	/**
+	 * Reads all resources of the stream into a table and closes the stream.
+	 */
+	private DavResourceTable toTable(Stream<DavResource> resources) throws IOException
+	{
+		DavResourceTable table = new DavResourceTable();
+		try
 		{
-			Element element = SardineUtil.createElement(entry);
-			any.add(element);
+			resources.forEachOrdered(table::add);
 		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		finally
+		{
+			resources.close();
+		}
+		table.trimToSize();
+		return table;
+	}
+
+	@Override
+	public Stream<DavResource> versionsListStream(String url, int depth, java.util.Set<QName> props) throws IOException
+	{
+		HttpReport entity = new HttpReport(url);
+		entity.setDepth(depth < 0 ? "infinity" : Integer.toString(depth));
+		entity.setEntity(new ReportEntity(new VersionTreeReport(props)));
+		return this.executeMultistatusStream(entity);
+	}
+
+	@Override
+	public Stream<DavResource> searchStream(String url, String language, String query) throws IOException
+	{
+		HttpEntityEnclosingRequestBase search = new HttpSearch(url);
+		search.setEntity(new SearchEntity(language, query));
+		return this.executeMultistatusStream(search);
+	}
+
+	@Override
+	public Flow.Publisher<DavResource> listPublisher(final String url, final int depth, final java.util.Set<QName> props)
+	{
+		return this.publisher(() -> this.listStream(url, depth, props));
+	}
+
+	@Override
+	public Flow.Publisher<DavResource> propfindPublisher(final String url, final int depth, final java.util.Set<QName> props)
+	{
+		return this.publisher(() -> this.propfindStream(url, depth, props));
+	}
+
+	@Override
+	public Flow.Publisher<DavResource> versionsListPublisher(final String url, final int depth, final java.util.Set<QName> props)
+	{
+		return this.publisher(() -> this.versionsListStream(url, depth, props));
+	}
+
+	/**
+	 * @param resources Sends the request for every subscription
+	 */
+	private Flow.Publisher<DavResource> publisher(final Callable<Stream<DavResource>> resources)
+	{
+		return new BlockingPublisher<DavResource>(() -> BlockingPublisher.source(resources.call()), this.publisherExecutor);
+	}
+
+	@Override
+	public List<DavResource> propfind(String url, int depth, java.util.Set<QName> props) throws IOException
+	{
+		return propfind(url, depth, new PropfindEntity(props));
 	}
 
 	protected List<DavResource> propfind(String url, int depth, Propfind body) throws IOException
+	{
+		return propfind(url, depth, new StringEntity(SardineUtil.toXml(body), UTF_8));
+	}
+
+	/**
+	 * @param body Request body, typically a {@link PropfindEntity}
+	 */
+	protected List<DavResource> propfind(String url, int depth, HttpEntity body) throws IOException
+	{
+		CacheLoader<List<DavResource>> loader = () -> this.sendPropfind(url, depth, body);
+		ExistenceCache existence = this.existenceCache;
+		if (existence != null && depth != 0)
+		{
+			CacheLoader<List<DavResource>> listing = loader;
+			loader = () -> existence.index(url, depth, listing);
+		}
+		MetadataCache cache = this.metadataCache;
+		if (cache != null && body.isRepeatable())
+		{
+			return cache.getResources(url, depth, EntityUtils.toString(body, UTF_8), loader, this::isModified);
+		}
+		return loader.load();
+	}
+
+	private List<DavResource> sendPropfind(String url, int depth, HttpEntity body) throws IOException
 	{
 		HttpPropFind entity = new HttpPropFind(url);
 		entity.setDepth(depth < 0 ? "infinity" : Integer.toString(depth));
-		entity.setEntity(new StringEntity(SardineUtil.toXml(body), UTF_8));
-		Multistatus multistatus = this.execute(entity, new MultiStatusResponseHandler());
-		List<Response> responses = multistatus.getResponse();
-		List<DavResource> resources = new ArrayList<DavResource>(responses.size());
-		for (Response response : responses)
+		entity.setEntity(body);
+		return this.executeMultistatus(entity);
+	}
+
+	/**
+	 * @param body Request body, typically a {@link PropfindEntity}
+	 */
+	protected Stream<DavResource> propfindStream(String url, int depth, HttpEntity body) throws IOException
+	{
+		HttpPropFind entity = new HttpPropFind(url);
+		entity.setDepth(depth < 0 ? "infinity" : Integer.toString(depth));
+		entity.setEntity(body);
+		return this.executeMultistatusStream(entity);
+	}
+
+	/**
+	 * Executes a request with a multistatus response and yields the resources while reading the response.
+	 * Closing the stream before all resources are read aborts the request.
+	 *
+	 * @param request Request to execute
+	 * @return Resources in the order of the response
+	 */
+	protected Stream<DavResource> executeMultistatusStream(HttpRequestBase request) throws IOException
+	{
+		// Must use #execute without handler, otherwise the entity is consumed
+		// already after the handler exits.
+		HttpResponse response = this.execute(request);
+		VoidResponseHandler handler = new VoidResponseHandler();
+		try
 		{
-			try
-			{
-				resources.add(new DavResource(response));
-			}
-			catch (URISyntaxException e)
+			handler.handleResponse(response);
+			HttpEntity entity = response.getEntity();
+			if (entity == null)
 			{
-				log.warning(String.format("Ignore resource with invalid URI %s", response.getHref().get(0)));
+				StatusLine statusLine = response.getStatusLine();
+				throw new SardineException("No entity found in response", statusLine.getStatusCode(),
+						statusLine.getReasonPhrase());
 			}
+			final MultistatusSpliterator spliterator = new MultistatusSpliterator(request, new HttpMethodReleaseInputStream(response, this.onAbort(response)));
+			return StreamSupport.stream(spliterator, false).onClose(() -> {
+				try
+				{
+					spliterator.close();
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		catch (IOException ex)
+		{
+			MeteredRequest.complete(response);
+			request.abort();
+			throw ex;
 		}
-		return resources;
+	}
+
+	/**
+	 * Executes a request with a multistatus response and converts each of its response elements to a resource.
+	 *
+	 * @param request Request to execute
+	 * @return Resources in the order of the response
+	 */
+	protected List<DavResource> executeMultistatus(HttpRequestBase request) throws IOException
+	{
+		return this.execute(request, new StreamingMultiStatusResponseHandler(this.parser));
 	}
 
 	public <T> T report(String url, int depth, SardineReport<T> report) throws IOException
 	{
 		HttpReport entity = new HttpReport(url);
 		entity.setDepth(depth < 0 ? "infinity" : Integer.toString(depth));
-		entity.setEntity(new StringEntity(report.toXml(), UTF_8));
-		Multistatus multistatus = this.execute(entity, new MultiStatusResponseHandler());
+		entity.setEntity(new ReportEntity(report));
+		Multistatus multistatus = this.execute(entity, new MultiStatusResponseHandler(this.parser));
 		return report.fromMultistatus(multistatus);
 	}
 
 	public List<DavResource> search(String url, String language, String query) throws IOException
 	{
 		HttpEntityEnclosingRequestBase search = new HttpSearch(url);
-		SearchRequest searchBody = new SearchRequest(language, query);
-		String body = SardineUtil.toXml(searchBody);
-		search.setEntity(new StringEntity(body, UTF_8));
-		Multistatus multistatus = this.execute(search, new MultiStatusResponseHandler());
-		List<Response> responses = multistatus.getResponse();
-		List<DavResource> resources = new ArrayList<DavResource>(responses.size());
-		for (Response response : responses)
-		{
-			try
-			{
-				resources.add(new DavResource(response));
-			}
-			catch (URISyntaxException e)
-			{
-				log.warning(String.format("Ignore resource with invalid URI %s", response.getHref().get(0)));
-			}
-		}
-		return resources;
+		search.setEntity(new SearchEntity(language, query));
+		return this.executeMultistatus(search);
 	}
 
 	@Override
@@ -490,14 +990,7 @@ public class SardineImpl implements Sardine
 	@Override
 	public List<DavResource> patch(String url, Map<QName, String> setProps, List<QName> removeProps) throws IOException
 	{
-		List<Element> setPropsElements = new ArrayList<Element>();
-		for (Entry<QName, String> entry : setProps.entrySet())
-		{
-			Element element = SardineUtil.createElement(entry.getKey());
-			element.setTextContent(entry.getValue());
-			setPropsElements.add(element);
-		}
-		return this.patch(url, setPropsElements, removeProps);
+		return this.patch(url, new PropPatchEntity(setProps, removeProps), Collections.<String, String>emptyMap());
 	}
 
 	/**
@@ -513,73 +1006,30 @@ public class SardineImpl implements Sardine
 
 	@Override
 	public List<DavResource> patch(String url, List<Element> setProps, List<QName> removeProps, Map<String, String> headers) throws IOException
+	{
+		return this.patch(url, new PropPatchEntity(setProps, removeProps), headers);
+	}
+
+	/**
+	 * @param body    <code>PROPPATCH</code> request body
+	 * @param headers Additional HTTP headers to add to the request
+	 */
+	private List<DavResource> patch(String url, HttpEntity body, Map<String, String> headers) throws IOException
 	{
 		HttpPropPatch patch = new HttpPropPatch(url);
 		for (Map.Entry<String, String> h : headers.entrySet())
 		{
 			patch.addHeader(new BasicHeader(h.getKey(), h.getValue()));
 		}
-		// Build WebDAV <code>PROPPATCH</code> entity.
-		Propertyupdate body = new Propertyupdate();
-		// Add properties
-		{
-			Set set = new Set();
-			body.getRemoveOrSet().add(set);
-			Prop prop = new Prop();
-			// Returns a reference to the live list
-			List<Element> any = prop.getAny();
-			for (Element element : setProps)
-			{
-				any.add(element);
-			}
-			set.setProp(prop);
-		}
-		// Remove properties
-		{
-			if (!removeProps.isEmpty()) {
-				Remove remove = new Remove();
-				body.getRemoveOrSet().add(remove);
-				Prop prop = new Prop();
-				// Returns a reference to the live list
-				List<Element> any = prop.getAny();
-				for (QName entry : removeProps)
-				{
-					Element element = SardineUtil.createElement(entry);
-					any.add(element);
-				}
-				remove.setProp(prop);
-			}
-		}
-		patch.setEntity(new StringEntity(SardineUtil.toXml(body), UTF_8));
-		Multistatus multistatus = this.execute(patch, new MultiStatusResponseHandler());
-		List<Response> responses = multistatus.getResponse();
-		List<DavResource> resources = new ArrayList<DavResource>(responses.size());
-		for (Response response : responses)
-		{
-			try
-			{
-				resources.add(new DavResource(response));
-			}
-			catch (URISyntaxException e)
-			{
-				log.warning(String.format("Ignore resource with invalid URI %s", response.getHref().get(0)));
-			}
-		}
-		return resources;
+		patch.setEntity(body);
+		return this.executeMultistatus(patch);
 	}
 
 	@Override
 	public String lock(String url) throws IOException
 	{
 		HttpLock entity = new HttpLock(url);
-		Lockinfo body = new Lockinfo();
-		Lockscope scopeType = new Lockscope();
-		scopeType.setExclusive(new Exclusive());
-		body.setLockscope(scopeType);
-		Locktype lockType = new Locktype();
-		lockType.setWrite(new Write());
-		body.setLocktype(lockType);
-		entity.setEntity(new StringEntity(SardineUtil.toXml(body), UTF_8));
+		entity.setEntity(LockinfoEntity.exclusiveWrite());
 		// Return the lock token
 		return this.execute(entity, new LockResponseHandler());
 	}
@@ -596,13 +1046,6 @@ public class SardineImpl implements Sardine
 	public void unlock(String url, String token) throws IOException
 	{
 		HttpUnlock entity = new HttpUnlock(url, token);
-		Lockinfo body = new Lockinfo();
-		Lockscope scopeType = new Lockscope();
-		scopeType.setExclusive(new Exclusive());
-		body.setLockscope(scopeType);
-		Locktype lockType = new Locktype();
-		lockType.setWrite(new Write());
-		body.setLocktype(lockType);
 		this.execute(entity, new VoidResponseHandler());
 	}
 
@@ -625,20 +1068,7 @@ public class SardineImpl implements Sardine
 	public void setAcl(String url, List<DavAce> aces) throws IOException
 	{
 		HttpAcl entity = new HttpAcl(url);
-		// Build WebDAV <code>ACL</code> entity.
-		Acl body = new Acl();
-		body.setAce(new ArrayList<Ace>());
-		for (DavAce davAce : aces)
-		{
-			// protected and inherited acl must not be part of ACL http request
-			if (davAce.getInherited() != null || davAce.isProtected())
-			{
-				continue;
-			}
-			Ace ace = davAce.toModel();
-			body.getAce().add(ace);
-		}
-		entity.setEntity(new StringEntity(SardineUtil.toXml(body), UTF_8));
+		entity.setEntity(new AclEntity(aces));
 		this.execute(entity, new VoidResponseHandler());
 	}
 
@@ -648,14 +1078,42 @@ public class SardineImpl implements Sardine
 	{
 		HttpPropFind entity = new HttpPropFind(url);
 		entity.setDepth("0");
-		Propfind body = new Propfind();
-		Prop prop = new Prop();
-		prop.setOwner(new Owner());
-		prop.setGroup(new Group());
-		prop.setAcl(new Acl());
-		body.setProp(prop);
-		entity.setEntity(new StringEntity(SardineUtil.toXml(body), UTF_8));
-		Multistatus multistatus = this.execute(entity, new MultiStatusResponseHandler());
+		entity.setEntity(XmlEntity.prepared(ACL_BODY));
+		return toAcl(this.execute(entity, new MultiStatusResponseHandler(this.parser)));
+	}
+
+	@Override
+	public DavQuota getQuota(String url) throws IOException
+	{
+		HttpPropFind entity = new HttpPropFind(url);
+		entity.setDepth("0");
+		entity.setEntity(XmlEntity.prepared(QUOTA_BODY));
+		return toQuota(this.execute(entity, new MultiStatusResponseHandler(this.parser)));
+	}
+
+	@Override
+	public List<DavPrincipal> getPrincipals(String url) throws IOException
+	{
+		HttpPropFind entity = new HttpPropFind(url);
+		entity.setDepth("1");
+		entity.setEntity(XmlEntity.prepared(PRINCIPALS_BODY));
+		return toPrincipals(this.execute(entity, new MultiStatusResponseHandler(this.parser)));
+	}
+
+	@Override
+	public List<String> getPrincipalCollectionSet(String url) throws IOException
+	{
+		HttpPropFind entity = new HttpPropFind(url);
+		entity.setDepth("0");
+		entity.setEntity(XmlEntity.prepared(PRINCIPAL_COLLECTION_SET_BODY));
+		return toPrincipalCollectionSet(this.execute(entity, new MultiStatusResponseHandler(this.parser)));
+	}
+
+	/**
+	 * @return ACL of the first response or null
+	 */
+	static DavAcl toAcl(Multistatus multistatus)
+	{
 		List<Response> responses = multistatus.getResponse();
 		if (responses.isEmpty())
 		{
@@ -667,18 +1125,11 @@ public class SardineImpl implements Sardine
 		}
 	}
 
-	@Override
-	public DavQuota getQuota(String url) throws IOException
+	/**
+	 * @return Quota of the first response or null
+	 */
+	static DavQuota toQuota(Multistatus multistatus)
 	{
-		HttpPropFind entity = new HttpPropFind(url);
-		entity.setDepth("0");
-		Propfind body = new Propfind();
-		Prop prop = new Prop();
-		prop.setQuotaAvailableBytes(new QuotaAvailableBytes());
-		prop.setQuotaUsedBytes(new QuotaUsedBytes());
-		body.setProp(prop);
-		entity.setEntity(new StringEntity(SardineUtil.toXml(body), UTF_8));
-		Multistatus multistatus = this.execute(entity, new MultiStatusResponseHandler());
 		List<Response> responses = multistatus.getResponse();
 		if (responses.isEmpty())
 		{
@@ -698,19 +1149,11 @@ public class SardineImpl implements Sardine
         return null;
 	}
 
-	@Override
-	public List<DavPrincipal> getPrincipals(String url) throws IOException
+	/**
+	 * @return Principals of all responses or null
+	 */
+	static List<DavPrincipal> toPrincipals(Multistatus multistatus)
 	{
-		HttpPropFind entity = new HttpPropFind(url);
-		entity.setDepth("1");
-		Propfind body = new Propfind();
-		Prop prop = new Prop();
-		prop.setDisplayname(new Displayname());
-		prop.setResourcetype(new Resourcetype());
-		prop.setPrincipalURL(new PrincipalURL());
-		body.setProp(prop);
-		entity.setEntity(new StringEntity(SardineUtil.toXml(body), UTF_8));
-		Multistatus multistatus = this.execute(entity, new MultiStatusResponseHandler());
 		List<Response> responses = multistatus.getResponse();
 		if (responses.isEmpty())
 		{
@@ -740,17 +1183,11 @@ public class SardineImpl implements Sardine
 		}
 	}
 
-	@Override
-	public List<String> getPrincipalCollectionSet(String url) throws IOException
+	/**
+	 * @return Principal collections of all responses or null
+	 */
+	static List<String> toPrincipalCollectionSet(Multistatus multistatus)
 	{
-		HttpPropFind entity = new HttpPropFind(url);
-		entity.setDepth("0");
-		Propfind body = new Propfind();
-		Prop prop = new Prop();
-		prop.setPrincipalCollectionSet(new PrincipalCollectionSet());
-		body.setProp(prop);
-		entity.setEntity(new StringEntity(SardineUtil.toXml(body), UTF_8));
-		Multistatus multistatus = this.execute(entity, new MultiStatusResponseHandler());
 		List<Response> responses = multistatus.getResponse();
 		if (responses.isEmpty())
 		{
@@ -802,6 +1239,20 @@ public class SardineImpl implements Sardine
 		return this.get(url, list);
 	}
 
+	@Override
+	public Flow.Publisher<ByteBuffer> getPublisher(String url)
+	{
+		return this.getPublisher(url, Collections.<String, String>emptyMap());
+	}
+
+	@Override
+	public Flow.Publisher<ByteBuffer> getPublisher(final String url, final Map<String, String> headers)
+	{
+		return new BlockingPublisher<ByteBuffer>(
+				() -> BlockingPublisher.source(this.get(url, headers), BlockingPublisher.DEFAULT_BUFFER_SIZE),
+				this.publisherExecutor);
+	}
+
 	public ContentLengthInputStream get(String url, List<Header> headers) throws IOException
 	{
 		HttpGet get = new HttpGet(url);
@@ -817,10 +1268,11 @@ public class SardineImpl implements Sardine
 		{
 			handler.handleResponse(response);
 			// Will abort the read when closed before EOF.
-			return new ContentLengthInputStream(new HttpMethodReleaseInputStream(response), response.getEntity().getContentLength());
+			return new ContentLengthInputStream(new HttpMethodReleaseInputStream(response, this.onAbort(response)), response.getEntity().getContentLength());
 		}
 		catch (IOException ex)
 		{
+			MeteredRequest.complete(response);
 			get.abort();
 			throw ex;
 		}
@@ -1030,9 +1482,103 @@ public class SardineImpl implements Sardine
 
 	@Override
 	public boolean exists(String url) throws IOException
+	{
+		CacheLoader<Boolean> loader = () -> this.execute(new HttpHead(url), new ExistsResponseHandler());
+		MetadataCache cache = this.metadataCache;
+		if (cache != null)
+		{
+			CacheLoader<Boolean> head = loader;
+			loader = () -> cache.exists(url, head);
+		}
+		ExistenceCache existence = this.existenceCache;
+		if (existence != null)
+		{
+			return existence.exists(url, loader);
+		}
+		return loader.load();
+	}
+
+	/**
+	 * Revalidates a cached resource with a conditional <code>HEAD</code> request.
+	 *
+	 * @return False if the server answers <code>304 Not Modified</code>
+	 */
+	private boolean isModified(String url, String etag) throws IOException
 	{
 		HttpHead head = new HttpHead(url);
-		return this.execute(head, new ExistsResponseHandler());
+		head.setHeader(HttpHeaders.IF_NONE_MATCH, etag.startsWith("\"") || etag.startsWith("W/") ? etag : '"' + etag + '"');
+		return this.execute(head, response -> response.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_MODIFIED);
+	}
+
+	/**
+	 * Updates the cached metadata changed by a request of this client.
+	 */
+	private void invalidate(HttpRequestBase request)
+	{
+		MetadataCache cache = this.metadataCache;
+		ExistenceCache existence = this.existenceCache;
+		if (cache == null && existence == null)
+		{
+			return;
+		}
+		String url = request.getURI().toString();
+		switch (request.getMethod())
+		{
+			case HttpMove.METHOD_NAME:
+				if (cache != null)
+				{
+					cache.invalidate(url);
+				}
+				this.invalidateDestination(request, cache, existence);
+				break;
+			case HttpCopy.METHOD_NAME:
+				this.invalidateDestination(request, cache, existence);
+				break;
+			case HttpPut.METHOD_NAME:
+			case HttpMkCol.METHOD_NAME:
+			case HttpLock.METHOD_NAME:
+				// Locking an unmapped URL creates an empty resource
+				if (existence != null)
+				{
+					existence.created(url);
+				}
+				if (cache != null)
+				{
+					cache.invalidate(url);
+				}
+				break;
+			case HttpDelete.METHOD_NAME:
+			case HttpPropPatch.METHOD_NAME:
+			case HttpUnlock.METHOD_NAME:
+				// Listings include the lock discovery
+				if (cache != null)
+				{
+					cache.invalidate(url);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Updates the cached metadata of the destination of a <code>COPY</code> or <code>MOVE</code> request.
+	 */
+	private void invalidateDestination(HttpRequestBase request, MetadataCache cache, ExistenceCache existence)
+	{
+		Header destination = request.getFirstHeader(HttpHeaders.DESTINATION);
+		if (destination == null)
+		{
+			return;
+		}
+		if (cache != null)
+		{
+			cache.invalidate(destination.getValue());
+		}
+		if (existence != null)
+		{
+			existence.copied(destination.getValue());
+		}
 	}
 
 	/**
@@ -1073,37 +1619,279 @@ public class SardineImpl implements Sardine
 			throws IOException
 	{
 		HttpContext requestLocalContext = new BasicHttpContext(context);
+		HttpHost target = null;
+		if (this.threadSafe)
+		{
+			target = URIUtils.extractHost(request.getURI());
+			Object token = target == null ? null : this.userTokens.get(target);
+			if (token != null)
+			{
+				requestLocalContext.setAttribute(HttpClientContext.USER_TOKEN, token);
+			}
+		}
+		else if (this.userToken != null)
+		{
+			requestLocalContext.setAttribute(HttpClientContext.USER_TOKEN, this.userToken);
+		}
+		MeteredRequest metered = this.meter(request);
+		if (metered != null && metered.getTiming() != null)
+		{
+			requestLocalContext.setAttribute(RequestTiming.CONTEXT_ATTRIBUTE, metered.getTiming());
+		}
+		RequestEvent event = new RequestEvent();
+		event.begin();
+		SardineTracer tracer = this.tracer;
+		SardineSpan span = tracer == null ? null : Tracing.start(tracer, request);
+		Throwable failure = null;
+		// Unblocks publishers cancelled while waiting for the server
+		BlockingPublisher.abortOnCancel(request::abort);
 		try
 		{
 			if (responseHandler != null)
 			{
-				return this.client.execute(request, responseHandler, requestLocalContext);
+				ResponseHandler<T> handler = responseHandler;
+				if (metered != null)
+				{
+					handler = metered.wrap(handler);
+				}
+				if (event.isEnabled())
+				{
+					handler = event.wrap(handler);
+				}
+				if (span != null)
+				{
+					handler = Tracing.wrap(span, handler);
+				}
+				return this.transport.execute(request, handler, requestLocalContext);
 			}
 			else
 			{
-				return (T) this.client.execute(request, requestLocalContext);
+				HttpResponse response = this.transport.execute(request, requestLocalContext);
+				if (event.isEnabled())
+				{
+					event.response(response);
+				}
+				if (span != null)
+				{
+					Tracing.response(span, response);
+				}
+				if (metered != null)
+				{
+					// Recorded when the response body is closed
+					metered.response(response);
+				}
+				return (T) response;
 			}
 		}
 		catch (HttpResponseException e)
 		{
+			failure = e;
 			// Don't abort if we get this exception, caller may want to repeat request.
 			throw e;
 		}
-		catch (IOException e)
+		catch (IOException | RuntimeException e)
 		{
+			failure = e;
 			request.abort();
 			throw e;
 		}
 		finally
 		{
-			context.setAttribute(HttpClientContext.USER_TOKEN, requestLocalContext.getAttribute(HttpClientContext.USER_TOKEN));
+			this.invalidate(request);
+			event.complete(request);
+			if (span != null)
+			{
+				Tracing.end(tracer, span, failure);
+			}
+			if (metered != null && (responseHandler != null || !metered.isStreaming()))
+			{
+				metered.complete();
+			}
+			Object token = requestLocalContext.getAttribute(HttpClientContext.USER_TOKEN);
+			if (!this.threadSafe)
+			{
+				this.userToken = token;
+			}
+			else if (token != null && target != null)
+			{
+				this.userTokens.put(target, token);
+			}
+		}
+	}
+
+	/**
+	 * Statistics of the connection pool shared with all views of this instance. Available unless the client was
+	 * built with a custom connection manager or the instance uses a {@link SardineTransport}.
+	 *
+	 * @return Pool statistics or null
+	 * @see SardineBuilder#jmxName(String)
+	 */
+	public ConnectionPoolMetrics getConnectionPoolMetrics()
+	{
+		return this.poolMetrics;
+	}
+
+	/**
+	 * Sends the W3C trace context with every request and reports a span for each request.
+	 *
+	 * @param tracer Notified of spans or null to disable tracing
+	 * @see #traceOperation(String, TracedOperation)
+	 */
+	public void setTracer(SardineTracer tracer)
+	{
+		this.tracer = tracer;
+	}
+
+	public SardineTracer getTracer()
+	{
+		return this.tracer;
+	}
+
+	/**
+	 * Traces a high level operation, such as copying a tree, as parent span of the requests it sends. Requests
+	 * sent from other threads are included when submitted to a {@link RequestExecutor}.
+	 *
+	 * @param name      Name of the span
+	 * @param operation Sends requests with this instance
+	 * @return Result of the operation
+	 */
+	public <T> T traceOperation(String name, TracedOperation<T> operation) throws IOException
+	{
+		return Tracing.operation(this.tracer, name, operation);
+	}
+
+	/**
+	 * @param request Request about to be executed
+	 * @return Measurement of the request or null if neither metrics nor timing are enabled
+	 */
+	private MeteredRequest meter(HttpRequestBase request)
+	{
+		SardineMetrics metrics = this.metrics;
+		final RequestTimingListener listener = this.timingListener;
+		if (listener == null)
+		{
+			return metrics == null ? null : new MeteredRequest(metrics, request);
+		}
+		return new MeteredRequest(metrics, timing -> {
+			this.lastTiming.set(timing);
+			listener.completed(timing);
+		}, request);
+	}
+
+	/**
+	 * Records the lease, connect, TLS, send, wait, transfer and parse phases of all subsequent requests.
+	 *
+	 * @param listener Notified of every completed request or null to disable. Use a listener doing nothing to
+	 *                 only query {@link #getLastRequestTiming()}.
+	 */
+	public void setRequestTimingListener(RequestTimingListener listener)
+	{
+		this.timingListener = listener;
+		if (listener == null)
+		{
+			this.lastTiming.remove();
+		}
+	}
+
+	/**
+	 * Phases of the last request completed by the calling thread, for example to log where the time of a slow
+	 * call went. Streamed responses complete when closed.
+	 *
+	 * @return Null unless timing is enabled
+	 * @see #setRequestTimingListener(RequestTimingListener)
+	 */
+	public RequestTiming getLastRequestTiming()
+	{
+		return this.lastTiming.get();
+	}
+
+	/**
+	 * Answers listings, <code>PROPFIND</code> requests and existence checks from the cache while fresh. Requests of
+	 * this instance changing resources invalidate the affected entries. Not inherited by {@link #forUser views}
+	 * since the visible resources depend on the identity. Stale entries are refreshed from another thread, so
+	 * use a {@link SardineBuilder#threadSafe(boolean) thread safe} instance when serving stale entries.
+	 *
+	 * @param cache Cache of this instance or null to disable
+	 */
+	public void setMetadataCache(MetadataCache cache)
+	{
+		this.metadataCache = cache;
+	}
+
+	public MetadataCache getMetadataCache()
+	{
+		return this.metadataCache;
+	}
+
+	/**
+	 * Answers {@link #exists(String)} for resources recently reported missing or absent from an index of the last
+	 * listing of an ancestor without a request. Listings with a depth other than 0 are indexed. Resources created,
+	 * copied or moved by this instance are added to the indexes. Not inherited by {@link #forUser views}.
+	 *
+	 * @param cache Cache of this instance or null to disable
+	 */
+	public void setExistenceCache(ExistenceCache cache)
+	{
+		this.existenceCache = cache;
+	}
+
+	public ExistenceCache getExistenceCache()
+	{
+		return this.existenceCache;
+	}
+
+	/**
+	 * @param metrics Notified of all subsequent requests or null to disable
+	 * @see HistogramMetrics
+	 */
+	public void setMetrics(SardineMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	public SardineMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+
+	/**
+	 * @param response Response read by the stream
+	 * @return Records response streams closed before the end or null
+	 */
+	private Runnable onAbort(final HttpResponse response)
+	{
+		final ConnectionPoolMetrics pool = this.poolMetrics;
+		if (pool == null && this.metrics == null && this.timingListener == null)
+		{
+			return null;
 		}
+		return () -> {
+			if (pool != null)
+			{
+				pool.connectionAborted();
+			}
+			MeteredRequest.complete(response);
+		};
 	}
 
 	@Override
 	public void shutdown() throws IOException
 	{
-		this.client.close();
+		if (!this.view)
+		{
+			if (this.poolObjectName != null)
+			{
+				try
+				{
+					ConnectionPoolMetrics.unregister(this.poolObjectName);
+				}
+				catch (JMException e)
+				{
+					log.warning(String.format("Failed to unregister connection pool statistics %s: %s", this.poolObjectName, e));
+				}
+			}
+			this.transport.close();
+		}
 	}
 
 	/**
@@ -1116,22 +1904,38 @@ public class SardineImpl implements Sardine
 	{
 		Registry<ConnectionSocketFactory> schemeRegistry = this.createDefaultSchemeRegistry();
 		HttpClientConnectionManager cm = this.createDefaultConnectionManager(schemeRegistry);
+		return this.configure(selector, credentials, cm, this.createDefaultRequestConfig());
+	}
+
+	private HttpClientBuilder configure(ProxySelector selector, CredentialsProvider credentials,
+			HttpClientConnectionManager cm, RequestConfig config)
+	{
 		String version = Version.getSpecification();
 		if (version == null)
 		{
 			version = VersionInfo.UNAVAILABLE;
 		}
+		if (cm instanceof InstrumentedConnectionManager)
+		{
+			this.poolMetrics = ((InstrumentedConnectionManager) cm).getMetrics();
+		}
 		return HttpClients.custom()
 				.setUserAgent("Sardine/" + version)
 				.setDefaultCredentialsProvider(credentials)
 				.setRedirectStrategy(this.createDefaultRedirectStrategy())
-				.setDefaultRequestConfig(RequestConfig.custom()
-						// Only selectively enable this for PUT but not all entity enclosing methods
-						.setExpectContinueEnabled(false).build())
+				.setDefaultRequestConfig(config)
 				.setConnectionManager(cm)
+				.setRequestExecutor(new TimingRequestExecutor())
 				.setRoutePlanner(this.createDefaultRoutePlanner(this.createDefaultSchemePortResolver(), selector));
 	}
 
+	protected RequestConfig createDefaultRequestConfig()
+	{
+		return RequestConfig.custom()
+				// Only selectively enable this for PUT but not all entity enclosing methods
+				.setExpectContinueEnabled(false).build();
+	}
+
 	protected DefaultSchemePortResolver createDefaultSchemePortResolver()
 	{
 		return new DefaultSchemePortResolver();
@@ -1149,7 +1953,7 @@ public class SardineImpl implements Sardine
 	{
 		return RegistryBuilder.<ConnectionSocketFactory>create()
 				.register("http", this.createDefaultSocketFactory())
-				.register("https", this.createDefaultSecureSocketFactory())
+				.register("https", new LazySecureSocketFactory(this::createDefaultSecureSocketFactory))
 				.build();
 	}
 
@@ -1162,6 +1966,8 @@ public class SardineImpl implements Sardine
 	}
 
 	/**
+	 * Called on the first secure connection rather than when the client is built.
+	 *
 	 * @return Default SSL socket factory
 	 */
 	protected ConnectionSocketFactory createDefaultSecureSocketFactory()
@@ -1177,7 +1983,7 @@ public class SardineImpl implements Sardine
 	 */
 	protected HttpClientConnectionManager createDefaultConnectionManager(Registry<ConnectionSocketFactory> schemeRegistry)
 	{
-		return new PoolingHttpClientConnectionManager(schemeRegistry);
+		return new InstrumentedConnectionManager(schemeRegistry);
 	}
 
 	/**
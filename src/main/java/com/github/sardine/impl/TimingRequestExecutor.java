@@ -0,0 +1,49 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import java.io.IOException;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import com.github.sardine.impl.metrics.RequestTiming;
+
+/**
+ * Notes when requests are written for the {@link RequestTiming} of timed requests.
+ */
+class TimingRequestExecutor extends HttpRequestExecutor
+{
+	@Override
+	protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+			throws IOException, HttpException
+	{
+		RequestTiming timing = RequestTiming.get(context);
+		if (timing == null)
+		{
+			return super.doSendRequest(request, conn, context);
+		}
+		timing.sending();
+		HttpResponse response = super.doSendRequest(request, conn, context);
+		timing.sent();
+		return response;
+	}
+}
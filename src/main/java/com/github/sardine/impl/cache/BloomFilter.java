@@ -0,0 +1,99 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of strings answering membership queries with false positives but no false negatives. Thread safe.
+ */
+final class BloomFilter
+{
+	private final AtomicLongArray bits;
+
+	private final long size;
+
+	private final int hashes;
+
+	/**
+	 * @param expected                  Number of elements
+	 * @param falsePositiveProbability Probability of reporting an element not added
+	 */
+	BloomFilter(int expected, double falsePositiveProbability)
+	{
+		long n = Math.max(expected, 1);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+		this.bits = new AtomicLongArray(words);
+		this.size = (long) words << 6;
+		this.hashes = Math.max(1, (int) Math.round((double) this.size / n * Math.log(2)));
+	}
+
+	void add(String value)
+	{
+		long hash = hash(value);
+		long h1 = hash >>> 32;
+		long h2 = (hash & 0xffffffffL) | 1;
+		for (int i = 0; i < this.hashes; i++)
+		{
+			long bit = Long.remainderUnsigned(h1 + i * h2, this.size);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current;
+			do
+			{
+				current = this.bits.get(word);
+			}
+			while ((current & mask) == 0 && !this.bits.compareAndSet(word, current, current | mask));
+		}
+	}
+
+	boolean mightContain(String value)
+	{
+		long hash = hash(value);
+		long h1 = hash >>> 32;
+		long h2 = (hash & 0xffffffffL) | 1;
+		for (int i = 0; i < this.hashes; i++)
+		{
+			long bit = Long.remainderUnsigned(h1 + i * h2, this.size);
+			if ((this.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 64 bit FNV-1a with a final avalanche step.
+	 */
+	private static long hash(String value)
+	{
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++)
+		{
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
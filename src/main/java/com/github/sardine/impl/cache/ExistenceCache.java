@@ -0,0 +1,423 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.cache;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.github.sardine.DavResource;
+
+/**
+ * Answers existence checks of absent resources without a request.
+ * <p>
+ * Resources reported missing are remembered for the time to live. In addition every listing of a collection with
+ * a depth other than 0 is indexed in a Bloom filter of its members, replacing the previous index of the
+ * collection. Resources within the depth of an index that are not members are definitely absent, while members
+ * and false positives are checked with the server. Resources created, copied or moved by the client owning the
+ * cache are added to the indexes covering them, up to a quarter of the listing or at least
+ * {@value #MINIMUM_HEADROOM}. Indexes are then discarded, so that the false positive probability holds. Changes by
+ * other clients are seen once entries expire.
+ * <p>
+ * Indexes match the URLs checked with the <code>href</code> elements of listings after decoding percent-encoding,
+ * removing trailing slashes and ignoring case and the Unicode normalization form. Only enable the cache for
+ * servers whose <code>href</code> elements otherwise name resources as requested, as resources returned under
+ * other names, such as aliases or rewritten names, are reported absent without a request.
+ */
+public class ExistenceCache
+{
+	/**
+	 * Maximum number of indexed collections. The least recently built index is discarded first.
+	 */
+	private static final int MAXIMUM_INDEXES = 64;
+
+	/**
+	 * Minimum number of resources that can be added to an index after the listing
+	 */
+	private static final int MINIMUM_HEADROOM = 16;
+
+	private final int maximumSize;
+
+	private final long ttlNanos;
+
+	private final double falsePositiveProbability;
+
+	private final LongSupplier clock;
+
+	/**
+	 * Time each missing resource was reported in access order. Guarded by itself.
+	 */
+	private final LinkedHashMap<String, Long> missing;
+
+	/**
+	 * Indexes by normalized collection URL
+	 */
+	private final ConcurrentMap<String, Index> indexes = new ConcurrentHashMap<String, Index>();
+
+	/**
+	 * Incremented by every write to discard responses read before. Guarded by {@link #missing}.
+	 */
+	private long generation;
+
+	private final LongAdder negativeHits = new LongAdder();
+
+	private final LongAdder filterHits = new LongAdder();
+
+	private final LongAdder requests = new LongAdder();
+
+	private final LongAdder falsePositives = new LongAdder();
+
+	/**
+	 * @param maximumSize Maximum number of remembered missing resources
+	 * @param ttl         Time missing resources and indexes are trusted
+	 */
+	public ExistenceCache(int maximumSize, long ttl, TimeUnit unit)
+	{
+		this(maximumSize, ttl, unit, 0.01);
+	}
+
+	/**
+	 * @param falsePositiveProbability Fraction of absent resources within an index that still require a request
+	 */
+	public ExistenceCache(int maximumSize, long ttl, TimeUnit unit, double falsePositiveProbability)
+	{
+		this(maximumSize, ttl, unit, falsePositiveProbability, System::nanoTime);
+	}
+
+	ExistenceCache(int maximumSize, long ttl, TimeUnit unit, double falsePositiveProbability, LongSupplier clock)
+	{
+		if (maximumSize < 1)
+		{
+			throw new IllegalArgumentException("Maximum size must be positive");
+		}
+		if (ttl < 0)
+		{
+			throw new IllegalArgumentException("Time must not be negative");
+		}
+		if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1))
+		{
+			throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+		}
+		this.maximumSize = maximumSize;
+		this.ttlNanos = unit.toNanos(ttl);
+		this.falsePositiveProbability = falsePositiveProbability;
+		this.clock = clock;
+		this.missing = new LinkedHashMap<String, Long>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+			{
+				return this.size() > ExistenceCache.this.maximumSize;
+			}
+		};
+	}
+
+	/**
+	 * @param url    Requested resource
+	 * @param loader Sends the request unless the resource is known to be absent
+	 * @return Existence of the resource
+	 */
+	public boolean exists(String url, CacheLoader<Boolean> loader) throws IOException
+	{
+		String path = Urls.normalize(url);
+		long now = this.clock.getAsLong();
+		long gen;
+		synchronized (this.missing)
+		{
+			Long reported = this.missing.get(path);
+			if (reported != null)
+			{
+				if (now - reported < this.ttlNanos)
+				{
+					this.negativeHits.increment();
+					return false;
+				}
+				this.missing.remove(path);
+			}
+			gen = this.generation;
+		}
+		boolean indexed = false;
+		for (String ancestor = Urls.parent(path); ancestor != null; ancestor = Urls.parent(ancestor))
+		{
+			Index index = this.indexes.get(ancestor);
+			if (index != null && index.covers(ancestor, path, now))
+			{
+				if (!index.filter.mightContain(Urls.fold(path)))
+				{
+					this.filterHits.increment();
+					return false;
+				}
+				indexed = true;
+			}
+		}
+		this.requests.increment();
+		boolean exists = loader.load();
+		if (!exists)
+		{
+			if (indexed)
+			{
+				this.falsePositives.increment();
+			}
+			synchronized (this.missing)
+			{
+				if (this.generation == gen)
+				{
+					this.missing.put(path, now);
+				}
+			}
+		}
+		return exists;
+	}
+
+	/**
+	 * Indexes the members of a listing.
+	 *
+	 * @param url     Listed collection
+	 * @param depth   Depth of the listing, 0 is not indexed
+	 * @param listing Sends the request
+	 * @return Resources of the listing
+	 */
+	public List<DavResource> index(String url, int depth, CacheLoader<List<DavResource>> listing) throws IOException
+	{
+		long gen;
+		synchronized (this.missing)
+		{
+			gen = this.generation;
+		}
+		long now = this.clock.getAsLong();
+		List<DavResource> resources = listing.load();
+		if (depth == 0)
+		{
+			return resources;
+		}
+		int headroom = Math.max(resources.size() / 4, MINIMUM_HEADROOM);
+		Index index = new Index(depth, now, new BloomFilter(resources.size() + headroom, this.falsePositiveProbability),
+				headroom);
+		for (DavResource resource : resources)
+		{
+			index.filter.add(Urls.fold(Urls.member(url, resource.getHref())));
+		}
+		synchronized (this.missing)
+		{
+			if (this.generation != gen)
+			{
+				return resources;
+			}
+			this.indexes.put(Urls.normalize(url), index);
+		}
+		if (this.indexes.size() > MAXIMUM_INDEXES)
+		{
+			this.evictOldestIndex();
+		}
+		return resources;
+	}
+
+	private void evictOldestIndex()
+	{
+		Map.Entry<String, Index> oldest = null;
+		for (Map.Entry<String, Index> entry : this.indexes.entrySet())
+		{
+			if (oldest == null || entry.getValue().built - oldest.getValue().built < 0)
+			{
+				oldest = entry;
+			}
+		}
+		if (oldest != null)
+		{
+			this.indexes.remove(oldest.getKey(), oldest.getValue());
+		}
+	}
+
+	/**
+	 * Records a resource created by a <code>PUT</code> or <code>MKCOL</code> request.
+	 *
+	 * @param url Created resource
+	 */
+	public void created(String url)
+	{
+		this.created(url, false);
+	}
+
+	/**
+	 * Records the destination of a <code>COPY</code> or <code>MOVE</code> request. Members of a copied collection
+	 * are unknown, so indexes including descendants of the destination are discarded.
+	 *
+	 * @param url Destination
+	 */
+	public void copied(String url)
+	{
+		this.created(url, true);
+	}
+
+	/**
+	 * @param members True if the resource may have unknown members
+	 */
+	private void created(String url, boolean members)
+	{
+		String path = Urls.normalize(url);
+		synchronized (this.missing)
+		{
+			this.generation++;
+			Iterator<String> missing = this.missing.keySet().iterator();
+			while (missing.hasNext())
+			{
+				if (Urls.levels(path, missing.next()) >= 0)
+				{
+					missing.remove();
+				}
+			}
+			Iterator<Map.Entry<String, Index>> indexes = this.indexes.entrySet().iterator();
+			while (indexes.hasNext())
+			{
+				Map.Entry<String, Index> entry = indexes.next();
+				Index index = entry.getValue();
+				int levels = Urls.levels(entry.getKey(), path);
+				if (levels < 0)
+				{
+					if (members && Urls.levels(path, entry.getKey()) > 0)
+					{
+						// Within the destination
+						indexes.remove();
+					}
+				}
+				else if (members && (index.depth < 0 || index.depth > levels))
+				{
+					indexes.remove();
+				}
+				else if (levels > 0 && (index.depth < 0 || index.depth >= levels))
+				{
+					if (index.headroom == 0)
+					{
+						// Sized for fewer members
+						indexes.remove();
+					}
+					else
+					{
+						index.headroom--;
+						index.filter.add(Urls.fold(path));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards all missing resources and indexes.
+	 */
+	public void clear()
+	{
+		synchronized (this.missing)
+		{
+			this.generation++;
+			this.missing.clear();
+			this.indexes.clear();
+		}
+	}
+
+	/**
+	 * @return Checks answered from remembered missing resources
+	 */
+	public long getNegativeHitCount()
+	{
+		return this.negativeHits.sum();
+	}
+
+	/**
+	 * @return Checks answered from indexes
+	 */
+	public long getFilterHitCount()
+	{
+		return this.filterHits.sum();
+	}
+
+	/**
+	 * @return Checks sent to the server
+	 */
+	public long getRequestCount()
+	{
+		return this.requests.sum();
+	}
+
+	/**
+	 * @return Checks sent to the server for missing resources reported as possible members by an index
+	 */
+	public long getFalsePositiveCount()
+	{
+		return this.falsePositives.sum();
+	}
+
+	/**
+	 * @return Number of indexed collections
+	 */
+	public int getIndexCount()
+	{
+		return this.indexes.size();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("ExistenceCache[indexes=%d, negativeHits=%d, filterHits=%d, requests=%d, falsePositives=%d]",
+				this.getIndexCount(), this.getNegativeHitCount(), this.getFilterHitCount(), this.getRequestCount(),
+				this.getFalsePositiveCount());
+	}
+
+	private final class Index
+	{
+		/**
+		 * Depth of the listing, negative for infinity
+		 */
+		final int depth;
+
+		/**
+		 * Time the listing was requested
+		 */
+		final long built;
+
+		final BloomFilter filter;
+
+		/**
+		 * Number of resources that can still be added. Guarded by {@link #missing}.
+		 */
+		int headroom;
+
+		Index(int depth, long built, BloomFilter filter, int headroom)
+		{
+			this.depth = depth;
+			this.built = built;
+			this.filter = filter;
+			this.headroom = headroom;
+		}
+
+		/**
+		 * @param collection Normalized URL of the indexed collection
+		 * @param path       Normalized URL below the collection
+		 * @return True if the listing included the level of the path and is not expired
+		 */
+		boolean covers(String collection, String path, long now)
+		{
+			return now - this.built < ttlNanos && (this.depth < 0 || this.depth >= Urls.levels(collection, path));
+		}
+	}
+}
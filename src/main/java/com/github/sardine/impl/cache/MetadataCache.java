@@ -0,0 +1,476 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.util.BlockingPublisher;
+
+/**
+ * Size bounded cache of <code>PROPFIND</code> results and existence checks by URL, depth and request body.
+ * <p>
+ * Entries are fresh for the time to live. Afterwards they are served for the stale while revalidate period while a
+ * single background request refreshes them. Expired single resources with an entity tag are revalidated with a
+ * conditional <code>HEAD</code> request before being read again. The least recently used entries are evicted
+ * when the maximum size is reached.
+ * <p>
+ * Writes by the client owning the cache invalidate the target, its descendants, its parent and listings of
+ * ancestors deep enough to include it. Changes by other clients are seen once entries expire.
+ */
+public class MetadataCache
+{
+	private static final Logger log = Logger.getLogger(MetadataCache.class.getName());
+
+	/**
+	 * Request body of existence checks
+	 */
+	private static final String EXISTS = "HEAD";
+
+	private final int maximumSize;
+
+	private final long ttlNanos;
+
+	private final long staleNanos;
+
+	private final Executor executor;
+
+	private final LongSupplier clock;
+
+	/**
+	 * Entries in access order. Guarded by itself.
+	 */
+	private final LinkedHashMap<Key, CachedValue> entries;
+
+	/**
+	 * Incremented by every invalidation to discard responses read before. Guarded by {@link #entries}.
+	 */
+	private long generation;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder staleHits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder revalidations = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder invalidations = new LongAdder();
+
+	/**
+	 * @param maximumSize Maximum number of cached responses
+	 * @param ttl         Time entries are served without contacting the server
+	 */
+	public MetadataCache(int maximumSize, long ttl, TimeUnit unit)
+	{
+		this(maximumSize, ttl, 0, unit);
+	}
+
+	/**
+	 * @param maximumSize          Maximum number of cached responses
+	 * @param ttl                  Time entries are served without contacting the server
+	 * @param staleWhileRevalidate Additional time expired entries are served while refreshed in the background
+	 */
+	public MetadataCache(int maximumSize, long ttl, long staleWhileRevalidate, TimeUnit unit)
+	{
+		this(maximumSize, ttl, staleWhileRevalidate, unit, BlockingPublisher.defaultExecutor());
+	}
+
+	/**
+	 * @param executor Sends background refreshes
+	 */
+	public MetadataCache(int maximumSize, long ttl, long staleWhileRevalidate, TimeUnit unit, Executor executor)
+	{
+		this(maximumSize, ttl, staleWhileRevalidate, unit, executor, System::nanoTime);
+	}
+
+	MetadataCache(int maximumSize, long ttl, long staleWhileRevalidate, TimeUnit unit, Executor executor, LongSupplier clock)
+	{
+		if (maximumSize < 1)
+		{
+			throw new IllegalArgumentException("Maximum size must be positive");
+		}
+		if (ttl < 0 || staleWhileRevalidate < 0)
+		{
+			throw new IllegalArgumentException("Time must not be negative");
+		}
+		this.maximumSize = maximumSize;
+		this.ttlNanos = unit.toNanos(ttl);
+		this.staleNanos = unit.toNanos(staleWhileRevalidate);
+		this.executor = executor;
+		this.clock = clock;
+		this.entries = new LinkedHashMap<Key, CachedValue>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedValue> eldest)
+			{
+				if (this.size() > MetadataCache.this.maximumSize)
+				{
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @param url         Requested resource
+	 * @param depth       Depth of the request
+	 * @param body        Request body selecting the properties
+	 * @param loader      Sends the request on a miss
+	 * @param revalidator Checks expired single resources with an entity tag or null
+	 * @return Copy of the cached resources
+	 */
+	@SuppressWarnings("unchecked")
+	public List<DavResource> getResources(String url, int depth, String body, CacheLoader<List<DavResource>> loader,
+			Revalidator revalidator) throws IOException
+	{
+		Object value = this.get(new Key(url, depth, body), loader, depth == 0 ? revalidator : null);
+		return new ArrayList<DavResource>((List<DavResource>) value);
+	}
+
+	/**
+	 * @param url    Requested resource
+	 * @param loader Sends the request on a miss
+	 * @return Cached existence of the resource
+	 */
+	public boolean exists(String url, CacheLoader<Boolean> loader) throws IOException
+	{
+		return (Boolean) this.get(new Key(url, 0, EXISTS), loader, null);
+	}
+
+	private Object get(Key key, CacheLoader<?> loader, Revalidator revalidator) throws IOException
+	{
+		CachedValue entry;
+		long gen;
+		synchronized (this.entries)
+		{
+			entry = this.entries.get(key);
+			gen = this.generation;
+		}
+		if (entry != null)
+		{
+			long age = this.clock.getAsLong() - entry.loaded;
+			if (age < this.ttlNanos)
+			{
+				this.hits.increment();
+				return entry.value;
+			}
+			if (age < this.ttlNanos + this.staleNanos)
+			{
+				this.staleHits.increment();
+				this.refresh(key, entry, loader, revalidator);
+				return entry.value;
+			}
+			if (this.revalidate(key, entry, revalidator, gen))
+			{
+				this.hits.increment();
+				return entry.value;
+			}
+		}
+		this.misses.increment();
+		return this.load(key, loader, gen);
+	}
+
+	/**
+	 * @return True if the entry is unchanged on the server and was renewed
+	 */
+	private boolean revalidate(Key key, CachedValue entry, Revalidator revalidator, long gen) throws IOException
+	{
+		if (revalidator == null || entry.etag == null)
+		{
+			return false;
+		}
+		long now = this.clock.getAsLong();
+		if (revalidator.isModified(key.location, entry.etag))
+		{
+			return false;
+		}
+		this.revalidations.increment();
+		this.store(key, new CachedValue(entry.value, now), gen);
+		return true;
+	}
+
+	private Object load(Key key, CacheLoader<?> loader, long gen) throws IOException
+	{
+		long now = this.clock.getAsLong();
+		Object value = loader.load();
+		if (value instanceof List)
+		{
+			value = Collections.unmodifiableList(new ArrayList<Object>((List<?>) value));
+		}
+		this.store(key, new CachedValue(value, now), gen);
+		return value;
+	}
+
+	/**
+	 * Refreshes a stale entry in the background unless a refresh is already running.
+	 */
+	private void refresh(final Key key, final CachedValue entry, final CacheLoader<?> loader, final Revalidator revalidator)
+	{
+		if (!entry.refreshing.compareAndSet(false, true))
+		{
+			return;
+		}
+		final long gen;
+		synchronized (this.entries)
+		{
+			gen = this.generation;
+		}
+		this.executor.execute(() -> {
+			try
+			{
+				if (!this.revalidate(key, entry, revalidator, gen))
+				{
+					this.load(key, loader, gen);
+				}
+			}
+			catch (IOException | RuntimeException e)
+			{
+				log.log(Level.FINE, "Failed to refresh " + key.location, e);
+				// Served until the stale period ends
+				entry.refreshing.set(false);
+			}
+		});
+	}
+
+	private void store(Key key, CachedValue entry, long gen)
+	{
+		synchronized (this.entries)
+		{
+			if (this.generation == gen)
+			{
+				this.entries.put(key, entry);
+			}
+		}
+	}
+
+	/**
+	 * Removes the entries of the resource, its descendants, its parent and of ancestor listings including it.
+	 *
+	 * @param url Resource changed by a request
+	 */
+	public void invalidate(String url)
+	{
+		String path = Urls.normalize(url);
+		synchronized (this.entries)
+		{
+			this.generation++;
+			Iterator<Key> keys = this.entries.keySet().iterator();
+			while (keys.hasNext())
+			{
+				if (keys.next().isAffectedBy(path))
+				{
+					keys.remove();
+					this.invalidations.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void invalidateAll()
+	{
+		synchronized (this.entries)
+		{
+			this.generation++;
+			this.invalidations.add(this.entries.size());
+			this.entries.clear();
+		}
+	}
+
+	/**
+	 * @return Number of cached responses
+	 */
+	public int size()
+	{
+		synchronized (this.entries)
+		{
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * @return Requests answered from fresh or revalidated entries
+	 */
+	public long getHitCount()
+	{
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return Requests answered from stale entries while refreshing them
+	 */
+	public long getStaleHitCount()
+	{
+		return this.staleHits.sum();
+	}
+
+	/**
+	 * @return Requests sent to the server
+	 */
+	public long getMissCount()
+	{
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return Expired entries renewed by a conditional request
+	 */
+	public long getRevalidationCount()
+	{
+		return this.revalidations.sum();
+	}
+
+	/**
+	 * @return Least recently used entries removed to stay within the maximum size
+	 */
+	public long getEvictionCount()
+	{
+		return this.evictions.sum();
+	}
+
+	/**
+	 * @return Entries removed by writes of the client
+	 */
+	public long getInvalidationCount()
+	{
+		return this.invalidations.sum();
+	}
+
+	/**
+	 * @return Fraction of requests answered without waiting for the server
+	 */
+	public double getHitRatio()
+	{
+		long hits = this.getHitCount() + this.getStaleHitCount();
+		long total = hits + this.getMissCount();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("MetadataCache[size=%d, hits=%d, staleHits=%d, misses=%d, revalidations=%d, evictions=%d, invalidations=%d]",
+				this.size(), this.getHitCount(), this.getStaleHitCount(), this.getMissCount(),
+				this.getRevalidationCount(), this.getEvictionCount(), this.getInvalidationCount());
+	}
+
+	private static final class Key
+	{
+		/**
+		 * URL as requested by the caller
+		 */
+		final String location;
+
+		/**
+		 * Normalized URL
+		 */
+		final String url;
+
+		final int depth;
+
+		final String body;
+
+		Key(String location, int depth, String body)
+		{
+			this.location = location;
+			this.url = Urls.normalize(location);
+			this.depth = depth;
+			this.body = body;
+		}
+
+		/**
+		 * @param path Normalized URL of a changed resource
+		 */
+		boolean isAffectedBy(String path)
+		{
+			if (Urls.levels(path, this.url) >= 0)
+			{
+				// Same or descendant
+				return true;
+			}
+			int levels = Urls.levels(this.url, path);
+			// The parent changes with its members, deeper ancestors only if listed that deep
+			return levels == 1 || (levels > 1 && (this.depth < 0 || this.depth >= levels));
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+			{
+				return false;
+			}
+			Key other = (Key) o;
+			return this.depth == other.depth && this.url.equals(other.url) && this.body.equals(other.body);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (this.url.hashCode() * 31 + this.depth) * 31 + this.body.hashCode();
+		}
+	}
+
+	private static final class CachedValue
+	{
+		final Object value;
+
+		/**
+		 * Time the request was sent
+		 */
+		final long loaded;
+
+		/**
+		 * Entity tag of a single resource or null
+		 */
+		final String etag;
+
+		final AtomicBoolean refreshing = new AtomicBoolean();
+
+		CachedValue(Object value, long loaded)
+		{
+			this.value = value;
+			this.loaded = loaded;
+			String etag = null;
+			if (value instanceof List && ((List<?>) value).size() == 1)
+			{
+				etag = ((DavResource) ((List<?>) value).get(0)).getEtag();
+			}
+			this.etag = etag;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.cache;
+
+import java.net.URI;
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Keys of cached resources.
+ */
+final class Urls
+{
+	private Urls()
+	{
+	}
+
+	/**
+	 * Decodes the path so that the forms sent by the client and by the server in <code>href</code> elements match.
+	 *
+	 * @return Lower case scheme and host, port and decoded path without trailing slash
+	 */
+	static String normalize(String url)
+	{
+		return normalize(URI.create(url).normalize());
+	}
+
+	/**
+	 * @param url  Listed resource
+	 * @param href Member of the listing, usually an absolute path
+	 * @return Normalized URL of the member on the host of the listed resource
+	 */
+	static String member(String url, URI href)
+	{
+		return normalize(URI.create(url).resolve(href.getRawPath()).normalize());
+	}
+
+	private static String normalize(URI uri)
+	{
+		String path = uri.getPath() == null ? "" : uri.getPath();
+		int end = path.length();
+		while (end > 0 && path.charAt(end - 1) == '/')
+		{
+			end--;
+		}
+		path = path.substring(0, end);
+		if (uri.getRawAuthority() == null)
+		{
+			return path;
+		}
+		String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+		if (uri.getHost() == null)
+		{
+			return scheme + "://" + uri.getRawAuthority() + path;
+		}
+		StringBuilder key = new StringBuilder(scheme).append("://");
+		if (uri.getRawUserInfo() != null)
+		{
+			key.append(uri.getRawUserInfo()).append('@');
+		}
+		key.append(uri.getHost().toLowerCase(Locale.ROOT));
+		if (uri.getPort() != -1)
+		{
+			key.append(':').append(uri.getPort());
+		}
+		return key.append(path).toString();
+	}
+
+	/**
+	 * Servers may treat names as case insensitive or return them in another Unicode normalization form than
+	 * requested, so index keys ignore both. Such differences cause a request rather than a wrong answer.
+	 *
+	 * @param path Normalized URL
+	 * @return Key of the path in an index
+	 */
+	static String fold(String path)
+	{
+		return Normalizer.normalize(path, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @param ancestor Normalized URL
+	 * @param path     Normalized URL
+	 * @return Number of path segments of the path below the ancestor, 0 for the same resource or -1 if not below
+	 */
+	static int levels(String ancestor, String path)
+	{
+		if (ancestor.equals(path))
+		{
+			return 0;
+		}
+		if (!path.startsWith(ancestor) || path.charAt(ancestor.length()) != '/')
+		{
+			return -1;
+		}
+		int levels = 0;
+		for (int i = ancestor.length(); i < path.length(); i++)
+		{
+			if (path.charAt(i) == '/')
+			{
+				levels++;
+			}
+		}
+		return levels;
+	}
+
+	/**
+	 * @return Normalized URL of the parent or null for the root
+	 */
+	static String parent(String path)
+	{
+		int slash = path.lastIndexOf('/');
+		if (slash < 0 || path.startsWith("//", slash - 1))
+		{
+			return null;
+		}
+		return path.substring(0, slash);
+	}
+}
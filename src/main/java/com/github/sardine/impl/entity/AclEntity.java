@@ -0,0 +1,118 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.entity;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.github.sardine.DavAce;
+import com.github.sardine.DavPrincipal;
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * <code>ACL</code> request body. Inherited and protected entries are not part of the request.
+ *
+ * @see DavAce#toModel()
+ */
+public class AclEntity extends XmlEntity
+{
+	/**
+	 * Privileges known to the model. Others are not sent.
+	 */
+	private static final Set<String> PRIVILEGES = new HashSet<String>(Arrays.asList("all", "bind", "read", "read-acl",
+			"read-current-user-privilege-set", "unbind", "unlock", "write", "write-content", "write-properties"));
+
+	private final List<DavAce> aces;
+
+	public AclEntity(List<DavAce> aces)
+	{
+		this.aces = aces;
+	}
+
+	@Override
+	protected void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException
+	{
+		writer.writeStartElement("acl");
+		writer.writeDefaultNamespace(SardineUtil.DEFAULT_NAMESPACE_URI);
+		for (DavAce ace : aces)
+		{
+			// protected and inherited acl must not be part of ACL http request
+			if (ace.getInherited() != null || ace.isProtected())
+			{
+				continue;
+			}
+			writer.writeStartElement("ace");
+			writePrincipal(writer, ace.getPrincipal());
+			writePrivileges(writer, "grant", ace.getGranted());
+			writePrivileges(writer, "deny", ace.getDenied());
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+	}
+
+	private static void writePrincipal(XMLStreamWriter writer, DavPrincipal principal) throws XMLStreamException
+	{
+		writer.writeStartElement("principal");
+		switch (principal.getPrincipalType())
+		{
+			case HREF:
+				writer.writeStartElement("href");
+				writer.writeCharacters(principal.getValue());
+				writer.writeEndElement();
+				break;
+			case PROPERTY:
+				writer.writeStartElement("property");
+				SardineUtil.writeEmptyElement(writer, principal.getProperty());
+				writer.writeEndElement();
+				break;
+			case KEY:
+				if (DavPrincipal.KEY_ALL.equals(principal.getValue())
+						|| DavPrincipal.KEY_AUTHENTICATED.equals(principal.getValue())
+						|| DavPrincipal.KEY_UNAUTHENTICATED.equals(principal.getValue())
+						|| DavPrincipal.KEY_SELF.equals(principal.getValue()))
+				{
+					writer.writeEmptyElement(principal.getValue());
+				}
+		}
+		writer.writeEndElement();
+	}
+
+	private static void writePrivileges(XMLStreamWriter writer, String name, List<String> rights) throws XMLStreamException
+	{
+		if (rights == null || rights.isEmpty())
+		{
+			return;
+		}
+		writer.writeStartElement(name);
+		for (String right : rights)
+		{
+			if (PRIVILEGES.contains(right))
+			{
+				writer.writeStartElement("privilege");
+				writer.writeEmptyElement(right);
+				writer.writeEndElement();
+			}
+		}
+		writer.writeEndElement();
+	}
+}
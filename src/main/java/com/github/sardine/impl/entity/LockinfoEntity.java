@@ -0,0 +1,60 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.entity;
+
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.http.HttpEntity;
+
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * <code>LOCK</code> request body for an exclusive write lock.
+ */
+public class LockinfoEntity extends XmlEntity
+{
+	private static final byte[] EXCLUSIVE_WRITE = prepare(new LockinfoEntity());
+
+	private LockinfoEntity()
+	{
+	}
+
+	/**
+	 * @return Body requesting an exclusive write lock
+	 */
+	public static HttpEntity exclusiveWrite()
+	{
+		return prepared(EXCLUSIVE_WRITE);
+	}
+
+	@Override
+	protected void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException
+	{
+		writer.writeStartElement("lockinfo");
+		writer.writeDefaultNamespace(SardineUtil.DEFAULT_NAMESPACE_URI);
+		writer.writeStartElement("lockscope");
+		writer.writeEmptyElement("exclusive");
+		writer.writeEndElement();
+		writer.writeStartElement("locktype");
+		writer.writeEmptyElement("write");
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+}
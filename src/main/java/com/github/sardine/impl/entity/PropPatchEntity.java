@@ -0,0 +1,103 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.entity;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Element;
+
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * <code>PROPPATCH</code> request body setting and removing properties.
+ */
+public class PropPatchEntity extends XmlEntity
+{
+	private final Map<QName, String> setProps;
+	private final List<Element> setElements;
+	private final List<QName> removeProps;
+
+	/**
+	 * @param setProps    Properties to set with their text value
+	 * @param removeProps Properties to remove
+	 */
+	public PropPatchEntity(Map<QName, String> setProps, List<QName> removeProps)
+	{
+		this.setProps = setProps;
+		this.setElements = null;
+		this.removeProps = removeProps;
+	}
+
+	/**
+	 * @param setProps    Properties to set
+	 * @param removeProps Properties to remove
+	 */
+	public PropPatchEntity(List<Element> setProps, List<QName> removeProps)
+	{
+		this.setProps = null;
+		this.setElements = setProps;
+		this.removeProps = removeProps;
+	}
+
+	@Override
+	protected void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException
+	{
+		writer.writeStartElement("propertyupdate");
+		writer.writeDefaultNamespace(SardineUtil.DEFAULT_NAMESPACE_URI);
+		writer.writeStartElement("set");
+		writer.writeStartElement("prop");
+		if (setProps != null)
+		{
+			for (Map.Entry<QName, String> entry : setProps.entrySet())
+			{
+				SardineUtil.writeStartElement(writer, entry.getKey());
+				if (entry.getValue() != null)
+				{
+					writer.writeCharacters(entry.getValue());
+				}
+				writer.writeEndElement();
+			}
+		}
+		else
+		{
+			for (Element element : setElements)
+			{
+				SardineUtil.writeElement(writer, element);
+			}
+		}
+		writer.writeEndElement();
+		writer.writeEndElement();
+		if (!removeProps.isEmpty())
+		{
+			writer.writeStartElement("remove");
+			writer.writeStartElement("prop");
+			for (QName property : removeProps)
+			{
+				SardineUtil.writeEmptyElement(writer, property);
+			}
+			writer.writeEndElement();
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+	}
+}
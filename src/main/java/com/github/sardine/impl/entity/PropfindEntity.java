@@ -0,0 +1,113 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.entity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.http.HttpEntity;
+
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * <code>PROPFIND</code> request body for either all or the given properties.
+ */
+public class PropfindEntity extends XmlEntity
+{
+	/**
+	 * Properties of a directory listing
+	 */
+	private static final List<QName> LIST_PROPERTIES = Collections.unmodifiableList(Arrays.asList(
+			SardineUtil.createQNameWithDefaultNamespace("getcontentlength"),
+			SardineUtil.createQNameWithDefaultNamespace("getlastmodified"),
+			SardineUtil.createQNameWithDefaultNamespace("creationdate"),
+			SardineUtil.createQNameWithDefaultNamespace("displayname"),
+			SardineUtil.createQNameWithDefaultNamespace("getcontenttype"),
+			SardineUtil.createQNameWithDefaultNamespace("resourcetype"),
+			SardineUtil.createQNameWithDefaultNamespace("getetag"),
+			SardineUtil.createQNameWithDefaultNamespace("lockdiscovery")));
+
+	private static final byte[] ALLPROP = prepare(new PropfindEntity(null));
+
+	private static final byte[] LIST = prepare(new PropfindEntity(LIST_PROPERTIES));
+
+	/**
+	 * Null to request all properties
+	 */
+	private final Collection<QName> properties;
+
+	/**
+	 * @param properties Properties to request or null for <code>allprop</code>
+	 */
+	public PropfindEntity(Collection<QName> properties)
+	{
+		this.properties = properties;
+	}
+
+	/**
+	 * @return Body requesting all properties
+	 */
+	public static HttpEntity allprop()
+	{
+		return prepared(ALLPROP);
+	}
+
+	/**
+	 * @param properties Additional properties to request
+	 * @return Body requesting the properties of a directory listing
+	 */
+	public static HttpEntity list(Collection<QName> properties)
+	{
+		if (properties.isEmpty())
+		{
+			return prepared(LIST);
+		}
+		List<QName> all = new ArrayList<QName>(LIST_PROPERTIES.size() + properties.size());
+		all.addAll(LIST_PROPERTIES);
+		all.addAll(properties);
+		return new PropfindEntity(all);
+	}
+
+	@Override
+	protected void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException
+	{
+		writer.writeStartElement("propfind");
+		writer.writeDefaultNamespace(SardineUtil.DEFAULT_NAMESPACE_URI);
+		if (properties == null)
+		{
+			writer.writeEmptyElement("allprop");
+		}
+		else
+		{
+			writer.writeStartElement("prop");
+			for (QName property : properties)
+			{
+				SardineUtil.writeEmptyElement(writer, property);
+			}
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.entity;
+
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.github.sardine.report.SardineReport;
+
+/**
+ * <code>REPORT</code> request body written by the report.
+ */
+public class ReportEntity extends XmlEntity
+{
+	private final SardineReport<?> report;
+
+	public ReportEntity(SardineReport<?> report)
+	{
+		this.report = report;
+	}
+
+	@Override
+	protected void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException
+	{
+		report.writeXml(writer);
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.entity;
+
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * <code>SEARCH</code> request body with a query in the given language.
+ */
+public class SearchEntity extends XmlEntity
+{
+	private final String language;
+	private final String query;
+
+	/**
+	 * @param language Local name of the query element in the <code>DAV:</code> namespace
+	 * @param query    Query text
+	 */
+	public SearchEntity(String language, String query)
+	{
+		this.language = language;
+		this.query = query;
+	}
+
+	@Override
+	protected void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException
+	{
+		writer.writeStartElement("searchrequest");
+		writer.writeDefaultNamespace(SardineUtil.DEFAULT_NAMESPACE_URI);
+		writer.writeStartElement(language);
+		if (query != null)
+		{
+			writer.writeCharacters(query);
+		}
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.entity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.Args;
+
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * Request body written as UTF-8 directly to the connection without building a DOM or an intermediate
+ * string. The content length is determined by serializing the body once without keeping the output, so
+ * servers not accepting chunked requests are supported.
+ */
+public abstract class XmlEntity extends AbstractHttpEntity
+{
+	/**
+	 * Same content type as sent for bodies created with {@link org.apache.http.entity.StringEntity}
+	 */
+	public static final ContentType CONTENT_TYPE = ContentType.create("text/plain", Consts.UTF_8);
+
+	private long contentLength = -1;
+
+	protected XmlEntity()
+	{
+		this.setContentType(CONTENT_TYPE.toString());
+	}
+
+	/**
+	 * Write the root element and its content. The document is started and ended by the caller.
+	 *
+	 * @param writer Destination
+	 */
+	protected abstract void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException;
+
+	@Override
+	public boolean isRepeatable()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean isStreaming()
+	{
+		return false;
+	}
+
+	@Override
+	public long getContentLength()
+	{
+		if (contentLength < 0)
+		{
+			CountingOutputStream out = new CountingOutputStream();
+			try
+			{
+				this.write(out);
+			}
+			catch (IOException e)
+			{
+				// Fail when writing the content instead
+				return -1;
+			}
+			contentLength = out.count;
+		}
+		return contentLength;
+	}
+
+	@Override
+	public InputStream getContent() throws IOException
+	{
+		return new ByteArrayInputStream(this.toByteArray());
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException
+	{
+		Args.notNull(out, "Output stream");
+		this.write(out);
+	}
+
+	/**
+	 * @return Serialized body
+	 * @throws IOException When writing the body fails
+	 */
+	public byte[] toByteArray() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.write(out);
+		return out.toByteArray();
+	}
+
+	private void write(OutputStream out) throws IOException
+	{
+		XMLStreamWriter writer = SardineUtil.createXmlWriter(out);
+		try
+		{
+			writer.writeStartDocument("UTF-8", "1.0");
+			this.writeXml(writer);
+			writer.writeEndDocument();
+			// Does not close the underlying stream
+			writer.close();
+		}
+		catch (XMLStreamException e)
+		{
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Serializes a body that is the same for every request once.
+	 *
+	 * @param entity Body to serialize
+	 * @return Content for {@link #prepared(byte[])}
+	 */
+	public static byte[] prepare(XmlEntity entity)
+	{
+		try
+		{
+			return entity.toByteArray();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param content Body serialized with {@link #prepare(XmlEntity)}. Not copied.
+	 * @return New entity for a single request
+	 */
+	public static HttpEntity prepared(byte[] content)
+	{
+		return new ByteArrayEntity(content, CONTENT_TYPE);
+	}
+
+	private static class CountingOutputStream extends OutputStream
+	{
+		private long count;
+
+		@Override
+		public void write(int b)
+		{
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			count += len;
+		}
+	}
+}
@@ -24,8 +24,11 @@ import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 
 import com.github.sardine.impl.SardineException;
+import com.github.sardine.impl.io.ByteCountInputStream;
+import com.github.sardine.impl.jfr.MultistatusParseEvent;
+import com.github.sardine.impl.parser.JaxbMultistatusParser;
+import com.github.sardine.impl.parser.MultistatusParser;
 import com.github.sardine.model.Multistatus;
-import com.github.sardine.util.SardineUtil;
 
 /**
  * {@link org.apache.http.client.ResponseHandler} which returns the {@link Multistatus} response of
@@ -35,6 +38,21 @@ import com.github.sardine.util.SardineUtil;
  */
 public class MultiStatusResponseHandler extends ValidatingResponseHandler<Multistatus>
 {
+	private final MultistatusParser parser;
+
+	public MultiStatusResponseHandler()
+	{
+		this(new JaxbMultistatusParser());
+	}
+
+	/**
+	 * @param parser Reads the response body
+	 */
+	public MultiStatusResponseHandler(MultistatusParser parser)
+	{
+		this.parser = parser;
+	}
+
 	@Override
 	public Multistatus handleResponse(HttpResponse response) throws IOException
 	{
@@ -50,7 +68,18 @@ public class MultiStatusResponseHandler extends ValidatingResponseHandler<Multis
         }
         try
         {
-            return this.getMultistatus(entity.getContent());
+			MultistatusParseEvent event = new MultistatusParseEvent();
+			event.begin();
+			InputStream in = entity.getContent();
+			ByteCountInputStream counted = null;
+			if (event.isEnabled())
+			{
+				counted = new ByteCountInputStream(in);
+				in = counted;
+			}
+			Multistatus multistatus = this.getMultistatus(in);
+			event.complete(this.parser.getClass(), multistatus.getResponse().size(), counted == null ? -1 : counted.getByteCount());
+			return multistatus;
         }
         catch(IOException e) {
             // JAXB error unmarshalling response stream
@@ -70,6 +99,6 @@ public class MultiStatusResponseHandler extends ValidatingResponseHandler<Multis
 	protected Multistatus getMultistatus(InputStream stream)
 			throws IOException
 	{
-		return SardineUtil.unmarshal(stream);
+		return this.parser.parse(stream);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.handler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.impl.SardineException;
+import com.github.sardine.impl.io.ByteCountInputStream;
+import com.github.sardine.impl.jfr.MultistatusParseEvent;
+import com.github.sardine.impl.parser.MultistatusParser;
+import com.github.sardine.impl.parser.StaxMultistatusParser;
+
+/**
+ * {@link org.apache.http.client.ResponseHandler} which returns the resources of a multistatus response. By default
+ * read with a {@link com.github.sardine.util.MultistatusReader} instead of unmarshalling the complete
+ * {@link com.github.sardine.model.Multistatus}.
+ *
+ * @see MultiStatusResponseHandler
+ */
+public class StreamingMultiStatusResponseHandler extends ValidatingResponseHandler<List<DavResource>>
+{
+	private final MultistatusParser parser;
+
+	public StreamingMultiStatusResponseHandler()
+	{
+		this(new StaxMultistatusParser());
+	}
+
+	/**
+	 * @param parser Reads the response body
+	 */
+	public StreamingMultiStatusResponseHandler(MultistatusParser parser)
+	{
+		this.parser = parser;
+	}
+
+	@Override
+	public List<DavResource> handleResponse(HttpResponse response) throws IOException
+	{
+		super.validateResponse(response);
+
+		// Process the response from the server.
+		HttpEntity entity = response.getEntity();
+		StatusLine statusLine = response.getStatusLine();
+		if (entity == null)
+		{
+			throw new SardineException("No entity found in response", statusLine.getStatusCode(),
+					statusLine.getReasonPhrase());
+		}
+		try
+		{
+			MultistatusParseEvent event = new MultistatusParseEvent();
+			event.begin();
+			InputStream in = entity.getContent();
+			ByteCountInputStream counted = null;
+			if (event.isEnabled())
+			{
+				counted = new ByteCountInputStream(in);
+				in = counted;
+			}
+			List<DavResource> resources = this.getResources(in);
+			event.complete(this.parser.getClass(), resources.size(), counted == null ? -1 : counted.getByteCount());
+			return resources;
+		}
+		catch (IOException e)
+		{
+			// Error parsing response stream
+			final SardineException sardineException = new SardineException(e.getMessage(), statusLine.getStatusCode(), statusLine.getReasonPhrase());
+			sardineException.initCause(e);
+			throw sardineException;
+		}
+	}
+
+	/**
+	 * Helper method for reading the resources from the multistatus response.
+	 *
+	 * @param stream The input to read the status
+	 * @return Resources in document order
+	 * @throws IOException When the stream is not a valid multistatus document
+	 */
+	protected List<DavResource> getResources(InputStream stream)
+			throws IOException
+	{
+		return this.parser.parseResources(stream);
+	}
+}
@@ -23,7 +23,7 @@ import java.io.InputStream;
 public class ByteCountInputStream extends FilterInputStream
 {
 
-	private Long byteCount = 0L;
+	private long byteCount;
 
 	public ByteCountInputStream(final InputStream in)
 	{
@@ -24,21 +24,40 @@ import org.apache.http.HttpConnection;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.CloseableHttpResponse;
 
+import com.github.sardine.impl.jfr.ResponseStreamEvent;
+
 public class HttpMethodReleaseInputStream extends ByteCountInputStream
 {
 	private static final Logger log = Logger.getLogger(HttpMethodReleaseInputStream.class.getName());
 
 	private HttpResponse response;
 
+	private final Runnable onAbort;
+
+	private ResponseStreamEvent event = new ResponseStreamEvent();
+
 	/**
 	 * @param response The HTTP response to read from
 	 * @throws IOException          If there is a problem reading from the response
 	 * @throws NullPointerException If the response has no message entity
 	 */
 	public HttpMethodReleaseInputStream(final HttpResponse response) throws IOException
+	{
+		this(response, null);
+	}
+
+	/**
+	 * @param response The HTTP response to read from
+	 * @param onAbort  Notified when the connection is closed because the content was not fully consumed or null
+	 * @throws IOException          If there is a problem reading from the response
+	 * @throws NullPointerException If the response has no message entity
+	 */
+	public HttpMethodReleaseInputStream(final HttpResponse response, final Runnable onAbort) throws IOException
 	{
 		super(response.getEntity().getContent());
 		this.response = response;
+		this.onAbort = onAbort;
+		this.event.begin();
 	}
 
 	/**
@@ -55,7 +74,9 @@ public class HttpMethodReleaseInputStream extends ByteCountInputStream
 		{
 			long read = this.getByteCount();
 			long expected = response.getEntity().getContentLength();
-			if (expected < 0 || read == expected)
+			boolean abort = expected >= 0 && read != expected;
+			this.complete(read, expected, abort);
+			if (!abort)
 			{
 				// Either the response doesn't have Content-Length, or it was fully consumed.
 				super.close();
@@ -71,12 +92,26 @@ public class HttpMethodReleaseInputStream extends ByteCountInputStream
 				// connections unavailable for reuse.
 				// The response proxy will force close the connection.
 				((CloseableHttpResponse) response).close();
+				if (onAbort != null)
+				{
+					onAbort.run();
+				}
 			}
 		}
 		else
 		{
+			this.complete(this.getByteCount(), response.getEntity().getContentLength(), false);
 			// Consume and close
 			super.close();
 		}
 	}
+
+	private void complete(long read, long expected, boolean aborted)
+	{
+		if (this.event != null)
+		{
+			this.event.complete(read, expected, aborted);
+			this.event = null;
+		}
+	}
 }
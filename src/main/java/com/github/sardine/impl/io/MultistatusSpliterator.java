@@ -0,0 +1,134 @@
+/*
+ * Copyright 2009-2016 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.impl.jfr.MultistatusParseEvent;
+import com.github.sardine.util.MultistatusReader;
+
+/**
+ * Yields the resources of a multistatus response while it is read from the connection. The response
+ * stream is closed when the last resource has been read or when {@link #close()} is called. Closing before
+ * the end of the response is reached aborts the request instead of consuming the remaining content.
+ */
+public class MultistatusSpliterator extends Spliterators.AbstractSpliterator<DavResource> implements Closeable
+{
+	private static final Logger log = Logger.getLogger(MultistatusSpliterator.class.getName());
+
+	private final HttpRequestBase request;
+	private final InputStream in;
+	private final MultistatusReader reader;
+
+	private final MultistatusParseEvent event = new MultistatusParseEvent();
+	private int count;
+
+	private boolean exhausted;
+	private boolean closed;
+
+	/**
+	 * @param request The request to abort when closed before the end of the response
+	 * @param in      Response content, typically a {@link HttpMethodReleaseInputStream}
+	 * @throws IOException If there is a problem reading from the response
+	 */
+	public MultistatusSpliterator(HttpRequestBase request, InputStream in) throws IOException
+	{
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		this.request = request;
+		this.in = in;
+		this.reader = new MultistatusReader(in);
+		this.event.begin();
+	}
+
+	/**
+	 * @throws UncheckedIOException When reading the response fails. The request is aborted.
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super DavResource> action)
+	{
+		if (closed)
+		{
+			return false;
+		}
+		DavResource resource;
+		try
+		{
+			resource = reader.read();
+		}
+		catch (IOException e)
+		{
+			this.closeQuietly();
+			throw new UncheckedIOException(e);
+		}
+		if (resource == null)
+		{
+			exhausted = true;
+			this.closeQuietly();
+			return false;
+		}
+		count++;
+		action.accept(resource);
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (closed)
+		{
+			return;
+		}
+		closed = true;
+		event.complete(MultistatusReader.class, count, in instanceof ByteCountInputStream ? ((ByteCountInputStream) in).getByteCount() : -1);
+		try
+		{
+			reader.close();
+		}
+		finally
+		{
+			if (!exhausted)
+			{
+				// Do not consume the remainder of a possibly large response
+				request.abort();
+			}
+			in.close();
+		}
+	}
+
+	private void closeQuietly()
+	{
+		try
+		{
+			this.close();
+		}
+		catch (IOException e)
+		{
+			log.log(Level.WARNING, "Failure closing response", e);
+		}
+	}
+}
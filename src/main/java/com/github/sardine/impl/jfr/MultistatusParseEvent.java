@@ -0,0 +1,67 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Multistatus response body read by a {@link com.github.sardine.impl.parser.MultistatusParser} or, while
+ * streamed, by a {@link com.github.sardine.impl.io.MultistatusSpliterator}.
+ */
+@Name(MultistatusParseEvent.NAME)
+@Label("Multistatus Parse")
+@Category("Sardine")
+@Description("Time reading and parsing a multistatus response")
+public class MultistatusParseEvent extends Event
+{
+	public static final String NAME = "sardine.MultistatusParse";
+
+	@Label("Parser")
+	private Class<?> parser;
+
+	@Label("Resources")
+	private int resources;
+
+	@Label("Size")
+	@Description("Bytes of the response read or -1 if unknown")
+	@DataAmount
+	private long bytes;
+
+	/**
+	 * Ends and commits the event if enabled and above the threshold.
+	 *
+	 * @param parser    Parser or reader of the response
+	 * @param resources Number of response elements read
+	 * @param bytes     Bytes read or -1 if unknown
+	 */
+	public void complete(Class<?> parser, int resources, long bytes)
+	{
+		this.end();
+		if (this.shouldCommit())
+		{
+			this.parser = parser;
+			this.resources = resources;
+			this.bytes = bytes;
+			this.commit();
+		}
+	}
+}
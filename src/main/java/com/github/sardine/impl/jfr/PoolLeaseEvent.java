@@ -0,0 +1,58 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Wait for a connection from the pool of {@link com.github.sardine.impl.pool.InstrumentedConnectionManager}.
+ */
+@Name(PoolLeaseEvent.NAME)
+@Label("Connection Pool Lease")
+@Category("Sardine")
+@Description("Time waiting for a pooled connection")
+public class PoolLeaseEvent extends Event
+{
+	public static final String NAME = "sardine.PoolLease";
+
+	@Label("Route")
+	private String route;
+
+	@Label("Timed Out")
+	private boolean timedOut;
+
+	/**
+	 * Ends and commits the event if enabled and above the threshold.
+	 *
+	 * @param route    Target of the connection
+	 * @param timedOut No connection became available in time
+	 */
+	public void complete(Object route, boolean timedOut)
+	{
+		this.end();
+		if (this.shouldCommit())
+		{
+			this.route = String.valueOf(route);
+			this.timedOut = timedOut;
+			this.commit();
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.jfr;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Request executed by {@link com.github.sardine.impl.SardineImpl}. Lasts until the response is handled or, for
+ * streamed responses, until the response headers are received.
+ *
+ * @see ResponseStreamEvent
+ */
+@Name(RequestEvent.NAME)
+@Label("WebDAV Request")
+@Category("Sardine")
+@Description("Request sent to a WebDAV server")
+public class RequestEvent extends Event
+{
+	public static final String NAME = "sardine.Request";
+
+	@Label("Method")
+	private String method;
+
+	@Label("Host")
+	private String host;
+
+	@Label("Path")
+	private String path;
+
+	@Label("Status")
+	@Description("Response status code or 0 without response")
+	private int status;
+
+	@Label("Request Size")
+	@DataAmount
+	private long requestBytes;
+
+	@Label("Response Size")
+	@Description("Content length of the response or -1 if unknown")
+	@DataAmount
+	private long responseBytes;
+
+	/**
+	 * @param handler Handler of the response
+	 * @return Handler noting the status of the response
+	 */
+	public <T> ResponseHandler<T> wrap(final ResponseHandler<T> handler)
+	{
+		return response -> handler.handleResponse(this.response(response));
+	}
+
+	/**
+	 * @param response Response of the request
+	 * @return The same response
+	 */
+	public HttpResponse response(HttpResponse response)
+	{
+		this.status = response.getStatusLine().getStatusCode();
+		HttpEntity entity = response.getEntity();
+		this.responseBytes = entity == null ? 0 : entity.getContentLength();
+		return response;
+	}
+
+	/**
+	 * Ends and commits the event if enabled and above the threshold.
+	 *
+	 * @param request Executed request
+	 */
+	public void complete(HttpUriRequest request)
+	{
+		this.end();
+		if (this.shouldCommit())
+		{
+			this.method = request.getMethod();
+			HttpHost target = URIUtils.extractHost(request.getURI());
+			this.host = target == null ? null : target.toHostString();
+			this.path = request.getURI().getRawPath();
+			this.requestBytes = 0;
+			if (request instanceof HttpEntityEnclosingRequest)
+			{
+				HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+				if (entity != null)
+				{
+					this.requestBytes = entity.getContentLength();
+				}
+			}
+			this.commit();
+		}
+	}
+}
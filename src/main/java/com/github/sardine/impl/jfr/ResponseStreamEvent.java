@@ -0,0 +1,69 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Response body read by the caller through a {@link com.github.sardine.impl.io.HttpMethodReleaseInputStream}
+ * from when the stream is opened until it is closed.
+ */
+@Name(ResponseStreamEvent.NAME)
+@Label("Response Stream")
+@Category("Sardine")
+@Description("Time reading a streamed response body")
+public class ResponseStreamEvent extends Event
+{
+	public static final String NAME = "sardine.ResponseStream";
+
+	@Label("Size")
+	@Description("Bytes read")
+	@DataAmount
+	private long bytes;
+
+	@Label("Content Length")
+	@DataAmount
+	private long contentLength;
+
+	@Label("Aborted")
+	@Description("Closed before the end of the response")
+	private boolean aborted;
+
+	/**
+	 * Ends and commits the event if enabled and above the threshold.
+	 *
+	 * @param bytes         Bytes read
+	 * @param contentLength Length of the response or -1 if unknown
+	 * @param aborted       The connection was closed
+	 */
+	public void complete(long bytes, long contentLength, boolean aborted)
+	{
+		this.end();
+		if (this.shouldCommit())
+		{
+			this.bytes = bytes;
+			this.contentLength = contentLength;
+			this.aborted = aborted;
+			this.commit();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link SardineMetrics} keeping latency histograms, status code classes and byte counts by request
+ * method. Recording does not lock and does not allocate once a method has been seen.
+ */
+public class HistogramMetrics implements SardineMetrics
+{
+	private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<String, Operation>();
+
+	@Override
+	public void record(String method, String host, int status, long nanos, long requestBytes, long responseBytes)
+	{
+		Operation operation = this.operations.get(method);
+		if (operation == null)
+		{
+			operation = this.operations.computeIfAbsent(method, m -> new Operation());
+		}
+		operation.record(status, nanos, requestBytes, responseBytes);
+	}
+
+	/**
+	 * @param method Request method such as <code>GET</code>
+	 * @return Statistics or null if no such request was recorded
+	 */
+	public Operation getOperation(String method)
+	{
+		return this.operations.get(method);
+	}
+
+	/**
+	 * @return Statistics by request method
+	 */
+	public Map<String, Operation> getOperations()
+	{
+		return Collections.unmodifiableMap(this.operations);
+	}
+
+	/**
+	 * Statistics of the requests with the same method
+	 */
+	public static class Operation
+	{
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		/**
+		 * Indexed by status code divided by 100. Index 0 counts failures without response.
+		 */
+		private final LongAdder[] statuses = new LongAdder[6];
+
+		private final LongAdder requestBytes = new LongAdder();
+
+		private final LongAdder responseBytes = new LongAdder();
+
+		Operation()
+		{
+			for (int i = 0; i < this.statuses.length; i++)
+			{
+				this.statuses[i] = new LongAdder();
+			}
+		}
+
+		void record(int status, long nanos, long requestBytes, long responseBytes)
+		{
+			this.latency.record(nanos);
+			int index = status / 100;
+			this.statuses[index >= 0 && index < this.statuses.length ? index : 0].increment();
+			if (requestBytes > 0)
+			{
+				this.requestBytes.add(requestBytes);
+			}
+			this.responseBytes.add(responseBytes);
+		}
+
+		public LatencyHistogram getLatency()
+		{
+			return this.latency;
+		}
+
+		public long getCount()
+		{
+			return this.latency.getCount();
+		}
+
+		/**
+		 * @param statusClass 2 for all <code>2xx</code> responses or 0 for failures without response
+		 * @return Number of requests
+		 */
+		public long getStatusCount(int statusClass)
+		{
+			return this.statuses[statusClass].sum();
+		}
+
+		public long getRequestBytes()
+		{
+			return this.requestBytes.sum();
+		}
+
+		public long getResponseBytes()
+		{
+			return this.responseBytes.sum();
+		}
+	}
+}
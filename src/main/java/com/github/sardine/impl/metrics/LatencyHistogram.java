@@ -0,0 +1,136 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of durations in nanoseconds. Values are counted in buckets of logarithmic size, with each
+ * power of two divided into {@value #SUB_BUCKETS} linear sub buckets, which bounds the error of percentiles to
+ * 12.5%.
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder sum = new LongAdder();
+
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+	/**
+	 * @param nanos Duration, negative values are counted as 0
+	 */
+	public void record(long nanos)
+	{
+		long value = Math.max(nanos, 0L);
+		this.counts.incrementAndGet(index(value));
+		this.count.increment();
+		this.sum.add(value);
+		this.max.accumulate(value);
+	}
+
+	static int index(long value)
+	{
+		if (value < SUB_BUCKETS)
+		{
+			return (int) value;
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return Largest value counted in the bucket
+	 */
+	static long highestValue(int index)
+	{
+		if (index < SUB_BUCKETS)
+		{
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	public long getCount()
+	{
+		return this.count.sum();
+	}
+
+	public long getMax(TimeUnit unit)
+	{
+		return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+	}
+
+	public double getMean(TimeUnit unit)
+	{
+		long count = this.count.sum();
+		if (count == 0)
+		{
+			return 0;
+		}
+		return (double) this.sum.sum() / count / unit.toNanos(1);
+	}
+
+	/**
+	 * @param percentile Between 0 and 100
+	 * @param unit       Unit of the result
+	 * @return Upper bound of the values below the percentile or 0 when empty
+	 */
+	public long getPercentile(double percentile, TimeUnit unit)
+	{
+		if (percentile < 0 || percentile > 100)
+		{
+			throw new IllegalArgumentException("Percentile must be between 0 and 100");
+		}
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			snapshot[i] = this.counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0)
+		{
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			seen += snapshot[i];
+			if (seen >= rank)
+			{
+				return unit.convert(Math.min(highestValue(i), this.max.get()), TimeUnit.NANOSECONDS);
+			}
+		}
+		return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+	}
+}
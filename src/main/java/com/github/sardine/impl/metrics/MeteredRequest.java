@@ -0,0 +1,392 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import com.github.sardine.impl.io.ByteCountInputStream;
+
+/**
+ * Measures a single request for {@link SardineMetrics} and {@link RequestTimingListener}. Response bodies are
+ * counted while they are read and the request is recorded once the body is consumed or closed.
+ */
+public class MeteredRequest
+{
+	private final SardineMetrics metrics;
+
+	private final RequestTimingListener listener;
+
+	private final HttpUriRequest request;
+
+	private final long start = System.nanoTime();
+
+	/**
+	 * Phases of the request or null unless a listener is set
+	 */
+	private final RequestTiming timing;
+
+	/**
+	 * Original body of the request while counted
+	 */
+	private HttpEntity requestEntity;
+
+	private long requestBytes = -1;
+
+	private volatile CountingRequestEntity countingRequest;
+
+	private volatile int status;
+
+	private volatile ResponseEntity response;
+
+	/**
+	 * Completed by the caller after the response handler returned rather than when the body is closed
+	 */
+	private volatile boolean handled;
+
+	private final AtomicBoolean completed = new AtomicBoolean();
+
+	/**
+	 * @param metrics Notified on completion
+	 * @param request Request about to be executed
+	 */
+	public MeteredRequest(SardineMetrics metrics, HttpUriRequest request)
+	{
+		this(metrics, null, request);
+	}
+
+	/**
+	 * @param metrics  Notified on completion or null
+	 * @param listener Notified of the phases of the request on completion or null
+	 * @param request  Request about to be executed
+	 */
+	public MeteredRequest(SardineMetrics metrics, RequestTimingListener listener, HttpUriRequest request)
+	{
+		this.metrics = metrics;
+		this.listener = listener;
+		this.request = request;
+		this.timing = listener == null ? null : new RequestTiming(request.getMethod(), request.getURI(), this.start);
+		if (request instanceof HttpEntityEnclosingRequest)
+		{
+			HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+			HttpEntity entity = enclosing.getEntity();
+			if (entity != null)
+			{
+				this.requestBytes = entity.getContentLength();
+				if (this.requestBytes < 0)
+				{
+					// Chunked body counted while written
+					this.requestEntity = entity;
+					this.countingRequest = new CountingRequestEntity(entity);
+					enclosing.setEntity(this.countingRequest);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Phases recorded by the client or null unless timed
+	 * @see RequestTiming#CONTEXT_ATTRIBUTE
+	 */
+	public RequestTiming getTiming()
+	{
+		return this.timing;
+	}
+
+	/**
+	 * The request is recorded by {@link #complete()} once the client returns rather than when the handler closes
+	 * the body.
+	 *
+	 * @param handler Handler of the response
+	 * @return Handler counting the response body read by the given handler
+	 */
+	public <T> ResponseHandler<T> wrap(final ResponseHandler<T> handler)
+	{
+		this.handled = true;
+		if (this.timing == null)
+		{
+			return response -> handler.handleResponse(this.response(response));
+		}
+		return response -> {
+			this.response(response);
+			long start = System.nanoTime();
+			try
+			{
+				return handler.handleResponse(response);
+			}
+			finally
+			{
+				ResponseEntity entity = this.response;
+				// Reading the body is transfer time
+				this.timing.handled(System.nanoTime() - start - (entity == null ? 0 : entity.getReadNanos()));
+			}
+		};
+	}
+
+	/**
+	 * Replaces the body of the response with one counting the bytes read.
+	 *
+	 * @param response Response of the request
+	 * @return The same response
+	 */
+	public HttpResponse response(HttpResponse response)
+	{
+		this.status = response.getStatusLine().getStatusCode();
+		if (this.timing != null)
+		{
+			this.timing.received();
+		}
+		HttpEntity entity = response.getEntity();
+		if (entity != null)
+		{
+			this.response = new ResponseEntity(entity);
+			response.setEntity(this.response);
+		}
+		return response;
+	}
+
+	/**
+	 * @return True if the request completes when the response body is closed
+	 */
+	public boolean isStreaming()
+	{
+		return this.response != null;
+	}
+
+	/**
+	 * Records the request unless already recorded.
+	 */
+	public void complete()
+	{
+		if (this.completed.compareAndSet(false, true))
+		{
+			long nanos = System.nanoTime() - this.start;
+			CountingRequestEntity counting = this.countingRequest;
+			if (counting != null)
+			{
+				this.requestBytes = counting.count;
+				((HttpEntityEnclosingRequest) this.request).setEntity(this.requestEntity);
+			}
+			ResponseEntity entity = this.response;
+			long responseBytes = entity == null ? 0 : entity.getByteCount();
+			if (this.metrics != null)
+			{
+				HttpHost target = URIUtils.extractHost(this.request.getURI());
+				this.metrics.record(this.request.getMethod(), target == null ? null : target.toHostString(),
+						this.status, nanos, this.requestBytes, responseBytes);
+			}
+			if (this.timing != null)
+			{
+				this.timing.complete(this.status, nanos, entity == null ? 0 : entity.getReadNanos());
+				this.listener.completed(this.timing);
+			}
+		}
+	}
+
+	/**
+	 * Records the request of a response body that was discarded without being closed.
+	 *
+	 * @param response Response passed to {@link #response(HttpResponse)}
+	 */
+	public static void complete(HttpResponse response)
+	{
+		HttpEntity entity = response.getEntity();
+		if (entity instanceof ResponseEntity)
+		{
+			((ResponseEntity) entity).request().complete();
+		}
+	}
+
+	private class ResponseEntity extends HttpEntityWrapper
+	{
+		private CountingInputStream content;
+
+		ResponseEntity(HttpEntity entity)
+		{
+			super(entity);
+		}
+
+		MeteredRequest request()
+		{
+			return MeteredRequest.this;
+		}
+
+		long getByteCount()
+		{
+			CountingInputStream in = this.content;
+			return in == null ? 0 : in.getByteCount();
+		}
+
+		long getReadNanos()
+		{
+			CountingInputStream in = this.content;
+			return in == null ? 0 : in.nanos;
+		}
+
+		@Override
+		public synchronized InputStream getContent() throws IOException
+		{
+			if (this.content == null)
+			{
+				this.content = new CountingInputStream(super.getContent());
+			}
+			return this.content;
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException
+		{
+			InputStream in = this.getContent();
+			try
+			{
+				in.transferTo(out);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+	}
+
+	private class CountingInputStream extends ByteCountInputStream
+	{
+		/**
+		 * Time blocked in reads if timed
+		 */
+		private volatile long nanos;
+
+		CountingInputStream(InputStream in)
+		{
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (timing == null)
+			{
+				return super.read();
+			}
+			long start = System.nanoTime();
+			try
+			{
+				return super.read();
+			}
+			finally
+			{
+				this.nanos += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (timing == null)
+			{
+				return super.read(b, off, len);
+			}
+			long start = System.nanoTime();
+			try
+			{
+				return super.read(b, off, len);
+			}
+			finally
+			{
+				this.nanos += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public int read(byte[] b) throws IOException
+		{
+			return this.read(b, 0, b.length);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			try
+			{
+				super.close();
+			}
+			finally
+			{
+				if (!handled)
+				{
+					complete();
+				}
+			}
+		}
+	}
+
+	private static class CountingRequestEntity extends HttpEntityWrapper
+	{
+		private volatile long count;
+
+		CountingRequestEntity(HttpEntity entity)
+		{
+			super(entity);
+		}
+
+		@Override
+		public InputStream getContent() throws IOException
+		{
+			return new ByteCountInputStream(super.getContent())
+			{
+				@Override
+				public void close() throws IOException
+				{
+					count = this.getByteCount();
+					super.close();
+				}
+			};
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException
+		{
+			super.writeTo(new FilterOutputStream(out)
+			{
+				@Override
+				public void write(int b) throws IOException
+				{
+					this.out.write(b);
+					count++;
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException
+				{
+					this.out.write(b, off, len);
+					count += len;
+				}
+			});
+		}
+	}
+}
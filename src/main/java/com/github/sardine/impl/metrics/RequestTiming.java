@@ -0,0 +1,278 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.metrics;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Where the time of a single request went. Phases are in nanoseconds. Phases that depend on hooks into the
+ * connection manager and request executor of the default client are -1 when the client was built by the
+ * caller or requests are executed by another transport.
+ * <p>
+ * Requests repeated for authentication or redirects report the connection and send phases of the last
+ * exchange. The remainder is only part of the total.
+ */
+public class RequestTiming
+{
+	/**
+	 * Context attribute with the timing of the executing request
+	 */
+	public static final String CONTEXT_ATTRIBUTE = "sardine.timing";
+
+	private static final long UNKNOWN = -1;
+
+	private final String method;
+
+	private final URI uri;
+
+	private final long start;
+
+	/**
+	 * Offsets from the start
+	 */
+	private long leased = UNKNOWN;
+
+	private long connecting = UNKNOWN;
+
+	private long sending = UNKNOWN;
+
+	private long sent = UNKNOWN;
+
+	private long received = UNKNOWN;
+
+	private long connect;
+
+	private long tls;
+
+	private long parse;
+
+	private long transfer;
+
+	private long total;
+
+	private int status;
+
+	RequestTiming(String method, URI uri, long start)
+	{
+		this.method = method;
+		this.uri = uri;
+		this.start = start;
+	}
+
+	/**
+	 * @param context Context of the executing request
+	 * @return Timing of the request or null if not timed
+	 */
+	public static RequestTiming get(HttpContext context)
+	{
+		return context == null ? null : (RequestTiming) context.getAttribute(CONTEXT_ATTRIBUTE);
+	}
+
+	private long now()
+	{
+		return System.nanoTime() - this.start;
+	}
+
+	/**
+	 * Called before a new connection is opened.
+	 */
+	public void connecting()
+	{
+		this.connecting = this.now();
+		if (this.leased == UNKNOWN)
+		{
+			this.leased = this.connecting;
+		}
+	}
+
+	/**
+	 * Called when a new connection is opened, including any TLS handshake.
+	 */
+	public void connected()
+	{
+		this.connect = this.now() - this.connecting;
+	}
+
+	/**
+	 * @param nanos Time of a TLS handshake while connecting
+	 */
+	public void handshake(long nanos)
+	{
+		this.tls = nanos;
+	}
+
+	/**
+	 * Called before the request is written to the connection.
+	 */
+	public void sending()
+	{
+		this.sending = this.now();
+		if (this.leased == UNKNOWN)
+		{
+			this.leased = this.sending;
+		}
+	}
+
+	/**
+	 * Called after the request including its body was written.
+	 */
+	public void sent()
+	{
+		this.sent = this.now();
+	}
+
+	void received()
+	{
+		this.received = this.now();
+	}
+
+	void handled(long nanos)
+	{
+		this.parse = Math.max(0, nanos);
+	}
+
+	void complete(int status, long total, long transfer)
+	{
+		this.status = status;
+		this.total = total;
+		this.transfer = transfer;
+	}
+
+	public String getMethod()
+	{
+		return this.method;
+	}
+
+	public URI getUri()
+	{
+		return this.uri;
+	}
+
+	/**
+	 * @return Status code of the response or 0 if the request failed without response
+	 */
+	public int getStatus()
+	{
+		return this.status;
+	}
+
+	/**
+	 * @return Time until a pooled connection was available or -1 if unknown
+	 */
+	public long getLeaseNanos()
+	{
+		return this.leased;
+	}
+
+	/**
+	 * @return Time opening a new connection without TLS handshake or 0 if a pooled connection was reused
+	 */
+	public long getConnectNanos()
+	{
+		return Math.max(0, this.connect - this.tls);
+	}
+
+	/**
+	 * @return Time of the TLS handshake of a new connection
+	 */
+	public long getTlsNanos()
+	{
+		return this.tls;
+	}
+
+	/**
+	 * @return Time writing the request and its body or -1 if unknown
+	 */
+	public long getSendNanos()
+	{
+		if (this.sending == UNKNOWN || this.sent == UNKNOWN)
+		{
+			return UNKNOWN;
+		}
+		return this.sent - this.sending;
+	}
+
+	/**
+	 * @return Time from the request being sent until the response headers arrived, or from the start of the
+	 * request when the send phase is unknown
+	 */
+	public long getWaitNanos()
+	{
+		if (this.received == UNKNOWN)
+		{
+			return UNKNOWN;
+		}
+		return this.received - (this.sent == UNKNOWN ? 0 : this.sent);
+	}
+
+	/**
+	 * @return Time blocked reading the response body
+	 */
+	public long getTransferNanos()
+	{
+		return this.transfer;
+	}
+
+	/**
+	 * @return Time the response handler spent other than reading the body, such as parsing a multistatus
+	 * response. Zero for streamed responses.
+	 */
+	public long getParseNanos()
+	{
+		return this.parse;
+	}
+
+	/**
+	 * @return Time from the start of the request until its response was handled or closed
+	 */
+	public long getTotalNanos()
+	{
+		return this.total;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder b = new StringBuilder();
+		b.append(this.method).append(' ').append(this.uri).append(' ').append(this.status);
+		append(b, "total", this.getTotalNanos());
+		append(b, "lease", this.getLeaseNanos());
+		append(b, "connect", this.getConnectNanos());
+		append(b, "tls", this.getTlsNanos());
+		append(b, "send", this.getSendNanos());
+		append(b, "wait", this.getWaitNanos());
+		append(b, "transfer", this.getTransferNanos());
+		append(b, "parse", this.getParseNanos());
+		return b.toString();
+	}
+
+	private static void append(StringBuilder b, String phase, long nanos)
+	{
+		b.append(' ').append(phase).append('=');
+		if (nanos == UNKNOWN)
+		{
+			b.append('?');
+		}
+		else
+		{
+			b.append(TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0).append("ms");
+		}
+	}
+}
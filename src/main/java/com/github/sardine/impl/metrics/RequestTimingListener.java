@@ -0,0 +1,31 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.metrics;
+
+/**
+ * Notified of the phases of every request executed by a {@link com.github.sardine.impl.SardineImpl}. Called on
+ * the thread completing the request.
+ *
+ * @see com.github.sardine.impl.SardineImpl#setRequestTimingListener(RequestTimingListener)
+ */
+public interface RequestTimingListener
+{
+	/**
+	 * @param timing Phases of a completed request
+	 */
+	void completed(RequestTiming timing);
+}
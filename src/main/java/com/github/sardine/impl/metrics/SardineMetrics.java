@@ -0,0 +1,39 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.metrics;
+
+/**
+ * Notified of every request executed by a {@link com.github.sardine.impl.SardineImpl}. Called on the thread
+ * completing the request, so implementations must be thread safe and should return quickly.
+ *
+ * @see HistogramMetrics
+ * @see com.github.sardine.impl.SardineImpl#setMetrics(SardineMetrics)
+ */
+public interface SardineMetrics
+{
+	/**
+	 * Requests with a response body are recorded once the body is read or closed.
+	 *
+	 * @param method        Request method such as <code>PROPFIND</code>
+	 * @param host          Target host and port
+	 * @param status        Response status code or 0 when the request failed without a response
+	 * @param nanos         Time from sending the request until the response body was consumed
+	 * @param requestBytes  Length of the request body or -1 if unknown
+	 * @param responseBytes Bytes of the response body read
+	 */
+	void record(String method, String host, int status, long nanos, long requestBytes, long responseBytes);
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.model.Multistatus;
+import com.github.sardine.model.Response;
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * Unmarshals the complete JAXB model. This is the default.
+ */
+public class JaxbMultistatusParser implements MultistatusParser
+{
+	private static final Logger log = Logger.getLogger(JaxbMultistatusParser.class.getName());
+
+	@Override
+	public Multistatus parse(InputStream in) throws IOException
+	{
+		return SardineUtil.unmarshal(in);
+	}
+
+	@Override
+	public List<DavResource> parseResources(InputStream in) throws IOException
+	{
+		List<Response> responses = this.parse(in).getResponse();
+		List<DavResource> resources = new ArrayList<DavResource>(responses.size());
+		for (Response response : responses)
+		{
+			try
+			{
+				resources.add(new DavResource(response));
+			}
+			catch (URISyntaxException e)
+			{
+				log.warning(String.format("Ignore resource with invalid URI %s", response.getHref().get(0)));
+			}
+		}
+		return resources;
+	}
+}
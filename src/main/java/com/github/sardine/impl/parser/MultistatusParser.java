@@ -0,0 +1,51 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.model.Multistatus;
+
+/**
+ * Reads <code>multistatus</code> response bodies. Implementations must be thread safe as a single instance
+ * is shared by all requests of a {@link com.github.sardine.impl.SardineImpl}.
+ *
+ * @see com.github.sardine.impl.SardineImpl#setMultistatusParser(MultistatusParser)
+ */
+public interface MultistatusParser
+{
+	/**
+	 * Used by requests which need the complete model such as ACL, quota, principal and report requests.
+	 *
+	 * @param in The response body. Not closed by the parser.
+	 * @return Multistatus element parsed from the stream
+	 * @throws IOException When the stream cannot be read or is not a valid multistatus document
+	 */
+	Multistatus parse(InputStream in) throws IOException;
+
+	/**
+	 * Used by listings, searches and property updates. Responses with an invalid <code>href</code> are skipped.
+	 *
+	 * @param in The response body. Not closed by the parser.
+	 * @return Resources in the order of the response
+	 * @throws IOException When the stream cannot be read or is not a valid multistatus document
+	 */
+	List<DavResource> parseResources(InputStream in) throws IOException;
+}
@@ -0,0 +1,672 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.util.MultistatusReader;
+
+/**
+ * Reads large <code>multistatus</code> responses on a {@link ForkJoinPool}. The response body is buffered and
+ * split at the start tags of the children of the root element. Every chunk is parsed as a document of its own
+ * with the XML declaration and the start tag of the root element prepended, so namespace declarations of the
+ * root element apply to every chunk. Resources are returned in document order.
+ * <p>
+ * Response bodies are buffered in memory up to the spool threshold. Larger bodies are written to a temporary
+ * file, which is memory mapped while parsing and deleted afterwards.
+ * <p>
+ * Responses smaller than the threshold and documents which cannot be split safely, such as documents with a
+ * DTD or in a non ASCII compatible encoding, are read on the calling thread.
+ */
+public class ParallelMultistatusParser extends StaxMultistatusParser
+{
+	/**
+	 * Default minimum size of a response to parse in parallel
+	 */
+	public static final int DEFAULT_THRESHOLD = 16 * 1024 * 1024;
+
+	/**
+	 * Default minimum size of a chunk
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * Default size of a response from which it is buffered in a temporary file instead of memory
+	 */
+	public static final int DEFAULT_SPOOL_THRESHOLD = 64 * 1024 * 1024;
+
+	private final int threshold;
+
+	private final int chunkSize;
+
+	private final int spoolThreshold;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Parse responses from {@link #DEFAULT_THRESHOLD} on the common pool.
+	 */
+	public ParallelMultistatusParser()
+	{
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * @param threshold Minimum size in bytes of a response to parse in parallel
+	 */
+	public ParallelMultistatusParser(int threshold)
+	{
+		this(threshold, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param threshold Minimum size in bytes of a response to parse in parallel
+	 * @param chunkSize Minimum size in bytes of the chunks parsed by a single task
+	 * @param pool      Pool to parse chunks on
+	 */
+	public ParallelMultistatusParser(int threshold, int chunkSize, ForkJoinPool pool)
+	{
+		this(threshold, chunkSize, DEFAULT_SPOOL_THRESHOLD, pool);
+	}
+
+	/**
+	 * @param threshold      Minimum size in bytes of a response to parse in parallel
+	 * @param chunkSize      Minimum size in bytes of the chunks parsed by a single task
+	 * @param spoolThreshold Size in bytes of a response from which it is buffered in a temporary file
+	 * @param pool           Pool to parse chunks on
+	 */
+	public ParallelMultistatusParser(int threshold, int chunkSize, int spoolThreshold, ForkJoinPool pool)
+	{
+		if (threshold < 0 || chunkSize < 1 || spoolThreshold < 0)
+		{
+			throw new IllegalArgumentException("Invalid threshold or chunk size");
+		}
+		this.threshold = threshold;
+		this.chunkSize = chunkSize;
+		this.spoolThreshold = spoolThreshold;
+		this.pool = pool;
+	}
+
+	@Override
+	public List<DavResource> parseResources(InputStream in) throws IOException
+	{
+		byte[] head = in.readNBytes(this.threshold);
+		if (head.length < this.threshold)
+		{
+			return super.parseResources(new ByteArrayInputStream(head));
+		}
+		Buffer buffer = new Buffer(Math.max(head.length * 2, 8192));
+		buffer.write(head);
+		if (buffer.readFrom(in, this.spoolThreshold))
+		{
+			return this.parse(ByteBuffer.wrap(buffer.array(), 0, buffer.size()));
+		}
+		Path file = Files.createTempFile("sardine-multistatus-", ".xml");
+		try
+		{
+			OutputStream out = Files.newOutputStream(file);
+			try
+			{
+				buffer.writeTo(out);
+				buffer = null;
+				in.transferTo(out);
+			}
+			finally
+			{
+				out.close();
+			}
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+			try
+			{
+				if (channel.size() > Integer.MAX_VALUE)
+				{
+					// Too large to map at once
+					return super.parseResources(new BufferedInputStream(Channels.newInputStream(channel)));
+				}
+				return this.parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			}
+			finally
+			{
+				channel.close();
+			}
+		}
+		finally
+		{
+			try
+			{
+				Files.delete(file);
+			}
+			catch (IOException e)
+			{
+				// Still mapped on Windows
+				file.toFile().deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * @param data Complete response body
+	 */
+	private List<DavResource> parse(ByteBuffer data) throws IOException
+	{
+		Document document = Document.split(data,
+				Math.max(this.chunkSize, data.limit() / (this.pool.getParallelism() * 4)));
+		if (document == null || document.chunks() == 1)
+		{
+			return super.parseResources(new BufferInputStream(data.duplicate()));
+		}
+		List<List<DavResource>> results = new ArrayList<List<DavResource>>(
+				Collections.<List<DavResource>>nCopies(document.chunks(), null));
+		try
+		{
+			this.pool.invoke(new ParseTask(document, 0, document.chunks(), results));
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		int size = 0;
+		for (List<DavResource> result : results)
+		{
+			size += result.size();
+		}
+		List<DavResource> resources = new ArrayList<DavResource>(size);
+		for (List<DavResource> result : results)
+		{
+			resources.addAll(result);
+		}
+		return resources;
+	}
+
+	/**
+	 * Gives access to the buffer without copying it
+	 */
+	private static final class Buffer extends ByteArrayOutputStream
+	{
+		Buffer(int size)
+		{
+			super(size);
+		}
+
+		byte[] array()
+		{
+			return this.buf;
+		}
+
+		/**
+		 * @param limit Size at which to stop reading
+		 * @return True if the end of the stream was reached
+		 */
+		boolean readFrom(InputStream in, int limit) throws IOException
+		{
+			byte[] chunk = new byte[8192];
+			while (this.count < limit)
+			{
+				int read = in.read(chunk);
+				if (read < 0)
+				{
+					return true;
+				}
+				this.write(chunk, 0, read);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the remaining bytes of a buffer
+	 */
+	private static final class BufferInputStream extends InputStream
+	{
+		private final ByteBuffer buffer;
+
+		BufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read()
+		{
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if (len == 0)
+			{
+				return 0;
+			}
+			if (!this.buffer.hasRemaining())
+			{
+				return -1;
+			}
+			int n = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available()
+		{
+			return this.buffer.remaining();
+		}
+	}
+
+	/**
+	 * Splits the chunk range in halves until a single chunk is left.
+	 */
+	private static final class ParseTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Document document;
+
+		private final int from;
+
+		private final int to;
+
+		private final List<List<DavResource>> results;
+
+		ParseTask(Document document, int from, int to, List<List<DavResource>> results)
+		{
+			this.document = document;
+			this.from = from;
+			this.to = to;
+			this.results = results;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (this.to - this.from > 1)
+			{
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new ParseTask(this.document, this.from, middle, this.results),
+						new ParseTask(this.document, middle, this.to, this.results));
+				return;
+			}
+			try
+			{
+				MultistatusReader reader = new MultistatusReader(this.document.chunk(this.from));
+				try
+				{
+					this.results.set(this.from, reader.readAll());
+				}
+				finally
+				{
+					reader.close();
+				}
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Offsets of the chunks in the buffered response body.
+	 */
+	static final class Document
+	{
+		private final ByteBuffer data;
+
+		/**
+		 * Byte order mark, XML declaration and start tag of the root element
+		 */
+		private final byte[] head;
+
+		private final byte[] rootEndTag;
+
+		/**
+		 * Start of every chunk followed by the start of the end tag of the root element
+		 */
+		private final int[] boundaries;
+
+		private Document(ByteBuffer data, byte[] head, byte[] rootEndTag, int[] boundaries)
+		{
+			this.data = data;
+			this.head = head;
+			this.rootEndTag = rootEndTag;
+			this.boundaries = boundaries;
+		}
+
+		int chunks()
+		{
+			return this.boundaries.length - 1;
+		}
+
+		/**
+		 * @return Chunk wrapped in the root element
+		 */
+		InputStream chunk(int index)
+		{
+			ByteBuffer chunk = this.data.duplicate();
+			chunk.limit(this.boundaries[index + 1]).position(this.boundaries[index]);
+			return new SequenceInputStream(Collections.enumeration(Arrays.<InputStream>asList(
+					new ByteArrayInputStream(this.head),
+					new BufferInputStream(chunk),
+					new ByteArrayInputStream(this.rootEndTag))));
+		}
+
+		/**
+		 * @param data      Response body
+		 * @param length    Number of bytes used in data
+		 * @param chunkSize Minimum size of a chunk
+		 * @return Null if the document cannot be split
+		 */
+		static Document split(byte[] data, int length, int chunkSize)
+		{
+			return split(ByteBuffer.wrap(data, 0, length), chunkSize);
+		}
+
+		/**
+		 * @param data      Response body up to the limit of the buffer
+		 * @param chunkSize Minimum size of a chunk
+		 * @return Null if the document cannot be split
+		 */
+		static Document split(ByteBuffer data, int chunkSize)
+		{
+			int length = data.limit();
+			int pos = 0;
+			if (length >= 3 && (data.get(0) & 0xFF) == 0xEF && (data.get(1) & 0xFF) == 0xBB && (data.get(2) & 0xFF) == 0xBF)
+			{
+				pos = 3;
+			}
+			else if (length == 0 || data.get(0) == 0 || (data.get(0) & 0xFF) == 0xFE || (data.get(0) & 0xFF) == 0xFF)
+			{
+				// Empty or not an ASCII compatible encoding
+				return null;
+			}
+			int prologEnd = pos;
+			if (startsWith(data, length, pos, "<?xml"))
+			{
+				prologEnd = indexOf(data, length, pos, "?>");
+				if (prologEnd < 0)
+				{
+					return null;
+				}
+				prologEnd += 2;
+			}
+			// Root element
+			int rootStart = -1;
+			int rootEnd = -1;
+			pos = prologEnd;
+			while (rootStart < 0)
+			{
+				pos = indexOf(data, length, pos, '<');
+				if (pos < 0)
+				{
+					return null;
+				}
+				if (startsWith(data, length, pos, "<!--"))
+				{
+					pos = skip(data, length, pos, "-->");
+				}
+				else if (startsWith(data, length, pos, "<?"))
+				{
+					pos = skip(data, length, pos, "?>");
+				}
+				else if (startsWith(data, length, pos, "<!"))
+				{
+					// Document type declaration may define entities
+					return null;
+				}
+				else
+				{
+					rootStart = pos;
+					rootEnd = endOfTag(data, length, pos);
+					if (rootEnd < 0 || data.get(rootEnd - 2) == '/')
+					{
+						return null;
+					}
+				}
+				if (pos < 0)
+				{
+					return null;
+				}
+			}
+			int nameEnd = rootStart + 1;
+			while (nameEnd < rootEnd && !isTagNameEnd(data.get(nameEnd)))
+			{
+				nameEnd++;
+			}
+			byte[] rootEndTag = new byte[nameEnd - rootStart + 2];
+			rootEndTag[0] = '<';
+			rootEndTag[1] = '/';
+			for (int i = rootStart + 1; i < nameEnd; i++)
+			{
+				rootEndTag[i - rootStart + 1] = data.get(i);
+			}
+			rootEndTag[rootEndTag.length - 1] = '>';
+
+			// Children of the root element
+			int[] boundaries = new int[16];
+			int count = 0;
+			boundaries[count++] = rootEnd;
+			int depth = 1;
+			pos = rootEnd;
+			while (true)
+			{
+				pos = indexOf(data, length, pos, '<');
+				if (pos < 0)
+				{
+					// Truncated
+					return null;
+				}
+				if (startsWith(data, length, pos, "<!--"))
+				{
+					pos = skip(data, length, pos, "-->");
+				}
+				else if (startsWith(data, length, pos, "<![CDATA["))
+				{
+					pos = skip(data, length, pos, "]]>");
+				}
+				else if (startsWith(data, length, pos, "<?"))
+				{
+					pos = skip(data, length, pos, "?>");
+				}
+				else if (startsWith(data, length, pos, "<!"))
+				{
+					return null;
+				}
+				else if (startsWith(data, length, pos, "</"))
+				{
+					if (--depth == 0)
+					{
+						if (!isEndTag(data, length, pos, rootEndTag))
+						{
+							// Truncated or not well formed
+							return null;
+						}
+						break;
+					}
+					pos = indexOf(data, length, pos, '>');
+				}
+				else
+				{
+					if (depth == 1 && pos - boundaries[count - 1] >= chunkSize)
+					{
+						if (count == boundaries.length)
+						{
+							boundaries = Arrays.copyOf(boundaries, count * 2);
+						}
+						boundaries[count++] = pos;
+					}
+					int end = endOfTag(data, length, pos);
+					if (end < 0)
+					{
+						return null;
+					}
+					if (data.get(end - 2) != '/')
+					{
+						depth++;
+					}
+					pos = end;
+				}
+				if (pos < 0)
+				{
+					return null;
+				}
+			}
+			if (count == boundaries.length)
+			{
+				boundaries = Arrays.copyOf(boundaries, count + 1);
+			}
+			boundaries[count++] = pos;
+			byte[] head = new byte[prologEnd + rootEnd - rootStart];
+			for (int i = 0; i < prologEnd; i++)
+			{
+				head[i] = data.get(i);
+			}
+			for (int i = rootStart; i < rootEnd; i++)
+			{
+				head[prologEnd + i - rootStart] = data.get(i);
+			}
+			return new Document(data, head, rootEndTag, Arrays.copyOf(boundaries, count));
+		}
+
+		private static boolean isEndTag(ByteBuffer data, int length, int pos, byte[] tag)
+		{
+			int i = 0;
+			for (; i < tag.length - 1; i++)
+			{
+				if (pos + i >= length || data.get(pos + i) != tag[i])
+				{
+					return false;
+				}
+			}
+			for (int j = pos + i; j < length; j++)
+			{
+				if (data.get(j) == '>')
+				{
+					return true;
+				}
+				if (!isTagNameEnd(data.get(j)))
+				{
+					return false;
+				}
+			}
+			return false;
+		}
+
+		private static boolean isTagNameEnd(byte b)
+		{
+			return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>';
+		}
+
+		/**
+		 * @return Position after the end of the start tag at pos or -1 if missing
+		 */
+		private static int endOfTag(ByteBuffer data, int length, int pos)
+		{
+			byte quote = 0;
+			for (int i = pos + 1; i < length; i++)
+			{
+				byte b = data.get(i);
+				if (quote != 0)
+				{
+					if (b == quote)
+					{
+						quote = 0;
+					}
+				}
+				else if (b == '"' || b == '\'')
+				{
+					quote = b;
+				}
+				else if (b == '>')
+				{
+					return i + 1;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @return Position after the terminator or -1 if missing
+		 */
+		private static int skip(ByteBuffer data, int length, int pos, String terminator)
+		{
+			int end = indexOf(data, length, pos, terminator);
+			return end < 0 ? -1 : end + terminator.length();
+		}
+
+		private static int indexOf(ByteBuffer data, int length, int pos, char c)
+		{
+			for (int i = pos; i < length; i++)
+			{
+				if (data.get(i) == c)
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private static int indexOf(ByteBuffer data, int length, int pos, String s)
+		{
+			byte first = (byte) s.charAt(0);
+			for (int i = pos; i <= length - s.length(); i++)
+			{
+				if (data.get(i) == first && startsWith(data, length, i, s))
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private static boolean startsWith(ByteBuffer data, int length, int pos, String s)
+		{
+			if (pos + s.length() > length)
+			{
+				return false;
+			}
+			for (int i = 0; i < s.length(); i++)
+			{
+				if (data.get(pos + i) != (byte) s.charAt(i))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.util.MultistatusReader;
+
+/**
+ * Reads resources with a {@link MultistatusReader} while the response is received without building the
+ * JAXB model or DOM elements for custom properties. Requests which need the complete model are still
+ * unmarshalled with JAXB.
+ */
+public class StaxMultistatusParser extends JaxbMultistatusParser
+{
+	@Override
+	public List<DavResource> parseResources(InputStream in) throws IOException
+	{
+		MultistatusReader reader = new MultistatusReader(in);
+		try
+		{
+			return reader.readAll();
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.pool;
+
+import java.util.List;
+
+/**
+ * Statistics of the connection pool of a {@link com.github.sardine.impl.SardineImpl}. Counters are maintained
+ * while requests are executed. Pool sizes are read from the pool when the attributes are read.
+ */
+public interface ConnectionPoolMXBean
+{
+	/**
+	 * @return Connections in use by requests
+	 */
+	int getLeased();
+
+	/**
+	 * @return Idle connections kept for reuse
+	 */
+	int getAvailable();
+
+	/**
+	 * @return Requests waiting for a connection
+	 */
+	int getPending();
+
+	/**
+	 * @return Maximum number of connections to all hosts
+	 */
+	int getMaxTotal();
+
+	/**
+	 * @return Maximum number of connections to a single host
+	 */
+	int getDefaultMaxPerRoute();
+
+	/**
+	 * @return Statistics by route
+	 */
+	List<RouteStatistics> getRoutes();
+
+	/**
+	 * @return Number of connections requested from the pool
+	 */
+	long getLeaseRequests();
+
+	/**
+	 * @return Number of requests that timed out waiting for a connection
+	 */
+	long getLeaseTimeouts();
+
+	/**
+	 * @return Total time spent waiting for connections in milliseconds
+	 */
+	long getLeaseWaitTimeMillis();
+
+	/**
+	 * @return Longest time spent waiting for a connection in milliseconds
+	 */
+	long getMaxLeaseWaitTimeMillis();
+
+	/**
+	 * @return Mean time spent waiting for a connection in milliseconds
+	 */
+	double getMeanLeaseWaitTimeMillis();
+
+	/**
+	 * @return Number of connections opened
+	 */
+	long getConnectionsCreated();
+
+	/**
+	 * @return Number of connections closed
+	 */
+	long getConnectionsClosed();
+
+	/**
+	 * @return Number of connections closed because a response was closed before it was read to the end
+	 */
+	long getConnectionsAborted();
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.pool;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Counters of an {@link InstrumentedConnectionManager}. Updates are contention free so the statistics can stay
+ * enabled in production.
+ */
+public class ConnectionPoolMetrics implements ConnectionPoolMXBean
+{
+	/**
+	 * Domain of the registered MXBeans
+	 */
+	public static final String DOMAIN = "com.github.sardine";
+
+	private final PoolingHttpClientConnectionManager pool;
+
+	private final LongAdder leaseRequests = new LongAdder();
+
+	private final LongAdder leaseTimeouts = new LongAdder();
+
+	private final LongAdder leaseWaitNanos = new LongAdder();
+
+	private final LongAccumulator maxLeaseWaitNanos = new LongAccumulator(Math::max, 0L);
+
+	private final LongAdder created = new LongAdder();
+
+	private final LongAdder closed = new LongAdder();
+
+	private final LongAdder aborted = new LongAdder();
+
+	ConnectionPoolMetrics(PoolingHttpClientConnectionManager pool)
+	{
+		this.pool = pool;
+	}
+
+	void leased(long nanos)
+	{
+		this.leaseRequests.increment();
+		this.leaseWaitNanos.add(nanos);
+		this.maxLeaseWaitNanos.accumulate(nanos);
+	}
+
+	void leaseTimedOut(long nanos)
+	{
+		this.leaseTimeouts.increment();
+		this.leased(nanos);
+	}
+
+	void connectionCreated()
+	{
+		this.created.increment();
+	}
+
+	void connectionClosed()
+	{
+		this.closed.increment();
+	}
+
+	/**
+	 * Records a connection discarded because its response was not consumed.
+	 */
+	public void connectionAborted()
+	{
+		this.aborted.increment();
+	}
+
+	/**
+	 * Registers these statistics with the platform MBean server.
+	 *
+	 * @param name Value of the name key of the object name
+	 * @return Registered object name to pass to {@link #unregister(ObjectName)}
+	 */
+	public ObjectName register(String name) throws JMException
+	{
+		ObjectName objectName = new ObjectName(DOMAIN + ":type=ConnectionPool,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	/**
+	 * @param objectName Name returned by {@link #register(String)}
+	 */
+	public static void unregister(ObjectName objectName) throws JMException
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if (server.isRegistered(objectName))
+		{
+			server.unregisterMBean(objectName);
+		}
+	}
+
+	@Override
+	public int getLeased()
+	{
+		return this.pool.getTotalStats().getLeased();
+	}
+
+	@Override
+	public int getAvailable()
+	{
+		return this.pool.getTotalStats().getAvailable();
+	}
+
+	@Override
+	public int getPending()
+	{
+		return this.pool.getTotalStats().getPending();
+	}
+
+	@Override
+	public int getMaxTotal()
+	{
+		return this.pool.getMaxTotal();
+	}
+
+	@Override
+	public int getDefaultMaxPerRoute()
+	{
+		return this.pool.getDefaultMaxPerRoute();
+	}
+
+	@Override
+	public List<RouteStatistics> getRoutes()
+	{
+		List<RouteStatistics> routes = new ArrayList<RouteStatistics>();
+		for (HttpRoute route : this.pool.getRoutes())
+		{
+			PoolStats stats = this.pool.getStats(route);
+			routes.add(new RouteStatistics(route.toString(), stats.getLeased(), stats.getAvailable(),
+					stats.getPending(), stats.getMax()));
+		}
+		return routes;
+	}
+
+	@Override
+	public long getLeaseRequests()
+	{
+		return this.leaseRequests.sum();
+	}
+
+	@Override
+	public long getLeaseTimeouts()
+	{
+		return this.leaseTimeouts.sum();
+	}
+
+	@Override
+	public long getLeaseWaitTimeMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(this.leaseWaitNanos.sum());
+	}
+
+	@Override
+	public long getMaxLeaseWaitTimeMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(this.maxLeaseWaitNanos.get());
+	}
+
+	@Override
+	public double getMeanLeaseWaitTimeMillis()
+	{
+		long requests = this.leaseRequests.sum();
+		if (requests == 0)
+		{
+			return 0;
+		}
+		return this.leaseWaitNanos.sum() / 1e6 / requests;
+	}
+
+	@Override
+	public long getConnectionsCreated()
+	{
+		return this.created.sum();
+	}
+
+	@Override
+	public long getConnectionsClosed()
+	{
+		return this.closed.sum();
+	}
+
+	@Override
+	public long getConnectionsAborted()
+	{
+		return this.aborted.sum();
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.pool;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.ssl.SSLSession;
+
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+
+/**
+ * Creates connections that report their creation and closing to {@link ConnectionPoolMetrics}.
+ */
+class CountingConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection>
+{
+	private volatile ConnectionPoolMetrics metrics;
+
+	void setMetrics(ConnectionPoolMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	@Override
+	public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config)
+	{
+		ManagedHttpClientConnection connection = ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+		this.metrics.connectionCreated();
+		return new CountingConnection(connection, this.metrics);
+	}
+
+	private static class CountingConnection implements ManagedHttpClientConnection
+	{
+		private final ManagedHttpClientConnection delegate;
+
+		private final ConnectionPoolMetrics metrics;
+
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		CountingConnection(ManagedHttpClientConnection delegate, ConnectionPoolMetrics metrics)
+		{
+			this.delegate = delegate;
+			this.metrics = metrics;
+		}
+
+		private void closed()
+		{
+			if (this.closed.compareAndSet(false, true))
+			{
+				this.metrics.connectionClosed();
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			this.closed();
+			this.delegate.close();
+		}
+
+		@Override
+		public void shutdown() throws IOException
+		{
+			this.closed();
+			this.delegate.shutdown();
+		}
+
+		@Override
+		public boolean isOpen()
+		{
+			return this.delegate.isOpen();
+		}
+
+		@Override
+		public boolean isStale()
+		{
+			return this.delegate.isStale();
+		}
+
+		@Override
+		public void setSocketTimeout(int timeout)
+		{
+			this.delegate.setSocketTimeout(timeout);
+		}
+
+		@Override
+		public int getSocketTimeout()
+		{
+			return this.delegate.getSocketTimeout();
+		}
+
+		@Override
+		public HttpConnectionMetrics getMetrics()
+		{
+			return this.delegate.getMetrics();
+		}
+
+		@Override
+		public InetAddress getLocalAddress()
+		{
+			return this.delegate.getLocalAddress();
+		}
+
+		@Override
+		public int getLocalPort()
+		{
+			return this.delegate.getLocalPort();
+		}
+
+		@Override
+		public InetAddress getRemoteAddress()
+		{
+			return this.delegate.getRemoteAddress();
+		}
+
+		@Override
+		public int getRemotePort()
+		{
+			return this.delegate.getRemotePort();
+		}
+
+		@Override
+		public boolean isResponseAvailable(int timeout) throws IOException
+		{
+			return this.delegate.isResponseAvailable(timeout);
+		}
+
+		@Override
+		public void sendRequestHeader(HttpRequest request) throws HttpException, IOException
+		{
+			this.delegate.sendRequestHeader(request);
+		}
+
+		@Override
+		public void sendRequestEntity(HttpEntityEnclosingRequest request) throws HttpException, IOException
+		{
+			this.delegate.sendRequestEntity(request);
+		}
+
+		@Override
+		public HttpResponse receiveResponseHeader() throws HttpException, IOException
+		{
+			return this.delegate.receiveResponseHeader();
+		}
+
+		@Override
+		public void receiveResponseEntity(HttpResponse response) throws HttpException, IOException
+		{
+			this.delegate.receiveResponseEntity(response);
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			this.delegate.flush();
+		}
+
+		@Override
+		public String getId()
+		{
+			return this.delegate.getId();
+		}
+
+		@Override
+		public void bind(Socket socket) throws IOException
+		{
+			this.delegate.bind(socket);
+		}
+
+		@Override
+		public Socket getSocket()
+		{
+			return this.delegate.getSocket();
+		}
+
+		@Override
+		public SSLSession getSSLSession()
+		{
+			return this.delegate.getSSLSession();
+		}
+
+		@Override
+		public String toString()
+		{
+			return this.delegate.toString();
+		}
+	}
+}
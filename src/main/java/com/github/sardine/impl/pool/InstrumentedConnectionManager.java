@@ -0,0 +1,129 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.pool;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import com.github.sardine.impl.jfr.PoolLeaseEvent;
+import com.github.sardine.impl.metrics.RequestTiming;
+
+/**
+ * Pooling connection manager recording {@link ConnectionPoolMetrics}.
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager
+{
+	private final ConnectionPoolMetrics metrics;
+
+	public InstrumentedConnectionManager(Registry<ConnectionSocketFactory> registry)
+	{
+		this(registry, -1, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param registry Socket factories by scheme
+	 * @param timeToLive Maximum lifetime of pooled connections or a negative value for no limit
+	 * @param unit Unit of the time to live
+	 */
+	public InstrumentedConnectionManager(Registry<ConnectionSocketFactory> registry, long timeToLive, TimeUnit unit)
+	{
+		this(registry, new CountingConnectionFactory(), timeToLive, unit);
+	}
+
+	private InstrumentedConnectionManager(Registry<ConnectionSocketFactory> registry, CountingConnectionFactory factory,
+			long timeToLive, TimeUnit unit)
+	{
+		super(registry, factory, null, null, timeToLive, unit);
+		this.metrics = new ConnectionPoolMetrics(this);
+		factory.setMetrics(this.metrics);
+	}
+
+	/**
+	 * @return Statistics of this pool
+	 */
+	public ConnectionPoolMetrics getMetrics()
+	{
+		return this.metrics;
+	}
+
+	@Override
+	public void connect(HttpClientConnection managedConn, HttpRoute route, int connectTimeout, HttpContext context)
+			throws IOException
+	{
+		RequestTiming timing = RequestTiming.get(context);
+		if (timing == null)
+		{
+			super.connect(managedConn, route, connectTimeout, context);
+			return;
+		}
+		timing.connecting();
+		try
+		{
+			super.connect(managedConn, route, connectTimeout, context);
+		}
+		finally
+		{
+			timing.connected();
+		}
+	}
+
+	@Override
+	public ConnectionRequest requestConnection(final HttpRoute route, Object state)
+	{
+		final ConnectionRequest request = super.requestConnection(route, state);
+		return new ConnectionRequest()
+		{
+			@Override
+			public HttpClientConnection get(long timeout, TimeUnit unit)
+					throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException
+			{
+				PoolLeaseEvent event = new PoolLeaseEvent();
+				event.begin();
+				long start = System.nanoTime();
+				try
+				{
+					HttpClientConnection connection = request.get(timeout, unit);
+					metrics.leased(System.nanoTime() - start);
+					event.complete(route, false);
+					return connection;
+				}
+				catch (ConnectionPoolTimeoutException e)
+				{
+					metrics.leaseTimedOut(System.nanoTime() - start);
+					event.complete(route, true);
+					throw e;
+				}
+			}
+
+			@Override
+			public boolean cancel()
+			{
+				return request.cancel();
+			}
+		};
+	}
+}
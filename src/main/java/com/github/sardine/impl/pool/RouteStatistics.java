@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.pool;
+
+/**
+ * Connection counts of a single route of the pool
+ */
+public class RouteStatistics
+{
+	private final String route;
+
+	private final int leased;
+
+	private final int available;
+
+	private final int pending;
+
+	private final int max;
+
+	public RouteStatistics(String route, int leased, int available, int pending, int max)
+	{
+		this.route = route;
+		this.leased = leased;
+		this.available = available;
+		this.pending = pending;
+		this.max = max;
+	}
+
+	/**
+	 * @return Target host and proxy if any
+	 */
+	public String getRoute()
+	{
+		return this.route;
+	}
+
+	public int getLeased()
+	{
+		return this.leased;
+	}
+
+	public int getAvailable()
+	{
+		return this.available;
+	}
+
+	public int getPending()
+	{
+		return this.pending;
+	}
+
+	public int getMax()
+	{
+		return this.max;
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.trace;
+
+import java.net.URI;
+import java.time.Instant;
+
+/**
+ * Operation or single request traced by a {@link SardineTracer}.
+ */
+public final class SardineSpan
+{
+	public enum Kind
+	{
+		/**
+		 * Parent of the requests sent by a high level operation
+		 *
+		 * @see Tracing#operation(SardineTracer, String, TracedOperation)
+		 */
+		OPERATION,
+
+		/**
+		 * Single HTTP request
+		 */
+		REQUEST
+	}
+
+	private final String name;
+
+	private final Kind kind;
+
+	private final TraceContext context;
+
+	private final SardineSpan parent;
+
+	private final TraceContext parentContext;
+
+	private final Instant start = Instant.now();
+
+	private final long startNanos = System.nanoTime();
+
+	private long durationNanos = -1;
+
+	private URI uri;
+
+	private int status;
+
+	private Throwable error;
+
+	SardineSpan(String name, Kind kind, SardineSpan parent, TraceContext remoteParent)
+	{
+		this.name = name;
+		this.kind = kind;
+		this.parent = parent;
+		this.parentContext = parent != null ? parent.context : remoteParent;
+		this.context = this.parentContext != null ? this.parentContext.child() : TraceContext.root();
+	}
+
+	void end(Throwable error)
+	{
+		this.durationNanos = System.nanoTime() - this.startNanos;
+		this.error = error;
+	}
+
+	void setStatus(int status)
+	{
+		this.status = status;
+	}
+
+	void setUri(URI uri)
+	{
+		this.uri = uri;
+	}
+
+	/**
+	 * @return Request method or name of the operation
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+
+	public Kind getKind()
+	{
+		return this.kind;
+	}
+
+	/**
+	 * @return Identifiers of this span, sent with requests
+	 */
+	public TraceContext getContext()
+	{
+		return this.context;
+	}
+
+	/**
+	 * @return Enclosing operation or null
+	 */
+	public SardineSpan getParent()
+	{
+		return this.parent;
+	}
+
+	/**
+	 * @return Context of the enclosing operation or of the caller as returned by {@link SardineTracer#current()},
+	 * null for the root of a new trace
+	 */
+	public TraceContext getParentContext()
+	{
+		return this.parentContext;
+	}
+
+	public Instant getStart()
+	{
+		return this.start;
+	}
+
+	/**
+	 * @return Duration or -1 until ended
+	 */
+	public long getDurationNanos()
+	{
+		return this.durationNanos;
+	}
+
+	/**
+	 * @return Target of requests or null for operations
+	 */
+	public URI getUri()
+	{
+		return this.uri;
+	}
+
+	/**
+	 * @return Status code of requests or 0 without response
+	 */
+	public int getStatus()
+	{
+		return this.status;
+	}
+
+	/**
+	 * @return Failure or null
+	 */
+	public Throwable getError()
+	{
+		return this.error;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.kind + " " + this.name + (this.uri == null ? "" : " " + this.uri) + " " + this.context;
+	}
+}
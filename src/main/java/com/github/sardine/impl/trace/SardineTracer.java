@@ -0,0 +1,44 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.trace;
+
+/**
+ * Notified when spans of operations and requests start and end. Bridges Sardine to a tracing system such as
+ * OpenTelemetry. Called on the thread executing the span and must be thread safe.
+ *
+ * @see com.github.sardine.impl.SardineImpl#setTracer(SardineTracer)
+ */
+public interface SardineTracer
+{
+	/**
+	 * @return Context of the span of the caller to continue its trace, or null to start new traces
+	 */
+	default TraceContext current()
+	{
+		return null;
+	}
+
+	/**
+	 * @param span Span started on the calling thread
+	 */
+	void started(SardineSpan span);
+
+	/**
+	 * @param span Span with duration, status and failure set
+	 */
+	void ended(SardineSpan span);
+}
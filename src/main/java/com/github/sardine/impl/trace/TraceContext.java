@@ -0,0 +1,191 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Identifiers of a span as propagated in the <code>traceparent</code> and <code>tracestate</code> headers of
+ * the W3C trace context.
+ */
+public final class TraceContext
+{
+	public static final String TRACEPARENT = "traceparent";
+
+	public static final String TRACESTATE = "tracestate";
+
+	private static final String VERSION = "00";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final String traceId;
+
+	private final String spanId;
+
+	private final boolean sampled;
+
+	private final String traceState;
+
+	/**
+	 * @param traceId    32 lowercase hex digits, not all zero
+	 * @param spanId     16 lowercase hex digits, not all zero
+	 * @param sampled    Sampled flag of the caller
+	 * @param traceState Vendor specific state or null
+	 */
+	public TraceContext(String traceId, String spanId, boolean sampled, String traceState)
+	{
+		if (!isId(traceId, 32) || !isId(spanId, 16))
+		{
+			throw new IllegalArgumentException("Invalid trace identifiers " + traceId + "-" + spanId);
+		}
+		this.traceId = traceId;
+		this.spanId = spanId;
+		this.sampled = sampled;
+		this.traceState = traceState;
+	}
+
+	/**
+	 * @return Sampled context of a new trace
+	 */
+	public static TraceContext root()
+	{
+		return new TraceContext(randomId(2), randomId(1), true, null);
+	}
+
+	/**
+	 * @param traceparent Value of the <code>traceparent</code> header
+	 * @param tracestate  Value of the <code>tracestate</code> header or null
+	 * @return Parsed context or null if the header is missing or invalid
+	 */
+	public static TraceContext parse(String traceparent, String tracestate)
+	{
+		if (traceparent == null || traceparent.length() < 55 || traceparent.charAt(2) != '-'
+				|| traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-')
+		{
+			return null;
+		}
+		String version = traceparent.substring(0, 2);
+		if (!isHex(version) || version.equals("ff") || (version.equals(VERSION) && traceparent.length() != 55))
+		{
+			return null;
+		}
+		String traceId = traceparent.substring(3, 35);
+		String spanId = traceparent.substring(36, 52);
+		String flags = traceparent.substring(53, 55);
+		if (!isId(traceId, 32) || !isId(spanId, 16) || !isHex(flags))
+		{
+			return null;
+		}
+		return new TraceContext(traceId, spanId, (Integer.parseInt(flags, 16) & 1) != 0, tracestate);
+	}
+
+	/**
+	 * @return Context of a child span in the same trace
+	 */
+	public TraceContext child()
+	{
+		return new TraceContext(this.traceId, randomId(1), this.sampled, this.traceState);
+	}
+
+	public String getTraceId()
+	{
+		return this.traceId;
+	}
+
+	public String getSpanId()
+	{
+		return this.spanId;
+	}
+
+	public boolean isSampled()
+	{
+		return this.sampled;
+	}
+
+	/**
+	 * @return Value for the <code>tracestate</code> header or null
+	 */
+	public String getTraceState()
+	{
+		return this.traceState;
+	}
+
+	/**
+	 * @return Value for the <code>traceparent</code> header
+	 */
+	public String getTraceparent()
+	{
+		return VERSION + '-' + this.traceId + '-' + this.spanId + (this.sampled ? "-01" : "-00");
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.getTraceparent();
+	}
+
+	private static String randomId(int longs)
+	{
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		char[] id = new char[longs * 16];
+		long value;
+		do
+		{
+			value = 0;
+			for (int i = 0; i < longs; i++)
+			{
+				long bits = random.nextLong();
+				value |= bits;
+				for (int j = 0; j < 16; j++)
+				{
+					id[i * 16 + j] = HEX[(int) (bits >>> (60 - 4 * j)) & 0xf];
+				}
+			}
+		}
+		while (value == 0);
+		return new String(id);
+	}
+
+	private static boolean isId(String id, int length)
+	{
+		if (id == null || id.length() != length || !isHex(id))
+		{
+			return false;
+		}
+		for (int i = 0; i < length; i++)
+		{
+			if (id.charAt(i) != '0')
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isHex(String value)
+	{
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if ((c < '0' || c > '9') && (c < 'a' || c > 'f'))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.trace;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * Keeps the operation span of each thread to parent the spans of its requests.
+ */
+public final class Tracing
+{
+	private static final ThreadLocal<SardineSpan> CURRENT = new ThreadLocal<SardineSpan>();
+
+	private Tracing()
+	{
+	}
+
+	/**
+	 * @return Operation of the calling thread or null
+	 */
+	public static SardineSpan current()
+	{
+		return CURRENT.get();
+	}
+
+	/**
+	 * Runs an operation as parent span of all requests it sends from the calling thread and from tasks
+	 * wrapped by {@link #propagate(Callable)}.
+	 *
+	 * @param tracer    Notified of the operation span or null to run the operation without tracing
+	 * @param name      Name of the span such as <code>copy</code>
+	 * @param operation Sends the requests
+	 * @return Result of the operation
+	 */
+	public static <T> T operation(SardineTracer tracer, String name, TracedOperation<T> operation) throws IOException
+	{
+		if (tracer == null)
+		{
+			return operation.run();
+		}
+		SardineSpan parent = CURRENT.get();
+		SardineSpan span = new SardineSpan(name, SardineSpan.Kind.OPERATION, parent, parent == null ? tracer.current() : null);
+		tracer.started(span);
+		CURRENT.set(span);
+		Throwable error = null;
+		try
+		{
+			return operation.run();
+		}
+		catch (IOException | RuntimeException | Error e)
+		{
+			error = e;
+			throw e;
+		}
+		finally
+		{
+			restore(parent);
+			span.end(error);
+			tracer.ended(span);
+		}
+	}
+
+	/**
+	 * Starts the span of a request and sets its trace context headers.
+	 *
+	 * @param tracer  Notified of the span
+	 * @param request Request about to be executed
+	 * @return Span to pass to {@link #end(SardineTracer, SardineSpan, Throwable)}
+	 */
+	public static SardineSpan start(SardineTracer tracer, HttpUriRequest request)
+	{
+		SardineSpan parent = CURRENT.get();
+		SardineSpan span = new SardineSpan(request.getMethod(), SardineSpan.Kind.REQUEST, parent,
+				parent == null ? tracer.current() : null);
+		span.setUri(request.getURI());
+		TraceContext context = span.getContext();
+		request.setHeader(TraceContext.TRACEPARENT, context.getTraceparent());
+		if (context.getTraceState() != null)
+		{
+			request.setHeader(TraceContext.TRACESTATE, context.getTraceState());
+		}
+		else
+		{
+			request.removeHeaders(TraceContext.TRACESTATE);
+		}
+		tracer.started(span);
+		return span;
+	}
+
+	/**
+	 * @param span    Span of a request
+	 * @param handler Handler of the response
+	 * @return Handler noting the status of the response
+	 */
+	public static <T> ResponseHandler<T> wrap(final SardineSpan span, final ResponseHandler<T> handler)
+	{
+		return response -> handler.handleResponse(response(span, response));
+	}
+
+	/**
+	 * @param span     Span of a request
+	 * @param response Response of the request
+	 * @return The same response
+	 */
+	public static HttpResponse response(SardineSpan span, HttpResponse response)
+	{
+		span.setStatus(response.getStatusLine().getStatusCode());
+		return response;
+	}
+
+	/**
+	 * @param tracer Notified of the span
+	 * @param span   Span of a request
+	 * @param error  Failure or null
+	 */
+	public static void end(SardineTracer tracer, SardineSpan span, Throwable error)
+	{
+		span.end(error);
+		tracer.ended(span);
+	}
+
+	/**
+	 * @param task Task to run on another thread
+	 * @return Task running with the operation of the calling thread as parent
+	 */
+	public static <T> Callable<T> propagate(final Callable<T> task)
+	{
+		final SardineSpan span = CURRENT.get();
+		if (span == null)
+		{
+			return task;
+		}
+		return () -> {
+			SardineSpan previous = CURRENT.get();
+			CURRENT.set(span);
+			try
+			{
+				return task.call();
+			}
+			finally
+			{
+				restore(previous);
+			}
+		};
+	}
+
+	private static void restore(SardineSpan span)
+	{
+		if (span == null)
+		{
+			CURRENT.remove();
+		}
+		else
+		{
+			CURRENT.set(span);
+		}
+	}
+}
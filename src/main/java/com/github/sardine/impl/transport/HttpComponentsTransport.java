@@ -0,0 +1,59 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.transport;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Default transport on Apache HttpClient 4 speaking HTTP/1.1 over a pool of connections.
+ */
+public class HttpComponentsTransport implements SardineTransport
+{
+	private final CloseableHttpClient client;
+
+	/**
+	 * @param client Closed with this transport
+	 */
+	public HttpComponentsTransport(CloseableHttpClient client)
+	{
+		this.client = client;
+	}
+
+	@Override
+	public HttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException
+	{
+		return this.client.execute(request, context);
+	}
+
+	@Override
+	public <T> T execute(HttpUriRequest request, ResponseHandler<? extends T> handler, HttpContext context) throws IOException
+	{
+		return this.client.execute(request, handler, context);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.client.close();
+	}
+}
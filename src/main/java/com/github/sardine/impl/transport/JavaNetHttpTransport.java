@@ -0,0 +1,477 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolException;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.RedirectException;
+import org.apache.http.client.RedirectStrategy;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.AuthSchemes;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.apache.http.util.VersionInfo;
+
+import com.github.sardine.Version;
+import com.github.sardine.impl.SardineRedirectStrategy;
+
+/**
+ * Transport on the JDK {@link HttpClient} negotiating HTTP/2 where the server supports it, so that concurrent
+ * requests to the same server are multiplexed over a single connection instead of opening a connection each.
+ * <p>
+ * Supports Basic authentication with the credentials of the caller, sent preemptively once a host has asked the
+ * same identity for them or when enabled with {@link com.github.sardine.Sardine#enablePreemptiveAuthentication(String)}.
+ * Redirects are followed like {@link SardineRedirectStrategy} does, authenticating with every host on its own.
+ * Cookies, proxies and timeouts are configured on the {@link HttpClient}. Content compression settings and the
+ * interceptors of a {@link org.apache.http.impl.client.HttpClientBuilder} do not apply.
+ */
+public class JavaNetHttpTransport implements SardineTransport
+{
+	/**
+	 * Headers set by the JDK client itself
+	 */
+	private static final Set<String> RESTRICTED_HEADERS = new HashSet<String>(Arrays.asList(
+			"connection", "content-length", "expect", "host", "keep-alive", "transfer-encoding", "upgrade"));
+
+	private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+
+	private final HttpClient client;
+
+	/**
+	 * Request timeout or null
+	 */
+	private final Duration timeout;
+
+	private final String userAgent;
+
+	private final RedirectStrategy redirects = new SardineRedirectStrategy();
+
+	/**
+	 * Hosts that have asked for Basic authentication by identity
+	 */
+	private final Map<Principal, Set<HttpHost>> challenged = new ConcurrentHashMap<Principal, Set<HttpHost>>();
+
+	/**
+	 * Client preferring HTTP/2
+	 */
+	public JavaNetHttpTransport()
+	{
+		this(HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.build());
+	}
+
+	/**
+	 * @param client Custom client configuration. Should not follow redirects itself, which would send the
+	 *               credentials of a host to the next.
+	 */
+	public JavaNetHttpTransport(HttpClient client)
+	{
+		this(client, null);
+	}
+
+	/**
+	 * @param client  Custom client configuration
+	 * @param timeout Time to wait for the response headers of every request or null to wait indefinitely
+	 */
+	public JavaNetHttpTransport(HttpClient client, Duration timeout)
+	{
+		this.client = client;
+		this.timeout = timeout;
+		String version = Version.getSpecification();
+		this.userAgent = "Sardine/" + (version == null ? VersionInfo.UNAVAILABLE : version);
+	}
+
+	@Override
+	public HttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException
+	{
+		HttpClientContext clientContext = HttpClientContext.adapt(context);
+		RequestConfig config = clientContext.getRequestConfig();
+		// Aborting the original request also aborts its redirects
+		HttpExecutionAware abortable = request instanceof HttpExecutionAware ? (HttpExecutionAware) request : null;
+		HttpUriRequest current = request;
+		for (int redirect = 0;; redirect++)
+		{
+			Response response = this.authenticate(current, clientContext, abortable);
+			try
+			{
+				if (!config.isRedirectsEnabled() || !this.redirects.isRedirected(current, response, clientContext))
+				{
+					return response;
+				}
+				if (redirect >= config.getMaxRedirects())
+				{
+					throw new RedirectException("Maximum redirects (" + config.getMaxRedirects() + ") exceeded");
+				}
+				HttpUriRequest next = this.redirects.getRedirect(current, response, clientContext);
+				if (!next.headerIterator().hasNext())
+				{
+					next.setHeaders(current.getAllHeaders());
+				}
+				current = next;
+			}
+			catch (ProtocolException e)
+			{
+				response.close();
+				throw new ClientProtocolException(e);
+			}
+			catch (RuntimeException e)
+			{
+				response.close();
+				throw e;
+			}
+			response.close();
+		}
+	}
+
+	/**
+	 * Sends the credentials of the caller when the host asks for them
+	 */
+	private Response authenticate(HttpUriRequest request, HttpClientContext context, HttpExecutionAware abortable)
+			throws IOException
+	{
+		HttpHost target = URIUtils.extractHost(request.getURI());
+		Credentials credentials = this.getCredentials(target, context);
+		if (credentials == null)
+		{
+			return this.send(request, null, abortable);
+		}
+		if (this.isPreemptive(target, credentials, context))
+		{
+			return this.send(request, credentials, abortable);
+		}
+		Response response = this.send(request, null, abortable);
+		if (response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED && isBasicChallenge(response)
+				&& isRepeatable(request))
+		{
+			response.close();
+			response = this.send(request, credentials, abortable);
+			if (response.getStatusLine().getStatusCode() != HttpStatus.SC_UNAUTHORIZED)
+			{
+				this.challenged.computeIfAbsent(credentials.getUserPrincipal(), k -> ConcurrentHashMap.newKeySet())
+						.add(target);
+			}
+		}
+		return response;
+	}
+
+	@Override
+	public <T> T execute(HttpUriRequest request, ResponseHandler<? extends T> handler, HttpContext context) throws IOException
+	{
+		Response response = (Response) this.execute(request, context);
+		try
+		{
+			T result = handler.handleResponse(response);
+			EntityUtils.consume(response.getEntity());
+			return result;
+		}
+		finally
+		{
+			// Stops receiving the body if the handler failed
+			response.close();
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		// Closeable from Java 21
+		if (this.client instanceof AutoCloseable)
+		{
+			try
+			{
+				((AutoCloseable) this.client).close();
+			}
+			catch (IOException e)
+			{
+				throw e;
+			}
+			catch (Exception e)
+			{
+				throw new IOException(e);
+			}
+		}
+	}
+
+	private Credentials getCredentials(HttpHost target, HttpClientContext context)
+	{
+		CredentialsProvider provider = context.getCredentialsProvider();
+		if (provider == null || target == null)
+		{
+			return null;
+		}
+		return provider.getCredentials(new AuthScope(target.getHostName(), target.getPort(), AuthScope.ANY_REALM, AuthSchemes.BASIC));
+	}
+
+	private boolean isPreemptive(HttpHost target, Credentials credentials, HttpClientContext context)
+	{
+		Set<HttpHost> hosts = this.challenged.get(credentials.getUserPrincipal());
+		if (hosts != null && hosts.contains(target))
+		{
+			return true;
+		}
+		AuthCache cache = context.getAuthCache();
+		return cache != null && cache.get(target) != null;
+	}
+
+	private static boolean isBasicChallenge(HttpResponse response)
+	{
+		for (Header header : response.getHeaders(HttpHeaders.WWW_AUTHENTICATE))
+		{
+			if (header.getValue().regionMatches(true, 0, "Basic", 0, 5))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isRepeatable(HttpUriRequest request)
+	{
+		if (request instanceof HttpEntityEnclosingRequest)
+		{
+			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			return entity == null || entity.isRepeatable();
+		}
+		return true;
+	}
+
+	/**
+	 * @param credentials Sent as Basic authorization or null
+	 * @param abortable   Stops the exchange when aborted or null
+	 */
+	private Response send(HttpUriRequest request, Credentials credentials, HttpExecutionAware abortable)
+			throws IOException
+	{
+		HttpRequest.Builder builder = HttpRequest.newBuilder(request.getURI());
+		if (this.timeout != null)
+		{
+			builder.timeout(this.timeout);
+		}
+		for (Header header : request.getAllHeaders())
+		{
+			if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT)))
+			{
+				builder.header(header.getName(), header.getValue());
+			}
+		}
+		if (!request.containsHeader(HttpHeaders.USER_AGENT))
+		{
+			builder.header(HttpHeaders.USER_AGENT, this.userAgent);
+		}
+		if (credentials != null)
+		{
+			String token = credentials.getUserPrincipal().getName() + ":" + credentials.getPassword();
+			builder.setHeader(HttpHeaders.AUTHORIZATION, "Basic "
+					+ Base64.getEncoder().encodeToString(token.getBytes(StandardCharsets.UTF_8)));
+		}
+		builder.method(request.getMethod(), this.publisher(request, builder));
+		final CompletableFuture<java.net.http.HttpResponse<InputStream>> future = this.client.sendAsync(builder.build(),
+				BodyHandlers.ofInputStream());
+		// Aborting the request stops waiting for the response
+		if (abortable != null)
+		{
+			abortable.setCancellable(() -> future.cancel(true));
+			if (abortable.isAborted())
+			{
+				future.cancel(true);
+			}
+		}
+		java.net.http.HttpResponse<InputStream> response;
+		try
+		{
+			response = future.get();
+		}
+		catch (InterruptedException e)
+		{
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		}
+		catch (CancellationException e)
+		{
+			throw new InterruptedIOException("Request aborted");
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		if (abortable != null)
+		{
+			// Aborting the request stops receiving the body
+			final InputStream body = response.body();
+			abortable.setCancellable(() -> {
+				try
+				{
+					body.close();
+				}
+				catch (IOException e)
+				{
+					return false;
+				}
+				return true;
+			});
+		}
+		return this.toResponse(request, response);
+	}
+
+	/**
+	 * Adds the entity headers to the request
+	 */
+	private BodyPublisher publisher(HttpUriRequest request, HttpRequest.Builder builder)
+	{
+		if (!(request instanceof HttpEntityEnclosingRequest))
+		{
+			return BodyPublishers.noBody();
+		}
+		final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+		if (entity == null)
+		{
+			return BodyPublishers.noBody();
+		}
+		if (entity.getContentType() != null && !request.containsHeader(HttpHeaders.CONTENT_TYPE))
+		{
+			builder.header(HttpHeaders.CONTENT_TYPE, entity.getContentType().getValue());
+		}
+		if (entity.getContentEncoding() != null && !request.containsHeader(HttpHeaders.CONTENT_ENCODING))
+		{
+			builder.header(HttpHeaders.CONTENT_ENCODING, entity.getContentEncoding().getValue());
+		}
+		long length = entity.getContentLength();
+		if (length == 0)
+		{
+			return BodyPublishers.noBody();
+		}
+		BodyPublisher content = BodyPublishers.ofInputStream(() ->
+		{
+			try
+			{
+				return entity.getContent();
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		});
+		return length < 0 ? content : BodyPublishers.fromPublisher(content, length);
+	}
+
+	private Response toResponse(HttpUriRequest request, java.net.http.HttpResponse<InputStream> response) throws IOException
+	{
+		int status = response.statusCode();
+		ProtocolVersion version = response.version() == HttpClient.Version.HTTP_2 ? HTTP_2 : HttpVersion.HTTP_1_1;
+		Response result = new Response(new BasicStatusLine(version, status,
+				EnglishReasonPhraseCatalog.INSTANCE.getReason(status, Locale.ENGLISH)));
+		for (Map.Entry<String, List<String>> header : response.headers().map().entrySet())
+		{
+			if (header.getKey().startsWith(":"))
+			{
+				// HTTP/2 pseudo header
+				continue;
+			}
+			for (String value : header.getValue())
+			{
+				result.addHeader(header.getKey(), value);
+			}
+		}
+		if ("HEAD".equals(request.getMethod()) || status == HttpStatus.SC_NO_CONTENT || status == HttpStatus.SC_NOT_MODIFIED)
+		{
+			response.body().close();
+			return result;
+		}
+		BasicHttpEntity entity = new BasicHttpEntity();
+		entity.setContent(response.body());
+		entity.setContentLength(response.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(-1));
+		entity.setContentType(result.getFirstHeader(HttpHeaders.CONTENT_TYPE));
+		entity.setContentEncoding(result.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+		result.setEntity(entity);
+		return result;
+	}
+
+	/**
+	 * Closing the response stops receiving the body. Only the stream is reset with HTTP/2.
+	 */
+	private static class Response extends BasicHttpResponse implements CloseableHttpResponse
+	{
+		Response(BasicStatusLine statusLine)
+		{
+			super(statusLine);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			HttpEntity entity = this.getEntity();
+			if (entity != null)
+			{
+				entity.getContent().close();
+			}
+		}
+	}
+}
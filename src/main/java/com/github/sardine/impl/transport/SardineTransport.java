@@ -0,0 +1,51 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Sends requests built with the HttpClient request and entity types, including the WebDAV methods of
+ * {@link com.github.sardine.impl.methods}, and returns the responses as HttpClient responses so that the response
+ * handlers work with any transport.
+ *
+ * @see HttpComponentsTransport
+ * @see JavaNetHttpTransport
+ */
+public interface SardineTransport extends Closeable
+{
+	/**
+	 * @param request Request to execute
+	 * @param context Request local context with the credentials and authentication cache of the caller
+	 * @return Response with the entity not yet consumed. Closing the entity content releases the connection.
+	 */
+	HttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException;
+
+	/**
+	 * @param request Request to execute
+	 * @param handler Reads the response. The entity is consumed afterwards.
+	 * @param context Request local context with the credentials and authentication cache of the caller
+	 * @return Result of the handler
+	 */
+	<T> T execute(HttpUriRequest request, ResponseHandler<? extends T> handler, HttpContext context) throws IOException;
+}
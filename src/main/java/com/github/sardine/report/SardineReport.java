@@ -2,6 +2,9 @@ package com.github.sardine.report;
 
 import java.io.IOException;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import com.github.sardine.model.Multistatus;
 import com.github.sardine.util.SardineUtil;
 
@@ -12,6 +15,17 @@ public abstract class SardineReport<T>
 		return SardineUtil.toXml(toJaxb());
 	}
 
+	/**
+	 * Write the request body to a writer that has already started the document. Marshals {@link #toJaxb()}
+	 * unless overridden.
+	 *
+	 * @param writer Destination
+	 */
+	public void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException
+	{
+		SardineUtil.marshal(toJaxb(), writer);
+	}
+
 	public abstract Object toJaxb();
 
 	public abstract T fromMultistatus(Multistatus multistatus);
@@ -1,5 +1,6 @@
 package com.github.sardine.report;
 
+import java.io.IOException;
 import java.math.BigInteger;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -8,6 +9,8 @@ import java.util.Set;
 import java.util.logging.Logger;
 
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.w3c.dom.Element;
 
@@ -77,6 +80,34 @@ public class SyncCollectionReport extends SardineReport<SyncCollectionReport.Res
 		return syncCollection;
 	}
 
+	@Override
+	public void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException
+	{
+		writer.writeStartElement("sync-collection");
+		writer.writeDefaultNamespace(SardineUtil.DEFAULT_NAMESPACE_URI);
+		writer.writeStartElement("sync-token");
+		writer.writeCharacters(syncToken == null ? "" : syncToken);
+		writer.writeEndElement();
+		writer.writeStartElement("sync-level");
+		writer.writeCharacters(syncLevel.toString());
+		writer.writeEndElement();
+		if (limit != null && limit > 0)
+		{
+			writer.writeStartElement("limit");
+			writer.writeStartElement("nresults");
+			writer.writeCharacters(limit.toString());
+			writer.writeEndElement();
+			writer.writeEndElement();
+		}
+		writer.writeStartElement("prop");
+		for (QName entry : properties)
+		{
+			SardineUtil.writeEmptyElement(writer, entry);
+		}
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
 	@Override
 	public Result fromMultistatus(Multistatus multistatus)
 	{
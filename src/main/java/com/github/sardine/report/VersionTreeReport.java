@@ -6,6 +6,9 @@ import com.github.sardine.util.SardineUtil;
 import org.w3c.dom.Element;
 
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
@@ -39,6 +42,20 @@ public class VersionTreeReport extends SardineReport<List<DavResource>>
         return versionTree;
     }
 
+    @Override
+    public void writeXml(XMLStreamWriter writer) throws XMLStreamException, IOException
+    {
+        writer.writeStartElement("version-tree");
+        writer.writeDefaultNamespace(SardineUtil.DEFAULT_NAMESPACE_URI);
+        writer.writeStartElement("prop");
+        for (QName entry : properties)
+        {
+            SardineUtil.writeEmptyElement(writer, entry);
+        }
+        writer.writeEndElement();
+        writer.writeEndElement();
+    }
+
     @Override
     public List<DavResource> fromMultistatus(Multistatus multistatus)
     {
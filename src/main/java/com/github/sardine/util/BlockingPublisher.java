@@ -0,0 +1,402 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Publishes items read with blocking I/O, such as the resources of a multistatus response or the chunks of a
+ * response body. Every subscription sends its own request once the subscriber signals demand. Items are only read
+ * from the connection while there is outstanding demand, with a single item read ahead to detect the end of the
+ * source, so a slow subscriber applies backpressure to the socket.
+ * Cancelling the subscription closes the source, which releases the connection or aborts the request when the
+ * response has not been read to the end. Requests waiting for the server when the subscription is cancelled are
+ * aborted from the cancelling thread if registered with {@link #abortOnCancel(Runnable)}.
+ *
+ * @param <T> Type of items
+ */
+public class BlockingPublisher<T> implements Flow.Publisher<T>
+{
+	private static final Logger log = Logger.getLogger(BlockingPublisher.class.getName());
+
+	/**
+	 * Maximum size of the buffers published for response bodies
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * Blocking source of items, closed when the subscription completes, fails or is cancelled
+	 */
+	public interface Source<T> extends Closeable
+	{
+		/**
+		 * @return Next item or null when there are no more items
+		 */
+		T next() throws IOException;
+	}
+
+	/**
+	 * Subscription drained by the current thread
+	 */
+	private static final ThreadLocal<BlockingPublisher<?>.Subscription> DRAINING = new ThreadLocal<BlockingPublisher<?>.Subscription>();
+
+	private final Callable<? extends Source<T>> factory;
+
+	private final Executor executor;
+
+	/**
+	 * @param factory  Sends the request. Called on the executor once per subscription.
+	 * @param executor Reads items. Blocked while waiting for the server.
+	 */
+	public BlockingPublisher(Callable<? extends Source<T>> factory, Executor executor)
+	{
+		this.factory = factory;
+		this.executor = executor;
+	}
+
+	/**
+	 * @return Shared pool of daemon threads kept alive for one minute when idle
+	 */
+	public static Executor defaultExecutor()
+	{
+		return DefaultExecutor.INSTANCE;
+	}
+
+	/**
+	 * Registers the abort of a request sent by a source of the calling thread. Cancelling the subscription runs the
+	 * action from the cancelling thread to unblock a read waiting for the server. Does nothing unless called while
+	 * the source of a publisher is created or read.
+	 *
+	 * @param abort Aborts the request, for example {@link org.apache.http.client.methods.HttpRequestBase#abort()}
+	 */
+	public static void abortOnCancel(Runnable abort)
+	{
+		BlockingPublisher<?>.Subscription subscription = DRAINING.get();
+		if (subscription != null)
+		{
+			subscription.abort = abort;
+			if (subscription.cancelled)
+			{
+				abort.run();
+			}
+		}
+	}
+
+	/**
+	 * @param stream Closed with the source
+	 * @return Source of the elements of the stream. Unwraps {@link UncheckedIOException}.
+	 */
+	public static <T> Source<T> source(final Stream<T> stream)
+	{
+		final Iterator<T> iterator = stream.iterator();
+		return new Source<T>()
+		{
+			@Override
+			public T next() throws IOException
+			{
+				try
+				{
+					return iterator.hasNext() ? iterator.next() : null;
+				}
+				catch (UncheckedIOException e)
+				{
+					throw e.getCause();
+				}
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				try
+				{
+					stream.close();
+				}
+				catch (UncheckedIOException e)
+				{
+					throw e.getCause();
+				}
+			}
+		};
+	}
+
+	/**
+	 * @param in         Closed with the source
+	 * @param bufferSize Maximum number of bytes of every buffer
+	 * @return Source of new buffers with the bytes read from the stream
+	 */
+	public static Source<ByteBuffer> source(final InputStream in, final int bufferSize)
+	{
+		return new Source<ByteBuffer>()
+		{
+			@Override
+			public ByteBuffer next() throws IOException
+			{
+				byte[] buffer = new byte[bufferSize];
+				int read = in.read(buffer);
+				while (read == 0)
+				{
+					read = in.read(buffer);
+				}
+				return read < 0 ? null : ByteBuffer.wrap(buffer, 0, read);
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				in.close();
+			}
+		};
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber)
+	{
+		if (subscriber == null)
+		{
+			throw new NullPointerException("Subscriber must not be null");
+		}
+		subscriber.onSubscribe(new Subscription(subscriber));
+	}
+
+	private final class Subscription implements Flow.Subscription, Runnable
+	{
+		private final Flow.Subscriber<? super T> subscriber;
+
+		private final AtomicLong demand = new AtomicLong();
+
+		/**
+		 * Signals not yet handled by the drain loop. The loop is scheduled when this changes from zero.
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+
+		private volatile boolean cancelled;
+
+		private volatile IllegalArgumentException invalid;
+
+		/**
+		 * Aborts the request of the source or null
+		 */
+		private volatile Runnable abort;
+
+		/**
+		 * Only accessed by the drain loop
+		 */
+		private Source<T> source;
+
+		/**
+		 * Item read ahead or null at the end of the source
+		 */
+		private T next;
+
+		/**
+		 * Set by the owner of the drain loop once the subscription is terminated
+		 */
+		private volatile boolean done;
+
+		Subscription(Flow.Subscriber<? super T> subscriber)
+		{
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n)
+		{
+			if (n <= 0)
+			{
+				this.invalid = new IllegalArgumentException("Non-positive request: " + n);
+			}
+			else
+			{
+				long current;
+				do
+				{
+					current = this.demand.get();
+				}
+				while (!this.demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+			}
+			this.schedule();
+		}
+
+		@Override
+		public void cancel()
+		{
+			this.cancelled = true;
+			Runnable abort = this.abort;
+			if (abort != null)
+			{
+				abort.run();
+			}
+			this.schedule();
+		}
+
+		private void schedule()
+		{
+			if (this.pending.getAndIncrement() == 0)
+			{
+				try
+				{
+					executor.execute(this);
+				}
+				catch (RejectedExecutionException e)
+				{
+					// Pending signals are never handled, so the caller owns the drain loop from now on
+					this.finish();
+					if (!this.cancelled)
+					{
+						this.subscriber.onError(e);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			int missed = 1;
+			DRAINING.set(this);
+			try
+			{
+				do
+				{
+					this.drain();
+					missed = this.pending.addAndGet(-missed);
+				}
+				while (missed != 0);
+			}
+			finally
+			{
+				DRAINING.remove();
+			}
+		}
+
+		private void drain()
+		{
+			if (this.done)
+			{
+				return;
+			}
+			try
+			{
+				if (this.source == null && !this.cancelled && this.invalid == null && this.demand.get() > 0)
+				{
+					this.source = factory.call();
+					this.next = this.source.next();
+				}
+				while (this.source != null && !this.cancelled && this.invalid == null)
+				{
+					if (this.next == null)
+					{
+						this.finish();
+						this.subscriber.onComplete();
+						return;
+					}
+					if (this.demand.get() == 0)
+					{
+						break;
+					}
+					T item = this.next;
+					this.next = null;
+					try
+					{
+						this.subscriber.onNext(item);
+					}
+					catch (Throwable e)
+					{
+						// The subscriber must not be signalled again, rule 2.13
+						this.cancelled = true;
+						this.finish();
+						log.log(Level.WARNING, "Subscriber failed to receive an item", e);
+						return;
+					}
+					if (this.demand.get() != Long.MAX_VALUE)
+					{
+						this.demand.decrementAndGet();
+					}
+					// Read ahead to complete without waiting for further demand
+					this.next = this.source.next();
+				}
+				if (this.cancelled)
+				{
+					this.finish();
+				}
+				else if (this.invalid != null)
+				{
+					this.finish();
+					this.subscriber.onError(this.invalid);
+				}
+			}
+			catch (Throwable e)
+			{
+				if (this.done)
+				{
+					// Thrown by onComplete or onError
+					log.log(Level.WARNING, "Subscriber failed to receive a terminal signal", e);
+					return;
+				}
+				// Failure of the factory or the source
+				this.finish();
+				if (!this.cancelled)
+				{
+					this.subscriber.onError(e);
+				}
+			}
+		}
+
+		private void finish()
+		{
+			this.done = true;
+			this.abort = null;
+			if (this.source != null)
+			{
+				try
+				{
+					this.source.close();
+				}
+				catch (IOException e)
+				{
+					log.log(Level.WARNING, "Failed to close source", e);
+				}
+			}
+		}
+	}
+
+	private static final class DefaultExecutor
+	{
+		private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(r ->
+		{
+			Thread thread = new Thread(r, "sardine-publisher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
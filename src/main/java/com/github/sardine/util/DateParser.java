@@ -0,0 +1,292 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.util;
+
+import java.util.Date;
+
+import org.apache.http.client.utils.DateUtils;
+
+/**
+ * Parses the dates found in WebDAV responses. RFC 1123 dates as used for <code>getlastmodified</code> and
+ * ISO 8601 dates as used for <code>creationdate</code> are recognized by their shape and parsed without
+ * intermediate objects. Other values are parsed by trying the legacy patterns, starting with the pattern that
+ * matched last.
+ */
+final class DateParser
+{
+	private DateParser() {}
+
+	private final static String[] SUPPORTED_DATE_FORMATS = new String[]{
+	  "yyyy-MM-dd'T'HH:mm:ss'Z'",
+	  "EEE, dd MMM yyyy HH:mm:ss zzz",
+	  "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'",
+	  "yyyy-MM-dd'T'HH:mm:ssZ",
+	  "EEE MMM dd HH:mm:ss zzz yyyy",
+	  "EEEEEE, dd-MMM-yy HH:mm:ss zzz",
+	  "EEE MMMM d HH:mm:ss yyyy"};
+
+	/**
+	 * Index of the legacy pattern that matched last. Responses of a server usually use the same format.
+	 */
+	private static volatile int lastFormat = 0;
+
+	private static final long MILLIS_PER_MINUTE = 60L * 1000L;
+
+	private static final long MILLIS_PER_DAY = 24L * 60L * MILLIS_PER_MINUTE;
+
+	/**
+	 * @param value Date string
+	 * @return Null if there is a parsing failure
+	 */
+	static Date parse(String value)
+	{
+		long time = parseRfc1123(value);
+		if (time == Long.MIN_VALUE)
+		{
+			time = parseIso8601(value);
+		}
+		if (time != Long.MIN_VALUE)
+		{
+			return new Date(time);
+		}
+		return parseLegacy(value);
+	}
+
+	/**
+	 * @return Null if none of the {@link #SUPPORTED_DATE_FORMATS} matches
+	 */
+	static Date parseLegacy(String value)
+	{
+		int last = lastFormat;
+		Date date = DateUtils.parseDate(value, new String[]{SUPPORTED_DATE_FORMATS[last]});
+		if (date != null)
+		{
+			return date;
+		}
+		for (int i = 0; i < SUPPORTED_DATE_FORMATS.length; i++)
+		{
+			if (i == last)
+			{
+				continue;
+			}
+			date = DateUtils.parseDate(value, new String[]{SUPPORTED_DATE_FORMATS[i]});
+			if (date != null)
+			{
+				lastFormat = i;
+				return date;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses <code>Tue, 05 Jan 2010 00:56:36 GMT</code>.
+	 *
+	 * @return Milliseconds since the epoch or {@link Long#MIN_VALUE} if the value has another format
+	 */
+	static long parseRfc1123(String value)
+	{
+		if (value.length() != 29
+				|| value.charAt(3) != ',' || value.charAt(4) != ' ' || value.charAt(7) != ' ' || value.charAt(11) != ' '
+				|| value.charAt(16) != ' ' || value.charAt(19) != ':' || value.charAt(22) != ':' || value.charAt(25) != ' ')
+		{
+			return Long.MIN_VALUE;
+		}
+		if (!(value.startsWith("GMT", 26) || value.startsWith("UTC", 26)))
+		{
+			return Long.MIN_VALUE;
+		}
+		int month = parseMonth(value, 8);
+		int day = parseDigits(value, 5, 2);
+		int year = parseDigits(value, 12, 4);
+		int hour = parseDigits(value, 17, 2);
+		int minute = parseDigits(value, 20, 2);
+		int second = parseDigits(value, 23, 2);
+		if (month < 0 || day < 0 || year < 0 || hour < 0 || minute < 0 || second < 0)
+		{
+			return Long.MIN_VALUE;
+		}
+		return toMillis(year, month, day, hour, minute, second, 0);
+	}
+
+	/**
+	 * Parses <code>2011-05-24T09:06:50Z</code> with optional fraction of a second and either <code>Z</code>
+	 * or a numeric offset such as <code>+02:00</code> or <code>+0200</code>.
+	 *
+	 * @return Milliseconds since the epoch or {@link Long#MIN_VALUE} if the value has another format
+	 */
+	static long parseIso8601(String value)
+	{
+		int length = value.length();
+		if (length < 20
+				|| value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T'
+				|| value.charAt(13) != ':' || value.charAt(16) != ':')
+		{
+			return Long.MIN_VALUE;
+		}
+		int year = parseDigits(value, 0, 4);
+		int month = parseDigits(value, 5, 2);
+		int day = parseDigits(value, 8, 2);
+		int hour = parseDigits(value, 11, 2);
+		int minute = parseDigits(value, 14, 2);
+		int second = parseDigits(value, 17, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 0 || hour < 0 || minute < 0 || second < 0)
+		{
+			return Long.MIN_VALUE;
+		}
+		int pos = 19;
+		int millis = 0;
+		if (value.charAt(pos) == '.')
+		{
+			pos++;
+			int start = pos;
+			while (pos < length && isDigit(value.charAt(pos)))
+			{
+				if (pos - start < 3)
+				{
+					millis = millis * 10 + (value.charAt(pos) - '0');
+				}
+				pos++;
+			}
+			if (pos == start)
+			{
+				return Long.MIN_VALUE;
+			}
+			for (int i = pos - start; i < 3; i++)
+			{
+				millis *= 10;
+			}
+		}
+		if (pos >= length)
+		{
+			return Long.MIN_VALUE;
+		}
+		int offset;
+		char zone = value.charAt(pos);
+		if (zone == 'Z' && pos + 1 == length)
+		{
+			offset = 0;
+		}
+		else if (zone == '+' || zone == '-')
+		{
+			int hours;
+			int minutes;
+			if (pos + 6 == length && value.charAt(pos + 3) == ':')
+			{
+				hours = parseDigits(value, pos + 1, 2);
+				minutes = parseDigits(value, pos + 4, 2);
+			}
+			else if (pos + 5 == length)
+			{
+				hours = parseDigits(value, pos + 1, 2);
+				minutes = parseDigits(value, pos + 3, 2);
+			}
+			else
+			{
+				return Long.MIN_VALUE;
+			}
+			if (hours < 0 || minutes < 0)
+			{
+				return Long.MIN_VALUE;
+			}
+			offset = (hours * 60 + minutes) * (zone == '-' ? -1 : 1);
+		}
+		else
+		{
+			return Long.MIN_VALUE;
+		}
+		return toMillis(year, month, day, hour, minute, second, millis) - offset * MILLIS_PER_MINUTE;
+	}
+
+	/**
+	 * Fields out of range roll over like with a lenient calendar.
+	 *
+	 * @param month 1 to 12
+	 */
+	private static long toMillis(int year, int month, int day, int hour, int minute, int second, int millis)
+	{
+		// Days from civil date in the proleptic Gregorian calendar
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		long epochDay = era * 146097L + dayOfEra - 719468L;
+		return epochDay * MILLIS_PER_DAY + ((hour * 60L + minute) * 60L + second) * 1000L + millis;
+	}
+
+	/**
+	 * @return Month from 1 to 12 or -1 for an unknown abbreviation
+	 */
+	private static int parseMonth(String value, int pos)
+	{
+		char a = value.charAt(pos);
+		char b = value.charAt(pos + 1);
+		char c = value.charAt(pos + 2);
+		switch (a)
+		{
+			case 'J':
+				if (b == 'a' && c == 'n') return 1;
+				if (b == 'u' && c == 'n') return 6;
+				if (b == 'u' && c == 'l') return 7;
+				return -1;
+			case 'F':
+				return b == 'e' && c == 'b' ? 2 : -1;
+			case 'M':
+				if (b == 'a' && c == 'r') return 3;
+				if (b == 'a' && c == 'y') return 5;
+				return -1;
+			case 'A':
+				if (b == 'p' && c == 'r') return 4;
+				if (b == 'u' && c == 'g') return 8;
+				return -1;
+			case 'S':
+				return b == 'e' && c == 'p' ? 9 : -1;
+			case 'O':
+				return b == 'c' && c == 't' ? 10 : -1;
+			case 'N':
+				return b == 'o' && c == 'v' ? 11 : -1;
+			case 'D':
+				return b == 'e' && c == 'c' ? 12 : -1;
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * @return Value of the decimal digits or -1 if there is another character
+	 */
+	private static int parseDigits(String value, int pos, int count)
+	{
+		int result = 0;
+		for (int i = pos; i < pos + count; i++)
+		{
+			char c = value.charAt(i);
+			if (!isDigit(c))
+			{
+				return -1;
+			}
+			result = result * 10 + (c - '0');
+		}
+		return result;
+	}
+
+	private static boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+}
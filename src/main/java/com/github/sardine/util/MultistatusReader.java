@@ -0,0 +1,793 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.http.ParseException;
+import org.apache.http.message.BasicLineParser;
+
+import com.github.sardine.DavResource;
+
+/**
+ * Pull parser for <code>multistatus</code> responses reading {@link DavResource} instances straight from the
+ * response stream using StAX. Unlike {@link SardineUtil#unmarshal(InputStream)} no JAXB model or DOM elements
+ * for custom properties are created and only the state of the current <code>response</code> element is held in
+ * memory. Not thread safe.
+ *
+ * @see com.github.sardine.impl.handler.StreamingMultiStatusResponseHandler
+ */
+public class MultistatusReader implements Closeable
+{
+	private static final Logger log = Logger.getLogger(MultistatusReader.class.getName());
+
+	private static final XMLInputFactory factory = createInputFactory();
+
+	private final XMLStreamReader reader;
+
+	/**
+	 * Set once the root element has been read
+	 */
+	private boolean started;
+
+	/**
+	 * Set once the end of the root element has been reached
+	 */
+	private boolean finished;
+
+	/**
+	 * @param in The response body to read from. Not closed by this reader.
+	 * @throws IOException When the stream cannot be read
+	 */
+	public MultistatusReader(InputStream in) throws IOException
+	{
+		try
+		{
+			// Factory implementations are not guaranteed to be thread safe
+			synchronized (factory)
+			{
+				this.reader = factory.createXMLStreamReader(in);
+			}
+		}
+		catch (XMLStreamException e)
+		{
+			throw failure(e);
+		}
+	}
+
+	private static XMLInputFactory createInputFactory()
+	{
+		XMLInputFactory f = XMLInputFactory.newInstance();
+		f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		f.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		// Same protection against external entities as for the SAX parser used with JAXB
+		f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return f;
+	}
+
+	private static IOException failure(Exception e)
+	{
+		// Server does not return any valid WebDAV XML
+		IOException failure = new IOException("Not a valid DAV response");
+		failure.initCause(e);
+		return failure;
+	}
+
+	/**
+	 * Reads up to the end of the next <code>response</code> element. Responses with an invalid
+	 * <code>href</code> are skipped.
+	 *
+	 * @return The next resource or null when the end of the <code>multistatus</code> element is reached
+	 * @throws IOException When the stream cannot be read or is not a valid multistatus document
+	 */
+	public DavResource read() throws IOException
+	{
+		try
+		{
+			if (!started)
+			{
+				this.readRoot();
+			}
+			while (!finished)
+			{
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT)
+				{
+					if (isDav("response"))
+					{
+						DavResource resource = this.readResponse();
+						if (resource != null)
+						{
+							return resource;
+						}
+					}
+					else
+					{
+						this.skipElement();
+					}
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT)
+				{
+					finished = true;
+				}
+			}
+			return null;
+		}
+		catch (XMLStreamException e)
+		{
+			throw failure(e);
+		}
+	}
+
+	/**
+	 * Reads all remaining resources.
+	 *
+	 * @return Resources in document order
+	 * @throws IOException When the stream cannot be read or is not a valid multistatus document
+	 */
+	public List<DavResource> readAll() throws IOException
+	{
+		List<DavResource> resources = new ArrayList<DavResource>();
+		DavResource resource;
+		while ((resource = this.read()) != null)
+		{
+			resources.add(resource);
+		}
+		return resources;
+	}
+
+	private void readRoot() throws XMLStreamException, IOException
+	{
+		started = true;
+		while (reader.hasNext())
+		{
+			if (reader.next() == XMLStreamConstants.START_ELEMENT)
+			{
+				if (isDav("multistatus"))
+				{
+					return;
+				}
+				throw new IOException(String.format("Not a valid DAV response. Unexpected root element %s", reader.getName()));
+			}
+		}
+		throw new IOException("Not a valid DAV response. Missing root element");
+	}
+
+	private DavResource readResponse() throws XMLStreamException
+	{
+		ResponseState state = new ResponseState();
+		while (this.nextChild())
+		{
+			if (isDav("href"))
+			{
+				String href = reader.getElementText();
+				if (state.href == null)
+				{
+					state.href = href;
+				}
+			}
+			else if (isDav("status"))
+			{
+				state.status = reader.getElementText();
+			}
+			else if (isDav("propstat"))
+			{
+				this.readPropstat(state);
+			}
+			else
+			{
+				this.skipElement();
+			}
+		}
+		if (state.href == null)
+		{
+			log.warning("Ignore response without href");
+			return null;
+		}
+		try
+		{
+			return state.toResource();
+		}
+		catch (URISyntaxException e)
+		{
+			log.warning(String.format("Ignore resource with invalid URI %s", state.href));
+			return null;
+		}
+	}
+
+	private void readPropstat(ResponseState state) throws XMLStreamException
+	{
+		state.propstats++;
+		PropState prop = null;
+		String status = null;
+		while (this.nextChild())
+		{
+			if (isDav("prop"))
+			{
+				prop = new PropState();
+				this.readProp(state, prop);
+			}
+			else if (isDav("status"))
+			{
+				status = reader.getElementText();
+			}
+			else
+			{
+				this.skipElement();
+			}
+		}
+		if (status != null && state.propstatStatus == null)
+		{
+			state.propstatStatus = status;
+		}
+		if (prop != null)
+		{
+			// Rules of DavResource#getContentType and DavResource#getContentLanguage applied per propstat
+			if (!state.contentTypeDecided)
+			{
+				if (prop.collection)
+				{
+					state.contentType = DavResource.HTTPD_UNIX_DIRECTORY_CONTENT_TYPE;
+					state.contentTypeDecided = true;
+				}
+				else if (prop.contentType != null)
+				{
+					state.contentType = prop.contentType;
+					state.contentTypeDecided = true;
+				}
+			}
+			if (!state.contentLanguageDecided)
+			{
+				if (prop.collection)
+				{
+					state.contentLanguage = DavResource.HTTPD_UNIX_DIRECTORY_CONTENT_TYPE;
+					state.contentLanguageDecided = true;
+				}
+				else if (prop.contentLanguage != null)
+				{
+					state.contentLanguage = prop.contentLanguage;
+					state.contentLanguageDecided = true;
+				}
+			}
+		}
+	}
+
+	private void readProp(ResponseState state, PropState prop) throws XMLStreamException
+	{
+		while (this.nextChild())
+		{
+			String namespace = reader.getNamespaceURI();
+			if (SardineUtil.DEFAULT_NAMESPACE_URI.equals(namespace))
+			{
+				String name = reader.getLocalName();
+				if ("creationdate".equals(name))
+				{
+					String value = this.readSimpleText();
+					if (state.creation == null)
+					{
+						state.creation = value;
+					}
+					continue;
+				}
+				if ("getlastmodified".equals(name))
+				{
+					String value = this.readSimpleText();
+					if (state.modified == null)
+					{
+						state.modified = value;
+					}
+					continue;
+				}
+				if ("getcontenttype".equals(name))
+				{
+					prop.contentType = this.readSimpleText();
+					continue;
+				}
+				if ("getcontentlanguage".equals(name))
+				{
+					prop.contentLanguage = this.readSimpleText();
+					continue;
+				}
+				if ("getcontentlength".equals(name))
+				{
+					String value = this.readSimpleText();
+					if (state.contentLength == null && value != null)
+					{
+						try
+						{
+							state.contentLength = Long.parseLong(value);
+						}
+						catch (NumberFormatException e)
+						{
+							log.warning(String.format("Failed to parse content length %s", value));
+						}
+					}
+					continue;
+				}
+				if ("getetag".equals(name))
+				{
+					String value = this.readSimpleText();
+					if (state.etag == null)
+					{
+						state.etag = value;
+					}
+					continue;
+				}
+				if ("displayname".equals(name))
+				{
+					String value = this.readSimpleText();
+					if (state.displayName == null)
+					{
+						state.displayName = value;
+					}
+					continue;
+				}
+				if ("resourcetype".equals(name))
+				{
+					this.readResourcetype(state, prop);
+					continue;
+				}
+				if ("lockdiscovery".equals(name))
+				{
+					String token = this.readLockToken();
+					if (state.lockToken == null)
+					{
+						state.lockToken = token;
+					}
+					continue;
+				}
+				if ("supported-report-set".equals(name))
+				{
+					this.readSupportedReports(state);
+					continue;
+				}
+				if ("supportedlock".equals(name)
+						|| "quota-available-bytes".equals(name)
+						|| "quota-used-bytes".equals(name)
+						|| "owner".equals(name)
+						|| "group".equals(name)
+						|| "acl".equals(name)
+						|| "principal-collection-set".equals(name)
+						|| "principal-URL".equals(name))
+				{
+					// Known to the JAXB model but not part of a resource
+					this.skipElement();
+					continue;
+				}
+			}
+			QName key = this.currentName();
+			state.customProps().put(key, this.readTextContent());
+		}
+	}
+
+	private void readResourcetype(ResponseState state, PropState prop) throws XMLStreamException
+	{
+		boolean collection = false;
+		boolean principal = false;
+		List<QName> any = null;
+		while (this.nextChild())
+		{
+			if (isDav("collection"))
+			{
+				collection = true;
+			}
+			else if (isDav("principal"))
+			{
+				principal = true;
+			}
+			else
+			{
+				if (any == null)
+				{
+					any = new ArrayList<QName>(1);
+				}
+				any.add(this.currentName());
+			}
+			this.skipElement();
+		}
+		// Same order as the JAXB model
+		if (collection)
+		{
+			prop.collection = true;
+			state.resourceTypes().add(SardineUtil.createQNameWithDefaultNamespace("collection"));
+		}
+		if (principal)
+		{
+			state.resourceTypes().add(SardineUtil.createQNameWithDefaultNamespace("principal"));
+		}
+		if (any != null)
+		{
+			state.resourceTypes().addAll(any);
+		}
+	}
+
+	/**
+	 * @return The lock token if there is exactly one active lock with exactly one token
+	 */
+	private String readLockToken() throws XMLStreamException
+	{
+		int activelocks = 0;
+		int hrefs = 0;
+		String token = null;
+		while (this.nextChild())
+		{
+			if (isDav("activelock"))
+			{
+				activelocks++;
+				while (this.nextChild())
+				{
+					if (isDav("locktoken"))
+					{
+						while (this.nextChild())
+						{
+							if (isDav("href"))
+							{
+								hrefs++;
+								token = reader.getElementText();
+							}
+							else
+							{
+								this.skipElement();
+							}
+						}
+					}
+					else
+					{
+						this.skipElement();
+					}
+				}
+			}
+			else
+			{
+				this.skipElement();
+			}
+		}
+		if (activelocks == 1 && hrefs == 1)
+		{
+			return token;
+		}
+		return null;
+	}
+
+	private void readSupportedReports(ResponseState state) throws XMLStreamException
+	{
+		while (this.nextChild())
+		{
+			if (isDav("supported-report"))
+			{
+				while (this.nextChild())
+				{
+					if (isDav("report"))
+					{
+						QName report = null;
+						while (this.nextChild())
+						{
+							report = this.currentName();
+							this.skipElement();
+						}
+						if (report != null)
+						{
+							state.supportedReports().add(report);
+						}
+					}
+					else
+					{
+						this.skipElement();
+					}
+				}
+			}
+			else
+			{
+				this.skipElement();
+			}
+		}
+	}
+
+	/**
+	 * Reads the text of an element with simple content as mapped by the mixed content of the JAXB model.
+	 *
+	 * @return Null if the element is empty or has child elements
+	 */
+	private String readSimpleText() throws XMLStreamException
+	{
+		StringBuilder text = null;
+		boolean children = false;
+		int depth = 1;
+		while (depth > 0)
+		{
+			switch (reader.next())
+			{
+				case XMLStreamConstants.START_ELEMENT:
+					children = true;
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					if (depth == 1)
+					{
+						if (text == null)
+						{
+							text = new StringBuilder(reader.getTextLength());
+						}
+						text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		if (children || text == null || text.length() == 0)
+		{
+			return null;
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Whitespace only text followed by a start tag is dropped as when unmarshalling to DOM elements with JAXB.
+	 *
+	 * @return Concatenated text of all descendants like {@link org.w3c.dom.Node#getTextContent()}
+	 */
+	private String readTextContent() throws XMLStreamException
+	{
+		StringBuilder text = new StringBuilder();
+		// Start of text not yet followed by a tag
+		int pending = 0;
+		int depth = 1;
+		while (depth > 0)
+		{
+			switch (reader.next())
+			{
+				case XMLStreamConstants.START_ELEMENT:
+					if (isWhitespace(text, pending))
+					{
+						text.setLength(pending);
+					}
+					pending = text.length();
+					depth++;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					pending = text.length();
+					depth--;
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					break;
+				default:
+					break;
+			}
+		}
+		return text.toString();
+	}
+
+	private static boolean isWhitespace(CharSequence text, int start)
+	{
+		for (int i = start; i < text.length(); i++)
+		{
+			if (!Character.isWhitespace(text.charAt(i)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Advances to the next child of the current element ignoring text, comments and processing instructions.
+	 *
+	 * @return True if positioned at the start of a child element, false when the end of the current element is reached
+	 */
+	private boolean nextChild() throws XMLStreamException
+	{
+		while (true)
+		{
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				return true;
+			}
+			if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Skips to the end of the current element including all of its descendants.
+	 */
+	private void skipElement() throws XMLStreamException
+	{
+		int depth = 1;
+		while (depth > 0)
+		{
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				depth--;
+			}
+		}
+	}
+
+	private boolean isDav(String name)
+	{
+		return name.equals(reader.getLocalName()) && SardineUtil.DEFAULT_NAMESPACE_URI.equals(reader.getNamespaceURI());
+	}
+
+	/**
+	 * @return Qualified name of the current element as mapped by {@link SardineUtil#toQName(org.w3c.dom.Element)}
+	 */
+	private QName currentName()
+	{
+		String namespace = reader.getNamespaceURI();
+		if (namespace == null || namespace.isEmpty())
+		{
+			return SardineUtil.createQNameWithDefaultNamespace(reader.getLocalName());
+		}
+		String prefix = reader.getPrefix();
+		if (prefix == null || prefix.isEmpty())
+		{
+			return new QName(namespace, reader.getLocalName());
+		}
+		return new QName(namespace, reader.getLocalName(), prefix);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			reader.close();
+		}
+		catch (XMLStreamException e)
+		{
+			throw failure(e);
+		}
+	}
+
+	/**
+	 * Properties of a single <code>prop</code> element that are evaluated per <code>propstat</code>.
+	 */
+	private static class PropState
+	{
+		boolean collection;
+		String contentType;
+		String contentLanguage;
+	}
+
+	/**
+	 * Values collected for the current <code>response</code> element. Where the JAXB based
+	 * {@link DavResource#DavResource(com.github.sardine.model.Response)} uses the first <code>propstat</code>
+	 * containing a property, the first value read wins.
+	 */
+	private static class ResponseState
+	{
+		String href;
+		String status;
+		String propstatStatus;
+		int propstats;
+		String creation;
+		String modified;
+		String contentType;
+		boolean contentTypeDecided;
+		String contentLanguage;
+		boolean contentLanguageDecided;
+		Long contentLength;
+		String etag;
+		String displayName;
+		String lockToken;
+		List<QName> resourceTypes;
+		List<QName> supportedReports;
+		Map<QName, String> customProps;
+
+		List<QName> resourceTypes()
+		{
+			if (resourceTypes == null)
+			{
+				resourceTypes = new ArrayList<QName>();
+			}
+			return resourceTypes;
+		}
+
+		List<QName> supportedReports()
+		{
+			if (supportedReports == null)
+			{
+				supportedReports = new ArrayList<QName>();
+			}
+			return supportedReports;
+		}
+
+		Map<QName, String> customProps()
+		{
+			if (customProps == null)
+			{
+				customProps = new HashMap<QName, String>();
+			}
+			return customProps;
+		}
+
+		/**
+		 * @return Status of the first <code>propstat</code> or of the <code>response</code> as in {@link DavResource#getStatusCode()}
+		 */
+		int statusCode()
+		{
+			String line = propstatStatus;
+			if (line == null)
+			{
+				if (status == null || status.isEmpty())
+				{
+					return DavResource.DEFAULT_STATUS_CODE;
+				}
+				line = status;
+			}
+			try
+			{
+				return BasicLineParser.parseStatusLine(line, null).getStatusCode();
+			}
+			catch (ParseException e)
+			{
+				log.warning(String.format("Failed to parse status line: %s", line));
+				return -1;
+			}
+		}
+
+		DavResource toResource() throws URISyntaxException
+		{
+			String type = contentType;
+			if (!contentTypeDecided && propstats > 0)
+			{
+				type = DavResource.DEFAULT_CONTENT_TYPE;
+			}
+			return new DavResource(href,
+					statusCode(),
+					creation, modified, type,
+					contentLength != null ? contentLength : DavResource.DEFAULT_CONTENT_LENGTH,
+					etag, displayName, lockToken,
+					resourceTypes != null ? resourceTypes : Collections.<QName>emptyList(),
+					contentLanguage,
+					supportedReports != null ? supportedReports : Collections.<QName>emptyList(),
+					customProps != null ? customProps : Collections.<QName, String>emptyMap());
+		}
+	}
+}
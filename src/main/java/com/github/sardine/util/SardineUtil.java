@@ -3,29 +3,36 @@ package com.github.sardine.util;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.sax.SAXSource;
 
-import org.apache.http.client.utils.DateUtils;
 import org.w3c.dom.Document;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
-import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.github.sardine.model.ObjectFactory;
 
@@ -44,15 +51,6 @@ public final class SardineUtil
 {
 	private SardineUtil() {}
 
-	private final static String[] SUPPORTED_DATE_FORMATS = new String[]{
-	  "yyyy-MM-dd'T'HH:mm:ss'Z'",
-	  "EEE, dd MMM yyyy HH:mm:ss zzz",
-	  "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'",
-	  "yyyy-MM-dd'T'HH:mm:ssZ",
-	  "EEE MMM dd HH:mm:ss zzz yyyy",
-	  "EEEEEE, dd-MMM-yy HH:mm:ss zzz",
-	  "EEE MMMM d HH:mm:ss yyyy"};
-
 	/**
 	 * Default namespace prefix
 	 */
@@ -73,40 +71,56 @@ public final class SardineUtil
 	 */
 	public static final String DEFAULT_NAMESPACE_URI = "DAV:";
 
+	private static final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+
+	private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
 	/**
-	 * Reusable context for marshalling and unmarshalling
+	 * Maximum number of idle instances kept for reuse in each pool
 	 */
-	private static final JAXBContext JAXB_CONTEXT;
+	private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
 
-	private static final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+	/**
+	 * Idle parsers configured to not resolve external entities. Parsers are not thread safe but can be reused
+	 * for consecutive parses.
+	 */
+	private static final BlockingQueue<XMLReader> readers = new ArrayBlockingQueue<XMLReader>(POOL_SIZE);
 
-	static
-	{
-		try
-		{
-			JAXB_CONTEXT = JAXBContext.newInstance(ObjectFactory.class.getPackage().getName(), SardineUtil.class.getClassLoader());
-		}
-		catch (JAXBException e)
-		{
-			throw new RuntimeException(e);
-		}
-	}
+	/**
+	 * Idle marshallers. Marshallers are not thread safe but can be reused for consecutive calls.
+	 */
+	private static final BlockingQueue<Marshaller> marshallers = new ArrayBlockingQueue<Marshaller>(POOL_SIZE);
 
 	/**
-	 * Date formats using for Date parsing.
+	 * Initialized on first use of JAXB instead of when {@link SardineUtil} is loaded. Creating the context
+	 * takes several hundred milliseconds and is not needed for the streaming parser and request bodies.
 	 */
-	private static final List<ThreadLocal<SimpleDateFormat>> DATETIME_FORMATS;
+	private static final class Jaxb
+	{
+		/**
+		 * Reusable context for marshalling and unmarshalling
+		 */
+		static final JAXBContext CONTEXT;
 
-	static {
-		List<ThreadLocal<SimpleDateFormat>> l = new ArrayList<ThreadLocal<SimpleDateFormat>>(SUPPORTED_DATE_FORMATS.length);
-		for (int i = 0; i<SUPPORTED_DATE_FORMATS.length; i++){
-			l.add(new ThreadLocal<SimpleDateFormat>());
+		static final SAXParserFactory saxParserFactory;
+
+		static
+		{
+			try
+			{
+				CONTEXT = JAXBContext.newInstance(ObjectFactory.class.getPackage().getName(), SardineUtil.class.getClassLoader());
+			}
+			catch (JAXBException e)
+			{
+				throw new RuntimeException(e);
+			}
+			saxParserFactory = SAXParserFactory.newInstance();
+			saxParserFactory.setNamespaceAware(true);
 		}
-		DATETIME_FORMATS = Collections.unmodifiableList(l);
 	}
 
 	/**
-	 * Loops over all the possible date formats and tries to find the right one.
+	 * Parses RFC 1123 and ISO 8601 dates directly and falls back to trying other known date formats.
 	 *
 	 * @param value ISO date string
 	 * @return Null if there is a parsing failure
@@ -117,56 +131,20 @@ public final class SardineUtil
 		{
 			return null;
 		}
-		return DateUtils.parseDate(value, SUPPORTED_DATE_FORMATS);
+		return DateParser.parse(value);
 	}
 
 	@SuppressWarnings("unchecked")
 	public static <T> T unmarshal(InputStream in) throws IOException
 	{
 		Unmarshaller unmarshaller = createUnmarshaller();
+		XMLReader reader = acquireReader();
 		try
 		{
-			XMLReader reader = XMLReaderFactory.createXMLReader();
-			try
-			{
-				reader.setFeature(
-						"http://xml.org/sax/features/external-general-entities", Boolean.FALSE);
-			}
-			catch (SAXException e)
-			{
-				; //Not all parsers will support this attribute
-			}
-			try
-			{
-				reader.setFeature(
-						"http://xml.org/sax/features/external-parameter-entities", Boolean.FALSE);
-			}
-			catch (SAXException e)
-			{
-				; //Not all parsers will support this attribute
-			}
-			try
-			{
-				reader.setFeature(
-						"http://apache.org/xml/features/nonvalidating/load-external-dtd", Boolean.FALSE);
-			}
-			catch (SAXException e)
-			{
-				; //Not all parsers will support this attribute
-			}
-			try
-			{
-				reader.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
-			}
-			catch (SAXException e)
-			{
-				; //Not all parsers will support this attribute
-			}
-			return (T) unmarshaller.unmarshal(new SAXSource(reader, new InputSource(in)));
-		}
-		catch (SAXException e)
-		{
-			throw new RuntimeException(e.getMessage(), e);
+			T result = (T) unmarshaller.unmarshal(new SAXSource(reader, new InputSource(in)));
+			// Only reuse parsers after a successful parse
+			release(readers, reader);
+			return result;
 		}
 		catch (JAXBException e)
 		{
@@ -193,8 +171,81 @@ public final class SardineUtil
 	}
 
 	/**
-	 * Creates an {@link Unmarshaller} from the {@link SardineUtil#JAXB_CONTEXT}.
-	 * Note: the unmarshaller is not thread safe, so it must be created for every request.
+	 * @return Parser from the pool or a new parser configured to not resolve external entities
+	 */
+	private static XMLReader acquireReader()
+	{
+		XMLReader reader = readers.poll();
+		if (reader != null)
+		{
+			return reader;
+		}
+		try
+		{
+			// Factory implementations are not guaranteed to be thread safe
+			synchronized (Jaxb.saxParserFactory)
+			{
+				reader = Jaxb.saxParserFactory.newSAXParser().getXMLReader();
+			}
+		}
+		catch (SAXException e)
+		{
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		catch (ParserConfigurationException e)
+		{
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		try
+		{
+			reader.setFeature(
+					"http://xml.org/sax/features/external-general-entities", Boolean.FALSE);
+		}
+		catch (SAXException e)
+		{
+			; //Not all parsers will support this attribute
+		}
+		try
+		{
+			reader.setFeature(
+					"http://xml.org/sax/features/external-parameter-entities", Boolean.FALSE);
+		}
+		catch (SAXException e)
+		{
+			; //Not all parsers will support this attribute
+		}
+		try
+		{
+			reader.setFeature(
+					"http://apache.org/xml/features/nonvalidating/load-external-dtd", Boolean.FALSE);
+		}
+		catch (SAXException e)
+		{
+			; //Not all parsers will support this attribute
+		}
+		try
+		{
+			reader.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, Boolean.TRUE);
+		}
+		catch (SAXException e)
+		{
+			; //Not all parsers will support this attribute
+		}
+		return reader;
+	}
+
+	/**
+	 * Return an instance to the pool. Dropped if the pool is full.
+	 */
+	private static <T> void release(BlockingQueue<T> pool, T instance)
+	{
+		pool.offer(instance);
+	}
+
+	/**
+	 * Creates an {@link Unmarshaller} from the shared JAXB context.
+	 * Note: the unmarshaller is not thread safe, so it must be created for every request. Unmarshallers are
+	 * not pooled because they keep a reference to the last unmarshalled document until reused.
 	 *
 	 * @return A new unmarshaller
 	 * @throws IOException When there is a JAXB error
@@ -203,7 +254,7 @@ public final class SardineUtil
 	{
 		try
 		{
-			return JAXB_CONTEXT.createUnmarshaller();
+			return Jaxb.CONTEXT.createUnmarshaller();
 		}
 		catch (JAXBException e)
 		{
@@ -212,14 +263,19 @@ public final class SardineUtil
 	}
 
 	/**
-	 * @return A new marshaller
+	 * @return Marshaller from the pool or a new marshaller
 	 * @throws IOException When there is a JAXB error
 	 */
-	private static Marshaller createMarshaller() throws IOException
+	private static Marshaller acquireMarshaller() throws IOException
 	{
+		Marshaller marshaller = marshallers.poll();
+		if (marshaller != null)
+		{
+			return marshaller;
+		}
 		try
 		{
-			return JAXB_CONTEXT.createMarshaller();
+			return Jaxb.CONTEXT.createMarshaller();
 		}
 		catch (JAXBException e)
 		{
@@ -252,18 +308,187 @@ public final class SardineUtil
 	public static String toXml(Object jaxbElement) throws IOException
 	{
 		StringWriter writer = new StringWriter();
+		Marshaller marshaller = acquireMarshaller();
 		try
 		{
-			Marshaller marshaller = createMarshaller();
 			marshaller.marshal(jaxbElement, writer);
 		}
 		catch (JAXBException e)
 		{
 			throw new RuntimeException(e.getMessage(), e);
 		}
+		release(marshallers, marshaller);
 		return writer.toString();
 	}
 
+	/**
+	 * Marshals an object from the model as a fragment to a writer that has already started the document.
+	 *
+	 * @param jaxbElement An object from the model
+	 * @param writer      Destination
+	 * @throws IOException When there is a JAXB error
+	 */
+	public static void marshal(Object jaxbElement, XMLStreamWriter writer) throws IOException
+	{
+		Marshaller marshaller = acquireMarshaller();
+		try
+		{
+			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+			marshaller.marshal(jaxbElement, writer);
+			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+		}
+		catch (JAXBException e)
+		{
+			throw new IOException(e.getMessage(), e);
+		}
+		release(marshallers, marshaller);
+	}
+
+	/**
+	 * @param out Destination for UTF-8 encoded XML. Not closed when the writer is closed.
+	 * @return New writer
+	 * @throws IOException When the writer cannot be created
+	 */
+	public static XMLStreamWriter createXmlWriter(OutputStream out) throws IOException
+	{
+		try
+		{
+			// Factory implementations are not guaranteed to be thread safe
+			synchronized (outputFactory)
+			{
+				return outputFactory.createXMLStreamWriter(out, "UTF-8");
+			}
+		}
+		catch (XMLStreamException e)
+		{
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Starts an element with the given name. Elements in the {@link #DEFAULT_NAMESPACE_URI} use the default
+	 * namespace declared by the root element of the request body. Other namespaces are declared on the element
+	 * itself with the prefix of the name.
+	 *
+	 * @param writer Destination
+	 * @param key    Fully qualified element name.
+	 */
+	public static void writeStartElement(XMLStreamWriter writer, QName key) throws XMLStreamException
+	{
+		String namespace = key.getNamespaceURI();
+		if (DEFAULT_NAMESPACE_URI.equals(namespace))
+		{
+			writer.writeStartElement(key.getLocalPart());
+		}
+		else if (namespace.isEmpty())
+		{
+			writer.writeStartElement(key.getLocalPart());
+			writer.writeDefaultNamespace(namespace);
+		}
+		else
+		{
+			String prefix = getPrefix(key);
+			writer.writeStartElement(prefix, key.getLocalPart(), namespace);
+			writer.writeNamespace(prefix, namespace);
+		}
+	}
+
+	/**
+	 * Writes an element without content.
+	 *
+	 * @param writer Destination
+	 * @param key    Fully qualified element name.
+	 * @see #writeStartElement(XMLStreamWriter, QName)
+	 */
+	public static void writeEmptyElement(XMLStreamWriter writer, QName key) throws XMLStreamException
+	{
+		String namespace = key.getNamespaceURI();
+		if (DEFAULT_NAMESPACE_URI.equals(namespace))
+		{
+			writer.writeEmptyElement(key.getLocalPart());
+		}
+		else if (namespace.isEmpty())
+		{
+			writer.writeEmptyElement(key.getLocalPart());
+			writer.writeDefaultNamespace(namespace);
+		}
+		else
+		{
+			String prefix = getPrefix(key);
+			writer.writeEmptyElement(prefix, key.getLocalPart(), namespace);
+			writer.writeNamespace(prefix, namespace);
+		}
+	}
+
+	/**
+	 * @return Prefix of the name or a generated prefix for names without
+	 */
+	private static String getPrefix(QName key)
+	{
+		return key.getPrefix().isEmpty() ? "ns1" : key.getPrefix();
+	}
+
+	/**
+	 * Writes an element including its attributes, text and child elements.
+	 *
+	 * @param writer  Destination
+	 * @param element Element to copy
+	 */
+	public static void writeElement(XMLStreamWriter writer, Element element) throws XMLStreamException
+	{
+		QName name = element.getNamespaceURI() == null ? new QName(element.getTagName()) : toQName(element);
+		if (element.hasChildNodes())
+		{
+			writeStartElement(writer, name);
+		}
+		else
+		{
+			writeEmptyElement(writer, name);
+		}
+		NamedNodeMap attributes = element.getAttributes();
+		for (int i = 0; i < attributes.getLength(); i++)
+		{
+			Attr attribute = (Attr) attributes.item(i);
+			if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI()))
+			{
+				// Declarations are written for the element names
+				continue;
+			}
+			if (attribute.getNamespaceURI() == null || attribute.getPrefix() == null)
+			{
+				writer.writeAttribute(attribute.getLocalName() == null ? attribute.getName() : attribute.getLocalName(), attribute.getValue());
+			}
+			else
+			{
+				if (!attribute.getPrefix().equals(getPrefix(name)))
+				{
+					writer.writeNamespace(attribute.getPrefix(), attribute.getNamespaceURI());
+				}
+				writer.writeAttribute(attribute.getPrefix(), attribute.getNamespaceURI(), attribute.getLocalName(), attribute.getValue());
+			}
+		}
+		if (!element.hasChildNodes())
+		{
+			return;
+		}
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			switch (child.getNodeType())
+			{
+				case Node.ELEMENT_NODE:
+					writeElement(writer, (Element) child);
+					break;
+				case Node.TEXT_NODE:
+				case Node.CDATA_SECTION_NODE:
+					writer.writeCharacters(child.getNodeValue());
+					break;
+				default:
+					break;
+			}
+		}
+		writer.writeEndElement();
+	}
+
 	/** */
 	public static Map<QName, String> toQName(Map<String, String> setProps)
 	{
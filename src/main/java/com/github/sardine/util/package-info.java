@@ -15,6 +15,6 @@
  */
 
 /**
- * Utilities to work with XML entities.
+ * Utilities to work with XML entities and to publish the results of blocking requests.
  */
 package com.github.sardine.util;
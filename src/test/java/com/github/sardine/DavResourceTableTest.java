@@ -0,0 +1,139 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+import com.github.sardine.util.MultistatusReader;
+
+/**
+ */
+public class DavResourceTableTest
+{
+	private static List<DavResource> read(int count) throws Exception
+	{
+		StringBuilder xml = new StringBuilder("<D:multistatus xmlns:D=\"DAV:\" xmlns:X=\"urn:x\">");
+		xml.append("<D:response><D:href>/dav/</D:href><D:propstat><D:prop>")
+				.append("<D:resourcetype><D:collection/></D:resourcetype>")
+				.append("<D:getlastmodified>Tue, 05 Jan 2010 00:56:36 GMT</D:getlastmodified>")
+				.append("</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>");
+		for (int i = 0; i < count; i++)
+		{
+			xml.append("<D:response><D:href>/dav/f%C3%A4le").append(i).append(".txt</D:href><D:propstat><D:prop>")
+					.append("<D:resourcetype/>")
+					.append("<D:getcontentlength>").append(i).append("</D:getcontentlength>")
+					.append("<D:getcontenttype>text/plain</D:getcontenttype>")
+					.append("<D:getetag>\"").append(i).append("\"</D:getetag>")
+					.append("<D:displayname>fäle").append(i).append("</D:displayname>")
+					.append("<D:creationdate>2011-05-24T09:06:50Z</D:creationdate>")
+					.append("<X:color>red</X:color><X:index>").append(i).append("</X:index>")
+					.append("</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>");
+		}
+		xml.append("</D:multistatus>");
+		MultistatusReader reader = new MultistatusReader(new ByteArrayInputStream(xml.toString().getBytes("UTF-8")));
+		try
+		{
+			return reader.readAll();
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testSameAsResources() throws Exception
+	{
+		List<DavResource> resources = read(100);
+		DavResourceTable table = new DavResourceTable();
+		for (DavResource resource : resources)
+		{
+			table.add(resource);
+		}
+		table.trimToSize();
+		assertEquals(resources.size(), table.size());
+		for (int i = 0; i < resources.size(); i++)
+		{
+			DavResource expected = resources.get(i);
+			DavResource actual = table.get(i);
+			assertEquals(expected.getHref(), actual.getHref());
+			assertEquals(expected.getPath(), actual.getPath());
+			assertEquals(expected.getStatusCode(), actual.getStatusCode());
+			assertEquals(expected.getCreation(), actual.getCreation());
+			assertEquals(expected.getModified(), actual.getModified());
+			assertEquals(expected.getContentType(), actual.getContentType());
+			assertEquals(expected.getContentLength(), actual.getContentLength());
+			assertEquals(expected.getEtag(), actual.getEtag());
+			assertEquals(expected.getDisplayName(), actual.getDisplayName());
+			assertEquals(expected.getLockToken(), actual.getLockToken());
+			assertEquals(expected.getResourceTypes(), actual.getResourceTypes());
+			assertEquals(expected.getSupportedReports(), actual.getSupportedReports());
+			assertEquals(expected.getCustomPropsNS(), actual.getCustomPropsNS());
+			assertEquals(expected.isDirectory(), table.isDirectory(i));
+			assertEquals(expected.getContentLength().longValue(), table.getContentLength(i));
+		}
+		assertTrue(table.isDirectory(0));
+		assertNull(table.getEtag(0));
+		assertNull(table.getCreation(0));
+		assertEquals(DavResource.DEFAULT_CONTENT_LENGTH, table.getContentLength(0));
+		assertFalse(table.isDirectory(1));
+		assertEquals("fäle0", table.getDisplayName(1));
+		assertSame(table.getContentType(1), table.getContentType(2));
+		assertSame(table.getResourceTypes(0), table.get(0).getResourceTypes());
+	}
+
+	@Test
+	public void testAddAfterTrim() throws Exception
+	{
+		List<DavResource> resources = read(3);
+		DavResourceTable table = new DavResourceTable();
+		table.trimToSize();
+		for (DavResource resource : resources)
+		{
+			table.add(resource);
+			table.trimToSize();
+		}
+		assertEquals(4, table.size());
+		assertEquals("/dav/f%C3%A4le2.txt", table.getHref(3));
+		DavResourceTable copy = DavResourceTable.of(resources);
+		assertEquals(resources.size(), copy.size());
+		assertEquals(table.getHref(3), copy.getHref(3));
+		assertEquals("2", table.getCustomPropsNS(3).get(new QName("urn:x", "index")));
+		int count = 0;
+		for (DavResource resource : table)
+		{
+			assertEquals(resources.get(count++).getName(), resource.getName());
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() throws Exception
+	{
+		new DavResourceTable().getHref(0);
+	}
+}
@@ -18,8 +18,10 @@ package com.github.sardine;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -31,6 +33,9 @@ import javax.xml.namespace.QName;
 
 import org.junit.Test;
 
+import com.github.sardine.model.Multistatus;
+import com.github.sardine.util.SardineUtil;
+
 /**
  */
 public class DavResourceTest
@@ -244,4 +249,37 @@ public class DavResourceTest
 			assertEquals("/Meine%20Anlagen", resource.getHref().getRawPath());
 		}
 	}
+
+	@Test
+	public void testFromResponse() throws Exception
+	{
+		String xml = "<D:multistatus xmlns:D=\"DAV:\" xmlns:X=\"urn:x\"><D:response>" +
+				"<D:href>/test/file.txt</D:href>" +
+				"<D:propstat><D:prop>" +
+				"<D:getcontentlength>invalid</D:getcontentlength>" +
+				"<D:getlastmodified>Tue, 05 Jan 2010 00:56:36 GMT</D:getlastmodified>" +
+				"<D:resourcetype><X:calendar/></D:resourcetype>" +
+				"<X:color>red</X:color>" +
+				"</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat>" +
+				"<D:propstat><D:prop>" +
+				"<D:getcontentlength>42</D:getcontentlength>" +
+				"<D:getcontenttype>text/plain</D:getcontenttype>" +
+				"<D:getetag>\"1\"</D:getetag>" +
+				"<X:size>large</X:size>" +
+				"</D:prop><D:status>HTTP/1.1 404 Not Found</D:status></D:propstat>" +
+				"</D:response></D:multistatus>";
+		Multistatus multistatus = SardineUtil.unmarshal(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		DavResource resource = new DavResource(multistatus.getResponse().get(0));
+		assertEquals(200, resource.getStatusCode());
+		assertEquals(Long.valueOf(42L), resource.getContentLength());
+		assertEquals("text/plain", resource.getContentType());
+		assertEquals("\"1\"", resource.getEtag());
+		assertEquals(1262652996000L, resource.getModified().getTime());
+		assertSame(resource.getModified(), resource.getModified());
+		assertEquals(null, resource.getCreation());
+		assertEquals(Collections.singletonList(new QName("urn:x", "calendar")), resource.getResourceTypes());
+		assertEquals(2, resource.getCustomPropsNS().size());
+		assertEquals("large", resource.getCustomProps().get("size"));
+		assertTrue(resource.getSupportedReports().isEmpty());
+	}
 }
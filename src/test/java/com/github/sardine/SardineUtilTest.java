@@ -17,10 +17,13 @@
 package com.github.sardine;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import org.apache.http.client.utils.DateUtils;
 import org.junit.Test;
 
 import com.github.sardine.model.Allprop;
@@ -38,6 +41,34 @@ public class SardineUtilTest
 		assertNotNull(SardineUtil.parseDate("Mon, 16 Jul 2007 13:35:49 GMT"));
 	}
 
+	@Test
+	public void testParseDateSameAsPatterns() throws Exception
+	{
+		String[] patterns = new String[]{"yyyy-MM-dd'T'HH:mm:ss'Z'", "EEE, dd MMM yyyy HH:mm:ss zzz",
+				"yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", "yyyy-MM-dd'T'HH:mm:ssZ", "EEE MMM dd HH:mm:ss zzz yyyy",
+				"EEEEEE, dd-MMM-yy HH:mm:ss zzz", "EEE MMMM d HH:mm:ss yyyy"};
+		String[] values = new String[]{"2007-07-16T13:35:49Z", "Mon, 16 Jul 2007 13:35:49 GMT",
+				"Tue, 29 Feb 2000 23:59:59 UTC", "Thu, 01 Jan 1970 00:00:00 GMT", "Wed, 31 Dec 2042 12:00:00 GMT",
+				"2011-05-24T09:06:50.353Z", "2011-05-24T09:06:50+0200", "1999-03-01T00:00:00-0130",
+				"Monday, 16-Jul-07 13:35:49 GMT", "Mon Jul 16 13:35:49 2007", "Mon Jul 16 13:35:49 CEST 2007",
+				"Mon, 16 Jul 2007 13:35:49 CEST", "Mon, 6 Jul 2007 13:35:49 GMT"};
+		for (String value : values)
+		{
+			assertEquals(value, DateUtils.parseDate(value, patterns), SardineUtil.parseDate(value));
+		}
+	}
+
+	@Test
+	public void testParseIso8601() throws Exception
+	{
+		long expected = DateUtils.parseDate("2011-05-24T09:06:50Z", new String[]{"yyyy-MM-dd'T'HH:mm:ss'Z'"}).getTime();
+		assertEquals(expected + 353, SardineUtil.parseDate("2011-05-24T09:06:50.353563Z").getTime());
+		assertEquals(expected + 500, SardineUtil.parseDate("2011-05-24T09:06:50.5Z").getTime());
+		assertEquals(expected - 2 * 3600 * 1000, SardineUtil.parseDate("2011-05-24T09:06:50+02:00").getTime());
+		assertNull(SardineUtil.parseDate("2011-05-24T09:06:50"));
+		assertNull(SardineUtil.parseDate("not a date"));
+	}
+
 	@Test
 	public void createPropfindXml() throws Exception
 	{
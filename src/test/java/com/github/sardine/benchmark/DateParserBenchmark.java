@@ -0,0 +1,76 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.utils.DateUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * {@link SardineUtil#parseDate(String)} compared to trying all patterns with {@link DateUtils} for
+ * <code>getlastmodified</code> and <code>creationdate</code> values as returned by Apache mod_dav,
+ * Subversion and a date only matched by a legacy pattern.
+ * <p>
+ * Run with <code>java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main DateParserBenchmark -prof gc</code>
+ *
+ * @see XmlCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateParserBenchmark
+{
+	private static final String[] PATTERNS = new String[]{
+			"yyyy-MM-dd'T'HH:mm:ss'Z'",
+			"EEE, dd MMM yyyy HH:mm:ss zzz",
+			"yyyy-MM-dd'T'HH:mm:ss.SSS'Z'",
+			"yyyy-MM-dd'T'HH:mm:ssZ",
+			"EEE MMM dd HH:mm:ss zzz yyyy",
+			"EEEEEE, dd-MMM-yy HH:mm:ss zzz",
+			"EEE MMMM d HH:mm:ss yyyy"};
+
+	@Param({"Tue, 05 Jan 2010 00:56:36 GMT", "2011-05-24T09:06:50Z", "2011-05-24T09:06:50.353Z", "Mon Jul 16 13:35:49 2007"})
+	public String value;
+
+	@Benchmark
+	public Date parseDate()
+	{
+		return SardineUtil.parseDate(value);
+	}
+
+	@Benchmark
+	public Date dateUtils()
+	{
+		return DateUtils.parseDate(value, PATTERNS);
+	}
+}
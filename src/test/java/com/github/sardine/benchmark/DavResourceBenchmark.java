@@ -0,0 +1,115 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.model.Multistatus;
+import com.github.sardine.model.Response;
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * Per resource cost of {@link DavResource#DavResource(Response)} for callers only reading the name and type
+ * of a resource and for callers reading all properties.
+ * <p>
+ * Run with <code>java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main DavResourceBenchmark -prof gc</code>
+ *
+ * @see XmlCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DavResourceBenchmark
+{
+	private static final byte[] RESPONSE = ("<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
+			"<D:multistatus xmlns:D=\"DAV:\">" +
+			" <D:response>" +
+			"  <D:href>/dav/file.txt</D:href>" +
+			"  <D:propstat>" +
+			"   <D:prop>" +
+			"    <D:resourcetype/>" +
+			"    <D:creationdate>2011-05-24T09:06:50Z</D:creationdate>" +
+			"    <D:getcontentlength>230</D:getcontentlength>" +
+			"    <D:getcontenttype>text/plain</D:getcontenttype>" +
+			"    <D:getetag>\"10-trunk\"</D:getetag>" +
+			"    <D:displayname>file.txt</D:displayname>" +
+			"    <D:getlastmodified>Tue, 05 Jan 2010 00:56:36 GMT</D:getlastmodified>" +
+			"    <D:lockdiscovery/>" +
+			"    <X:owner xmlns:X=\"urn:x\">jon</X:owner>" +
+			"    <X:color xmlns:X=\"urn:x\">red</X:color>" +
+			"   </D:prop>" +
+			"   <D:status>HTTP/1.1 200 OK</D:status>" +
+			"  </D:propstat>" +
+			"  <D:propstat>" +
+			"   <D:prop>" +
+			"    <X:missing xmlns:X=\"urn:x\"/>" +
+			"   </D:prop>" +
+			"   <D:status>HTTP/1.1 404 Not Found</D:status>" +
+			"  </D:propstat>" +
+			" </D:response>" +
+			"</D:multistatus>").getBytes();
+
+	private Response response;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		Multistatus multistatus = SardineUtil.unmarshal(new ByteArrayInputStream(RESPONSE));
+		response = multistatus.getResponse().get(0);
+	}
+
+	@Benchmark
+	public boolean nameAndType() throws Exception
+	{
+		DavResource resource = new DavResource(response);
+		return resource.getName() != null && resource.isDirectory();
+	}
+
+	@Benchmark
+	public void allProperties(Blackhole blackhole) throws Exception
+	{
+		DavResource resource = new DavResource(response);
+		blackhole.consume(resource.getName());
+		blackhole.consume(resource.isDirectory());
+		blackhole.consume(resource.getCreation());
+		blackhole.consume(resource.getModified());
+		blackhole.consume(resource.getContentLength());
+		blackhole.consume(resource.getEtag());
+		blackhole.consume(resource.getDisplayName());
+		blackhole.consume(resource.getLockToken());
+		blackhole.consume(resource.getResourceTypes());
+		blackhole.consume(resource.getSupportedReports());
+		blackhole.consume(resource.getCustomPropsNS());
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.impl.parser.ParallelMultistatusParser;
+import com.github.sardine.impl.parser.StaxMultistatusParser;
+
+/**
+ * Time to read all resources of a large <code>Depth: infinity</code> listing on one thread and on the common
+ * fork join pool. The speedup depends on the number of cores available.
+ * <p>
+ * Run with <code>java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main ParallelParserBenchmark</code>
+ *
+ * @see DavResourceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ParallelParserBenchmark
+{
+	@Param({"100000"})
+	public int resources;
+
+	private byte[] body;
+
+	private final StaxMultistatusParser sequential = new StaxMultistatusParser();
+
+	private final ParallelMultistatusParser parallel = new ParallelMultistatusParser(0);
+
+	@Setup
+	public void setup()
+	{
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><D:multistatus xmlns:D=\"DAV:\">");
+		for (int i = 0; i < resources; i++)
+		{
+			xml.append("<D:response><D:href>/dav/dir").append(i % 100).append("/file").append(i).append(".txt</D:href>")
+					.append("<D:propstat><D:prop><D:resourcetype/>")
+					.append("<D:getcontentlength>").append(i).append("</D:getcontentlength>")
+					.append("<D:getcontenttype>text/plain</D:getcontenttype>")
+					.append("<D:getetag>\"").append(i).append("\"</D:getetag>")
+					.append("<D:getlastmodified>Tue, 05 Jan 2010 00:56:36 GMT</D:getlastmodified>")
+					.append("</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>\n");
+		}
+		xml.append("</D:multistatus>");
+		body = xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public List<DavResource> sequential() throws IOException
+	{
+		return sequential.parseResources(new ByteArrayInputStream(body));
+	}
+
+	@Benchmark
+	public List<DavResource> parallel() throws IOException
+	{
+		return parallel.parseResources(new ByteArrayInputStream(body));
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.xml.namespace.QName;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.Sardine;
+import com.github.sardine.SardineFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Time from {@link SardineFactory#begin()} to the first completed listing in a new JVM, as seen by short
+ * lived command line tools. Every measurement runs in its own fork against a local server.
+ * <p>
+ * Run with <code>java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main StartupBenchmark</code>
+ *
+ * @see XmlCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark
+{
+	private static final byte[] RESPONSE = ("<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
+			"<D:multistatus xmlns:D=\"DAV:\">" +
+			"<D:response><D:href>/dav/</D:href><D:propstat><D:prop>" +
+			"<D:resourcetype><D:collection/></D:resourcetype>" +
+			"<D:getlastmodified>Tue, 05 Jan 2010 00:56:36 GMT</D:getlastmodified>" +
+			"</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>" +
+			"<D:response><D:href>/dav/file.txt</D:href><D:propstat><D:prop>" +
+			"<D:resourcetype/><D:getcontentlength>230</D:getcontentlength>" +
+			"<D:getlastmodified>Tue, 05 Jan 2010 00:56:36 GMT</D:getlastmodified>" +
+			"</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>" +
+			"</D:multistatus>").getBytes();
+
+	private HttpServer server;
+	private String url;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				exchange.getRequestBody().readAllBytes();
+				exchange.getResponseHeaders().add("Content-Type", "application/xml; charset=utf-8");
+				exchange.sendResponseHeaders(207, RESPONSE.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(RESPONSE);
+				out.close();
+			}
+		});
+		server.start();
+		url = "http://localhost:" + server.getAddress().getPort() + "/dav/";
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		server.stop(0);
+	}
+
+	@Benchmark
+	public Object list() throws IOException
+	{
+		Sardine sardine = SardineFactory.begin();
+		try
+		{
+			return sardine.list(url);
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Benchmark
+	public long listStream() throws IOException
+	{
+		Sardine sardine = SardineFactory.begin();
+		try (Stream<DavResource> resources = sardine.listStream(url, 1, Collections.<QName>emptySet()))
+		{
+			return resources.count();
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.impl.SardineBuilder;
+import com.github.sardine.impl.SardineImpl;
+import com.github.sardine.impl.transport.JavaNetHttpTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Latency of small PROPFIND requests sent by concurrent threads sharing one instance with each transport. The
+ * number of connections accepted by the server is printed after each trial.
+ * <p>
+ * The local server only speaks HTTP/1.1, so the JDK client falls back from HTTP/2 and opens a connection per
+ * concurrent request as well. Point <code>url</code> to an h2c or h2 server to measure multiplexing, such as with
+ * <code>-p url=http://localhost:8080/dav/file.txt</code>. The protocol negotiated by the JDK client is printed
+ * before each trial, and <code>java.net.http/1.1</code> sends the same requests without HTTP/2 for comparison.
+ * <p>
+ * Run with <code>java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main TransportBenchmark</code>
+ *
+ * @see StartupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class TransportBenchmark
+{
+	private static final byte[] RESPONSE = ("<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
+			"<D:multistatus xmlns:D=\"DAV:\">" +
+			"<D:response><D:href>/dav/file.txt</D:href><D:propstat><D:prop>" +
+			"<D:resourcetype/><D:getcontentlength>230</D:getcontentlength>" +
+			"<D:getlastmodified>Tue, 05 Jan 2010 00:56:36 GMT</D:getlastmodified>" +
+			"</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>" +
+			"</D:multistatus>").getBytes();
+
+	@Param({"httpcomponents", "java.net.http", "java.net.http/1.1"})
+	public String transport;
+
+	/**
+	 * Local server when empty
+	 */
+	@Param({""})
+	public String url;
+
+	private HttpServer server;
+
+	private ExecutorService threads;
+
+	private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+	private SardineImpl sardine;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		if (url.isEmpty())
+		{
+			server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			threads = Executors.newFixedThreadPool(16);
+			server.setExecutor(threads);
+			server.createContext("/", new HttpHandler()
+			{
+				@Override
+				public void handle(HttpExchange exchange) throws IOException
+				{
+					connections.add(exchange.getRemoteAddress());
+					exchange.getRequestBody().readAllBytes();
+					exchange.getResponseHeaders().add("Content-Type", "application/xml; charset=utf-8");
+					exchange.sendResponseHeaders(207, RESPONSE.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(RESPONSE);
+					out.close();
+				}
+			});
+			server.start();
+			url = "http://localhost:" + server.getAddress().getPort() + "/dav/file.txt";
+		}
+		if (transport.startsWith("java.net.http"))
+		{
+			HttpClient client = HttpClient.newBuilder()
+					.version(transport.endsWith("/1.1") ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2)
+					.build();
+			System.out.println("Protocol: " + protocol(client));
+			sardine = new SardineImpl(new JavaNetHttpTransport(client));
+		}
+		else
+		{
+			sardine = new SardineBuilder().threadSafe(true).maxConnectionsPerRoute(16).build();
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		sardine.shutdown();
+		if (server != null)
+		{
+			System.out.println("Connections: " + connections.size());
+			server.stop(0);
+			threads.shutdown();
+			url = "";
+		}
+	}
+
+	/**
+	 * @return Version of a probe request to the server
+	 */
+	private HttpClient.Version protocol(HttpClient client) throws IOException
+	{
+		try
+		{
+			return client.send(HttpRequest.newBuilder(URI.create(url))
+					.method("PROPFIND", HttpRequest.BodyPublishers.noBody())
+					.header("Depth", "0")
+					.build(), HttpResponse.BodyHandlers.discarding()).version();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	@Benchmark
+	public List<DavResource> propfind() throws IOException
+	{
+		return sardine.list(url, 0);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.sax.SAXSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+import com.github.sardine.model.Allprop;
+import com.github.sardine.model.ObjectFactory;
+import com.github.sardine.model.Propfind;
+import com.github.sardine.util.SardineUtil;
+
+import jakarta.xml.bind.JAXBContext;
+
+/**
+ * Per call cost of {@link SardineUtil#unmarshal(java.io.InputStream)} and {@link SardineUtil#toXml(Object)} with
+ * pooled parsers and marshallers compared to creating them for every call.
+ * <p>
+ * Run with <code>mvn test-compile</code> and
+ * <code>java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main XmlCodecBenchmark</code>
+ * where <code>cp.txt</code> is written by <code>mvn dependency:build-classpath -Dmdep.outputFile=cp.txt</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlCodecBenchmark
+{
+	private static final byte[] RESPONSE = ("<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
+			"<D:multistatus xmlns:D=\"DAV:\">" +
+			" <D:response>" +
+			"  <D:href>/dav/file.txt</D:href>" +
+			"  <D:propstat>" +
+			"   <D:prop>" +
+			"    <D:resourcetype/>" +
+			"    <D:getcontentlength>230</D:getcontentlength>" +
+			"    <D:getcontenttype>text/plain</D:getcontenttype>" +
+			"    <D:getetag>\"10-trunk\"</D:getetag>" +
+			"    <D:getlastmodified>Tue, 05 Jan 2010 00:56:36 GMT</D:getlastmodified>" +
+			"   </D:prop>" +
+			"   <D:status>HTTP/1.1 200 OK</D:status>" +
+			"  </D:propstat>" +
+			" </D:response>" +
+			"</D:multistatus>").getBytes();
+
+	private JAXBContext context;
+	private Propfind propfind;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		context = JAXBContext.newInstance(ObjectFactory.class.getPackage().getName(), SardineUtil.class.getClassLoader());
+		propfind = new Propfind();
+		propfind.setAllprop(new Allprop());
+	}
+
+	@Benchmark
+	public Object unmarshalPooled() throws Exception
+	{
+		return SardineUtil.unmarshal(new ByteArrayInputStream(RESPONSE));
+	}
+
+	@Benchmark
+	@SuppressWarnings("deprecation")
+	public Object unmarshalUnpooled() throws Exception
+	{
+		XMLReader reader = XMLReaderFactory.createXMLReader();
+		reader.setFeature("http://xml.org/sax/features/external-general-entities", false);
+		reader.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+		reader.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+		reader.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		return context.createUnmarshaller().unmarshal(new SAXSource(reader, new InputSource(new ByteArrayInputStream(RESPONSE))));
+	}
+
+	@Benchmark
+	public String marshalPooled() throws Exception
+	{
+		return SardineUtil.toXml(propfind);
+	}
+
+	@Benchmark
+	public String marshalUnpooled() throws Exception
+	{
+		StringWriter writer = new StringWriter();
+		context.createMarshaller().marshal(propfind, writer);
+		return writer.toString();
+	}
+}
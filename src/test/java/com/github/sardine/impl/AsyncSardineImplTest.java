@@ -0,0 +1,291 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.DavResource;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Non-blocking requests against a local server.
+ */
+public class AsyncSardineImplTest
+{
+	private static final String MULTISTATUS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<D:multistatus xmlns:D=\"DAV:\">"
+			+ "<D:response><D:href>/dav/</D:href><D:propstat><D:prop><D:resourcetype><D:collection/></D:resourcetype></D:prop>"
+			+ "<D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>"
+			+ "<D:response><D:href>/dav/file.txt</D:href><D:propstat><D:prop><D:resourcetype/><D:getcontentlength>7</D:getcontentlength></D:prop>"
+			+ "<D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>"
+			+ "</D:multistatus>";
+
+	private HttpServer server;
+
+	private ExecutorService threads;
+
+	private String url;
+
+	private final Map<String, byte[]> files = new ConcurrentHashMap<String, byte[]>();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final CountDownLatch aborted = new CountDownLatch(1);
+
+	/**
+	 * Requests to /barrier wait for each other
+	 */
+	private final CountDownLatch barrier = new CountDownLatch(8);
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		threads = Executors.newCachedThreadPool();
+		server.setExecutor(threads);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				String path = exchange.getRequestURI().getPath();
+				String method = exchange.getRequestMethod();
+				byte[] body = new byte[0];
+				int status;
+				if ("/slow".equals(path))
+				{
+					try
+					{
+						release.await(10, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+					try
+					{
+						exchange.sendResponseHeaders(200, 0);
+						OutputStream out = exchange.getResponseBody();
+						for (int i = 0; i < 1024; i++)
+						{
+							out.write(new byte[8192]);
+							out.flush();
+						}
+						out.close();
+					}
+					catch (IOException e)
+					{
+						aborted.countDown();
+					}
+					return;
+				}
+				else if ("/barrier".equals(path))
+				{
+					barrier.countDown();
+					try
+					{
+						status = barrier.await(5, TimeUnit.SECONDS) ? 200 : 503;
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						status = 503;
+					}
+					body = "passed".getBytes(StandardCharsets.UTF_8);
+				}
+				else if ("PROPFIND".equals(method))
+				{
+					status = 207;
+					body = MULTISTATUS.getBytes(StandardCharsets.UTF_8);
+					exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=utf-8");
+				}
+				else if ("PUT".equals(method))
+				{
+					files.put(path, exchange.getRequestBody().readAllBytes());
+					status = 201;
+				}
+				else if (files.containsKey(path))
+				{
+					status = 200;
+					body = files.get(path);
+				}
+				else
+				{
+					status = 404;
+					body = "missing".getBytes(StandardCharsets.UTF_8);
+				}
+				if ("HEAD".equals(method))
+				{
+					// The server does not reliably keep the connection open after HEAD
+					exchange.getResponseHeaders().set("Connection", "close");
+					exchange.sendResponseHeaders(status, -1);
+					exchange.close();
+				}
+				else
+				{
+					exchange.sendResponseHeaders(status, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				}
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void stop()
+	{
+		release.countDown();
+		server.stop(0);
+		threads.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentRequests() throws Exception
+	{
+		AsyncSardineImpl sardine = new AsyncSardineImpl();
+		try
+		{
+			List<CompletableFuture<Void>> puts = new ArrayList<CompletableFuture<Void>>();
+			for (int i = 0; i < 10; i++)
+			{
+				puts.add(sardine.put(url + "/dav/" + i + ".txt", ("content" + i).getBytes(StandardCharsets.UTF_8)));
+			}
+			CompletableFuture.allOf(puts.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+			CompletableFuture<List<DavResource>> list = sardine.list(url + "/dav/");
+			List<CompletableFuture<byte[]>> gets = new ArrayList<CompletableFuture<byte[]>>();
+			for (int i = 0; i < 10; i++)
+			{
+				gets.add(sardine.get(url + "/dav/" + i + ".txt").thenApply(in ->
+				{
+					try
+					{
+						return in.readAllBytes();
+					}
+					catch (IOException e)
+					{
+						throw new RuntimeException(e);
+					}
+				}));
+			}
+			for (int i = 0; i < 10; i++)
+			{
+				assertArrayEquals(("content" + i).getBytes(StandardCharsets.UTF_8), gets.get(i).get(10, TimeUnit.SECONDS));
+			}
+			List<DavResource> resources = list.get(10, TimeUnit.SECONDS);
+			assertEquals(2, resources.size());
+			assertTrue(resources.get(0).isDirectory());
+			assertEquals(Long.valueOf(7), resources.get(1).getContentLength());
+			assertTrue(sardine.exists(url + "/dav/0.txt").get(10, TimeUnit.SECONDS));
+			assertFalse(sardine.exists(url + "/dav/none.txt").get(10, TimeUnit.SECONDS));
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testConnectionsPerHost() throws Exception
+	{
+		AsyncSardineImpl sardine = new AsyncSardineImpl();
+		try
+		{
+			List<CompletableFuture<InputStream>> gets = new ArrayList<CompletableFuture<InputStream>>();
+			for (int i = 0; i < 8; i++)
+			{
+				gets.add(sardine.get(url + "/barrier"));
+			}
+			for (CompletableFuture<InputStream> get : gets)
+			{
+				assertArrayEquals("passed".getBytes(StandardCharsets.UTF_8), get.get(10, TimeUnit.SECONDS).readAllBytes());
+			}
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailure() throws Exception
+	{
+		AsyncSardineImpl sardine = new AsyncSardineImpl();
+		try
+		{
+			sardine.get(url + "/none.txt").get(10, TimeUnit.SECONDS);
+			fail("Expected failure");
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof SardineException);
+			assertEquals(404, ((SardineException) e.getCause()).getStatusCode());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception
+	{
+		AsyncSardineImpl sardine = new AsyncSardineImpl();
+		try
+		{
+			CompletableFuture<InputStream> slow = sardine.get(url + "/slow");
+			Thread.sleep(200);
+			assertTrue(slow.cancel(true));
+			assertTrue(slow.isCancelled());
+			release.countDown();
+			assertTrue("Connection closed by cancel", aborted.await(10, TimeUnit.SECONDS));
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+}
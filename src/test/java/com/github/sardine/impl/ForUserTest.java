@@ -0,0 +1,203 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.http.auth.AuthScope;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Views for several identities sharing one client.
+ */
+public class ForUserTest
+{
+	private HttpServer server;
+
+	private String url;
+
+	private volatile String acceptEncoding;
+
+	private volatile String cookie;
+
+	private volatile int port;
+
+	private final Set<Integer> ports = new HashSet<Integer>();
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				cookie = exchange.getRequestHeaders().getFirst("Cookie");
+				port = exchange.getRemoteAddress().getPort();
+				synchronized (ports)
+				{
+					ports.add(exchange.getRemoteAddress().getPort());
+				}
+				String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+				byte[] body;
+				if (authorization == null)
+				{
+					exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"test\"");
+					body = "unauthorized".getBytes(StandardCharsets.UTF_8);
+					exchange.sendResponseHeaders(401, body.length);
+				}
+				else
+				{
+					String user = new String(Base64.getDecoder().decode(authorization.substring("Basic ".length())), StandardCharsets.UTF_8);
+					body = user.substring(0, user.indexOf(':')).getBytes(StandardCharsets.UTF_8);
+					exchange.getResponseHeaders().set("Set-Cookie", "session=" + user.substring(0, user.indexOf(':')));
+					exchange.sendResponseHeaders(200, body.length);
+				}
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file.txt";
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	private String get(SardineImpl sardine) throws IOException
+	{
+		InputStream in = sardine.get(url);
+		try
+		{
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	@Test
+	public void testIdentities() throws Exception
+	{
+		SardineImpl sardine = new SardineBuilder().threadSafe(true).build();
+		try
+		{
+			SardineImpl alice = sardine.forUser("alice", "secret");
+			SardineImpl bob = sardine.forUser("bob", "secret");
+			for (int i = 0; i < 3; i++)
+			{
+				assertEquals("alice", get(alice));
+				assertEquals("bob", get(bob));
+			}
+			alice.enablePreemptiveAuthentication("127.0.0.1");
+			assertEquals("alice", get(alice));
+			assertEquals("bob", get(bob));
+			bob.setCredentials("carol", "secret");
+			assertEquals("carol", get(bob));
+			alice.shutdown();
+			assertEquals("alice", get(alice));
+			assertEquals("Connections shared by identities", 1, ports.size());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testIsolatedIdentities() throws Exception
+	{
+		// Binds connections to the identity like connection based authentication schemes
+		HttpClientBuilder builder = HttpClients.custom().setUserTokenHandler(context ->
+				HttpClientContext.adapt(context).getCredentialsProvider().getCredentials(AuthScope.ANY).getUserPrincipal().getName());
+		SardineImpl sardine = new SardineImpl(builder, "alice", "secret");
+		try
+		{
+			assertEquals("alice", get(sardine));
+			assertEquals("alice", get(sardine));
+			int alicePort = port;
+			assertEquals("session=alice", cookie);
+			SardineImpl bob = sardine.forUser("bob", "secret");
+			assertEquals("bob", get(bob));
+			assertNull("Cookies of another identity", cookie);
+			assertNotEquals("Connection of another identity", alicePort, port);
+			assertEquals("bob", get(bob));
+			assertEquals("session=bob", cookie);
+			int bobPort = port;
+			assertEquals("alice", get(sardine));
+			assertEquals(alicePort, port);
+			assertEquals("session=alice", cookie);
+			assertEquals("bob", get(bob));
+			assertEquals(bobPort, port);
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testInheritedSettings() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl();
+		try
+		{
+			SardineImpl alice = sardine.forUser("alice", "secret");
+			sardine.disableCompression();
+			assertEquals("alice", get(alice));
+			assertNull(acceptEncoding);
+			alice.enableCompression();
+			assertEquals("alice", get(alice));
+			assertTrue(acceptEncoding.contains("gzip"));
+			SardineImpl bob = sardine.forUser("bob", "secret");
+			assertEquals("bob", get(bob));
+			assertNull(acceptEncoding);
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+}
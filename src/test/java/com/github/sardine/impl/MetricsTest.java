@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.entity.InputStreamEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.impl.metrics.SardineMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Requests recorded by {@link SardineMetrics}.
+ */
+public class MetricsTest
+{
+	private static final String MULTISTATUS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<D:multistatus xmlns:D=\"DAV:\"><D:response><D:href>/dav/</D:href><D:propstat><D:prop>"
+			+ "<D:resourcetype><D:collection/></D:resourcetype></D:prop><D:status>HTTP/1.1 200 OK</D:status>"
+			+ "</D:propstat></D:response></D:multistatus>";
+
+	private HttpServer server;
+
+	private String url;
+
+	private final List<String> records = Collections.synchronizedList(new ArrayList<String>());
+
+	private final SardineMetrics metrics = new SardineMetrics()
+	{
+		@Override
+		public void record(String method, String host, int status, long nanos, long requestBytes, long responseBytes)
+		{
+			assertTrue(nanos > 0);
+			records.add(method + " " + host + " " + status + " " + requestBytes + " " + responseBytes);
+		}
+	};
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				exchange.getRequestBody().readAllBytes();
+				String path = exchange.getRequestURI().getPath();
+				byte[] body;
+				int status = 200;
+				if (exchange.getRequestMethod().equals("PROPFIND"))
+				{
+					body = MULTISTATUS.getBytes(StandardCharsets.UTF_8);
+					status = 207;
+				}
+				else if (exchange.getRequestMethod().equals("PUT"))
+				{
+					body = new byte[0];
+					status = 201;
+				}
+				else if (path.equals("/missing"))
+				{
+					body = "not found".getBytes(StandardCharsets.UTF_8);
+					status = 404;
+				}
+				else
+				{
+					body = new byte[path.equals("/large") ? 1024 * 1024 : 100];
+				}
+				exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+				OutputStream out = exchange.getResponseBody();
+				try
+				{
+					out.write(body);
+					out.close();
+				}
+				catch (IOException e)
+				{
+					// Aborted by client
+				}
+				exchange.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	@Test
+	public void testRequests() throws Exception
+	{
+		String host = "127.0.0.1:" + server.getAddress().getPort();
+		SardineImpl sardine = new SardineBuilder().metrics(metrics).build();
+		try
+		{
+			InputStream in = sardine.get(url + "small");
+			assertEquals(0, records.size());
+			in.readAllBytes();
+			in.close();
+			assertEquals("GET " + host + " 200 -1 100", records.get(0));
+
+			assertEquals(1, sardine.list(url).size());
+			assertTrue(records.get(1), records.get(1).startsWith("PROPFIND " + host + " 207 "));
+			assertTrue(records.get(1), records.get(1).endsWith(" " + MULTISTATUS.length()));
+
+			sardine.put(url + "file", new InputStreamEntity(new ByteArrayInputStream(new byte[42])),
+					Collections.emptyList());
+			assertEquals("PUT " + host + " 201 42 0", records.get(2));
+
+			try
+			{
+				sardine.get(url + "missing");
+				fail("Expected not found");
+			}
+			catch (SardineException e)
+			{
+				assertEquals(404, e.getStatusCode());
+			}
+			assertEquals("GET " + host + " 404 -1 0", records.get(3));
+
+			in = sardine.get(url + "large");
+			in.read(new byte[10]);
+			in.close();
+			assertEquals("GET " + host + " 200 -1 10", records.get(4));
+
+			sardine.setMetrics(null);
+			assertTrue(sardine.exists(url + "small"));
+			assertEquals(5, records.size());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.impl.transport.JavaNetHttpTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Publishers of listings and downloads reading from the connection on demand.
+ */
+public class PublisherTest
+{
+	private static final int SIZE = 8 * 1024 * 1024;
+
+	private HttpServer server;
+
+	private String url;
+
+	private final AtomicLong written = new AtomicLong();
+
+	/**
+	 * Releases stalled responses
+	 */
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				exchange.getRequestBody().readAllBytes();
+				if (exchange.getRequestURI().getPath().startsWith("/stalled"))
+				{
+					stall(exchange);
+					return;
+				}
+				if ("PROPFIND".equals(exchange.getRequestMethod()))
+				{
+					StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><D:multistatus xmlns:D=\"DAV:\">");
+					for (int i = 0; i < 100; i++)
+					{
+						xml.append("<D:response><D:href>/dav/file").append(i).append(".txt</D:href><D:propstat><D:prop>")
+								.append("<D:resourcetype/></D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>");
+					}
+					xml.append("</D:multistatus>");
+					byte[] body = xml.toString().getBytes(StandardCharsets.UTF_8);
+					exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=utf-8");
+					exchange.sendResponseHeaders(207, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+					return;
+				}
+				exchange.sendResponseHeaders(200, SIZE);
+				OutputStream out = exchange.getResponseBody();
+				try
+				{
+					byte[] chunk = new byte[8192];
+					for (int i = 0; i < SIZE / chunk.length; i++)
+					{
+						out.write(chunk);
+						written.addAndGet(chunk.length);
+					}
+					out.close();
+				}
+				catch (IOException e)
+				{
+					// Aborted by the client
+				}
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void stop()
+	{
+		release.countDown();
+		server.stop(0);
+	}
+
+	/**
+	 * Sends the headers and the start of the body unless the path ends with headers, then waits for the end of
+	 * the test.
+	 */
+	private void stall(HttpExchange exchange) throws IOException
+	{
+		try
+		{
+			if (!exchange.getRequestURI().getPath().endsWith("headers"))
+			{
+				exchange.sendResponseHeaders(200, SIZE);
+				exchange.getResponseBody().write(new byte[100]);
+				exchange.getResponseBody().flush();
+			}
+			release.await();
+			exchange.close();
+		}
+		catch (InterruptedException | IOException e)
+		{
+			// Aborted by the client
+		}
+	}
+
+	private static class Recorder<T> implements Flow.Subscriber<T>
+	{
+		final List<T> items = new CopyOnWriteArrayList<T>();
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile Flow.Subscription subscription;
+		volatile Throwable error;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription)
+		{
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(T item)
+		{
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable)
+		{
+			error = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete()
+		{
+			done.countDown();
+		}
+	}
+
+	@Test
+	public void testListPublisher() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl();
+		try
+		{
+			Recorder<DavResource> recorder = new Recorder<DavResource>();
+			sardine.listPublisher(url + "/dav/", 1, Collections.<QName>emptySet()).subscribe(recorder);
+			for (int i = 0; i < 100; i++)
+			{
+				recorder.subscription.request(1);
+			}
+			assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+			assertEquals(null, recorder.error);
+			assertEquals(100, recorder.items.size());
+			assertEquals("file99.txt", recorder.items.get(99).getName());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testGetPublisher() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl();
+		try
+		{
+			Recorder<ByteBuffer> recorder = new Recorder<ByteBuffer>();
+			sardine.getPublisher(url + "/file.bin").subscribe(recorder);
+			recorder.subscription.request(Long.MAX_VALUE);
+			assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			for (ByteBuffer buffer : recorder.items)
+			{
+				content.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			}
+			assertEquals(SIZE, content.size());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testBackpressureAndCancel() throws Exception
+	{
+		SardineImpl sardine = new SardineBuilder()
+				.maxConnectionsPerRoute(1)
+				.connectionRequestTimeout(5, TimeUnit.SECONDS)
+				.build();
+		try
+		{
+			Recorder<ByteBuffer> recorder = new Recorder<ByteBuffer>();
+			sardine.getPublisher(url + "/file.bin").subscribe(recorder);
+			recorder.subscription.request(2);
+			Thread.sleep(500);
+			assertEquals(2, recorder.items.size());
+			assertTrue("Server blocked by the socket buffers: " + written.get(), written.get() < SIZE);
+			recorder.subscription.cancel();
+
+			// The only connection is available again
+			Recorder<DavResource> listing = new Recorder<DavResource>();
+			sardine.listPublisher(url + "/dav/", 1, Collections.<QName>emptySet()).subscribe(listing);
+			listing.subscription.request(Long.MAX_VALUE);
+			assertTrue(listing.done.await(10, TimeUnit.SECONDS));
+			assertEquals(null, listing.error);
+			assertEquals(100, listing.items.size());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testCancelStalled() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl();
+		try
+		{
+			assertCancelled(sardine, "/stalled", true);
+			assertCancelled(sardine, "/stalled-headers", false);
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testCancelStalledJavaNetHttp() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl(new JavaNetHttpTransport());
+		try
+		{
+			assertCancelled(sardine, "/stalled", true);
+			assertCancelled(sardine, "/stalled-headers", false);
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	/**
+	 * Cancels a download while the publisher waits for the server.
+	 */
+	private void assertCancelled(SardineImpl sardine, String path, boolean content) throws Exception
+	{
+		final CountDownLatch drained = new CountDownLatch(1);
+		sardine.setPublisherExecutor(task -> new Thread(() -> {
+			task.run();
+			drained.countDown();
+		}).start());
+		Recorder<ByteBuffer> recorder = new Recorder<ByteBuffer>();
+		sardine.getPublisher(url + path).subscribe(recorder);
+		recorder.subscription.request(Long.MAX_VALUE);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (content && recorder.items.isEmpty() && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		Thread.sleep(200);
+		assertEquals(1, drained.getCount());
+		recorder.subscription.cancel();
+		assertTrue("Blocked read unblocked", drained.await(5, TimeUnit.SECONDS));
+		assertEquals(null, recorder.error);
+	}
+
+	@Test
+	public void testFailure() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl();
+		try
+		{
+			Recorder<ByteBuffer> recorder = new Recorder<ByteBuffer>();
+			sardine.getPublisher("http://127.0.0.1:1/file.bin").subscribe(recorder);
+			recorder.subscription.request(1);
+			assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+			assertTrue(recorder.error instanceof IOException);
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Bounded concurrency on virtual or platform threads.
+ */
+public class RequestExecutorTest
+{
+	private static List<Callable<Integer>> tasks(int count, final AtomicInteger running, final AtomicInteger max)
+	{
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < count; i++)
+		{
+			final int index = i;
+			tasks.add(new Callable<Integer>()
+			{
+				@Override
+				public Integer call() throws Exception
+				{
+					max.accumulateAndGet(running.incrementAndGet(), Math::max);
+					Thread.sleep(5);
+					running.decrementAndGet();
+					return index;
+				}
+			});
+		}
+		return tasks;
+	}
+
+	@Test
+	public void testBoundedConcurrency() throws Exception
+	{
+		for (RequestExecutor executor : new RequestExecutor[]{RequestExecutor.create(4), RequestExecutor.platform(4)})
+		{
+			try
+			{
+				AtomicInteger max = new AtomicInteger();
+				List<Integer> results = executor.invokeAll(tasks(50, new AtomicInteger(), max));
+				assertEquals(50, results.size());
+				for (int i = 0; i < results.size(); i++)
+				{
+					assertEquals(i, results.get(i).intValue());
+				}
+				assertTrue("At most 4 in flight: " + max, max.get() <= 4);
+				assertTrue(max.get() > 1);
+			}
+			finally
+			{
+				executor.close();
+			}
+		}
+	}
+
+	@Test
+	public void testVirtualWhenAvailable() throws Exception
+	{
+		RequestExecutor executor = RequestExecutor.create(8);
+		try
+		{
+			assertEquals(RequestExecutor.isVirtualThreadsAvailable() && Runtime.version().feature() >= 21, executor.isVirtual());
+			assertEquals(8, executor.getConcurrency());
+			assertFalse(RequestExecutor.platform(8).isVirtual());
+		}
+		finally
+		{
+			executor.close();
+		}
+	}
+
+	@Test
+	public void testSequential() throws Exception
+	{
+		final Thread caller = Thread.currentThread();
+		RequestExecutor executor = RequestExecutor.create(1);
+		List<Callable<Thread>> tasks = new ArrayList<Callable<Thread>>();
+		for (int i = 0; i < 3; i++)
+		{
+			tasks.add(Thread::currentThread);
+		}
+		for (Thread thread : executor.invokeAll(tasks))
+		{
+			assertSame(caller, thread);
+		}
+		executor.close();
+	}
+
+	@Test
+	public void testFailure() throws Exception
+	{
+		RequestExecutor executor = RequestExecutor.create(2);
+		try
+		{
+			List<Callable<Integer>> tasks = tasks(5, new AtomicInteger(), new AtomicInteger());
+			tasks.add(2, () ->
+			{
+				throw new IOException("failed");
+			});
+			executor.invokeAll(tasks);
+			fail("Expected failure");
+		}
+		catch (IOException e)
+		{
+			assertEquals("failed", e.getMessage());
+		}
+		finally
+		{
+			executor.close();
+		}
+	}
+
+	@Test
+	public void testSequentialFailure() throws Exception
+	{
+		RequestExecutor executor = RequestExecutor.create(1);
+		final List<Integer> run = new ArrayList<Integer>();
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < 5; i++)
+		{
+			final int index = i;
+			tasks.add(() ->
+			{
+				if (index == 2)
+				{
+					throw new IOException("failed");
+				}
+				run.add(index);
+				return index;
+			});
+		}
+		try
+		{
+			executor.invokeAll(tasks);
+			fail("Expected failure");
+		}
+		catch (IOException e)
+		{
+			assertEquals("failed", e.getMessage());
+		}
+		finally
+		{
+			executor.close();
+		}
+		assertEquals("Later tasks not run", Arrays.asList(0, 1), run);
+	}
+
+	@Test
+	public void testFailureStopsSubmitting() throws Exception
+	{
+		RequestExecutor executor = RequestExecutor.create(2);
+		final AtomicInteger started = new AtomicInteger();
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		tasks.add(() ->
+		{
+			throw new IOException("failed");
+		});
+		for (int i = 0; i < 50; i++)
+		{
+			final int index = i;
+			tasks.add(() ->
+			{
+				started.incrementAndGet();
+				Thread.sleep(20);
+				return index;
+			});
+		}
+		try
+		{
+			executor.invokeAll(tasks);
+			fail("Expected failure");
+		}
+		catch (IOException e)
+		{
+			assertEquals("failed", e.getMessage());
+		}
+		finally
+		{
+			executor.close();
+		}
+		assertTrue("Stopped after the failure: " + started, started.get() < 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidConcurrency() throws Exception
+	{
+		RequestExecutor.create(0);
+	}
+}
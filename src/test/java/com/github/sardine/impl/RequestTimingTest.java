@@ -0,0 +1,163 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.impl.metrics.RequestTiming;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Phases of requests reported by {@link RequestTiming}.
+ */
+public class RequestTimingTest
+{
+	private static final long DELAY = 50;
+
+	private static final String MULTISTATUS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<D:multistatus xmlns:D=\"DAV:\"><D:response><D:href>/dav/</D:href><D:propstat><D:prop>"
+			+ "<D:resourcetype><D:collection/></D:resourcetype></D:prop><D:status>HTTP/1.1 200 OK</D:status>"
+			+ "</D:propstat></D:response></D:multistatus>";
+
+	private HttpServer server;
+
+	private String url;
+
+	private final List<RequestTiming> timings = Collections.synchronizedList(new ArrayList<RequestTiming>());
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				exchange.getRequestBody().readAllBytes();
+				try
+				{
+					if (exchange.getRequestMethod().equals("PROPFIND"))
+					{
+						// Server think time
+						Thread.sleep(DELAY);
+						byte[] body = MULTISTATUS.getBytes(StandardCharsets.UTF_8);
+						exchange.sendResponseHeaders(207, body.length);
+						OutputStream out = exchange.getResponseBody();
+						out.write(body);
+						out.close();
+					}
+					else
+					{
+						exchange.sendResponseHeaders(200, 200);
+						OutputStream out = exchange.getResponseBody();
+						out.write(new byte[100]);
+						out.flush();
+						// Slow body
+						Thread.sleep(DELAY);
+						out.write(new byte[100]);
+						out.close();
+					}
+				}
+				catch (InterruptedException e)
+				{
+					throw new IOException(e);
+				}
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/dav/";
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	private static long millis(long nanos)
+	{
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	@Test
+	public void testPhases() throws Exception
+	{
+		SardineImpl sardine = new SardineBuilder().requestTiming(timings::add).build();
+		try
+		{
+			assertNull(sardine.getLastRequestTiming());
+			assertEquals(1, sardine.list(url).size());
+			assertEquals(1, timings.size());
+			RequestTiming propfind = timings.get(0);
+			assertSame(propfind, sardine.getLastRequestTiming());
+			assertEquals("PROPFIND", propfind.getMethod());
+			assertEquals(207, propfind.getStatus());
+			assertTrue(propfind.toString(), propfind.getLeaseNanos() >= 0);
+			assertTrue(propfind.toString(), propfind.getConnectNanos() > 0);
+			assertEquals(0, propfind.getTlsNanos());
+			assertTrue(propfind.toString(), propfind.getSendNanos() >= 0);
+			assertTrue(propfind.toString(), millis(propfind.getWaitNanos()) >= DELAY - 10);
+			assertTrue(propfind.toString(), propfind.getParseNanos() > 0);
+			assertTrue(propfind.toString(), propfind.getTotalNanos() >= propfind.getLeaseNanos()
+					+ propfind.getConnectNanos() + propfind.getSendNanos() + propfind.getWaitNanos()
+					+ propfind.getTransferNanos() + propfind.getParseNanos());
+
+			InputStream in = sardine.get(url + "file");
+			assertEquals(1, timings.size());
+			assertEquals(200, in.readAllBytes().length);
+			in.close();
+			assertEquals(2, timings.size());
+			RequestTiming get = sardine.getLastRequestTiming();
+			assertEquals("GET", get.getMethod());
+			assertEquals("Pooled connection", 0, get.getConnectNanos());
+			assertTrue(get.toString(), get.getTransferNanos() > get.getWaitNanos());
+			assertTrue(get.toString(), millis(get.getTotalNanos()) >= DELAY - 10);
+			assertTrue(get.toString(), millis(get.getWaitNanos()) < DELAY);
+			assertEquals(0, get.getParseNanos());
+
+			sardine.setRequestTimingListener(null);
+			assertNull(sardine.getLastRequestTiming());
+			sardine.list(url);
+			assertEquals(2, timings.size());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+}
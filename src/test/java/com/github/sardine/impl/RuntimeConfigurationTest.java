@@ -0,0 +1,148 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runtime configuration applied to the existing client.
+ */
+public class RuntimeConfigurationTest
+{
+	private HttpServer server;
+
+	private String url;
+
+	private volatile String acceptEncoding;
+
+	private final Set<Integer> ports = new HashSet<Integer>();
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				synchronized (ports)
+				{
+					ports.add(exchange.getRemoteAddress().getPort());
+				}
+				byte[] body = "content".getBytes(StandardCharsets.UTF_8);
+				if (acceptEncoding != null && acceptEncoding.contains("gzip"))
+				{
+					ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+					GZIPOutputStream out = new GZIPOutputStream(gzip);
+					out.write(body);
+					out.close();
+					body = gzip.toByteArray();
+					exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				}
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file.txt";
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	private String get(SardineImpl sardine) throws IOException
+	{
+		InputStream in = sardine.get(url);
+		try
+		{
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	@Test
+	public void testToggleCompression() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl();
+		try
+		{
+			assertEquals("content", get(sardine));
+			assertEquals("gzip,deflate", acceptEncoding);
+			sardine.disableCompression();
+			assertEquals("content", get(sardine));
+			assertNull(acceptEncoding);
+			sardine.enableCompression();
+			assertEquals("content", get(sardine));
+			assertEquals("gzip,deflate", acceptEncoding);
+			sardine.ignoreCookies();
+			assertEquals("content", get(sardine));
+			assertEquals("Pooled connection kept", 1, ports.size());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testEnableCompressionDisabledInClient() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl(HttpClients.custom().disableContentCompression());
+		try
+		{
+			assertEquals("content", get(sardine));
+			assertNull(acceptEncoding);
+			sardine.enableCompression();
+			assertEquals("content", get(sardine));
+			assertEquals("gzip,deflate", acceptEncoding);
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.Test;
+
+import com.github.sardine.SardineFactory;
+import com.github.sardine.impl.parser.MultistatusParser;
+import com.github.sardine.impl.parser.StaxMultistatusParser;
+
+/**
+ */
+public class SardineBuilderTest
+{
+	@Test
+	public void testConnectionManager() throws Exception
+	{
+		SardineBuilder builder = SardineFactory.builder()
+				.maxConnectionsPerRoute(50)
+				.maxConnectionsTotal(200)
+				.validateAfterInactivity(1, TimeUnit.SECONDS)
+				.receiveBufferSize(65536)
+				.sendBufferSize(32768)
+				.tcpNoDelay(false)
+				.socketTimeout(30, TimeUnit.SECONDS);
+		PoolingHttpClientConnectionManager cm = builder.createConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory()).build());
+		try
+		{
+			assertEquals(50, cm.getDefaultMaxPerRoute());
+			assertEquals(200, cm.getMaxTotal());
+			assertEquals(1000, cm.getValidateAfterInactivity());
+			SocketConfig socket = cm.getDefaultSocketConfig();
+			assertEquals(65536, socket.getRcvBufSize());
+			assertEquals(32768, socket.getSndBufSize());
+			assertFalse(socket.isTcpNoDelay());
+			assertEquals(30000, socket.getSoTimeout());
+		}
+		finally
+		{
+			cm.close();
+		}
+	}
+
+	@Test
+	public void testDefaults() throws Exception
+	{
+		PoolingHttpClientConnectionManager cm = new SardineBuilder().createConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory()).build());
+		PoolingHttpClientConnectionManager defaults = new PoolingHttpClientConnectionManager();
+		try
+		{
+			assertEquals(defaults.getDefaultMaxPerRoute(), cm.getDefaultMaxPerRoute());
+			assertEquals(defaults.getMaxTotal(), cm.getMaxTotal());
+			assertEquals(defaults.getValidateAfterInactivity(), cm.getValidateAfterInactivity());
+		}
+		finally
+		{
+			cm.close();
+			defaults.close();
+		}
+		RequestConfig config = new SardineBuilder().createRequestConfig(RequestConfig.DEFAULT);
+		assertEquals(RequestConfig.DEFAULT.getConnectTimeout(), config.getConnectTimeout());
+	}
+
+	@Test
+	public void testRequestConfig() throws Exception
+	{
+		RequestConfig defaults = RequestConfig.custom().setExpectContinueEnabled(false).build();
+		RequestConfig config = new SardineBuilder()
+				.connectTimeout(5, TimeUnit.SECONDS)
+				.socketTimeout(30, TimeUnit.SECONDS)
+				.connectionRequestTimeout(100, TimeUnit.MILLISECONDS)
+				.createRequestConfig(defaults);
+		assertEquals(5000, config.getConnectTimeout());
+		assertEquals(30000, config.getSocketTimeout());
+		assertEquals(100, config.getConnectionRequestTimeout());
+		assertFalse(config.isExpectContinueEnabled());
+	}
+
+	@Test
+	public void testBuild() throws Exception
+	{
+		MultistatusParser parser = new StaxMultistatusParser();
+		SardineImpl sardine = new SardineBuilder()
+				.credentials("user", "password")
+				.multistatusParser(parser)
+				.maxConnectionsPerRoute(10)
+				.connectionTimeToLive(1, TimeUnit.MINUTES)
+				.evictIdleConnections(30, TimeUnit.SECONDS)
+				.build();
+		assertSame(parser, sardine.getMultistatusParser());
+		sardine.shutdown();
+	}
+
+	@Test
+	public void testConcurrency() throws Exception
+	{
+		SardineBuilder builder = new SardineBuilder().maxConnectionsTotal(200).concurrency(64);
+		PoolingHttpClientConnectionManager cm = builder.createConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory()).build());
+		try
+		{
+			assertEquals(64, cm.getDefaultMaxPerRoute());
+			assertEquals(200, cm.getMaxTotal());
+			assertTrue(builder.threadSafe);
+		}
+		finally
+		{
+			cm.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLimit() throws Exception
+	{
+		new SardineBuilder().maxConnectionsTotal(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidTimeout() throws Exception
+	{
+		new SardineBuilder().connectTimeout(-1, TimeUnit.SECONDS);
+	}
+}
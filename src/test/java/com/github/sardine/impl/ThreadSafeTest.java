@@ -0,0 +1,154 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.protocol.HttpClientContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Single instance shared by many threads.
+ */
+public class ThreadSafeTest
+{
+	private static final int THREADS = 16;
+
+	private static final int REQUESTS = 25;
+
+	private HttpServer server;
+
+	private ExecutorService executor;
+
+	private String url;
+
+	private final AtomicInteger challenges = new AtomicInteger();
+
+	@Before
+	public void start() throws IOException
+	{
+		final String authorization = "Basic " + Base64.getEncoder().encodeToString("user:password".getBytes(StandardCharsets.UTF_8));
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newFixedThreadPool(THREADS));
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				if (!authorization.equals(exchange.getRequestHeaders().getFirst("Authorization")))
+				{
+					challenges.incrementAndGet();
+					exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"test\"");
+					byte[] body = "unauthorized".getBytes(StandardCharsets.UTF_8);
+					exchange.sendResponseHeaders(401, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+					return;
+				}
+				byte[] body = "content".getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		executor = Executors.newFixedThreadPool(THREADS);
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file.txt";
+	}
+
+	@After
+	public void stop()
+	{
+		executor.shutdownNow();
+		server.stop(0);
+	}
+
+	@Test
+	public void testSharedInstance() throws Exception
+	{
+		final SardineImpl sardine = new SardineBuilder()
+				.credentials("user", "password")
+				.maxConnectionsPerRoute(THREADS)
+				.threadSafe(true)
+				.build();
+		try
+		{
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < THREADS; i++)
+			{
+				results.add(executor.submit(new Callable<Integer>()
+				{
+					@Override
+					public Integer call() throws Exception
+					{
+						int count = 0;
+						for (int j = 0; j < REQUESTS; j++)
+						{
+							InputStream in = sardine.get(url);
+							try
+							{
+								assertEquals("content", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+								count++;
+							}
+							finally
+							{
+								in.close();
+							}
+						}
+						return count;
+					}
+				}));
+			}
+			for (Future<Integer> result : results)
+			{
+				assertEquals(REQUESTS, result.get().intValue());
+			}
+			// Only requests started before the first successful authentication are challenged
+			assertTrue("Challenges " + challenges.get(), challenges.get() <= THREADS);
+			assertNull(sardine.context.getAttribute(HttpClientContext.TARGET_AUTH_STATE));
+			assertNull(sardine.context.getAttribute(HttpClientContext.USER_TOKEN));
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+}
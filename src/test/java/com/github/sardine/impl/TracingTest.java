@@ -0,0 +1,197 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.sardine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.impl.trace.SardineSpan;
+import com.github.sardine.impl.trace.SardineTracer;
+import com.github.sardine.impl.trace.TraceContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Trace context sent with requests and spans reported to {@link SardineTracer}.
+ */
+public class TracingTest
+{
+	private HttpServer server;
+
+	private String url;
+
+	private final List<TraceContext> received = Collections.synchronizedList(new ArrayList<TraceContext>());
+
+	private final List<SardineSpan> ended = Collections.synchronizedList(new ArrayList<SardineSpan>());
+
+	private volatile TraceContext remote;
+
+	private final SardineTracer tracer = new SardineTracer()
+	{
+		@Override
+		public TraceContext current()
+		{
+			return remote;
+		}
+
+		@Override
+		public void started(SardineSpan span)
+		{
+			assertEquals(-1, span.getDurationNanos());
+		}
+
+		@Override
+		public void ended(SardineSpan span)
+		{
+			ended.add(span);
+		}
+	};
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				received.add(TraceContext.parse(exchange.getRequestHeaders().getFirst(TraceContext.TRACEPARENT),
+						exchange.getRequestHeaders().getFirst(TraceContext.TRACESTATE)));
+				exchange.getRequestBody().readAllBytes();
+				int status = exchange.getRequestURI().getPath().equals("/missing") ? 404 : 201;
+				exchange.getResponseHeaders().set("Connection", "close");
+				exchange.sendResponseHeaders(status, -1);
+				exchange.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	@Test
+	public void testRequest() throws Exception
+	{
+		SardineImpl sardine = new SardineBuilder().tracer(tracer).build();
+		try
+		{
+			sardine.createDirectory(url + "a");
+			assertEquals(1, ended.size());
+			SardineSpan span = ended.get(0);
+			assertEquals(SardineSpan.Kind.REQUEST, span.getKind());
+			assertEquals("MKCOL", span.getName());
+			assertEquals(url + "a", span.getUri().toString());
+			assertEquals(201, span.getStatus());
+			assertNull(span.getError());
+			assertNull(span.getParentContext());
+			assertEquals(span.getContext().getTraceparent(), received.get(0).getTraceparent());
+
+			try
+			{
+				sardine.delete(url + "missing");
+				fail("Expected not found");
+			}
+			catch (SardineException e)
+			{
+				SardineSpan failed = ended.get(1);
+				assertEquals(404, failed.getStatus());
+				assertSame(e, failed.getError());
+				assertNotEquals(span.getContext().getTraceId(), failed.getContext().getTraceId());
+			}
+
+			remote = TraceContext.parse("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01", "congo=t61rcWkgMzE");
+			sardine.createDirectory(url + "b");
+			TraceContext sent = received.get(2);
+			assertEquals(remote.getTraceId(), sent.getTraceId());
+			assertNotEquals(remote.getSpanId(), sent.getSpanId());
+			assertEquals("congo=t61rcWkgMzE", sent.getTraceState());
+			assertSame(remote, ended.get(2).getParentContext());
+
+			sardine.setTracer(null);
+			sardine.createDirectory(url + "c");
+			assertNull(received.get(3));
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testOperation() throws Exception
+	{
+		final SardineImpl sardine = new SardineBuilder().tracer(tracer).concurrency(2).build();
+		final RequestExecutor executor = RequestExecutor.platform(2);
+		try
+		{
+			sardine.traceOperation("copy", () -> {
+				sardine.createDirectory(url + "a");
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+				for (int i = 0; i < 4; i++)
+				{
+					final String path = url + "a/" + i;
+					tasks.add(() -> {
+						sardine.createDirectory(path);
+						return null;
+					});
+				}
+				return executor.invokeAll(tasks);
+			});
+			assertEquals(6, ended.size());
+			SardineSpan operation = ended.get(5);
+			assertEquals(SardineSpan.Kind.OPERATION, operation.getKind());
+			assertEquals("copy", operation.getName());
+			for (int i = 0; i < 5; i++)
+			{
+				SardineSpan request = ended.get(i);
+				assertSame(operation, request.getParent());
+				assertEquals(operation.getContext().getTraceId(), received.get(i).getTraceId());
+				assertEquals(operation.getContext().getTraceId(), request.getContext().getTraceId());
+			}
+			sardine.createDirectory(url + "b");
+			assertNull(ended.get(6).getParent());
+		}
+		finally
+		{
+			executor.close();
+			sardine.shutdown();
+		}
+	}
+}
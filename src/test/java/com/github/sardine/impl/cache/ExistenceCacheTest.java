@@ -0,0 +1,266 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.impl.SardineBuilder;
+import com.github.sardine.impl.SardineImpl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Existence checks answered from missing resources and listing indexes.
+ */
+public class ExistenceCacheTest
+{
+	private HttpServer server;
+
+	private String url;
+
+	private final Set<String> paths = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger heads = new AtomicInteger();
+
+	@Before
+	public void start() throws IOException
+	{
+		paths.add("/dav");
+		paths.add("/dav/a b.txt");
+		paths.add("/dav/sub");
+		paths.add("/dav/sub/b.txt");
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				exchange.getRequestBody().readAllBytes();
+				String method = exchange.getRequestMethod();
+				String path = exchange.getRequestURI().getPath().replaceAll("/$", "");
+				byte[] body = new byte[0];
+				int status = 201;
+				if (method.equals("PROPFIND"))
+				{
+					StringBuilder xml = new StringBuilder("<D:multistatus xmlns:D=\"DAV:\">");
+					for (String member : paths)
+					{
+						xml.append("<D:response><D:href>").append(member.replace(" ", "%20")).append("</D:href><D:propstat><D:prop><D:resourcetype/>")
+								.append("</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>");
+					}
+					body = xml.append("</D:multistatus>").toString().getBytes(StandardCharsets.UTF_8);
+					status = 207;
+				}
+				else if (method.equals("HEAD"))
+				{
+					heads.incrementAndGet();
+					status = paths.contains(path) ? 200 : 404;
+				}
+				else if (method.equals("COPY"))
+				{
+					String destination = URI.create(exchange.getRequestHeaders().getFirst("Destination")).getPath().replaceAll("/$", "");
+					paths.add(destination);
+					paths.add(destination + "/b.txt");
+				}
+				else
+				{
+					paths.add(path);
+				}
+				exchange.getResponseHeaders().set("Connection", "close");
+				exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+				exchange.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/dav/";
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	@Test
+	public void testIndexedListing() throws Exception
+	{
+		ExistenceCache cache = new ExistenceCache(1000, 1, TimeUnit.HOURS);
+		SardineImpl sardine = new SardineBuilder().existenceCache(cache).build();
+		try
+		{
+			assertEquals(4, sardine.list(url, -1).size());
+			assertEquals(1, cache.getIndexCount());
+			assertTrue(sardine.exists(url + "a%20b.txt"));
+			assertTrue(sardine.exists(url + "sub/b.txt"));
+			assertEquals(2, heads.get());
+			for (int i = 0; i < 100; i++)
+			{
+				assertFalse(sardine.exists(url + "sub/missing" + i));
+			}
+			assertEquals(100, cache.getFilterHitCount() + cache.getFalsePositiveCount());
+			assertTrue(heads.get() < 10);
+
+			sardine.put(url + "new.txt", new byte[1]);
+			assertTrue(sardine.exists(url + "new.txt"));
+			sardine.createDirectory(url + "dir/");
+			assertTrue(sardine.exists(url + "dir"));
+			assertEquals(1, cache.getIndexCount());
+			sardine.copy(url + "sub/", url + "copy/");
+			assertEquals("Index with unknown members discarded", 0, cache.getIndexCount());
+			assertTrue(sardine.exists(url + "copy/b.txt"));
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testShallowIndex() throws Exception
+	{
+		ExistenceCache cache = new ExistenceCache(1000, 1, TimeUnit.HOURS);
+		SardineImpl sardine = new SardineBuilder().existenceCache(cache).build();
+		try
+		{
+			sardine.list(url, 1);
+			sardine.list(url + "a%20b.txt", 0);
+			assertEquals(1, cache.getIndexCount());
+			assertFalse(sardine.exists(url + "sub/missing"));
+			assertEquals("Deeper than the listing", 1, heads.get());
+			sardine.copy(url + "sub/", url + "copy/");
+			assertEquals(1, cache.getIndexCount());
+			assertTrue(sardine.exists(url + "copy"));
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testIndexHeadroom() throws Exception
+	{
+		ExistenceCache cache = new ExistenceCache(1000, 1, TimeUnit.HOURS);
+		SardineImpl sardine = new SardineBuilder().existenceCache(cache).build();
+		try
+		{
+			sardine.list(url, 1);
+			for (int i = 0; i < 16; i++)
+			{
+				cache.created(url + "new" + i);
+			}
+			assertEquals(1, cache.getIndexCount());
+			assertFalse(sardine.exists(url + "missing"));
+			assertEquals(0, heads.get());
+			cache.created(url + "new16");
+			assertEquals("Index full", 0, cache.getIndexCount());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testHrefForms() throws Exception
+	{
+		paths.add("/dav/Upper.txt");
+		paths.add("/dav/~home");
+		ExistenceCache cache = new ExistenceCache(1000, 1, TimeUnit.HOURS);
+		SardineImpl sardine = new SardineBuilder().existenceCache(cache).build();
+		try
+		{
+			sardine.list(url.replace("http://", "HTTP://"), -1);
+			assertTrue(sardine.exists(url + "%7Ehome"));
+			assertTrue(sardine.exists(url + "sub/"));
+			assertEquals(2, heads.get());
+			assertFalse(sardine.exists(url + "upper.txt"));
+			assertEquals("Checked with the server", 3, heads.get());
+			assertFalse(sardine.exists(url + "other.txt"));
+			assertEquals(3, heads.get());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testMissingRemembered() throws Exception
+	{
+		AtomicLong clock = new AtomicLong();
+		ExistenceCache cache = new ExistenceCache(2, 10, TimeUnit.SECONDS, 0.01, clock::get);
+		AtomicInteger requests = new AtomicInteger();
+		CacheLoader<Boolean> missing = () -> requests.incrementAndGet() < 0;
+		assertFalse(cache.exists("http://host/a", missing));
+		assertFalse(cache.exists("http://host/a/", missing));
+		assertEquals(1, requests.get());
+		assertEquals(1, cache.getNegativeHitCount());
+		cache.created("http://host/a");
+		assertTrue(cache.exists("http://host/a", () -> true));
+		assertFalse(cache.exists("http://host/b", missing));
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		assertFalse(cache.exists("http://host/b", missing));
+		assertEquals("Expired", 3, requests.get());
+		assertFalse(cache.exists("http://host/c", missing));
+		assertFalse(cache.exists("http://host/d", missing));
+		assertFalse(cache.exists("http://host/b", missing));
+		assertEquals("Evicted", 6, requests.get());
+		assertEquals(6, cache.getRequestCount() - 1);
+	}
+
+	@Test
+	public void testBloomFilter()
+	{
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+		for (int i = 0; i < 10000; i++)
+		{
+			filter.add("http://host/dav/file" + i);
+		}
+		int positives = 0;
+		for (int i = 0; i < 10000; i++)
+		{
+			assertTrue(filter.mightContain("http://host/dav/file" + i));
+			if (filter.mightContain("http://host/dav/other" + i))
+			{
+				positives++;
+			}
+		}
+		assertTrue(String.valueOf(positives), positives < 300);
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.impl.SardineBuilder;
+import com.github.sardine.impl.SardineImpl;
+import com.github.sardine.util.SardineUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Cached listings and existence checks.
+ */
+public class MetadataCacheTest
+{
+	private static final String MULTISTATUS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<D:multistatus xmlns:D=\"DAV:\"><D:response><D:href>%s</D:href><D:propstat><D:prop>"
+			+ "<D:getetag>\"v1\"</D:getetag></D:prop><D:status>HTTP/1.1 200 OK</D:status>"
+			+ "</D:propstat></D:response></D:multistatus>";
+
+	private HttpServer server;
+
+	private String url;
+
+	private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+
+	private final AtomicLong clock = new AtomicLong();
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				exchange.getRequestBody().readAllBytes();
+				String method = exchange.getRequestMethod();
+				requests.computeIfAbsent(method, m -> new AtomicInteger()).incrementAndGet();
+				String path = exchange.getRequestURI().getPath();
+				byte[] body = new byte[0];
+				int status = 201;
+				if (method.equals("PROPFIND"))
+				{
+					body = String.format(MULTISTATUS, path).getBytes(StandardCharsets.UTF_8);
+					status = 207;
+				}
+				else if (method.equals("HEAD"))
+				{
+					String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+					status = "\"v1\"".equals(etag) ? 304 : path.endsWith("missing") ? 404 : 200;
+				}
+				exchange.getResponseHeaders().set("Connection", "close");
+				exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+				exchange.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/dav/";
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	private int count(String method)
+	{
+		AtomicInteger count = requests.get(method);
+		return count == null ? 0 : count.get();
+	}
+
+	@Test
+	public void testInvalidatedByWrites() throws Exception
+	{
+		MetadataCache cache = new MetadataCache(100, 1, TimeUnit.HOURS);
+		SardineImpl sardine = new SardineBuilder().metadataCache(cache).build();
+		try
+		{
+			List<DavResource> listing = sardine.list(url);
+			assertEquals(listing.size(), sardine.list(url).size());
+			sardine.list(url, 0);
+			assertEquals(2, count("PROPFIND"));
+			assertTrue(sardine.exists(url + "file"));
+			assertFalse(sardine.exists(url + "missing"));
+			assertTrue(sardine.exists(url + "file"));
+			assertFalse(sardine.exists(url + "missing"));
+			assertEquals(2, count("HEAD"));
+			assertEquals(3, cache.getHitCount());
+			assertEquals(4, cache.getMissCount());
+
+			sardine.put(url + "missing", new byte[1]);
+			sardine.exists(url + "missing");
+			assertTrue(sardine.exists(url + "file"));
+			assertEquals(3, count("HEAD"));
+			sardine.list(url);
+			assertEquals("Parent listing invalidated", 3, count("PROPFIND"));
+			sardine.delete(url);
+			sardine.list(url + "../", 0);
+			assertTrue(sardine.exists(url + "file"));
+			assertEquals("Descendants invalidated", 4, count("HEAD"));
+			sardine.move(url + "file", url + "moved");
+			sardine.list(url);
+			assertEquals(5, count("PROPFIND"));
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testEtagRevalidation() throws Exception
+	{
+		MetadataCache cache = new MetadataCache(100, 10, 0, TimeUnit.SECONDS, Runnable::run, clock::get);
+		SardineImpl sardine = new SardineBuilder().metadataCache(cache).build();
+		try
+		{
+			Set<QName> props = Collections.singleton(SardineUtil.createQNameWithDefaultNamespace("getetag"));
+			assertEquals("\"v1\"", sardine.propfind(url + "file", 0, props).get(0).getEtag());
+			clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+			assertEquals("\"v1\"", sardine.propfind(url + "file", 0, props).get(0).getEtag());
+			assertEquals(1, count("PROPFIND"));
+			assertEquals(1, count("HEAD"));
+			assertEquals(1, cache.getRevalidationCount());
+			sardine.propfind(url + "file", 0, props);
+			assertEquals("Renewed", 1, count("HEAD"));
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() throws Exception
+	{
+		MetadataCache cache = new MetadataCache(100, 10, 20, TimeUnit.SECONDS, Runnable::run, clock::get);
+		AtomicInteger loads = new AtomicInteger();
+		assertTrue(cache.exists("http://host/a", () -> loads.incrementAndGet() == 1));
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(15));
+		assertTrue("Stale value", cache.exists("http://host/a", () -> loads.incrementAndGet() == 1));
+		assertEquals("Refreshed", 2, loads.get());
+		assertFalse(cache.exists("http://host/a", () -> loads.incrementAndGet() == 1));
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+		assertTrue("Expired", cache.exists("http://host/a", () -> true));
+		assertEquals(1, cache.getStaleHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws Exception
+	{
+		MetadataCache cache = new MetadataCache(2, 1, TimeUnit.HOURS);
+		cache.exists("http://host/a", () -> true);
+		cache.exists("http://host/b", () -> true);
+		cache.exists("http://host/a", () -> false);
+		cache.exists("http://host/c", () -> true);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertTrue(cache.exists("http://host/a", () -> false));
+		assertFalse(cache.exists("http://host/b", () -> false));
+	}
+
+	@Test
+	public void testInvalidationScope() throws Exception
+	{
+		MetadataCache cache = new MetadataCache(100, 1, TimeUnit.HOURS);
+		CacheLoader<List<DavResource>> loader = Collections::emptyList;
+		cache.getResources("http://host/a/", 1, "", loader, null);
+		cache.getResources("http://host/a/b/c", 0, "", loader, null);
+		cache.getResources("http://host/", 1, "", loader, null);
+		cache.getResources("http://host/", -1, "", loader, null);
+		cache.getResources("http://host/ab", 0, "", loader, null);
+		cache.invalidate("http://host/a/b");
+		assertEquals(2, cache.size());
+		assertEquals(3, cache.getInvalidationCount());
+		cache.getResources("http://host", 1, "", loader, null);
+		cache.getResources("http://host/ab/", 0, "", loader, null);
+		assertEquals(2, cache.getHitCount());
+	}
+}
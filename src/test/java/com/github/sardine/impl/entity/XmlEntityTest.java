@@ -0,0 +1,232 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.entity;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.http.HttpEntity;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.github.sardine.DavAce;
+import com.github.sardine.DavPrincipal;
+import com.github.sardine.model.Ace;
+import com.github.sardine.model.Acl;
+import com.github.sardine.model.Allprop;
+import com.github.sardine.model.Exclusive;
+import com.github.sardine.model.Lockinfo;
+import com.github.sardine.model.Lockscope;
+import com.github.sardine.model.Locktype;
+import com.github.sardine.model.Prop;
+import com.github.sardine.model.Propertyupdate;
+import com.github.sardine.model.Propfind;
+import com.github.sardine.model.Remove;
+import com.github.sardine.model.SearchRequest;
+import com.github.sardine.model.Set;
+import com.github.sardine.model.Write;
+import com.github.sardine.report.SyncCollectionReport;
+import com.github.sardine.report.VersionTreeReport;
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * Compares the bodies with the JAXB marshalled model ignoring namespace prefixes.
+ */
+public class XmlEntityTest
+{
+	private static final QName CUSTOM = new QName("urn:x", "custom", "x");
+
+	@Test
+	public void testAllprop() throws Exception
+	{
+		Propfind body = new Propfind();
+		body.setAllprop(new Allprop());
+		assertSameXml(SardineUtil.toXml(body), PropfindEntity.allprop());
+	}
+
+	@Test
+	public void testPropfind() throws Exception
+	{
+		Propfind body = new Propfind();
+		Prop prop = new Prop();
+		prop.getAny().add(SardineUtil.createElement(SardineUtil.createQNameWithDefaultNamespace("getetag")));
+		prop.getAny().add(SardineUtil.createElement(CUSTOM));
+		body.setProp(prop);
+		PropfindEntity entity = new PropfindEntity(Arrays.asList(SardineUtil.createQNameWithDefaultNamespace("getetag"), CUSTOM));
+		assertSameXml(SardineUtil.toXml(body), entity);
+		assertEquals(entity.toByteArray().length, entity.getContentLength());
+		assertEquals("text/plain; charset=UTF-8", entity.getContentType().getValue());
+	}
+
+	@Test
+	public void testLockinfo() throws Exception
+	{
+		Lockinfo body = new Lockinfo();
+		Lockscope scopeType = new Lockscope();
+		scopeType.setExclusive(new Exclusive());
+		body.setLockscope(scopeType);
+		Locktype lockType = new Locktype();
+		lockType.setWrite(new Write());
+		body.setLocktype(lockType);
+		assertSameXml(SardineUtil.toXml(body), LockinfoEntity.exclusiveWrite());
+	}
+
+	@Test
+	public void testPropPatch() throws Exception
+	{
+		Map<QName, String> setProps = new LinkedHashMap<QName, String>();
+		setProps.put(CUSTOM, "a < b & é");
+		setProps.put(SardineUtil.createQNameWithCustomNamespace("other"), "value");
+		List<QName> removeProps = Collections.singletonList(new QName("urn:y", "gone", "y"));
+
+		Propertyupdate body = new Propertyupdate();
+		Set set = new Set();
+		set.setProp(new Prop());
+		List<Element> elements = new ArrayList<Element>();
+		for (Map.Entry<QName, String> entry : setProps.entrySet())
+		{
+			Element element = SardineUtil.createElement(entry.getKey());
+			element.setTextContent(entry.getValue());
+			elements.add(element);
+			set.getProp().getAny().add(element);
+		}
+		body.getRemoveOrSet().add(set);
+		Remove remove = new Remove();
+		remove.setProp(new Prop());
+		remove.getProp().getAny().add(SardineUtil.createElement(removeProps.get(0)));
+		body.getRemoveOrSet().add(remove);
+
+		String expected = SardineUtil.toXml(body);
+		assertSameXml(expected, new PropPatchEntity(setProps, removeProps));
+		assertSameXml(expected, new PropPatchEntity(elements, removeProps));
+	}
+
+	@Test
+	public void testNestedElements() throws Exception
+	{
+		Element element = SardineUtil.createElement(CUSTOM);
+		Element child = SardineUtil.createElement(element, new QName("urn:z", "child", "z"));
+		child.setAttribute("name", "value");
+		child.setTextContent("text");
+		element.appendChild(child);
+		element.appendChild(element.getOwnerDocument().createTextNode("tail"));
+
+		Propertyupdate body = new Propertyupdate();
+		Set set = new Set();
+		set.setProp(new Prop());
+		set.getProp().getAny().add(element);
+		body.getRemoveOrSet().add(set);
+		assertSameXml(SardineUtil.toXml(body), new PropPatchEntity(Collections.singletonList(element), Collections.<QName>emptyList()));
+	}
+
+	@Test
+	public void testAcl() throws Exception
+	{
+		DavAce property = new DavAce(new DavPrincipal(DavPrincipal.PrincipalType.PROPERTY, CUSTOM, null));
+		property.getGranted().add("read");
+		property.getGranted().add("unknown");
+		property.getDenied().add("write-content");
+		DavAce key = new DavAce(new DavPrincipal(DavPrincipal.PrincipalType.KEY, DavPrincipal.KEY_AUTHENTICATED, null));
+		key.getGranted().add("all");
+		DavAce href = new DavAce(new DavPrincipal(DavPrincipal.PrincipalType.HREF, "/principals/users/a", null));
+		href.getDenied().add("unbind");
+		List<DavAce> aces = Arrays.asList(property, key, href);
+
+		Acl body = new Acl();
+		body.setAce(new ArrayList<Ace>());
+		for (DavAce ace : aces)
+		{
+			body.getAce().add(ace.toModel());
+		}
+		assertSameXml(SardineUtil.toXml(body), new AclEntity(aces));
+	}
+
+	@Test
+	public void testSearch() throws Exception
+	{
+		String query = "<select><allprop/></select>";
+		assertSameXml(SardineUtil.toXml(new SearchRequest("basicsearch", query)), new SearchEntity("basicsearch", query));
+	}
+
+	@Test
+	public void testReports() throws Exception
+	{
+		SyncCollectionReport sync = new SyncCollectionReport("token", SyncCollectionReport.SyncLevel.LEVEL_INFINITY,
+				Collections.singleton(CUSTOM), 10);
+		assertSameXml(sync.toXml(), new ReportEntity(sync));
+		VersionTreeReport versions = new VersionTreeReport(Collections.singleton(SardineUtil.createQNameWithDefaultNamespace("getetag")));
+		assertSameXml(versions.toXml(), new ReportEntity(versions));
+	}
+
+	private static void assertSameXml(String expected, HttpEntity actual) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		actual.writeTo(out);
+		assertEquals(out.size(), actual.getContentLength());
+		assertEquals(describe(parse(expected.getBytes("UTF-8"))), describe(parse(out.toByteArray())));
+	}
+
+	private static Element parse(byte[] xml) throws Exception
+	{
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml)).getDocumentElement();
+	}
+
+	/**
+	 * @return Element names with namespace, attributes and text
+	 */
+	private static String describe(Node node)
+	{
+		StringBuilder result = new StringBuilder();
+		if (node.getNodeType() == Node.ELEMENT_NODE)
+		{
+			result.append("{").append(node.getNamespaceURI()).append("}").append(node.getLocalName());
+			for (int i = 0; i < node.getAttributes().getLength(); i++)
+			{
+				Node attribute = node.getAttributes().item(i);
+				if (!"http://www.w3.org/2000/xmlns/".equals(attribute.getNamespaceURI()))
+				{
+					result.append(" ").append(attribute.getLocalName()).append("=").append(attribute.getNodeValue());
+				}
+			}
+			result.append("[");
+			for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+			{
+				result.append(describe(child));
+			}
+			result.append("]");
+		}
+		else if (node.getNodeType() == Node.TEXT_NODE)
+		{
+			result.append(node.getNodeValue());
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.model.Multistatus;
+import com.github.sardine.model.Response;
+
+/**
+ */
+public class StreamingMultiStatusResponseHandlerTest
+{
+	private static final String SVN_RESPONSE = "<?xml version=\"1.0\" encoding=\"utf-8\"?>" +
+			"<D:multistatus xmlns:D=\"DAV:\" xmlns:ns0=\"DAV:\">" +
+			" <D:response xmlns:S=\"http://subversion.tigris.org/xmlns/svn/\" xmlns:lp1=\"DAV:\" xmlns:lp3=\"http://subversion.tigris.org/xmlns/dav/\">" +
+			"  <D:href>/svn/trunk/</D:href>" +
+			"  <D:propstat>" +
+			"   <D:prop>" +
+			"    <S:ignore>target<!-- comment -->build</S:ignore>" +
+			"    <lp1:resourcetype>" +
+			"     <D:collection/>" +
+			"    </lp1:resourcetype>" +
+			"    <lp1:getcontenttype>text/html; charset=UTF-8</lp1:getcontenttype>" +
+			"    <lp1:getetag>W/\"226//trunk\"</lp1:getetag>" +
+			"    <lp1:creationdate>2011-05-24T09:06:50.353563Z</lp1:creationdate>" +
+			"    <lp1:getlastmodified>Tue, 24 May 2011 09:06:50 GMT</lp1:getlastmodified>" +
+			"    <lp1:checked-in>" +
+			"     <D:href>/svn/!svn/ver/226/trunk</D:href>" +
+			"    </lp1:checked-in>" +
+			"    <lp3:deadprop-count>1</lp3:deadprop-count>" +
+			"    <D:lockdiscovery/>" +
+			"   </D:prop>" +
+			"   <D:status>HTTP/1.1 200 OK</D:status>" +
+			"  </D:propstat>" +
+			" </D:response>" +
+			" <D:response>" +
+			"  <D:href>/svn/trunk/README.html</D:href>" +
+			"  <D:propstat>" +
+			"   <D:prop>" +
+			"    <D:resourcetype/>" +
+			"    <D:getcontentlength>230</D:getcontentlength>" +
+			"    <D:getcontenttype>text/html</D:getcontenttype>" +
+			"    <D:getcontentlanguage>en</D:getcontentlanguage>" +
+			"    <D:displayname>README</D:displayname>" +
+			"    <D:supportedlock>" +
+			"     <D:lockentry>" +
+			"      <D:lockscope><D:exclusive/></D:lockscope>" +
+			"      <D:locktype><D:write/></D:locktype>" +
+			"     </D:lockentry>" +
+			"    </D:supportedlock>" +
+			"    <D:lockdiscovery>" +
+			"     <D:activelock>" +
+			"      <D:locktype><D:write/></D:locktype>" +
+			"      <D:lockscope><D:exclusive/></D:lockscope>" +
+			"      <D:depth>0</D:depth>" +
+			"      <D:locktoken><D:href>opaquelocktoken:28e080a3</D:href></D:locktoken>" +
+			"     </D:activelock>" +
+			"    </D:lockdiscovery>" +
+			"    <D:supported-report-set>" +
+			"     <D:supported-report><D:report><D:version-tree/></D:report></D:supported-report>" +
+			"     <D:supported-report><D:report><D:sync-collection/></D:report></D:supported-report>" +
+			"    </D:supported-report-set>" +
+			"    <X:custom xmlns:X=\"urn:x\">value</X:custom>" +
+			"    <empty/>" +
+			"   </D:prop>" +
+			"   <D:status>HTTP/1.1 200 OK</D:status>" +
+			"  </D:propstat>" +
+			"  <D:propstat>" +
+			"   <D:prop>" +
+			"    <D:getcontenttype>text/plain</D:getcontenttype>" +
+			"    <X:missing xmlns:X=\"urn:x\"/>" +
+			"   </D:prop>" +
+			"   <D:status>HTTP/1.1 404 Not Found</D:status>" +
+			"  </D:propstat>" +
+			" </D:response>" +
+			" <D:response>" +
+			"  <D:href>/svn/trunk/no-propstat</D:href>" +
+			"  <D:status>HTTP/1.1 403 Forbidden</D:status>" +
+			" </D:response>" +
+			" <D:response>" +
+			"  <D:href>/svn/invalid uri</D:href>" +
+			" </D:response>" +
+			" <D:sync-token>http://example.com/ns/sync/1234</D:sync-token>" +
+			"</D:multistatus>";
+
+	@Test
+	public void testSameResourcesAsJaxb() throws Exception
+	{
+		Multistatus status = new MultiStatusResponseHandler().getMultistatus(new ByteArrayInputStream(SVN_RESPONSE.getBytes("UTF-8")));
+		List<DavResource> expected = new ArrayList<DavResource>();
+		for (Response response : status.getResponse())
+		{
+			try
+			{
+				expected.add(new DavResource(response));
+			}
+			catch (java.net.URISyntaxException e)
+			{
+				// Skipped by both
+			}
+		}
+		List<DavResource> resources = new StreamingMultiStatusResponseHandler().getResources(new ByteArrayInputStream(SVN_RESPONSE.getBytes("UTF-8")));
+		assertEquals(3, resources.size());
+		assertEquals(expected.size(), resources.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			assertSameResource(expected.get(i), resources.get(i));
+		}
+		DavResource file = resources.get(1);
+		assertEquals("opaquelocktoken:28e080a3", file.getLockToken());
+		assertEquals(Long.valueOf(230L), file.getContentLength());
+		assertEquals(2, file.getSupportedReports().size());
+		assertEquals("value", file.getCustomPropsNS().get(new QName("urn:x", "custom")));
+		assertEquals("", file.getCustomPropsNS().get(new QName("DAV:", "empty")));
+		assertEquals(403, resources.get(2).getStatusCode());
+		assertNull(resources.get(2).getContentType());
+		assertTrue(resources.get(0).isDirectory());
+		assertEquals("targetbuild", resources.get(0).getCustomProps().get("ignore"));
+	}
+
+	@Test
+	public void testGetResourcesFailure() throws Exception
+	{
+		StreamingMultiStatusResponseHandler handler = new StreamingMultiStatusResponseHandler();
+		try
+		{
+			handler.getResources(new ByteArrayInputStream("noxml".getBytes()));
+			fail("Expected XML parsing failure");
+		}
+		catch (IOException e)
+		{
+			assertEquals(XMLStreamException.class, e.getCause().getClass());
+		}
+	}
+
+	@Test
+	public void testNotMultistatus() throws Exception
+	{
+		StreamingMultiStatusResponseHandler handler = new StreamingMultiStatusResponseHandler();
+		try
+		{
+			handler.getResources(new ByteArrayInputStream("<D:prop xmlns:D=\"DAV:\"/>".getBytes()));
+			fail("Expected invalid root element");
+		}
+		catch (IOException e)
+		{
+			assertTrue(e.getMessage().startsWith("Not a valid DAV response"));
+		}
+	}
+
+	@Test
+	public void testExternalEntityNotResolved() throws Exception
+	{
+		final String response = "<?xml version=\"1.0\"?>" +
+				"<!DOCTYPE multistatus [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>" +
+				"<D:multistatus xmlns:D=\"DAV:\"><D:response><D:href>/&xxe;</D:href></D:response></D:multistatus>";
+		try
+		{
+			List<DavResource> resources = new StreamingMultiStatusResponseHandler().getResources(new ByteArrayInputStream(response.getBytes()));
+			for (DavResource resource : resources)
+			{
+				assertEquals(-1, resource.getPath().indexOf("root:"));
+			}
+		}
+		catch (IOException e)
+		{
+			// Rejected
+		}
+	}
+
+	private static void assertSameResource(DavResource expected, DavResource actual)
+	{
+		assertEquals(expected.getHref(), actual.getHref());
+		assertEquals(expected.getStatusCode(), actual.getStatusCode());
+		assertEquals(expected.getCreation(), actual.getCreation());
+		assertEquals(expected.getModified(), actual.getModified());
+		assertEquals(expected.getContentType(), actual.getContentType());
+		assertEquals(expected.getContentLength(), actual.getContentLength());
+		assertEquals(expected.getContentLanguage(), actual.getContentLanguage());
+		assertEquals(expected.getEtag(), actual.getEtag());
+		assertEquals(expected.getDisplayName(), actual.getDisplayName());
+		assertEquals(expected.getLockToken(), actual.getLockToken());
+		assertEquals(expected.getResourceTypes(), actual.getResourceTypes());
+		assertEquals(expected.getSupportedReports(), actual.getSupportedReports());
+		assertEquals(expected.getCustomPropsNS(), actual.getCustomPropsNS());
+		assertEquals(expected.isDirectory(), actual.isDirectory());
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2009-2016 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.http.client.methods.HttpGet;
+import org.junit.Test;
+
+import com.github.sardine.DavResource;
+
+public class MultistatusSpliteratorTest
+{
+	private static byte[] multistatus(int count) throws IOException
+	{
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><D:multistatus xmlns:D=\"DAV:\">");
+		for (int i = 0; i < count; i++)
+		{
+			xml.append("<D:response><D:href>/dav/file").append(i).append("</D:href><D:propstat><D:prop>")
+					.append("<D:getcontentlength>").append(i).append("</D:getcontentlength>")
+					.append("</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>");
+		}
+		return xml.append("</D:multistatus>").toString().getBytes("UTF-8");
+	}
+
+	private static class TrackingInputStream extends ByteCountInputStream
+	{
+		boolean closed;
+
+		TrackingInputStream(byte[] data)
+		{
+			super(new ByteArrayInputStream(data));
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			closed = true;
+			super.close();
+		}
+	}
+
+	@Test
+	public void testReadAll() throws Exception
+	{
+		HttpGet request = new HttpGet("http://localhost/dav/");
+		TrackingInputStream in = new TrackingInputStream(multistatus(3));
+		MultistatusSpliterator spliterator = new MultistatusSpliterator(request, in);
+		Stream<DavResource> stream = StreamSupport.stream(spliterator, false);
+		assertEquals(3, stream.count());
+		assertTrue(in.closed);
+		assertFalse(request.isAborted());
+	}
+
+	@Test
+	public void testAbortWhenClosedEarly() throws Exception
+	{
+		HttpGet request = new HttpGet("http://localhost/dav/");
+		byte[] data = multistatus(10000);
+		TrackingInputStream in = new TrackingInputStream(data);
+		MultistatusSpliterator spliterator = new MultistatusSpliterator(request, in);
+		Iterator<DavResource> iterator = StreamSupport.stream(spliterator, false).iterator();
+		assertEquals("/dav/file0", iterator.next().getPath());
+		assertEquals(Long.valueOf(1L), iterator.next().getContentLength());
+		// Only read as much of the response as needed for the first resources
+		assertTrue(in.getByteCount() < data.length);
+		spliterator.close();
+		assertTrue(in.closed);
+		assertTrue(request.isAborted());
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.sardine.impl.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.impl.SardineImpl;
+import com.github.sardine.util.MultistatusReader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Flight Recorder events emitted while executing requests.
+ */
+public class EventsTest
+{
+	private static final String MULTISTATUS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<D:multistatus xmlns:D=\"DAV:\"><D:response><D:href>/dav/</D:href><D:propstat><D:prop>"
+			+ "<D:resourcetype><D:collection/></D:resourcetype></D:prop><D:status>HTTP/1.1 200 OK</D:status>"
+			+ "</D:propstat></D:response><D:response><D:href>/dav/file</D:href><D:propstat><D:prop>"
+			+ "<D:resourcetype/></D:prop><D:status>HTTP/1.1 200 OK</D:status>"
+			+ "</D:propstat></D:response></D:multistatus>";
+
+	private HttpServer server;
+
+	private String url;
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				exchange.getRequestBody().readAllBytes();
+				byte[] body;
+				int status = 200;
+				if (exchange.getRequestMethod().equals("PROPFIND"))
+				{
+					body = MULTISTATUS.getBytes(StandardCharsets.UTF_8);
+					status = 207;
+				}
+				else
+				{
+					body = new byte[100];
+				}
+				exchange.sendResponseHeaders(status, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/dav/";
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	private static List<RecordedEvent> events(List<RecordedEvent> events, String name)
+	{
+		List<RecordedEvent> result = new ArrayList<RecordedEvent>();
+		for (RecordedEvent event : events)
+		{
+			if (event.getEventType().getName().equals(name))
+			{
+				result.add(event);
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void testEvents() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl();
+		Path file = Files.createTempFile("sardine", ".jfr");
+		try (Recording recording = new Recording())
+		{
+			recording.enable(RequestEvent.NAME);
+			recording.enable(PoolLeaseEvent.NAME);
+			recording.enable(MultistatusParseEvent.NAME);
+			recording.enable(ResponseStreamEvent.NAME);
+			recording.start();
+			assertEquals(2, sardine.list(url).size());
+			sardine.enableStreamingParser();
+			assertEquals(2, sardine.list(url).size());
+			try (Stream<DavResource> resources = sardine.listStream(url, 1))
+			{
+				assertEquals(2, resources.count());
+			}
+			InputStream in = sardine.get(url + "file");
+			in.readAllBytes();
+			in.close();
+			recording.stop();
+			recording.dump(file);
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+			List<RecordedEvent> requests = events(events, RequestEvent.NAME);
+			assertEquals(4, requests.size());
+			RecordedEvent propfind = requests.get(0);
+			assertEquals("PROPFIND", propfind.getString("method"));
+			assertEquals("/dav/", propfind.getString("path"));
+			assertEquals(207, propfind.getInt("status"));
+			assertTrue(propfind.getLong("requestBytes") > 0);
+			assertEquals(MULTISTATUS.length(), propfind.getLong("responseBytes"));
+			RecordedEvent get = requests.get(3);
+			assertEquals("GET", get.getString("method"));
+			assertEquals("/dav/file", get.getString("path"));
+			assertEquals(100, get.getLong("responseBytes"));
+
+			assertEquals(4, events(events, PoolLeaseEvent.NAME).size());
+			assertFalse(events(events, PoolLeaseEvent.NAME).get(0).getBoolean("timedOut"));
+
+			List<RecordedEvent> parses = events(events, MultistatusParseEvent.NAME);
+			assertEquals(3, parses.size());
+			for (RecordedEvent parse : parses)
+			{
+				assertEquals(2, parse.getInt("resources"));
+				assertEquals(MULTISTATUS.length(), parse.getLong("bytes"));
+			}
+			assertEquals(MultistatusReader.class.getName(), parses.get(2).getClass("parser").getName());
+
+			List<RecordedEvent> streams = events(events, ResponseStreamEvent.NAME);
+			assertEquals(2, streams.size());
+			assertEquals(100, streams.get(1).getLong("bytes"));
+			assertFalse(streams.get(1).getBoolean("aborted"));
+		}
+		finally
+		{
+			sardine.shutdown();
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.sardine.impl.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ */
+public class HistogramMetricsTest
+{
+	@Test
+	public void testBuckets()
+	{
+		for (long value = 0; value < 1 << 20; value++)
+		{
+			int index = LatencyHistogram.index(value);
+			assertTrue(value <= LatencyHistogram.highestValue(index));
+			assertTrue(index == 0 || value > LatencyHistogram.highestValue(index - 1));
+		}
+		int last = LatencyHistogram.index(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(last));
+	}
+
+	@Test
+	public void testPercentiles()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(99, TimeUnit.NANOSECONDS));
+		for (int i = 1; i <= 1000; i++)
+		{
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000, histogram.getMax(TimeUnit.MICROSECONDS));
+		assertEquals(500.5, histogram.getMean(TimeUnit.MICROSECONDS), 0.001);
+		long median = histogram.getPercentile(50, TimeUnit.MICROSECONDS);
+		assertTrue(String.valueOf(median), median >= 500 && median <= 500 * 1.125);
+		long p99 = histogram.getPercentile(99, TimeUnit.MICROSECONDS);
+		assertTrue(String.valueOf(p99), p99 >= 990 && p99 <= 1000);
+		assertEquals(1000, histogram.getPercentile(100, TimeUnit.MICROSECONDS));
+	}
+
+	@Test
+	public void testOperations()
+	{
+		HistogramMetrics metrics = new HistogramMetrics();
+		metrics.record("GET", "localhost:80", 200, 1000, -1, 10);
+		metrics.record("GET", "localhost:80", 404, 2000, -1, 5);
+		metrics.record("PUT", "localhost:80", 201, 3000, 20, 0);
+		metrics.record("PUT", "localhost:80", 0, 4000, 30, 0);
+		HistogramMetrics.Operation get = metrics.getOperation("GET");
+		assertEquals(2, get.getCount());
+		assertEquals(1, get.getStatusCount(2));
+		assertEquals(1, get.getStatusCount(4));
+		assertEquals(15, get.getResponseBytes());
+		assertEquals(0, get.getRequestBytes());
+		HistogramMetrics.Operation put = metrics.getOperation("PUT");
+		assertEquals(1, put.getStatusCount(0));
+		assertEquals(50, put.getRequestBytes());
+		assertEquals(2, metrics.getOperations().size());
+		assertNull(metrics.getOperation("DELETE"));
+	}
+}
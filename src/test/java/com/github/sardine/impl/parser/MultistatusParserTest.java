@@ -0,0 +1,78 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.impl.SardineImpl;
+import com.github.sardine.model.Multistatus;
+
+/**
+ */
+public class MultistatusParserTest
+{
+	private static final String RESPONSE = "<D:multistatus xmlns:D=\"DAV:\">" +
+			"<D:response><D:href>/dav/</D:href><D:propstat><D:prop><D:resourcetype><D:collection/></D:resourcetype></D:prop>" +
+			"<D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>" +
+			"<D:response><D:href>/dav/invalid uri</D:href></D:response>" +
+			"<D:response><D:href>/dav/file.txt</D:href><D:propstat><D:prop><D:getcontentlength>12</D:getcontentlength></D:prop>" +
+			"<D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>" +
+			"</D:multistatus>";
+
+	@Test
+	public void testSameResources() throws Exception
+	{
+		List<DavResource> jaxb = new JaxbMultistatusParser().parseResources(new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")));
+		List<DavResource> stax = new StaxMultistatusParser().parseResources(new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")));
+		assertEquals(2, jaxb.size());
+		assertEquals(jaxb.size(), stax.size());
+		for (int i = 0; i < jaxb.size(); i++)
+		{
+			assertEquals(jaxb.get(i).getHref(), stax.get(i).getHref());
+			assertEquals(jaxb.get(i).getContentLength(), stax.get(i).getContentLength());
+			assertEquals(jaxb.get(i).isDirectory(), stax.get(i).isDirectory());
+		}
+		Multistatus multistatus = new StaxMultistatusParser().parse(new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")));
+		assertEquals(3, multistatus.getResponse().size());
+	}
+
+	@Test
+	public void testSelectParser() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl();
+		assertTrue(sardine.getMultistatusParser() instanceof JaxbMultistatusParser);
+		sardine.enableStreamingParser();
+		assertTrue(sardine.getMultistatusParser() instanceof StaxMultistatusParser);
+		MultistatusParser custom = new JaxbMultistatusParser();
+		sardine.setMultistatusParser(custom);
+		assertEquals(custom, sardine.getMultistatusParser());
+		sardine.shutdown();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullParser() throws Exception
+	{
+		new SardineImpl().setMultistatusParser(null);
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+import com.github.sardine.DavResource;
+
+/**
+ */
+public class ParallelMultistatusParserTest
+{
+	private static byte[] response(int count, String encoding) throws Exception
+	{
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"").append(encoding).append("\"?>")
+				.append("<!-- <D:response> --><D:multistatus xmlns:D=\"DAV:\" xmlns:X=\"urn:x\" title=\"a > b\">");
+		for (int i = 0; i < count; i++)
+		{
+			xml.append("<D:response><D:href>/dav/fäle").append(i).append("</D:href>")
+					.append("<!-- </D:multistatus> --><D:propstat><D:prop>")
+					.append("<D:getcontentlength>").append(i).append("</D:getcontentlength>")
+					.append("<X:note><![CDATA[</D:response><D:response>]]></X:note>")
+					.append("<X:nested><D:response attr='>'><D:href>/ignored</D:href></D:response><X:empty/></X:nested>")
+					.append("</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>\n");
+		}
+		xml.append("<D:sync-token>token</D:sync-token></D:multistatus>");
+		return xml.toString().getBytes(encoding);
+	}
+
+	@Test
+	public void testSameAsSequential() throws Exception
+	{
+		for (String encoding : new String[]{"UTF-8", "ISO-8859-1"})
+		{
+			byte[] body = response(50, encoding);
+			List<DavResource> expected = new StaxMultistatusParser().parseResources(new ByteArrayInputStream(body));
+			List<DavResource> resources = new ParallelMultistatusParser(0, 1, ForkJoinPool.commonPool())
+					.parseResources(new ByteArrayInputStream(body));
+			assertEquals(50, resources.size());
+			for (int i = 0; i < expected.size(); i++)
+			{
+				DavResource resource = resources.get(i);
+				assertEquals(expected.get(i).getHref(), resource.getHref());
+				assertEquals(Long.valueOf(i), resource.getContentLength());
+				assertEquals(expected.get(i).getCustomPropsNS(), resource.getCustomPropsNS());
+				assertEquals("</D:response><D:response>", resource.getCustomPropsNS().get(new QName("urn:x", "note")));
+			}
+			assertEquals("fäle7", resources.get(7).getName());
+		}
+	}
+
+	@Test
+	public void testSpooled() throws Exception
+	{
+		byte[] body = response(50, "UTF-8");
+		List<DavResource> expected = new StaxMultistatusParser().parseResources(new ByteArrayInputStream(body));
+		int spooled = spooled();
+		List<DavResource> resources = new ParallelMultistatusParser(0, 1, 1024, ForkJoinPool.commonPool())
+				.parseResources(new ByteArrayInputStream(body));
+		assertEquals(50, resources.size());
+		for (int i = 0; i < expected.size(); i++)
+		{
+			assertEquals(expected.get(i).getHref(), resources.get(i).getHref());
+		}
+		assertEquals("Temporary file deleted", spooled, spooled());
+	}
+
+	private static int spooled()
+	{
+		String[] names = new File(System.getProperty("java.io.tmpdir")).list((dir, name) -> name.startsWith("sardine-multistatus-"));
+		return names == null ? 0 : names.length;
+	}
+
+	@Test
+	public void testChunks() throws Exception
+	{
+		byte[] body = response(50, "UTF-8");
+		assertEquals(51, ParallelMultistatusParser.Document.split(body, body.length, 1).chunks());
+		assertEquals(1, ParallelMultistatusParser.Document.split(body, body.length, body.length).chunks());
+		byte[] doctype = "<!DOCTYPE multistatus><D:multistatus xmlns:D=\"DAV:\"/>".getBytes("UTF-8");
+		assertNull(ParallelMultistatusParser.Document.split(doctype, doctype.length, 1));
+		assertNull(ParallelMultistatusParser.Document.split(body, body.length - 10, 1));
+	}
+
+	@Test
+	public void testBelowThreshold() throws Exception
+	{
+		byte[] body = response(3, "UTF-8");
+		assertEquals(3, new ParallelMultistatusParser().parseResources(new ByteArrayInputStream(body)).size());
+	}
+
+	@Test
+	public void testInvalidChunk() throws Exception
+	{
+		byte[] body = ("<D:multistatus xmlns:D=\"DAV:\"><D:response><D:href>/a</D:href></D:response>" +
+				"<D:response><D:href>/b</D:href></D:response><X:unbound/></D:multistatus>").getBytes("UTF-8");
+		try
+		{
+			new ParallelMultistatusParser(0, 1, ForkJoinPool.commonPool()).parseResources(new ByteArrayInputStream(body));
+			fail("Expected unbound prefix failure");
+		}
+		catch (IOException e)
+		{
+			assertEquals("Not a valid DAV response", e.getMessage());
+		}
+	}
+}
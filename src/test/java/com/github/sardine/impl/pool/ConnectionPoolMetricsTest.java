@@ -0,0 +1,184 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.sardine.impl.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.impl.SardineBuilder;
+import com.github.sardine.impl.SardineImpl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Connection pool statistics of the default connection manager.
+ */
+public class ConnectionPoolMetricsTest
+{
+	private HttpServer server;
+
+	private String url;
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				byte[] body = new byte[exchange.getRequestURI().getPath().equals("/large") ? 1024 * 1024 : 16];
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				try
+				{
+					out.write(body);
+					out.close();
+				}
+				catch (IOException e)
+				{
+					// Aborted by client
+				}
+				exchange.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	@Test
+	public void testCounters() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl();
+		try
+		{
+			ConnectionPoolMetrics metrics = sardine.getConnectionPoolMetrics();
+			for (int i = 0; i < 3; i++)
+			{
+				InputStream in = sardine.get(url + "small");
+				in.readAllBytes();
+				in.close();
+			}
+			assertEquals(3, metrics.getLeaseRequests());
+			assertEquals(1, metrics.getConnectionsCreated());
+			assertEquals(0, metrics.getConnectionsClosed());
+			assertEquals(0, metrics.getLeased());
+			assertEquals(1, metrics.getAvailable());
+			assertEquals(1, metrics.getRoutes().size());
+			assertEquals(1, metrics.getRoutes().get(0).getAvailable());
+
+			InputStream in = sardine.get(url + "large");
+			assertEquals(1, metrics.getLeased());
+			in.read(new byte[16]);
+			in.close();
+			assertEquals(1, metrics.getConnectionsAborted());
+			assertEquals(1, metrics.getConnectionsClosed());
+			assertEquals(0, metrics.getLeased());
+			assertEquals(0, metrics.getAvailable());
+			assertEquals(0, metrics.getLeaseTimeouts());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testLeaseTimeout() throws Exception
+	{
+		SardineImpl sardine = new SardineBuilder()
+				.maxConnectionsTotal(1)
+				.connectionRequestTimeout(50, TimeUnit.MILLISECONDS)
+				.build();
+		try
+		{
+			InputStream in = sardine.get(url + "large");
+			try
+			{
+				sardine.get(url + "small");
+				fail("Expected timeout");
+			}
+			catch (ConnectionPoolTimeoutException e)
+			{
+				// Pool exhausted
+			}
+			in.readAllBytes();
+			in.close();
+			ConnectionPoolMetrics metrics = sardine.getConnectionPoolMetrics();
+			assertEquals(2, metrics.getLeaseRequests());
+			assertEquals(1, metrics.getLeaseTimeouts());
+			assertEquals(1, metrics.getMaxTotal());
+			assertTrue(metrics.getMaxLeaseWaitTimeMillis() >= 40);
+			assertTrue(metrics.getMeanLeaseWaitTimeMillis() >= 20);
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testRegistration() throws Exception
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(ConnectionPoolMetrics.DOMAIN + ":type=ConnectionPool,name=\"test\"");
+		SardineImpl sardine = new SardineBuilder().jmxName("test").build();
+		try
+		{
+			assertTrue(server.isRegistered(name));
+			InputStream in = sardine.get(url + "small");
+			in.readAllBytes();
+			in.close();
+			assertEquals(1L, server.getAttribute(name, "ConnectionsCreated"));
+			assertEquals(1, server.getAttribute(name, "Available"));
+			assertEquals(sardine.getConnectionPoolMetrics().getRoutes().size(),
+					((Object[]) server.getAttribute(name, "Routes")).length);
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+		assertFalse(server.isRegistered(name));
+		assertEquals(1, sardine.getConnectionPoolMetrics().getConnectionsClosed());
+	}
+}
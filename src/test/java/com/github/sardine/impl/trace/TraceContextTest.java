@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.sardine.impl.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ */
+public class TraceContextTest
+{
+	@Test
+	public void testParse()
+	{
+		TraceContext context = TraceContext.parse("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01", "congo=t61rcWkgMzE");
+		assertEquals("0af7651916cd43dd8448eb211c80319c", context.getTraceId());
+		assertEquals("b7ad6b7169203331", context.getSpanId());
+		assertTrue(context.isSampled());
+		assertEquals("congo=t61rcWkgMzE", context.getTraceState());
+		assertEquals("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01", context.getTraceparent());
+		assertFalse(TraceContext.parse("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-00", null).isSampled());
+		// Future versions may append fields
+		assertEquals("b7ad6b7169203331", TraceContext.parse("01-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01-extra", null).getSpanId());
+	}
+
+	@Test
+	public void testInvalid()
+	{
+		assertNull(TraceContext.parse(null, null));
+		assertNull(TraceContext.parse("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331", null));
+		assertNull(TraceContext.parse("00-00000000000000000000000000000000-b7ad6b7169203331-01", null));
+		assertNull(TraceContext.parse("00-0af7651916cd43dd8448eb211c80319c-0000000000000000-01", null));
+		assertNull(TraceContext.parse("00-0AF7651916CD43DD8448EB211C80319C-b7ad6b7169203331-01", null));
+		assertNull(TraceContext.parse("ff-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01", null));
+		assertNull(TraceContext.parse("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01-extra", null));
+	}
+
+	@Test
+	public void testChild()
+	{
+		TraceContext root = TraceContext.root();
+		assertEquals(root.getTraceparent(), TraceContext.parse(root.getTraceparent(), null).getTraceparent());
+		assertEquals(32, root.getTraceId().length());
+		assertEquals(16, root.getSpanId().length());
+		TraceContext child = root.child();
+		assertEquals(root.getTraceId(), child.getTraceId());
+		assertNotEquals(root.getSpanId(), child.getSpanId());
+		assertNotEquals(root.getTraceId(), TraceContext.root().getTraceId());
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.impl.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.impl.SardineException;
+import com.github.sardine.impl.SardineImpl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * WebDAV methods over the JDK client against a local server.
+ */
+public class JavaNetHttpTransportTest
+{
+	private static final String MULTISTATUS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+			+ "<D:multistatus xmlns:D=\"DAV:\">"
+			+ "<D:response><D:href>/dav/</D:href><D:propstat><D:prop><D:resourcetype><D:collection/></D:resourcetype></D:prop>"
+			+ "<D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>"
+			+ "<D:response><D:href>/dav/file.txt</D:href><D:propstat><D:prop><D:resourcetype/><D:getcontentlength>7</D:getcontentlength></D:prop>"
+			+ "<D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>"
+			+ "</D:multistatus>";
+
+	private HttpServer server;
+
+	private String url;
+
+	private final Map<String, byte[]> files = new ConcurrentHashMap<String, byte[]>();
+
+	private final AtomicInteger challenges = new AtomicInteger();
+
+	private volatile String depth;
+
+	private volatile String requestBody;
+
+	private volatile String contentType;
+
+	/**
+	 * Authorization header of the last request
+	 */
+	private volatile String authorization;
+
+	@Before
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				String path = exchange.getRequestURI().getPath();
+				String method = exchange.getRequestMethod();
+				byte[] received = exchange.getRequestBody().readAllBytes();
+				byte[] body = new byte[0];
+				int status;
+				authorization = exchange.getRequestHeaders().getFirst("Authorization");
+				if (path.startsWith("/private/") && authorization == null)
+				{
+					challenges.incrementAndGet();
+					exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"test\"");
+					status = 401;
+					body = "unauthorized".getBytes(StandardCharsets.UTF_8);
+				}
+				else if (path.endsWith("/moved"))
+				{
+					// Redirects to the same server under another host name
+					exchange.getResponseHeaders().set("Location",
+							"http://localhost:" + server.getAddress().getPort() + "/public/file.txt");
+					status = 302;
+				}
+				else if ("PROPFIND".equals(method))
+				{
+					depth = exchange.getRequestHeaders().getFirst("Depth");
+					requestBody = new String(received, StandardCharsets.UTF_8);
+					status = 207;
+					body = MULTISTATUS.getBytes(StandardCharsets.UTF_8);
+					exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=utf-8");
+				}
+				else if ("PUT".equals(method))
+				{
+					contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+					files.put(path, received);
+					status = 201;
+				}
+				else if ("MKCOL".equals(method))
+				{
+					status = 201;
+				}
+				else if ("DELETE".equals(method))
+				{
+					status = files.remove(path) == null ? 404 : 204;
+				}
+				else if (files.containsKey(path))
+				{
+					status = 200;
+					body = files.get(path);
+				}
+				else
+				{
+					status = 404;
+					body = "missing".getBytes(StandardCharsets.UTF_8);
+				}
+				if ("HEAD".equals(method) || status == 204 || status == 302)
+				{
+					// The server does not reliably keep the connection open after HEAD
+					exchange.getResponseHeaders().set("Connection", "close");
+					exchange.sendResponseHeaders(status, -1);
+					exchange.close();
+				}
+				else
+				{
+					exchange.sendResponseHeaders(status, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				}
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	private static String read(InputStream in) throws IOException
+	{
+		try
+		{
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	@Test
+	public void testWebdavMethods() throws Exception
+	{
+		SardineImpl sardine = new SardineImpl(new JavaNetHttpTransport());
+		try
+		{
+			List<DavResource> resources = sardine.list(url + "/dav/");
+			assertEquals(2, resources.size());
+			assertTrue(resources.get(0).isDirectory());
+			assertEquals("1", depth);
+			assertTrue(requestBody, requestBody.contains("allprop"));
+
+			sardine.createDirectory(url + "/dav/folder/");
+			sardine.put(url + "/dav/file.txt", "content".getBytes(StandardCharsets.UTF_8), "text/plain");
+			assertEquals("text/plain", contentType);
+			assertEquals("content", read(sardine.get(url + "/dav/file.txt")));
+			assertTrue(sardine.exists(url + "/dav/file.txt"));
+			sardine.delete(url + "/dav/file.txt");
+			assertFalse(sardine.exists(url + "/dav/file.txt"));
+			try
+			{
+				sardine.get(url + "/dav/file.txt");
+				fail("Expected failure");
+			}
+			catch (SardineException e)
+			{
+				assertEquals(404, e.getStatusCode());
+			}
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testBasicAuthentication() throws Exception
+	{
+		files.put("/private/file.txt", "secret".getBytes(StandardCharsets.UTF_8));
+		SardineImpl sardine = new SardineImpl(new JavaNetHttpTransport(), "user", "password");
+		try
+		{
+			assertEquals("secret", read(sardine.get(url + "/private/file.txt")));
+			assertEquals("secret", read(sardine.get(url + "/private/file.txt")));
+			assertEquals("Preemptive after first challenge", 1, challenges.get());
+			try
+			{
+				new SardineImpl(new JavaNetHttpTransport()).get(url + "/private/file.txt");
+				fail("Expected failure");
+			}
+			catch (SardineException e)
+			{
+				assertEquals(401, e.getStatusCode());
+			}
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testChallengedByIdentity() throws Exception
+	{
+		files.put("/private/file.txt", "secret".getBytes(StandardCharsets.UTF_8));
+		SardineImpl sardine = new SardineImpl(new JavaNetHttpTransport(), "user", "password");
+		try
+		{
+			assertEquals("secret", read(sardine.get(url + "/private/file.txt")));
+			assertEquals("secret", read(sardine.get(url + "/private/file.txt")));
+			assertEquals(1, challenges.get());
+			SardineImpl other = sardine.forUser("other", "secret");
+			assertEquals("secret", read(other.get(url + "/private/file.txt")));
+			assertEquals("Not preemptive for another identity", 2, challenges.get());
+			assertEquals(basic("other", "secret"), authorization);
+			assertEquals("secret", read(other.get(url + "/private/file.txt")));
+			assertEquals(2, challenges.get());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	@Test
+	public void testRedirectToOtherHost() throws Exception
+	{
+		files.put("/public/file.txt", "public".getBytes(StandardCharsets.UTF_8));
+		SardineImpl sardine = new SardineImpl(new JavaNetHttpTransport(), "user", "password");
+		try
+		{
+			assertEquals("public", read(sardine.get(url + "/private/moved")));
+			assertEquals("Credentials not forwarded", null, authorization);
+			assertEquals(1, challenges.get());
+		}
+		finally
+		{
+			sardine.shutdown();
+		}
+	}
+
+	private static String basic(String username, String password)
+	{
+		return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+	}
+}
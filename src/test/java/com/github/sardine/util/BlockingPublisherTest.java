@@ -0,0 +1,199 @@
+/*
+ * Copyright 2009-2011 Jon Stevens et al.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.sardine.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Demand, cancellation and failures of publishers reading from blocking sources.
+ */
+public class BlockingPublisherTest
+{
+	private final AtomicInteger read = new AtomicInteger();
+
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	private final Executor executor = ForkJoinPool.commonPool();
+
+	private BlockingPublisher<Integer> publisher(final int count, final int failAt)
+	{
+		return new BlockingPublisher<Integer>(() -> new BlockingPublisher.Source<Integer>()
+		{
+			@Override
+			public Integer next() throws IOException
+			{
+				int next = read.get();
+				if (next == failAt)
+				{
+					throw new IOException("failed");
+				}
+				return next == count ? null : read.incrementAndGet();
+			}
+
+			@Override
+			public void close()
+			{
+				closed.set(true);
+			}
+		}, executor);
+	}
+
+	private static class Recorder implements Flow.Subscriber<Integer>
+	{
+		final List<Integer> items = new CopyOnWriteArrayList<Integer>();
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile Flow.Subscription subscription;
+		volatile Throwable error;
+		volatile boolean completed;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription)
+		{
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(Integer item)
+		{
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable)
+		{
+			error = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete()
+		{
+			completed = true;
+			done.countDown();
+		}
+	}
+
+	@Test
+	public void testDemand() throws Exception
+	{
+		Recorder recorder = new Recorder();
+		publisher(10, -1).subscribe(recorder);
+		Thread.sleep(50);
+		assertEquals("Nothing read without demand", 0, read.get());
+		recorder.subscription.request(3);
+		Thread.sleep(50);
+		assertEquals("Read ahead by one", 4, read.get());
+		assertEquals(3, recorder.items.size());
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+		assertTrue(recorder.completed);
+		assertEquals(10, recorder.items.size());
+		assertEquals(Integer.valueOf(10), recorder.items.get(9));
+		assertTrue(closed.get());
+	}
+
+	@Test
+	public void testCancel() throws Exception
+	{
+		Recorder recorder = new Recorder();
+		publisher(10, -1).subscribe(recorder);
+		recorder.subscription.request(2);
+		Thread.sleep(50);
+		recorder.subscription.cancel();
+		Thread.sleep(50);
+		assertTrue(closed.get());
+		recorder.subscription.request(5);
+		Thread.sleep(50);
+		assertEquals(2, recorder.items.size());
+		assertEquals(1, recorder.done.getCount());
+	}
+
+	@Test
+	public void testFailure() throws Exception
+	{
+		Recorder recorder = new Recorder();
+		publisher(10, 4).subscribe(recorder);
+		recorder.subscription.request(10);
+		assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+		assertEquals("failed", recorder.error.getMessage());
+		assertEquals(4, recorder.items.size());
+		assertTrue(closed.get());
+	}
+
+	@Test
+	public void testInvalidRequest() throws Exception
+	{
+		Recorder recorder = new Recorder();
+		publisher(10, -1).subscribe(recorder);
+		recorder.subscription.request(0);
+		assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+		assertTrue(recorder.error instanceof IllegalArgumentException);
+		assertEquals(0, read.get());
+	}
+
+	@Test
+	public void testSubscriberFailure() throws Exception
+	{
+		Recorder recorder = new Recorder()
+		{
+			@Override
+			public void onNext(Integer item)
+			{
+				super.onNext(item);
+				if (item == 2)
+				{
+					throw new IllegalStateException("subscriber failed");
+				}
+			}
+		};
+		publisher(10, -1).subscribe(recorder);
+		recorder.subscription.request(10);
+		Thread.sleep(100);
+		assertTrue(closed.get());
+		assertEquals("Treated as cancelled", 1, recorder.done.getCount());
+		assertEquals(2, recorder.items.size());
+	}
+
+	@Test
+	public void testRejected() throws Exception
+	{
+		Recorder recorder = new Recorder();
+		new BlockingPublisher<Integer>(() -> null, task ->
+		{
+			throw new RejectedExecutionException("shut down");
+		}).subscribe(recorder);
+		recorder.subscription.request(1);
+		assertTrue(recorder.error instanceof RejectedExecutionException);
+		recorder.subscription.request(1);
+		recorder.subscription.cancel();
+	}
+}